@@ -0,0 +1,204 @@
+package com.example.project_ez_talk.helper;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaMetadataRetriever;
+import android.media.MediaMuxer;
+import android.net.Uri;
+import android.opengl.GLES20;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * VideoTranscoder on the platform software encoder, fed a generated clip recorded
+ * in portrait (stored landscape with a 90° orientation hint)
+ */
+@RunWith(AndroidJUnit4.class)
+public class VideoTranscoderTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+    private static final int FRAME_RATE = 30;
+    private static final int FRAMES = 60;
+    private static final int ROTATION = 90;
+
+    private final Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+    private File source;
+    private File target;
+
+    @Before
+    public void setUp() throws Exception {
+        source = new File(context.getCacheDir(), "transcoder_source.mp4");
+        target = new File(context.getCacheDir(), "transcoder_target.mp4");
+        recordSource(source);
+    }
+
+    @After
+    public void tearDown() {
+        source.delete();
+        target.delete();
+    }
+
+    @Test
+    public void softwareTranscodeKeepsDurationOrientationAndFastStart() throws Exception {
+        VideoTranscoder.Config config = new VideoTranscoder.Config();
+        config.softwareOnly = true;
+        new VideoTranscoder(context, config).transcode(Uri.fromFile(source), target, null);
+        assertTrue(target.length() > 0);
+
+        MediaMetadataRetriever in = new MediaMetadataRetriever();
+        MediaMetadataRetriever out = new MediaMetadataRetriever();
+        try {
+            in.setDataSource(source.getPath());
+            out.setDataSource(target.getPath());
+
+            long sourceMs = Long.parseLong(in.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION));
+            long targetMs = Long.parseLong(out.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION));
+            assertEquals(sourceMs, targetMs, 1000 / FRAME_RATE * 2);
+
+            // Stored the same way round, rotated once by the container
+            assertEquals(String.valueOf(ROTATION), out.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_ROTATION));
+            assertEquals(String.valueOf(WIDTH), out.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_WIDTH));
+            assertEquals(String.valueOf(HEIGHT), out.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_HEIGHT));
+
+            // A second rotation baked into the pixels would move the red half
+            Bitmap expected = in.getFrameAtTime(0);
+            Bitmap actual = out.getFrameAtTime(0);
+            assertNotNull(expected);
+            assertNotNull(actual);
+            assertEquals(expected.getWidth(), actual.getWidth());
+            assertEquals(expected.getHeight(), actual.getHeight());
+            for (float[] point : new float[][]{{0.25f, 0.5f}, {0.75f, 0.5f}, {0.5f, 0.25f}, {0.5f, 0.75f}}) {
+                int x = (int) (expected.getWidth() * point[0]);
+                int y = (int) (expected.getHeight() * point[1]);
+                assertEquals("Pixel at " + x + "," + y,
+                        isRed(expected.getPixel(x, y)), isRed(actual.getPixel(x, y)));
+            }
+        } finally {
+            in.release();
+            out.release();
+        }
+
+        List<String> boxes = topLevelBoxes(target);
+        assertTrue("moov before mdat: " + boxes, boxes.indexOf("moov") >= 0
+                && boxes.indexOf("moov") < boxes.indexOf("mdat"));
+    }
+
+    // ==================== HELPERS ====================
+
+    /**
+     * Encode {@link #FRAMES} frames, left half red and right half blue, with a
+     * {@link #ROTATION} orientation hint
+     */
+    private static void recordSource(File file) throws IOException {
+        MediaFormat format = MediaFormat.createVideoFormat(MediaFormat.MIMETYPE_VIDEO_AVC, WIDTH, HEIGHT);
+        format.setInteger(MediaFormat.KEY_COLOR_FORMAT, MediaCodecInfo.CodecCapabilities.COLOR_FormatSurface);
+        format.setInteger(MediaFormat.KEY_BIT_RATE, 1_000_000);
+        format.setInteger(MediaFormat.KEY_FRAME_RATE, FRAME_RATE);
+        format.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, 1);
+
+        MediaCodec encoder = MediaCodec.createEncoderByType(MediaFormat.MIMETYPE_VIDEO_AVC);
+        encoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+        TranscodeSurfaces.EncoderInput input = new TranscodeSurfaces.EncoderInput(encoder.createInputSurface());
+        MediaMuxer muxer = new MediaMuxer(file.getPath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        muxer.setOrientationHint(ROTATION);
+
+        MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+        int track = -1;
+        try {
+            input.makeCurrent();
+            encoder.start();
+            for (int frame = 0; frame < FRAMES; frame++) {
+                GLES20.glEnable(GLES20.GL_SCISSOR_TEST);
+                GLES20.glScissor(0, 0, WIDTH / 2, HEIGHT);
+                GLES20.glClearColor(1f, 0f, 0f, 1f);
+                GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+                GLES20.glScissor(WIDTH / 2, 0, WIDTH / 2, HEIGHT);
+                GLES20.glClearColor(0f, 0f, 1f, 1f);
+                GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+                GLES20.glDisable(GLES20.GL_SCISSOR_TEST);
+                input.setPresentationTime(frame * 1_000_000_000L / FRAME_RATE);
+                input.swapBuffers();
+                track = drain(encoder, muxer, info, track, false);
+            }
+            encoder.signalEndOfInputStream();
+            drain(encoder, muxer, info, track, true);
+            muxer.stop();
+        } finally {
+            encoder.release();
+            input.release();
+            muxer.release();
+        }
+    }
+
+    private static int drain(MediaCodec encoder, MediaMuxer muxer, MediaCodec.BufferInfo info,
+                             int track, boolean untilEnd) {
+        while (true) {
+            int index = encoder.dequeueOutputBuffer(info, 10_000);
+            if (index == MediaCodec.INFO_TRY_AGAIN_LATER) {
+                if (!untilEnd) return track;
+            } else if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                track = muxer.addTrack(encoder.getOutputFormat());
+                muxer.start();
+            } else if (index >= 0) {
+                ByteBuffer data = encoder.getOutputBuffer(index);
+                boolean config = (info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0;
+                if (data != null && info.size > 0 && !config && track >= 0) {
+                    muxer.writeSampleData(track, data, info);
+                }
+                encoder.releaseOutputBuffer(index, false);
+                if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                    return track;
+                }
+            }
+        }
+    }
+
+    private static List<String> topLevelBoxes(File file) throws IOException {
+        List<String> types = new ArrayList<>();
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            byte[] type = new byte[4];
+            long offset = 0;
+            while (offset + 8 <= in.length()) {
+                in.seek(offset);
+                long size = in.readInt() & 0xFFFFFFFFL;
+                in.readFully(type);
+                if (size == 1) {
+                    size = in.readLong();
+                } else if (size == 0) {
+                    size = in.length() - offset;
+                }
+                types.add(new String(type, "US-ASCII"));
+                if (size < 8) break;
+                offset += size;
+            }
+        }
+        return types;
+    }
+
+    private static boolean isRed(int pixel) {
+        return Color.red(pixel) > 128 && Color.blue(pixel) < 128;
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.project_ez_talk.service;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.work.Data;
+import androidx.work.ListenableWorker;
+import androidx.work.testing.TestWorkerBuilder;
+
+import com.example.project_ez_talk.helper.OutboxManager;
+import com.example.project_ez_talk.helper.SupabaseStorageManager;
+import com.example.project_ez_talk.model.Message;
+import com.example.project_ez_talk.repository.OutboxStore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * OutboxWorker retries against a local Storage stand-in that, like Supabase, rejects
+ * a second upload to an existing object unless it is sent as an upsert.
+ */
+@RunWith(AndroidJUnit4.class)
+public class OutboxWorkerTest {
+
+    private static final String BUCKET = "chat-documents";
+    private static final long QUEUED_AT = System.currentTimeMillis() - 60 * 60 * 1000L;
+
+    private final Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final StorageDispatcher storage = new StorageDispatcher();
+    private final List<Message> written = new ArrayList<>();
+
+    private MockWebServer server;
+    private OutboxStore store;
+    private String messageId;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(storage);
+        server.start();
+        SupabaseStorageManager.init(context);
+        SupabaseStorageManager.setBaseUrl("http://" + server.getHostName() + ":" + server.getPort());
+        store = OutboxStore.getInstance(context);
+        messageId = "outbox_test_" + System.nanoTime();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        OutboxWorker.setMessageWriter(null);
+        SupabaseStorageManager.setBaseUrl(null);
+        store.delete(messageId);
+        OutboxManager.deleteLocalFiles(context, messageId);
+        executor.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void retryAfterUploadSucceededStillSends() throws Exception {
+        store.insert(queuedFile());
+
+        // The upload reaches the server, then the message write times out
+        OutboxWorker.setMessageWriter((entry, message) -> {
+            throw new TimeoutException("set() timed out");
+        });
+        assertEquals(ListenableWorker.Result.retry(), runWorker(0));
+        OutboxStore.Entry queued = store.get(messageId);
+        assertNotNull(queued);
+        assertFalse(queued.failed);
+
+        // WorkManager's retry uploads to the same object path again
+        OutboxWorker.setMessageWriter((entry, message) -> written.add(message));
+        long retriedAt = System.currentTimeMillis();
+        assertEquals(ListenableWorker.Result.success(), runWorker(1));
+
+        assertNull(store.get(messageId));
+        assertEquals(1, written.size());
+        assertEquals(SupabaseStorageManager.getPublicUrl(BUCKET, objectPath()), written.get(0).getFileUrl());
+        assertEquals(Message.SendState.SENT, written.get(0).getSendState());
+        // Written with the time of the write, so other clients' live windows still see it
+        assertTrue(written.get(0).getTimestamp() >= retriedAt);
+        assertEquals(QUEUED_AT, written.get(0).getComposedAt());
+
+        assertEquals(2, server.getRequestCount());
+        for (int i = 0; i < 2; i++) {
+            RecordedRequest upload = server.takeRequest();
+            assertEquals("/storage/v1/object/" + BUCKET + "/" + objectPath(), upload.getPath());
+            assertEquals("true", upload.getHeader("x-upsert"));
+        }
+    }
+
+    private ListenableWorker.Result runWorker(int attempt) {
+        OutboxWorker worker = TestWorkerBuilder.from(context, OutboxWorker.class, executor)
+                .setInputData(new Data.Builder().putString(OutboxWorker.KEY_MESSAGE_ID, messageId).build())
+                .setRunAttemptCount(attempt)
+                .build();
+        return worker.doWork();
+    }
+
+    private OutboxStore.Entry queuedFile() throws IOException {
+        File local = new File(OutboxManager.outboxDir(context), messageId);
+        if (!local.getParentFile().isDirectory() && !local.getParentFile().mkdirs()) {
+            throw new IOException("Cannot create " + local.getParentFile());
+        }
+        try (FileOutputStream out = new FileOutputStream(local)) {
+            out.write(new byte[4096]);
+        }
+
+        Message message = new Message("sender", "receiver", "report.bin", Message.MessageType.FILE);
+        message.setMessageId(messageId);
+        message.setSendState(Message.SendState.PENDING);
+        // Queued an hour ago, as OutboxManager.enqueue() would have stamped it
+        message.setTimestamp(QUEUED_AT);
+        message.setComposedAt(QUEUED_AT);
+
+        OutboxStore.Entry entry = new OutboxStore.Entry();
+        entry.messageId = messageId;
+        entry.conversationPath = "outbox_test/messages";
+        entry.message = message;
+        entry.localPath = local.getPath();
+        entry.kind = OutboxStore.Kind.FILE;
+        entry.bucket = BUCKET;
+        entry.objectPath = objectPath();
+        entry.contentType = "application/octet-stream";
+        entry.createdAt = System.currentTimeMillis();
+        return entry;
+    }
+
+    private String objectPath() {
+        return "sender/" + messageId + ".bin";
+    }
+
+    /**
+     * Supabase Storage object semantics: a POST to an existing path is a duplicate
+     * (400 with statusCode 409) unless x-upsert is set
+     */
+    private static final class StorageDispatcher extends Dispatcher {
+        private final Set<String> objects = new HashSet<>();
+
+        @NonNull
+        @Override
+        public synchronized MockResponse dispatch(@NonNull RecordedRequest request) {
+            String path = request.getPath();
+            if (!"POST".equals(request.getMethod()) || path == null || !path.startsWith("/storage/v1/object/")) {
+                return new MockResponse().setResponseCode(404);
+            }
+            if (objects.contains(path) && !"true".equals(request.getHeader("x-upsert"))) {
+                return new MockResponse().setResponseCode(400)
+                        .setBody("{\"statusCode\":\"409\",\"error\":\"Duplicate\",\"message\":\"The resource already exists\"}");
+            }
+            objects.add(path);
+            return new MockResponse().setResponseCode(200).setBody("{\"Key\":\"" + path + "\"}");
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.project_ez_talk.webrtc;
+
+import android.Manifest;
+import android.app.Instrumentation;
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.rule.GrantPermissionRule;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.webrtc.VideoTrack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Mesh scale check: MAX_PEERS + 1 audio-only participants in this process on a
+ * {@link LoopbackGroupSignaling.Hub}, running the same GroupCallManager code as a real
+ * call (negotiation, candidate batching, bandwidth split) minus the network.
+ */
+@RunWith(AndroidJUnit4.class)
+public class GroupCallScaleTest {
+
+    private static final long TIMEOUT_SECONDS = 30;
+
+    @Rule
+    public GrantPermissionRule audioPermission = GrantPermissionRule.grant(Manifest.permission.RECORD_AUDIO);
+
+    private final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+    private final Context context = instrumentation.getTargetContext();
+    private final LoopbackGroupSignaling.Hub hub = new LoopbackGroupSignaling.Hub();
+    private final List<GroupCallManager> managers = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        instrumentation.runOnMainSync(() -> {
+            for (GroupCallManager manager : managers) {
+                manager.leave();
+            }
+        });
+    }
+
+    @Test
+    public void fullMeshConnectsAndRefusesExtraJoiner() throws InterruptedException {
+        int n = GroupCallManager.MAX_PEERS + 1;
+        CountDownLatch links = new CountDownLatch(n * (n - 1));
+        for (int i = 0; i < n; i++) {
+            join("member_" + i, links, new CountDownLatch(1));
+        }
+        assertTrue("Only " + (n * (n - 1) - links.getCount()) + "/" + (n * (n - 1)) + " links connected",
+                links.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        CountDownLatch refused = new CountDownLatch(1);
+        GroupCallManager extra = join("extra", new CountDownLatch(0), refused);
+        assertTrue("Extra joiner was not told the call is full",
+                refused.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        // The extra joiner never connects to anyone and is not left listed in the call
+        int[] peerCount = new int[1];
+        boolean[] listed = new boolean[1];
+        instrumentation.runOnMainSync(() -> {
+            peerCount[0] = extra.getPeerCount();
+            listed[0] = hub.contains(extra.getSelfId());
+        });
+        assertEquals(0, peerCount[0]);
+        assertFalse("Extra joiner is still listed in the call", listed[0]);
+        for (GroupCallManager manager : managers.subList(0, n)) {
+            instrumentation.runOnMainSync(() -> peerCount[0] = manager.getPeerCount());
+            assertEquals(GroupCallManager.MAX_PEERS, peerCount[0]);
+        }
+    }
+
+    private GroupCallManager join(String id, CountDownLatch connected, CountDownLatch callFull) {
+        GroupCallManager[] holder = new GroupCallManager[1];
+        instrumentation.runOnMainSync(() -> {
+            holder[0] = new GroupCallManager(context, id, false,
+                    new LoopbackGroupSignaling(hub), new GroupCallManager.Listener() {
+                @Override
+                public void onPeerConnected(String peerId) {
+                    connected.countDown();
+                }
+
+                @Override
+                public void onRemoteVideo(String peerId, VideoTrack track) {
+                }
+
+                @Override
+                public void onPeerLeft(String peerId) {
+                }
+
+                @Override
+                public void onCallFull() {
+                    callFull.countDown();
+                }
+            });
+            managers.add(holder[0]);
+            holder[0].start(null);
+        });
+        return holder[0];
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.project_ez_talk.webrtc;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.gson.Gson;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-process group signaling: participants sharing a {@link Hub} see each other and
+ * exchange signals through the main looper, serialized the same way as over the network.
+ * Lets several simulated peers run a full mesh inside one app (see GroupCallScaleTest).
+ */
+public class LoopbackGroupSignaling implements GroupSignaling {
+
+    /**
+     * The "room" simulated participants join
+     */
+    public static final class Hub {
+        private final Map<String, LoopbackGroupSignaling> members = new LinkedHashMap<>();
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        /** Whether {@code userId} is listed in the room; call on the main thread */
+        public boolean contains(String userId) {
+            return members.containsKey(userId);
+        }
+    }
+
+    private final Hub hub;
+    private final Gson gson = new Gson();
+    private String selfId;
+    private Listener listener;
+
+    public LoopbackGroupSignaling(Hub hub) {
+        this.hub = hub;
+    }
+
+    @Override
+    public void join(String selfId, boolean video, int maxParticipants, Listener listener) {
+        this.selfId = selfId;
+        this.listener = listener;
+        hub.handler.post(() -> {
+            if (hub.members.size() >= maxParticipants) {
+                listener.onCallFull();
+                return;
+            }
+            List<LoopbackGroupSignaling> others = new ArrayList<>(hub.members.values());
+            hub.members.put(selfId, this);
+            for (LoopbackGroupSignaling other : others) {
+                listener.onParticipantJoined(other.selfId);
+                other.listener.onParticipantJoined(selfId);
+            }
+        });
+    }
+
+    @Override
+    public void send(String to, Signal signal) {
+        signal.from = selfId;
+        String wire = gson.toJson(signal);
+        hub.handler.post(() -> {
+            LoopbackGroupSignaling target = hub.members.get(to);
+            if (target != null) {
+                target.listener.onSignal(selfId, gson.fromJson(wire, Signal.class));
+            }
+        });
+    }
+
+    @Override
+    public void leave() {
+        hub.handler.post(() -> {
+            if (hub.members.remove(selfId) == null) return;
+            for (LoopbackGroupSignaling other : hub.members.values()) {
+                other.listener.onParticipantLeft(selfId);
+            }
+        });
+    }
+}
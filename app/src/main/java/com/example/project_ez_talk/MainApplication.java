@@ -7,8 +7,6 @@ import com.example.project_ez_talk.helper.ThemeHelper;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.database.FirebaseDatabase;
 
-import org.webrtc.PeerConnectionFactory;
-
 @SuppressWarnings("ALL")
 public class MainApplication extends Application {
 
@@ -28,12 +26,7 @@ public class MainApplication extends Application {
         // ❌ REMOVE useEmulator() for production
         // database.useEmulator(...)
 
-        // ✅ Initialize WebRTC ONCE per process
-        PeerConnectionFactory.initialize(
-                PeerConnectionFactory.InitializationOptions.builder(this)
-                        .setEnableInternalTracer(true)
-                        .createInitializationOptions()
-        );
+        // WebRTC is initialized on the first call (WebRtcRuntime), not at app start
 
         // ✅ Supabase init
         SupabaseStorageManager.init(this);
@@ -17,9 +17,11 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.bumptech.glide.Glide;
 import com.example.project_ez_talk.R;
 import com.example.project_ez_talk.model.Contact;
+import com.example.project_ez_talk.repository.FriendRepository;
 import com.example.project_ez_talk.ui.chat.detail.ChatDetailActivity;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -109,28 +111,36 @@ public class ContactAdapter extends RecyclerView.Adapter<ContactAdapter.ContactV
 
                         Log.d(TAG, "✅ [ACCEPT] Found request: " + requestId);
 
-                        // Update the friend request to "accepted"
-                        db.collection("friendRequests").document(requestId)
-                                .update("status", "accepted")
-                                .addOnSuccessListener(aVoid -> {
-                                    Log.d(TAG, "✅ [ACCEPT] Updated request status to 'accepted'");
-                                    Toast.makeText(context, "Friend request accepted!", Toast.LENGTH_SHORT).show();
+                        // Get current user info, then mark accepted and index the friendship together
+                        db.collection("users").document(currentUserId).get()
+                                .addOnSuccessListener(currentUserDoc -> {
+                                    String currentUserName = currentUserDoc.getString("name");
+                                    String currentUserAvatar = currentUserDoc.getString("avatarUrl");
 
-                                    // Get current user info and create chat
-                                    db.collection("users").document(currentUserId).get()
-                                            .addOnSuccessListener(currentUserDoc -> {
-                                                if (currentUserDoc.exists()) {
-                                                    String currentUserName = currentUserDoc.getString("name");
-                                                    String currentUserAvatar = currentUserDoc.getString("avatarUrl");
+                                    WriteBatch batch = db.batch();
+                                    batch.update(db.collection("friendRequests").document(requestId), "status", "accepted");
+                                    FriendRepository.addFriendship(db, batch, requestId,
+                                            currentUserId, currentUserName, currentUserAvatar,
+                                            contact.getId(), contact.getName(), contact.getAvatarUrl());
 
+                                    batch.commit()
+                                            .addOnSuccessListener(aVoid -> {
+                                                Log.d(TAG, "✅ [ACCEPT] Updated request status to 'accepted'");
+                                                Toast.makeText(context, "Friend request accepted!", Toast.LENGTH_SHORT).show();
+
+                                                if (currentUserDoc.exists()) {
                                                     createChatBetweenUsers(currentUserId, contact.getId(),
                                                             currentUserName, contact.getName(),
                                                             currentUserAvatar, contact.getAvatarUrl());
                                                 }
+                                            })
+                                            .addOnFailureListener(e -> {
+                                                Log.e(TAG, "❌ [ACCEPT] Error accepting request: " + e.getMessage());
+                                                Toast.makeText(context, "Error accepting request", Toast.LENGTH_SHORT).show();
                                             });
                                 })
                                 .addOnFailureListener(e -> {
-                                    Log.e(TAG, "❌ [ACCEPT] Error accepting request: " + e.getMessage());
+                                    Log.e(TAG, "❌ [ACCEPT] Error loading current user: " + e.getMessage());
                                     Toast.makeText(context, "Error accepting request", Toast.LENGTH_SHORT).show();
                                 });
                     } else {
@@ -4,6 +4,8 @@ import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -15,20 +17,27 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.cardview.widget.CardView;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.example.project_ez_talk.R;
+import com.example.project_ez_talk.helper.OutboxManager;
 import com.example.project_ez_talk.model.Message;
 import com.example.project_ez_talk.utils.AudioPlayerManager;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.FirebaseFirestore;
 import android.widget.SeekBar;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * ✅ COMPLETE MessageAdapter with VIDEO + AUDIO support
@@ -37,7 +46,8 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
 
     private static final String TAG = "MessageAdapter";
 
-    private List<Message> messages = new ArrayList<>();
+    // Precomputed render models, one per row
+    private final List<MessageItem> items = new ArrayList<>();
     private Context context;
     private final String currentUserId;
 
@@ -52,6 +62,12 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
 
     private final List<String> deletingMessageIds = new ArrayList<>();
 
+    // ==================== INCREMENTAL UPDATES ====================
+    private static final ExecutorService DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private List<Message> pendingMessages;  // target of an in-flight background diff
+    private int listVersion = 0;            // bumped on every incremental change
+
     // Callback for delete operations
     public interface MessageDeleteListener {
         void onMessageDeleted(Message message);
@@ -60,26 +76,28 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
     private MessageDeleteListener deleteListener;
 
     // ==================== VIEW TYPES ====================
-    private static final int TYPE_TEXT_SENT = 1;
-    private static final int TYPE_TEXT_RECEIVED = 2;
-    private static final int TYPE_IMAGE_SENT = 3;
-    private static final int TYPE_IMAGE_RECEIVED = 4;
-    private static final int TYPE_FILE_SENT = 5;
-    private static final int TYPE_FILE_RECEIVED = 6;
-    private static final int TYPE_AUDIO_SENT = 7;
-    private static final int TYPE_AUDIO_RECEIVED = 8;
-    private static final int TYPE_LOCATION_SENT = 9;
-    private static final int TYPE_LOCATION_RECEIVED = 10;
-    private static final int TYPE_VIDEO_SENT = 11;  // ✅ NEW
-    private static final int TYPE_VIDEO_RECEIVED = 12;  // ✅ NEW
+    static final int TYPE_TEXT_SENT = 1;
+    static final int TYPE_TEXT_RECEIVED = 2;
+    static final int TYPE_IMAGE_SENT = 3;
+    static final int TYPE_IMAGE_RECEIVED = 4;
+    static final int TYPE_FILE_SENT = 5;
+    static final int TYPE_FILE_RECEIVED = 6;
+    static final int TYPE_AUDIO_SENT = 7;
+    static final int TYPE_AUDIO_RECEIVED = 8;
+    static final int TYPE_LOCATION_SENT = 9;
+    static final int TYPE_LOCATION_RECEIVED = 10;
+    static final int TYPE_VIDEO_SENT = 11;  // ✅ NEW
+    static final int TYPE_VIDEO_RECEIVED = 12;  // ✅ NEW
 
     // ==================== CONSTRUCTORS ====================
 
     public MessageAdapter(List<Message> messageList, Context context) {
-        this.messages = messageList != null ? messageList : new ArrayList<>();
         this.context = context;
         this.currentUserId = FirebaseAuth.getInstance().getCurrentUser() != null ?
                 FirebaseAuth.getInstance().getCurrentUser().getUid() : "";
+        if (messageList != null) {
+            items.addAll(buildItems(messageList));
+        }
         this.db = FirebaseFirestore.getInstance();
         this.audioPlayerManager = new AudioPlayerManager();
     }
@@ -100,6 +118,10 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
     }
 
     public List<Message> getMessages() {
+        List<Message> messages = new ArrayList<>(items.size());
+        for (MessageItem item : items) {
+            messages.add(item != null ? item.message : null);
+        }
         return messages;
     }
 
@@ -107,12 +129,13 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
     public void deleteMessageAtPosition(int position) {
         Log.d(TAG, "🗑️ deleteMessageAtPosition called at position: " + position);
 
-        if (position < 0 || position >= messages.size()) {
+        if (position < 0 || position >= items.size()) {
             Log.e(TAG, "❌ Invalid position: " + position);
             return;
         }
 
-        Message message = messages.get(position);
+        MessageItem item = items.get(position);
+        Message message = item != null ? item.message : null;
 
         if (message == null) {
             Log.e(TAG, "❌ Message is null at position: " + position);
@@ -126,9 +149,25 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
 
         if (!message.isSentByMe(currentUserId)) {
             Toast.makeText(context, "You can only delete your own messages", Toast.LENGTH_SHORT).show();
+            notifyItemChanged(position); // restore a swiped-away row
+            return;
+        }
+
+        if (message.getSendState() == Message.SendState.FAILED) {
+            // A send that gave up: offer to try again instead
+            notifyItemChanged(position);
+            new AlertDialog.Builder(context)
+                    .setMessage("This message wasn't sent.")
+                    .setPositiveButton("Retry", (d, w) -> OutboxManager.retry(context, message.getMessageId()))
+                    .setNegativeButton("Delete", (d, w) -> deleteMessage(message))
+                    .show();
             return;
         }
 
+        deleteMessage(message);
+    }
+
+    private void deleteMessage(Message message) {
         if (message.getMessageId() == null || message.getMessageId().isEmpty()) {
             Log.e(TAG, "❌ Message ID is null or empty");
             Toast.makeText(context, "Cannot delete message (invalid ID)", Toast.LENGTH_SHORT).show();
@@ -173,76 +212,176 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "❌ Failed to delete message: " + e.getMessage());
                     deletingMessageIds.remove(message.getMessageId());
+                    notifyMessageChanged(message.getMessageId());
                     Toast.makeText(context, "Failed to delete: " + e.getMessage(), Toast.LENGTH_SHORT).show();
                 });
     }
 
     // ==================== SET MESSAGES ====================
+
+    /**
+     * Replace the whole list. The diff is computed off the main thread and
+     * only the rows that actually changed are rebound.
+     */
     public void setMessages(List<Message> newMessages) {
-        if (newMessages == null) {
-            newMessages = new ArrayList<>();
+        setMessages(newMessages, null);
+    }
+
+    public void setMessages(List<Message> newMessages, Runnable onCommitted) {
+        final List<Message> target = newMessages != null ? new ArrayList<>(newMessages) : new ArrayList<>();
+        final List<MessageItem> current = new ArrayList<>(items);
+        final int version = listVersion;
+        pendingMessages = target;
+
+        DIFF_EXECUTOR.execute(() -> {
+            // Render models are built here, off the main thread, together with the diff
+            List<MessageItem> targetItems = buildItems(target);
+            DiffUtil.DiffResult result = DiffUtil.calculateDiff(new MessageDiffCallback(current, targetItems));
+            mainHandler.post(() -> {
+                if (pendingMessages != target) {
+                    return; // superseded by a newer list
+                }
+                if (version != listVersion) {
+                    // List was changed incrementally meanwhile; diff again against what is shown
+                    setMessages(target, onCommitted);
+                    return;
+                }
+                pendingMessages = null;
+                items.clear();
+                items.addAll(targetItems);
+                retainDeletingIds();
+                result.dispatchUpdatesTo(this);
+                if (onCommitted != null) {
+                    onCommitted.run();
+                }
+            });
+        });
+    }
+
+    /**
+     * Apply Firestore document changes as precise insert/change/move/remove
+     * notifications. {@code offset} is the adapter position of the query's first
+     * result. Returns false if the changes don't line up with the current list
+     * (or a full diff is still pending); callers then fall back to setMessages().
+     */
+    public boolean applyDocumentChanges(List<DocumentChange> changes, int offset) {
+        if (pendingMessages != null) {
+            return false;
         }
+        listVersion++;
 
-        messages.clear();
-        messages.addAll(newMessages);
+        for (DocumentChange change : changes) {
+            String id = change.getDocument().getId();
 
+            switch (change.getType()) {
+                case ADDED: {
+                    MessageItem item = MessageItem.from(Message.fromSnapshot(change.getDocument()), currentUserId);
+                    int index = offset + change.getNewIndex();
+                    if (item == null || index < 0 || index > items.size()) {
+                        return false;
+                    }
+                    items.add(index, item);
+                    notifyItemInserted(index);
+                    break;
+                }
+                case MODIFIED: {
+                    MessageItem item = MessageItem.from(Message.fromSnapshot(change.getDocument()), currentUserId);
+                    int from = offset + change.getOldIndex();
+                    int to = offset + change.getNewIndex();
+                    if (item == null || !isMessageAt(from, id) || to < 0 || to >= items.size()) {
+                        return false;
+                    }
+                    if (from == to) {
+                        items.set(from, item);
+                        notifyItemChanged(from);
+                    } else {
+                        items.remove(from);
+                        items.add(to, item);
+                        notifyItemMoved(from, to);
+                        notifyItemChanged(to);
+                    }
+                    break;
+                }
+                case REMOVED: {
+                    int index = offset + change.getOldIndex();
+                    if (!isMessageAt(index, id)) {
+                        return false;
+                    }
+                    items.remove(index);
+                    deletingMessageIds.remove(id);
+                    notifyItemRemoved(index);
+                    break;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean isMessageAt(int index, String messageId) {
+        return index >= 0 && index < items.size()
+                && items.get(index) != null
+                && messageId.equals(items.get(index).messageId);
+    }
+
+    private void retainDeletingIds() {
         List<String> currentMessageIds = new ArrayList<>();
-        for (Message msg : messages) {
-            if (msg != null && msg.getMessageId() != null) {
-                currentMessageIds.add(msg.getMessageId());
+        for (MessageItem item : items) {
+            if (item != null && item.messageId != null) {
+                currentMessageIds.add(item.messageId);
             }
         }
         deletingMessageIds.retainAll(currentMessageIds);
+    }
 
-        notifyDataSetChanged();
+    private void notifyMessageChanged(String messageId) {
+        if (messageId == null) return;
+        for (int i = 0; i < items.size(); i++) {
+            MessageItem item = items.get(i);
+            if (item != null && messageId.equals(item.messageId)) {
+                notifyItemChanged(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Insert an older page above the current messages without rebinding them.
+     * Returns false while a full diff is pending; callers then use setMessages().
+     */
+    public boolean prependMessages(List<Message> olderMessages) {
+        if (pendingMessages != null) {
+            return false;
+        }
+        if (olderMessages == null || olderMessages.isEmpty()) {
+            return true;
+        }
+        listVersion++;
+        items.addAll(0, buildItems(olderMessages));
+        notifyItemRangeInserted(0, olderMessages.size());
+        return true;
     }
 
     public void addMessage(Message message) {
         if (message != null && !deletingMessageIds.contains(message.getMessageId())) {
-            messages.add(message);
-            notifyItemInserted(messages.size() - 1);
+            listVersion++;
+            items.add(MessageItem.from(message, currentUserId));
+            notifyItemInserted(items.size() - 1);
         }
     }
 
+    private List<MessageItem> buildItems(List<Message> source) {
+        List<MessageItem> built = new ArrayList<>(source.size());
+        for (Message message : source) {
+            built.add(MessageItem.from(message, currentUserId));
+        }
+        return built;
+    }
+
     // ==================== GET ITEM VIEW TYPE ====================
     @Override
     public int getItemViewType(int position) {
-        if (position < 0 || position >= messages.size()) {
-            return TYPE_TEXT_SENT;
-        }
-
-        Message msg = messages.get(position);
-        if (msg == null) {
-            return TYPE_TEXT_SENT;
-        }
-
-        boolean isSentByMe = msg.isSentByMe(currentUserId);
-        Message.MessageType messageType = msg.getTypeEnum();
-
-        // 🔍 DEBUG LOGGING
-        if (messageType == Message.MessageType.AUDIO) {
-            Log.d(TAG, "🔍 AUDIO MESSAGE DEBUG:");
-            Log.d(TAG, "   Current User ID: " + currentUserId);
-            Log.d(TAG, "   Message Sender ID: " + msg.getSenderId());
-            Log.d(TAG, "   isSentByMe: " + isSentByMe);
-            Log.d(TAG, "   Will use ViewHolder: " + (isSentByMe ? "TYPE_AUDIO_SENT (right/purple)" : "TYPE_AUDIO_RECEIVED (left/dark)"));
-        }
-
-        switch (messageType) {
-            case IMAGE:
-                return isSentByMe ? TYPE_IMAGE_SENT : TYPE_IMAGE_RECEIVED;
-            case VIDEO:  // ✅ NEW
-                return isSentByMe ? TYPE_VIDEO_SENT : TYPE_VIDEO_RECEIVED;
-            case AUDIO:
-                return isSentByMe ? TYPE_AUDIO_SENT : TYPE_AUDIO_RECEIVED;
-            case FILE:
-                return isSentByMe ? TYPE_FILE_SENT : TYPE_FILE_RECEIVED;
-            case LOCATION:
-                return isSentByMe ? TYPE_LOCATION_SENT : TYPE_LOCATION_RECEIVED;
-            default:
-            case TEXT:
-                return isSentByMe ? TYPE_TEXT_SENT : TYPE_TEXT_RECEIVED;
-        }
+        MessageItem item = itemAt(position);
+        return item != null ? item.viewType : TYPE_TEXT_SENT;
     }
 
     // ==================== CREATE VIEW HOLDER ====================
@@ -288,47 +427,41 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
     // ==================== BIND VIEW HOLDER ====================
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
-        if (position < 0 || position >= messages.size()) {
-            Log.e(TAG, "Invalid position in onBindViewHolder: " + position);
-            return;
-        }
-
-        Message msg = messages.get(position);
-        if (msg == null) {
-            Log.e(TAG, "Message is null at position: " + position);
+        MessageItem item = itemAt(position);
+        if (item == null) {
             return;
         }
 
         if (holder instanceof TextSentVH) {
-            ((TextSentVH) holder).bind(msg, position);
+            ((TextSentVH) holder).bind(item);
         } else if (holder instanceof TextReceivedVH) {
-            ((TextReceivedVH) holder).bind(msg, position);
+            ((TextReceivedVH) holder).bind(item);
         } else if (holder instanceof ImageSentVH) {
-            ((ImageSentVH) holder).bind(msg, position);
+            ((ImageSentVH) holder).bind(item);
         } else if (holder instanceof ImageReceivedVH) {
-            ((ImageReceivedVH) holder).bind(msg, position);
-        } else if (holder instanceof VideoSentVH) {  // ✅ NEW
-            ((VideoSentVH) holder).bind(msg, position);
-        } else if (holder instanceof VideoReceivedVH) {  // ✅ NEW
-            ((VideoReceivedVH) holder).bind(msg, position);
+            ((ImageReceivedVH) holder).bind(item);
+        } else if (holder instanceof VideoSentVH) {
+            ((VideoSentVH) holder).bind(item);
+        } else if (holder instanceof VideoReceivedVH) {
+            ((VideoReceivedVH) holder).bind(item);
         } else if (holder instanceof FileSentVH) {
-            ((FileSentVH) holder).bind(msg, position);
+            ((FileSentVH) holder).bind(item);
         } else if (holder instanceof FileReceivedVH) {
-            ((FileReceivedVH) holder).bind(msg, position);
+            ((FileReceivedVH) holder).bind(item);
         } else if (holder instanceof AudioSentVH) {
-            ((AudioSentVH) holder).bind(msg, position);
+            ((AudioSentVH) holder).bind(item);
         } else if (holder instanceof AudioReceivedVH) {
-            ((AudioReceivedVH) holder).bind(msg, position);
+            ((AudioReceivedVH) holder).bind(item);
         } else if (holder instanceof LocationSentVH) {
-            ((LocationSentVH) holder).bind(msg, position);
+            ((LocationSentVH) holder).bind(item);
         } else if (holder instanceof LocationReceivedVH) {
-            ((LocationReceivedVH) holder).bind(msg, position);
+            ((LocationReceivedVH) holder).bind(item);
         }
     }
 
     @Override
     public int getItemCount() {
-        return messages.size();
+        return items.size();
     }
 
     // ==================== TEXT VIEW HOLDERS ====================
@@ -344,29 +477,20 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             tvTime = view.findViewById(R.id.tvTime);
             llTextContent = view.findViewById(R.id.llTextContent);
             cvImageContainer = view.findViewById(R.id.cvImageContainer);
+            itemView.setOnLongClickListener(v -> {
+                deleteMessageAtPosition(getAdapterPosition());
+                return true;
+            });
         }
 
-        void bind(Message msg, int position) {
+        void bind(MessageItem item) {
             if (cvImageContainer != null) cvImageContainer.setVisibility(View.GONE);
             if (llTextContent != null) llTextContent.setVisibility(View.VISIBLE);
 
             if (tvMessage == null || tvTime == null) return;
 
-            String messageText = msg.getContent();
-            if (messageText == null || messageText.isEmpty()) {
-                messageText = msg.getText();
-            }
-            if (messageText == null) {
-                messageText = "";
-            }
-
-            tvMessage.setText(messageText);
-            tvTime.setText(msg.getFormattedTime());
-
-            itemView.setOnLongClickListener(v -> {
-                deleteMessageAtPosition(position);
-                return true;
-            });
+            tvMessage.setText(item.text);
+            tvTime.setText(item.time);
         }
     }
 
@@ -384,53 +508,30 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             tvTime = view.findViewById(R.id.tvTime);
             llTextContent = view.findViewById(R.id.llTextContent);
             cvImageContainer = view.findViewById(R.id.cvImageContainer);
+            itemView.setOnLongClickListener(v -> {
+                deleteOwnMessageAt(getAdapterPosition());
+                return true;
+            });
         }
 
-        void bind(Message msg, int position) {
+        void bind(MessageItem item) {
             if (cvImageContainer != null) cvImageContainer.setVisibility(View.GONE);
             if (llTextContent != null) llTextContent.setVisibility(View.VISIBLE);
 
             if (tvMessage == null || tvTime == null) return;
 
-            String messageText = msg.getContent();
-            if (messageText == null || messageText.isEmpty()) {
-                messageText = msg.getText();
-            }
-            if (messageText == null) {
-                messageText = "";
-            }
+            tvMessage.setText(item.text);
+            tvTime.setText(item.time);
 
-            tvMessage.setText(messageText);
-            tvTime.setText(msg.getFormattedTime());
-
-            if (tvSenderName != null) {
-                if (msg.getSenderName() != null && !msg.getSenderName().isEmpty()) {
-                    tvSenderName.setText(msg.getSenderName());
-                    tvSenderName.setVisibility(View.VISIBLE);
-                } else {
-                    tvSenderName.setVisibility(View.GONE);
-                }
-            }
+            bindSenderName(tvSenderName, item);
 
             if (ivAvatar != null) {
-                if (msg.getSenderAvatarUrl() != null && !msg.getSenderAvatarUrl().isEmpty()) {
-                    Glide.with(itemView.getContext())
-                            .load(msg.getSenderAvatarUrl())
-                            .circleCrop()
-                            .placeholder(R.drawable.ic_profile)
-                            .error(R.drawable.ic_profile)
-                            .into(ivAvatar);
+                if (item.avatarUrl != null) {
+                    loadAvatar(ivAvatar, item.avatarUrl);
                 } else {
                     ivAvatar.setImageResource(R.drawable.ic_profile);
                 }
             }
-
-            itemView.setOnLongClickListener(v -> {
-                if (msg.isSentByMe(currentUserId)) {
-                    deleteMessageAtPosition(position);
-                }
-                return true;
-            });
         }
     }
 
@@ -451,37 +552,32 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             llCaptionContainer = view.findViewById(R.id.llCaptionContainer);
             tvCaption = view.findViewById(R.id.tvCaption);
             tvTimeWithCaption = view.findViewById(R.id.tvTimeWithCaption);
+            if (ivImage != null) {
+                ivImage.setOnClickListener(v -> openImageViewer(itemView.getContext(), itemAt(getAdapterPosition()), "You"));
+            }
+            itemView.setOnLongClickListener(v -> {
+                deleteMessageAtPosition(getAdapterPosition());
+                return true;
+            });
         }
 
-        void bind(Message msg, int position) {
+        void bind(MessageItem item) {
             if (ivImage == null) return;
 
-            String imageUrl = msg.getFileUrl();
-            if (imageUrl == null || imageUrl.isEmpty()) {
+            if (item.fileUrl == null) {
                 ivImage.setVisibility(View.GONE);
                 return;
             }
 
             ivImage.setVisibility(View.VISIBLE);
-
-            // Handle caption
-            String caption = msg.getContent();
-            if (caption != null && !caption.isEmpty() && llCaptionContainer != null) {
-                llCaptionContainer.setVisibility(View.VISIBLE);
-                tvCaption.setText(caption);
-                tvTimeWithCaption.setText(msg.getFormattedTime());
-                if (tvTimeNoCaption != null) tvTimeNoCaption.setVisibility(View.GONE);
-            } else {
-                if (llCaptionContainer != null) llCaptionContainer.setVisibility(View.GONE);
-                if (tvTimeNoCaption != null) {
-                    tvTimeNoCaption.setText(msg.getFormattedTime());
-                    tvTimeNoCaption.setVisibility(View.VISIBLE);
-                }
+            bindCaption(item, llCaptionContainer, tvCaption, tvTimeWithCaption, tvTimeNoCaption);
+            if (progressBar != null) {
+                progressBar.setVisibility(item.sendState == Message.SendState.PENDING ? View.VISIBLE : View.GONE);
             }
 
             try {
                 Glide.with(itemView.getContext())
-                        .load(imageUrl)
+                        .load(item.previewUrl)
                         .placeholder(R.drawable.ic_gallery)
                         .error(R.drawable.ic_profile)
                         .centerCrop()
@@ -490,24 +586,6 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
                 Log.e(TAG, "Error loading image: " + e.getMessage());
                 ivImage.setVisibility(View.GONE);
             }
-
-            ivImage.setOnClickListener(v -> {
-                try {
-                    Intent intent = new Intent(itemView.getContext(), com.example.project_ez_talk.ui.media.ImageViewerActivity.class);
-                    intent.putExtra("image_url", imageUrl);
-                    intent.putExtra("sender_name", "You");
-                    intent.putExtra("timestamp", msg.getFormattedTime());
-                    intent.putExtra("caption", msg.getContent());
-                    itemView.getContext().startActivity(intent);
-                } catch (Exception e) {
-                    Log.e(TAG, "Error opening image viewer: " + e.getMessage());
-                }
-            });
-
-            itemView.setOnLongClickListener(v -> {
-                deleteMessageAtPosition(position);
-                return true;
-            });
         }
     }
 
@@ -528,62 +606,35 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             llCaptionContainer = view.findViewById(R.id.llCaptionContainer);
             tvCaption = view.findViewById(R.id.tvCaption);
             tvTimeWithCaption = view.findViewById(R.id.tvTimeWithCaption);
-        }
-
-        void bind(Message msg, int position) {
-            // Show sender name
-            if (tvSenderName != null) {
-                if (msg.getSenderName() != null && !msg.getSenderName().isEmpty()) {
-                    tvSenderName.setText(msg.getSenderName());
-                    tvSenderName.setVisibility(View.VISIBLE);
-                } else {
-                    tvSenderName.setVisibility(View.GONE);
-                }
+            if (ivImage != null) {
+                ivImage.setOnClickListener(v -> {
+                    MessageItem item = itemAt(getAdapterPosition());
+                    openImageViewer(itemView.getContext(), item, item != null ? item.message.getSenderName() : null);
+                });
             }
+            itemView.setOnLongClickListener(v -> {
+                deleteOwnMessageAt(getAdapterPosition());
+                return true;
+            });
+        }
 
-            // Show avatar for group chats
-            if (ivAvatar != null) {
-                if (msg.getSenderAvatarUrl() != null && !msg.getSenderAvatarUrl().isEmpty()) {
-                    ivAvatar.setVisibility(View.VISIBLE);
-                    Glide.with(itemView.getContext())
-                            .load(msg.getSenderAvatarUrl())
-                            .circleCrop()
-                            .placeholder(R.drawable.ic_profile)
-                            .error(R.drawable.ic_profile)
-                            .into(ivAvatar);
-                } else {
-                    ivAvatar.setVisibility(View.GONE);
-                }
-            }
+        void bind(MessageItem item) {
+            bindSenderName(tvSenderName, item);
+            bindGroupAvatar(ivAvatar, item);
 
             if (ivImage == null) return;
 
-            String imageUrl = msg.getFileUrl();
-            if (imageUrl == null || imageUrl.isEmpty()) {
+            if (item.fileUrl == null) {
                 ivImage.setVisibility(View.GONE);
                 return;
             }
 
             ivImage.setVisibility(View.VISIBLE);
-
-            // Handle caption
-            String caption = msg.getContent();
-            if (caption != null && !caption.isEmpty() && llCaptionContainer != null) {
-                llCaptionContainer.setVisibility(View.VISIBLE);
-                tvCaption.setText(caption);
-                tvTimeWithCaption.setText(msg.getFormattedTime());
-                if (tvTimeNoCaption != null) tvTimeNoCaption.setVisibility(View.GONE);
-            } else {
-                if (llCaptionContainer != null) llCaptionContainer.setVisibility(View.GONE);
-                if (tvTimeNoCaption != null) {
-                    tvTimeNoCaption.setText(msg.getFormattedTime());
-                    tvTimeNoCaption.setVisibility(View.VISIBLE);
-                }
-            }
+            bindCaption(item, llCaptionContainer, tvCaption, tvTimeWithCaption, tvTimeNoCaption);
 
             try {
                 Glide.with(itemView.getContext())
-                        .load(imageUrl)
+                        .load(item.previewUrl)
                         .placeholder(R.drawable.ic_gallery)
                         .error(R.drawable.ic_profile)
                         .centerCrop()
@@ -592,26 +643,6 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
                 Log.e(TAG, "Error loading received image: " + e.getMessage());
                 ivImage.setVisibility(View.GONE);
             }
-
-            ivImage.setOnClickListener(v -> {
-                try {
-                    Intent intent = new Intent(itemView.getContext(), com.example.project_ez_talk.ui.media.ImageViewerActivity.class);
-                    intent.putExtra("image_url", imageUrl);
-                    intent.putExtra("sender_name", msg.getSenderName());
-                    intent.putExtra("timestamp", msg.getFormattedTime());
-                    intent.putExtra("caption", msg.getContent());
-                    itemView.getContext().startActivity(intent);
-                } catch (Exception e) {
-                    Log.e(TAG, "Error opening image viewer: " + e.getMessage());
-                }
-            });
-
-            itemView.setOnLongClickListener(v -> {
-                if (msg.isSentByMe(currentUserId)) {
-                    deleteMessageAtPosition(position);
-                }
-                return true;
-            });
         }
     }
 
@@ -628,36 +659,19 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             tvTime = view.findViewById(R.id.tvTime);
             llTextContent = view.findViewById(R.id.llTextContent);
             cvImageContainer = view.findViewById(R.id.cvImageContainer);
+            itemView.setOnClickListener(v -> openVideoPlayer(itemView.getContext(), itemAt(getAdapterPosition()), "You"));
+            itemView.setOnLongClickListener(v -> {
+                deleteMessageAtPosition(getAdapterPosition());
+                return true;
+            });
         }
 
-        void bind(Message msg, int position) {
+        void bind(MessageItem item) {
             if (cvImageContainer != null) cvImageContainer.setVisibility(View.GONE);
             if (llTextContent != null) llTextContent.setVisibility(View.VISIBLE);
 
             if (tvDuration != null) tvDuration.setText("🎬 Video");
-            if (tvTime != null) tvTime.setText(msg.getFormattedTime());
-
-            String videoUrl = msg.getFileUrl();
-            if (videoUrl != null && !videoUrl.isEmpty()) {
-                itemView.setOnClickListener(v -> {
-                    try {
-                        Intent intent = new Intent(itemView.getContext(), com.example.project_ez_talk.ui.media.VideoPlayerActivity.class);
-                        intent.putExtra("video_url", videoUrl);
-                        intent.putExtra("sender_name", "You");
-                        intent.putExtra("timestamp", msg.getFormattedTime());
-                        intent.putExtra("caption", msg.getContent());
-                        itemView.getContext().startActivity(intent);
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error opening video player: " + e.getMessage());
-                        Toast.makeText(itemView.getContext(), "Cannot open video", Toast.LENGTH_SHORT).show();
-                    }
-                });
-            }
-
-            itemView.setOnLongClickListener(v -> {
-                deleteMessageAtPosition(position);
-                return true;
-            });
+            if (tvTime != null) tvTime.setText(item.time);
         }
     }
 
@@ -675,60 +689,32 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             tvTime = view.findViewById(R.id.tvTime);
             llTextContent = view.findViewById(R.id.llTextContent);
             cvImageContainer = view.findViewById(R.id.cvImageContainer);
+            itemView.setOnClickListener(v -> {
+                MessageItem item = itemAt(getAdapterPosition());
+                openVideoPlayer(itemView.getContext(), item, item != null ? item.message.getSenderName() : null);
+            });
+            itemView.setOnLongClickListener(v -> {
+                deleteOwnMessageAt(getAdapterPosition());
+                return true;
+            });
         }
 
-        void bind(Message msg, int position) {
+        void bind(MessageItem item) {
             if (cvImageContainer != null) cvImageContainer.setVisibility(View.GONE);
             if (llTextContent != null) llTextContent.setVisibility(View.VISIBLE);
 
-            if (tvSenderName != null) {
-                if (msg.getSenderName() != null && !msg.getSenderName().isEmpty()) {
-                    tvSenderName.setText(msg.getSenderName());
-                    tvSenderName.setVisibility(View.VISIBLE);
-                } else {
-                    tvSenderName.setVisibility(View.GONE);
-                }
-            }
+            bindSenderName(tvSenderName, item);
 
             if (ivAvatar != null) {
-                if (msg.getSenderAvatarUrl() != null && !msg.getSenderAvatarUrl().isEmpty()) {
-                    Glide.with(itemView.getContext())
-                            .load(msg.getSenderAvatarUrl())
-                            .circleCrop()
-                            .placeholder(R.drawable.ic_profile)
-                            .error(R.drawable.ic_profile)
-                            .into(ivAvatar);
+                if (item.avatarUrl != null) {
+                    loadAvatar(ivAvatar, item.avatarUrl);
                 } else {
                     ivAvatar.setImageResource(R.drawable.ic_profile);
                 }
             }
 
             if (tvDuration != null) tvDuration.setText("🎬 Video");
-            if (tvTime != null) tvTime.setText(msg.getFormattedTime());
-
-            String videoUrl = msg.getFileUrl();
-            if (videoUrl != null && !videoUrl.isEmpty()) {
-                itemView.setOnClickListener(v -> {
-                    try {
-                        Intent intent = new Intent(itemView.getContext(), com.example.project_ez_talk.ui.media.VideoPlayerActivity.class);
-                        intent.putExtra("video_url", videoUrl);
-                        intent.putExtra("sender_name", msg.getSenderName());
-                        intent.putExtra("timestamp", msg.getFormattedTime());
-                        intent.putExtra("caption", msg.getContent());
-                        itemView.getContext().startActivity(intent);
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error opening video player: " + e.getMessage());
-                        Toast.makeText(itemView.getContext(), "Cannot open video", Toast.LENGTH_SHORT).show();
-                    }
-                });
-            }
-
-            itemView.setOnLongClickListener(v -> {
-                if (msg.isSentByMe(currentUserId)) {
-                    deleteMessageAtPosition(position);
-                }
-                return true;
-            });
+            if (tvTime != null) tvTime.setText(item.time);
         }
     }
 
@@ -745,40 +731,22 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             tvFileName = view.findViewById(R.id.tvFileName);
             tvFileSize = view.findViewById(R.id.tvFileSize);
             tvFileTime = view.findViewById(R.id.tvFileTime);
+            View.OnClickListener open = v -> openDocumentAt(itemView.getContext(), getAdapterPosition());
+            itemView.setOnClickListener(open);
+            if (ivDownload != null) ivDownload.setOnClickListener(open);
+            itemView.setOnLongClickListener(v -> {
+                deleteMessageAtPosition(getAdapterPosition());
+                return true;
+            });
         }
 
-        void bind(Message msg, int position) {
-            // Set file name
-            if (tvFileName != null) {
-                String fileName = msg.getContent();
-                if (fileName == null || fileName.isEmpty()) fileName = "Document";
-                tvFileName.setText(fileName);
-            }
+        void bind(MessageItem item) {
+            if (tvFileName != null) tvFileName.setText(item.fileName);
 
-            // Set file size (if available in message)
-            if (tvFileSize != null) {
-                // You can add file size logic here if stored in message
-                tvFileSize.setText(""); // Or hide if not available
-            }
-
-            // Set timestamp
-            if (tvFileTime != null) {
-                tvFileTime.setText(msg.getFormattedTime());
-            }
+            // File size is not stored on the message yet
+            if (tvFileSize != null) tvFileSize.setText("");
 
-            // Handle file click to open
-            if (msg.getFileUrl() != null && !msg.getFileUrl().isEmpty()) {
-                itemView.setOnClickListener(v -> openDocument(itemView.getContext(), msg.getFileUrl()));
-                
-                if (ivDownload != null) {
-                    ivDownload.setOnClickListener(v -> openDocument(itemView.getContext(), msg.getFileUrl()));
-                }
-            }
-
-            itemView.setOnLongClickListener(v -> {
-                deleteMessageAtPosition(position);
-                return true;
-            });
+            if (tvFileTime != null) tvFileTime.setText(item.time);
         }
     }
 
@@ -795,68 +763,25 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             tvFileName = view.findViewById(R.id.tvFileName);
             tvFileSize = view.findViewById(R.id.tvFileSize);
             tvFileTime = view.findViewById(R.id.tvFileTime);
+            View.OnClickListener open = v -> openDocumentAt(itemView.getContext(), getAdapterPosition());
+            itemView.setOnClickListener(open);
+            if (ivDownload != null) ivDownload.setOnClickListener(open);
+            itemView.setOnLongClickListener(v -> {
+                deleteOwnMessageAt(getAdapterPosition());
+                return true;
+            });
         }
 
-        @SuppressLint("SetTextI18n")
-        void bind(Message msg, int position) {
-            // Show sender name
-            if (tvSenderName != null) {
-                if (msg.getSenderName() != null && !msg.getSenderName().isEmpty()) {
-                    tvSenderName.setText(msg.getSenderName());
-                    tvSenderName.setVisibility(View.VISIBLE);
-                } else {
-                    tvSenderName.setVisibility(View.GONE);
-                }
-            }
+        void bind(MessageItem item) {
+            bindSenderName(tvSenderName, item);
+            bindGroupAvatar(ivAvatar, item);
 
-            // Show avatar for group chats
-            if (ivAvatar != null) {
-                if (msg.getSenderAvatarUrl() != null && !msg.getSenderAvatarUrl().isEmpty()) {
-                    ivAvatar.setVisibility(View.VISIBLE);
-                    Glide.with(itemView.getContext())
-                            .load(msg.getSenderAvatarUrl())
-                            .circleCrop()
-                            .placeholder(R.drawable.ic_profile)
-                            .error(R.drawable.ic_profile)
-                            .into(ivAvatar);
-                } else {
-                    ivAvatar.setVisibility(View.GONE);
-                }
-            }
-
-            // Set file name
-            if (tvFileName != null) {
-                String fileName = msg.getContent();
-                if (fileName == null || fileName.isEmpty()) fileName = "Document";
-                tvFileName.setText(fileName);
-            }
-
-            // Set file size (if available in message)
-            if (tvFileSize != null) {
-                // You can add file size logic here if stored in message
-                tvFileSize.setText(""); // Or hide if not available
-            }
+            if (tvFileName != null) tvFileName.setText(item.fileName);
 
-            // Set timestamp
-            if (tvFileTime != null) {
-                tvFileTime.setText(msg.getFormattedTime());
-            }
+            // File size is not stored on the message yet
+            if (tvFileSize != null) tvFileSize.setText("");
 
-            // Handle file click to open
-            if (msg.getFileUrl() != null && !msg.getFileUrl().isEmpty()) {
-                itemView.setOnClickListener(v -> openDocument(itemView.getContext(), msg.getFileUrl()));
-                
-                if (ivDownload != null) {
-                    ivDownload.setOnClickListener(v -> openDocument(itemView.getContext(), msg.getFileUrl()));
-                }
-            }
-
-            itemView.setOnLongClickListener(v -> {
-                if (msg.isSentByMe(currentUserId)) {
-                    deleteMessageAtPosition(position);
-                }
-                return true;
-            });
+            if (tvFileTime != null) tvFileTime.setText(item.time);
         }
     }
 
@@ -873,54 +798,28 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             seekBarAudio = view.findViewById(R.id.seekBarAudio);
             tvDuration = view.findViewById(R.id.tvDuration);
             tvTime = view.findViewById(R.id.tvTime);
+            if (fabPlayPause != null) {
+                fabPlayPause.setOnClickListener(v -> playPauseAt(getAdapterPosition()));
+            }
+            itemView.setOnLongClickListener(v -> {
+                deleteMessageAtPosition(getAdapterPosition());
+                return true;
+            });
         }
 
-        @SuppressLint("SetTextI18n")
-        void bind(Message msg, int position) {
-            Log.d(TAG, "🎵 AudioSentVH bind called for message: " + msg.getMessageId());
-            Log.d(TAG, "🎵 Audio URL: " + msg.getFileUrl());
-            Log.d(TAG, "🎵 Duration: " + msg.getDuration() + "ms");
-            
-            if (tvTime != null) tvTime.setText(msg.getFormattedTime());
-
-            // Set duration from message
-            if (tvDuration != null) {
-                long durationMs = msg.getDuration();
-                if (durationMs > 0) {
-                    int seconds = (int) (durationMs / 1000) % 60;
-                    int minutes = (int) (durationMs / 1000) / 60;
-                    tvDuration.setText(String.format("%d:%02d", minutes, seconds));
-                } else {
-                    tvDuration.setText("0:00");
-                }
-            }
+        void bind(MessageItem item) {
+            if (tvTime != null) tvTime.setText(item.time);
+            if (tvDuration != null) tvDuration.setText(item.durationLabel);
 
-            // Play/pause button
-            boolean isPlaying = msg.getMessageId() != null && msg.getMessageId().equals(currentPlayingMessageId);
+            boolean isPlaying = item.messageId != null && item.messageId.equals(currentPlayingMessageId);
             if (fabPlayPause != null) {
                 fabPlayPause.setImageResource(isPlaying ? R.drawable.ic_pause : R.drawable.ic_play);
-                fabPlayPause.setOnClickListener(v -> {
-                    Log.d(TAG, "🎵 Play button clicked!");
-                    if (msg.getFileUrl() != null && !msg.getFileUrl().isEmpty()) {
-                        playPauseAudio(msg);
-                    } else {
-                        Log.e(TAG, "❌ File URL is null or empty!");
-                        Toast.makeText(context, "Audio file not available", Toast.LENGTH_SHORT).show();
-                    }
-                });
-            } else {
-                Log.e(TAG, "❌ fabPlayPause is null!");
             }
 
             // Reset seekbar if not playing
             if (seekBarAudio != null && !isPlaying) {
                 seekBarAudio.setProgress(0);
             }
-
-            itemView.setOnLongClickListener(v -> {
-                deleteMessageAtPosition(position);
-                return true;
-            });
         }
     }
 
@@ -938,33 +837,32 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             tvTime = view.findViewById(R.id.tvTime);
             tvSenderName = view.findViewById(R.id.tvSenderName);
             ivAvatar = view.findViewById(R.id.ivAvatar);
+            if (fabPlayPause != null) {
+                fabPlayPause.setOnClickListener(v -> playPauseAt(getAdapterPosition()));
+            }
+            itemView.setOnLongClickListener(v -> {
+                deleteOwnMessageAt(getAdapterPosition());
+                return true;
+            });
         }
 
-        @SuppressLint("SetTextI18n")
-        void bind(Message msg, int position) {
-            Log.d(TAG, "🎵 AudioReceivedVH bind called for message: " + msg.getMessageId());
-            Log.d(TAG, "🎵 Audio URL: " + msg.getFileUrl());
-            Log.d(TAG, "🎵 Duration: " + msg.getDuration() + "ms");
-            
-            // Show sender name
+        void bind(MessageItem item) {
             if (tvSenderName != null) {
-                String senderName = msg.getSenderName();
-                if (senderName != null && !senderName.isEmpty() && !"Unknown".equals(senderName)) {
-                    tvSenderName.setText(senderName);
+                if (item.senderName != null && !"Unknown".equals(item.senderName)) {
+                    tvSenderName.setText(item.senderName);
                     tvSenderName.setVisibility(View.VISIBLE);
                 } else {
                     tvSenderName.setVisibility(View.GONE);
                 }
             }
-            
+
             // Show avatar for group chats
             if (ivAvatar != null) {
                 if ("group".equals(chatType)) {
                     ivAvatar.setVisibility(View.VISIBLE);
-                    // Load avatar with Glide if available
-                    if (msg.getSenderAvatarUrl() != null && !msg.getSenderAvatarUrl().isEmpty()) {
+                    if (item.avatarUrl != null) {
                         Glide.with(context)
-                                .load(msg.getSenderAvatarUrl())
+                                .load(item.avatarUrl)
                                 .placeholder(R.drawable.ic_person)
                                 .circleCrop()
                                 .into(ivAvatar);
@@ -975,49 +873,19 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
                     ivAvatar.setVisibility(View.GONE);
                 }
             }
-            
-            if (tvTime != null) tvTime.setText(msg.getFormattedTime());
-
-            // Set duration from message
-            if (tvDuration != null) {
-                long durationMs = msg.getDuration();
-                if (durationMs > 0) {
-                    int seconds = (int) (durationMs / 1000) % 60;
-                    int minutes = (int) (durationMs / 1000) / 60;
-                    tvDuration.setText(String.format("%d:%02d", minutes, seconds));
-                } else {
-                    tvDuration.setText("0:00");
-                }
-            }
 
-            // Play/pause button
-            boolean isPlaying = msg.getMessageId() != null && msg.getMessageId().equals(currentPlayingMessageId);
+            if (tvTime != null) tvTime.setText(item.time);
+            if (tvDuration != null) tvDuration.setText(item.durationLabel);
+
+            boolean isPlaying = item.messageId != null && item.messageId.equals(currentPlayingMessageId);
             if (fabPlayPause != null) {
                 fabPlayPause.setImageResource(isPlaying ? R.drawable.ic_pause : R.drawable.ic_play);
-                fabPlayPause.setOnClickListener(v -> {
-                    Log.d(TAG, "🎵 Play button clicked!");
-                    if (msg.getFileUrl() != null && !msg.getFileUrl().isEmpty()) {
-                        playPauseAudio(msg);
-                    } else {
-                        Log.e(TAG, "❌ File URL is null or empty!");
-                        Toast.makeText(context, "Audio file not available", Toast.LENGTH_SHORT).show();
-                    }
-                });
-            } else {
-                Log.e(TAG, "❌ fabPlayPause is null!");
             }
 
             // Reset seekbar if not playing
             if (seekBarAudio != null && !isPlaying) {
                 seekBarAudio.setProgress(0);
             }
-
-            itemView.setOnLongClickListener(v -> {
-                if (msg.isSentByMe(currentUserId)) {
-                    deleteMessageAtPosition(position);
-                }
-                return true;
-            });
         }
     }
 
@@ -1033,49 +901,17 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             tvLocationTitle = view.findViewById(R.id.tvLocationTitle);
             tvLocationSubtitle = view.findViewById(R.id.tvLocationSubtitle);
             tvLocationTime = view.findViewById(R.id.tvLocationTime);
-        }
-
-        @SuppressLint({"SetTextI18n", "DefaultLocale"})
-        void bind(Message msg, int position) {
-            // Set timestamp
-            if (tvLocationTime != null) {
-                tvLocationTime.setText(msg.getFormattedTime());
-            }
-
-            // Parse location coordinates
-            String content = msg.getContent();
-            if (content != null && content.contains(",")) {
-                String[] coords = content.split(",");
-                if (coords.length == 2) {
-                    try {
-                        double lat = Double.parseDouble(coords[0].trim());
-                        double lon = Double.parseDouble(coords[1].trim());
-                        
-                        // Load static map image if available
-                        if (ivLocationMap != null) {
-                            String mapUrl = "https://maps.googleapis.com/maps/api/staticmap?center=" + lat + "," + lon +
-                                    "&zoom=15&size=400x300&markers=color:red%7C" + lat + "," + lon +
-                                    "&key=YOUR_API_KEY"; // TODO: Add your Google Maps API key
-                            
-                            Glide.with(itemView.getContext())
-                                    .load(mapUrl)
-                                    .placeholder(R.drawable.ic_location)
-                                    .error(R.drawable.ic_location)
-                                    .into(ivLocationMap);
-                        }
-                        
-                        itemView.setOnClickListener(v -> openLocation(itemView.getContext(), lat, lon));
-                    } catch (NumberFormatException e) {
-                        Log.e(TAG, "Error parsing location coordinates");
-                    }
-                }
-            }
-
+            itemView.setOnClickListener(v -> openLocationAt(itemView.getContext(), getAdapterPosition()));
             itemView.setOnLongClickListener(v -> {
-                deleteMessageAtPosition(position);
+                deleteMessageAtPosition(getAdapterPosition());
                 return true;
             });
         }
+
+        void bind(MessageItem item) {
+            if (tvLocationTime != null) tvLocationTime.setText(item.time);
+            bindLocationMap(ivLocationMap, item);
+        }
     }
 
     class LocationReceivedVH extends RecyclerView.ViewHolder {
@@ -1090,75 +926,191 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             tvLocationTitle = view.findViewById(R.id.tvLocationTitle);
             tvLocationSubtitle = view.findViewById(R.id.tvLocationSubtitle);
             tvLocationTime = view.findViewById(R.id.tvLocationTime);
+            itemView.setOnClickListener(v -> openLocationAt(itemView.getContext(), getAdapterPosition()));
+            itemView.setOnLongClickListener(v -> {
+                deleteOwnMessageAt(getAdapterPosition());
+                return true;
+            });
         }
 
-        @SuppressLint({"DefaultLocale", "SetTextI18n"})
-        void bind(Message msg, int position) {
-            // Show sender name
-            if (tvSenderName != null) {
-                if (msg.getSenderName() != null && !msg.getSenderName().isEmpty()) {
-                    tvSenderName.setText(msg.getSenderName());
-                    tvSenderName.setVisibility(View.VISIBLE);
-                } else {
-                    tvSenderName.setVisibility(View.GONE);
-                }
-            }
+        void bind(MessageItem item) {
+            bindSenderName(tvSenderName, item);
+            bindGroupAvatar(ivAvatar, item);
 
-            // Show avatar for group chats
-            if (ivAvatar != null) {
-                if (msg.getSenderAvatarUrl() != null && !msg.getSenderAvatarUrl().isEmpty()) {
-                    ivAvatar.setVisibility(View.VISIBLE);
-                    Glide.with(itemView.getContext())
-                            .load(msg.getSenderAvatarUrl())
-                            .circleCrop()
-                            .placeholder(R.drawable.ic_profile)
-                            .error(R.drawable.ic_profile)
-                            .into(ivAvatar);
-                } else {
-                    ivAvatar.setVisibility(View.GONE);
-                }
-            }
+            if (tvLocationTime != null) tvLocationTime.setText(item.time);
+            bindLocationMap(ivLocationMap, item);
+        }
+    }
 
-            // Set timestamp
-            if (tvLocationTime != null) {
-                tvLocationTime.setText(msg.getFormattedTime());
-            }
+    // ==================== SHARED BINDING ====================
 
-            // Parse location coordinates
-            String content = msg.getContent();
-            if (content != null && content.contains(",")) {
-                String[] coords = content.split(",");
-                if (coords.length == 2) {
-                    try {
-                        double lat = Double.parseDouble(coords[0].trim());
-                        double lon = Double.parseDouble(coords[1].trim());
-                        
-                        // Load static map image if available
-                        if (ivLocationMap != null) {
-                            String mapUrl = "https://maps.googleapis.com/maps/api/staticmap?center=" + lat + "," + lon +
-                                    "&zoom=15&size=400x300&markers=color:red%7C" + lat + "," + lon +
-                                    "&key=YOUR_API_KEY"; // TODO: Add your Google Maps API key
-                            
-                            Glide.with(itemView.getContext())
-                                    .load(mapUrl)
-                                    .placeholder(R.drawable.ic_location)
-                                    .error(R.drawable.ic_location)
-                                    .into(ivLocationMap);
-                        }
-                        
-                        itemView.setOnClickListener(v -> openLocation(itemView.getContext(), lat, lon));
-                    } catch (NumberFormatException e) {
-                        Log.e(TAG, "Error parsing location coordinates");
-                    }
-                }
+    private MessageItem itemAt(int position) {
+        return position >= 0 && position < items.size() ? items.get(position) : null;
+    }
+
+    /** Long-press delete on a row that may belong to someone else */
+    private void deleteOwnMessageAt(int position) {
+        MessageItem item = itemAt(position);
+        if (item != null && item.sentByMe) {
+            deleteMessageAtPosition(position);
+        }
+    }
+
+    private static void bindSenderName(TextView tvSenderName, MessageItem item) {
+        if (tvSenderName == null) return;
+        if (item.senderName != null) {
+            tvSenderName.setText(item.senderName);
+            tvSenderName.setVisibility(View.VISIBLE);
+        } else {
+            tvSenderName.setVisibility(View.GONE);
+        }
+    }
+
+    private static void bindGroupAvatar(ImageView ivAvatar, MessageItem item) {
+        if (ivAvatar == null) return;
+        if (item.avatarUrl != null) {
+            ivAvatar.setVisibility(View.VISIBLE);
+            loadAvatar(ivAvatar, item.avatarUrl);
+        } else {
+            ivAvatar.setVisibility(View.GONE);
+        }
+    }
+
+    private static void loadAvatar(ImageView ivAvatar, String avatarUrl) {
+        Glide.with(ivAvatar.getContext())
+                .load(avatarUrl)
+                .circleCrop()
+                .placeholder(R.drawable.ic_profile)
+                .error(R.drawable.ic_profile)
+                .into(ivAvatar);
+    }
+
+    private static void bindCaption(MessageItem item, LinearLayout llCaptionContainer, TextView tvCaption,
+                                    TextView tvTimeWithCaption, TextView tvTimeNoCaption) {
+        if (item.caption != null && llCaptionContainer != null) {
+            llCaptionContainer.setVisibility(View.VISIBLE);
+            tvCaption.setText(item.caption);
+            tvTimeWithCaption.setText(item.time);
+            if (tvTimeNoCaption != null) tvTimeNoCaption.setVisibility(View.GONE);
+        } else {
+            if (llCaptionContainer != null) llCaptionContainer.setVisibility(View.GONE);
+            if (tvTimeNoCaption != null) {
+                tvTimeNoCaption.setText(item.time);
+                tvTimeNoCaption.setVisibility(View.VISIBLE);
             }
+        }
+    }
 
-            itemView.setOnLongClickListener(v -> {
-                if (msg.isSentByMe(currentUserId)) {
-                    deleteMessageAtPosition(position);
-                }
-                return true;
-            });
+    private static void bindLocationMap(ImageView ivLocationMap, MessageItem item) {
+        if (ivLocationMap == null || !item.hasLocation) return;
+        Glide.with(ivLocationMap.getContext())
+                .load(item.mapUrl)
+                .placeholder(R.drawable.ic_location)
+                .error(R.drawable.ic_location)
+                .into(ivLocationMap);
+    }
+
+    private static void openImageViewer(Context context, MessageItem item, String senderName) {
+        if (item == null || item.fileUrl == null) return;
+        try {
+            Intent intent = new Intent(context, com.example.project_ez_talk.ui.media.ImageViewerActivity.class);
+            intent.putExtra("image_url", item.fileUrl);
+            intent.putExtra("sender_name", senderName);
+            intent.putExtra("timestamp", item.time);
+            intent.putExtra("caption", item.message.getContent());
+            context.startActivity(intent);
+        } catch (Exception e) {
+            Log.e(TAG, "Error opening image viewer: " + e.getMessage());
+        }
+    }
+
+    private static void openVideoPlayer(Context context, MessageItem item, String senderName) {
+        if (item == null || item.fileUrl == null) return;
+        try {
+            Intent intent = new Intent(context, com.example.project_ez_talk.ui.media.VideoPlayerActivity.class);
+            intent.putExtra("video_url", item.fileUrl);
+            intent.putExtra("sender_name", senderName);
+            intent.putExtra("timestamp", item.time);
+            intent.putExtra("caption", item.message.getContent());
+            context.startActivity(intent);
+        } catch (Exception e) {
+            Log.e(TAG, "Error opening video player: " + e.getMessage());
+            Toast.makeText(context, "Cannot open video", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    private void openDocumentAt(Context context, int position) {
+        MessageItem item = itemAt(position);
+        if (item != null && item.fileUrl != null) {
+            openDocument(context, item.fileUrl);
+        }
+    }
+
+    private void openLocationAt(Context context, int position) {
+        MessageItem item = itemAt(position);
+        if (item != null && item.hasLocation) {
+            openLocation(context, item.latitude, item.longitude);
+        }
+    }
+
+    private void playPauseAt(int position) {
+        MessageItem item = itemAt(position);
+        if (item == null) return;
+        if (item.fileUrl != null) {
+            playPauseAudio(item.message);
+        } else {
+            Log.e(TAG, "❌ File URL is null or empty!");
+            Toast.makeText(context, "Audio file not available", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    // ==================== DIFF CALLBACK ====================
+
+    private static class MessageDiffCallback extends DiffUtil.Callback {
+        private final List<MessageItem> oldList;
+        private final List<MessageItem> newList;
+
+        MessageDiffCallback(List<MessageItem> oldList, List<MessageItem> newList) {
+            this.oldList = oldList;
+            this.newList = newList;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldList.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            MessageItem oldItem = oldList.get(oldItemPosition);
+            MessageItem newItem = newList.get(newItemPosition);
+            if (oldItem == null || newItem == null) return oldItem == newItem;
+            return Objects.equals(oldItem.messageId, newItem.messageId);
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            MessageItem oldItem = oldList.get(oldItemPosition);
+            MessageItem newItem = newList.get(newItemPosition);
+            if (oldItem == null || newItem == null) return oldItem == newItem;
+            Message oldMsg = oldItem.message;
+            Message newMsg = newItem.message;
+            return oldMsg.getTimestamp() == newMsg.getTimestamp()
+                    && oldMsg.getDuration() == newMsg.getDuration()
+                    && oldMsg.isDeleted() == newMsg.isDeleted()
+                    && oldMsg.getSendState() == newMsg.getSendState()
+                    && Objects.equals(oldMsg.getMessageType(), newMsg.getMessageType())
+                    && Objects.equals(oldMsg.getContent(), newMsg.getContent())
+                    && Objects.equals(oldMsg.getFileUrl(), newMsg.getFileUrl())
+                    && Objects.equals(oldMsg.getThumbnailUrl(), newMsg.getThumbnailUrl())
+                    && Objects.equals(oldMsg.getSenderId(), newMsg.getSenderId())
+                    && Objects.equals(oldMsg.getSenderName(), newMsg.getSenderName())
+                    && Objects.equals(oldMsg.getSenderAvatarUrl(), newMsg.getSenderAvatarUrl());
         }
     }
 
@@ -1199,20 +1151,22 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             Log.d(TAG, "⏸ Pausing audio");
             audioPlayerManager.pauseAudio();
             currentPlayingMessageId = null;
-            notifyDataSetChanged();
+            notifyMessageChanged(messageId);
             return;
         }
 
         // Stop any currently playing audio and start new one
         Log.d(TAG, "▶ Starting audio playback");
         audioPlayerManager.stopAudio();
+        String previousPlayingMessageId = currentPlayingMessageId;
         currentPlayingMessageId = messageId;
+        notifyMessageChanged(previousPlayingMessageId);
 
         audioPlayerManager.playAudio(audioUrl, new AudioPlayerManager.PlaybackCallback() {
             @Override
             public void onPlaybackStarted() {
                 Log.d(TAG, "✅ Audio playback started");
-                notifyDataSetChanged();
+                notifyMessageChanged(messageId);
             }
 
             @Override
@@ -1224,7 +1178,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             public void onPlaybackCompleted() {
                 Log.d(TAG, "✅ Audio playback completed");
                 currentPlayingMessageId = null;
-                notifyDataSetChanged();
+                notifyMessageChanged(messageId);
             }
 
             @Override
@@ -1232,7 +1186,7 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
                 Log.e(TAG, "❌ Audio playback error: " + error);
                 currentPlayingMessageId = null;
                 Toast.makeText(context, "Cannot play audio: " + error, Toast.LENGTH_SHORT).show();
-                notifyDataSetChanged();
+                notifyMessageChanged(messageId);
             }
         });
     }
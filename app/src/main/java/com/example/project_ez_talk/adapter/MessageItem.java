@@ -0,0 +1,127 @@
+package com.example.project_ez_talk.adapter;
+
+import com.example.project_ez_talk.model.Message;
+
+import java.util.Locale;
+
+/**
+ * Immutable display model for one message row.
+ * Built once per message (off the main thread for full list updates) so that
+ * view holders only assign precomputed fields while binding.
+ */
+final class MessageItem {
+
+    final Message message;
+    final String messageId;
+    final int viewType;
+    final boolean sentByMe;
+    final Message.SendState sendState;
+
+    final String time;          // carries the pending/failed marker for outgoing messages
+    final String text;          // content, falling back to legacy "text", never null
+    final String caption;       // image caption, or null
+    final String fileName;      // document name, "Document" when missing
+    final String fileUrl;       // null when missing
+    final String previewUrl;    // what image bubbles load: thumbnail if present, else fileUrl
+    final String senderName;    // null when missing
+    final String avatarUrl;     // null when missing
+    final String durationLabel; // "m:ss"
+
+    final boolean hasLocation;
+    final double latitude;
+    final double longitude;
+    final String mapUrl;
+
+    private MessageItem(Message message, String currentUserId) {
+        this.message = message;
+        this.messageId = message.getMessageId();
+        this.sentByMe = message.isSentByMe(currentUserId);
+        this.viewType = resolveViewType(message.getTypeEnum(), sentByMe);
+
+        this.sendState = message.getSendState();
+        this.time = timeLabel(message.getFormattedTime(), sendState);
+
+        String content = message.getContent();
+        String resolved = content;
+        if (resolved == null || resolved.isEmpty()) {
+            resolved = message.getText();
+        }
+        this.text = resolved != null ? resolved : "";
+        this.caption = content != null && !content.isEmpty() ? content : null;
+        this.fileName = caption != null ? caption : "Document";
+
+        this.fileUrl = emptyToNull(message.getFileUrl());
+        String thumbnailUrl = emptyToNull(message.getThumbnailUrl());
+        this.previewUrl = thumbnailUrl != null ? thumbnailUrl : fileUrl;
+        this.senderName = emptyToNull(message.getSenderName());
+        this.avatarUrl = emptyToNull(message.getSenderAvatarUrl());
+        this.durationLabel = formatDuration(message.getDuration());
+
+        double lat = 0, lon = 0;
+        boolean parsed = false;
+        if (message.getTypeEnum() == Message.MessageType.LOCATION && content != null) {
+            String[] coords = content.split(",");
+            if (coords.length == 2) {
+                try {
+                    lat = Double.parseDouble(coords[0].trim());
+                    lon = Double.parseDouble(coords[1].trim());
+                    parsed = true;
+                } catch (NumberFormatException ignored) {
+                    // Not a "lat,lon" pair: rendered without map or click-through
+                }
+            }
+        }
+        this.hasLocation = parsed;
+        this.latitude = lat;
+        this.longitude = lon;
+        this.mapUrl = parsed
+                ? "https://maps.googleapis.com/maps/api/staticmap?center=" + lat + "," + lon +
+                "&zoom=15&size=400x300&markers=color:red%7C" + lat + "," + lon +
+                "&key=YOUR_API_KEY" // TODO: Add your Google Maps API key
+                : null;
+    }
+
+    static MessageItem from(Message message, String currentUserId) {
+        return message != null ? new MessageItem(message, currentUserId) : null;
+    }
+
+    private static int resolveViewType(Message.MessageType type, boolean sentByMe) {
+        switch (type) {
+            case IMAGE:
+                return sentByMe ? MessageAdapter.TYPE_IMAGE_SENT : MessageAdapter.TYPE_IMAGE_RECEIVED;
+            case VIDEO:
+                return sentByMe ? MessageAdapter.TYPE_VIDEO_SENT : MessageAdapter.TYPE_VIDEO_RECEIVED;
+            case AUDIO:
+                return sentByMe ? MessageAdapter.TYPE_AUDIO_SENT : MessageAdapter.TYPE_AUDIO_RECEIVED;
+            case FILE:
+                return sentByMe ? MessageAdapter.TYPE_FILE_SENT : MessageAdapter.TYPE_FILE_RECEIVED;
+            case LOCATION:
+                return sentByMe ? MessageAdapter.TYPE_LOCATION_SENT : MessageAdapter.TYPE_LOCATION_RECEIVED;
+            default:
+            case TEXT:
+                return sentByMe ? MessageAdapter.TYPE_TEXT_SENT : MessageAdapter.TYPE_TEXT_RECEIVED;
+        }
+    }
+
+    private static String timeLabel(String time, Message.SendState state) {
+        switch (state) {
+            case PENDING:
+                return "🕓 " + time;
+            case FAILED:
+                return "⚠️ Not sent";
+            default:
+                return time;
+        }
+    }
+
+    private static String formatDuration(long durationMs) {
+        if (durationMs <= 0) return "0:00";
+        int seconds = (int) (durationMs / 1000) % 60;
+        int minutes = (int) (durationMs / 1000) / 60;
+        return String.format(Locale.US, "%d:%02d", minutes, seconds);
+    }
+
+    private static String emptyToNull(String value) {
+        return value != null && !value.isEmpty() ? value : null;
+    }
+}
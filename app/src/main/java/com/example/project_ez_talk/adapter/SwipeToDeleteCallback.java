@@ -81,7 +81,7 @@ public class SwipeToDeleteCallback extends ItemTouchHelper.Callback {
             int position = viewHolder.getAdapterPosition();
             Log.d(TAG, "✅ Swipe detected at position: " + position);
 
-            if (position != RecyclerView.NO_POSITION && position >= 0 && position < adapter.getMessages().size()) {
+            if (position != RecyclerView.NO_POSITION && position >= 0 && position < adapter.getItemCount()) {
                 adapter.deleteMessageAtPosition(position);
             } else {
                 Log.e(TAG, "❌ Invalid position: " + position);
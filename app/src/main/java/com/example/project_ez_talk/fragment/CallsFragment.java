@@ -1,5 +1,7 @@
 package com.example.project_ez_talk.fragment;
 
+import android.annotation.SuppressLint;
+import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
 import android.util.Log;
@@ -19,41 +21,49 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.project_ez_talk.R;
 import com.example.project_ez_talk.adapter.CallLogAdapter;
 import com.example.project_ez_talk.model.CallLog;
+import com.example.project_ez_talk.repository.CallLogRepository;
 import com.example.project_ez_talk.repository.CallRepository;
 import com.example.project_ez_talk.ui.call.video.IntegratedVideoCallActivity;
 import com.example.project_ez_talk.ui.call.voice.VoiceCallActivity;
+import com.example.project_ez_talk.utils.Preferences;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.tabs.TabLayout;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.database.ChildEventListener;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.Query;
-import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class CallsFragment extends Fragment {
     private static final String TAG = "CallsFragment";
-    private static final String DATABASE_URL = "https://project-ez-talk-dccea-default-rtdb.europe-west1.firebasedatabase.app";
 
     private RecyclerView rvCallHistory;
     private TabLayout tabLayout;
     private LinearLayout layoutEmpty;
     private ProgressBar progressBar;
 
+    // How far back (log timestamp) the live listener looks, to absorb clock skew
+    private static final long LIVE_LOOKBACK_MS = 5 * 60 * 1000;
+    private static final int LOAD_MORE_THRESHOLD = 5;
+
     private CallLogAdapter adapter;
-    private List<CallLog> allCallLogs = new ArrayList<>();
-    private List<CallLog> filteredCallLogs = new ArrayList<>();
+    // Displayed logs for the current tab, newest first; callId -> log for dedup
+    private final List<CallLog> filteredCallLogs = new ArrayList<>();
+    private final Map<String, CallLog> logsById = new HashMap<>();
 
-    private DatabaseReference callLogsRef;
     private String currentUserId;
-    private ValueEventListener callLogsListener;
+    private String currentFilter = CallLogRepository.FILTER_ALL;
+    private int loadGeneration = 0;
+    private boolean loadingPage = false;
+    private boolean hasMore = true;
 
-    private boolean showOnlyMissed = false;
+    private Query newCallsQuery;
+    private ChildEventListener newCallsListener;
 
     @Nullable
     @Override
@@ -72,15 +82,22 @@ public class CallsFragment extends Fragment {
         }
 
         currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
-        callLogsRef = FirebaseDatabase.getInstance(DATABASE_URL).getReference("call_logs");
 
-        Log.d(TAG, "🔗 Connected to Firebase: " + DATABASE_URL);
         Log.d(TAG, "👤 Current User ID: " + currentUserId);
 
         initViews(view);
         setupRecyclerView();
         setupTabs();
         initCallRepository();
+
+        // Calls logged before userCallLogs existed: copy them over once, then reload
+        if (!Preferences.isCallLogIndexBackfilled(requireContext(), currentUserId)) {
+            Context appContext = requireContext().getApplicationContext();
+            CallLogRepository.backfill(currentUserId, () -> {
+                Preferences.setCallLogIndexBackfilled(appContext, currentUserId);
+                if (isAdded()) loadCallLogs();
+            });
+        }
         loadCallLogs();
     }
 
@@ -105,16 +122,42 @@ public class CallsFragment extends Fragment {
                     }
                 });
 
-        rvCallHistory.setLayoutManager(new LinearLayoutManager(requireContext()));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(requireContext());
+        rvCallHistory.setLayoutManager(layoutManager);
         rvCallHistory.setAdapter(adapter);
+
+        // Infinite scroll: fetch the next page near the bottom
+        rvCallHistory.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0) return;
+                int lastVisible = layoutManager.findLastVisibleItemPosition();
+                if (lastVisible >= filteredCallLogs.size() - LOAD_MORE_THRESHOLD) {
+                    loadNextPage();
+                }
+            }
+        });
     }
 
     private void setupTabs() {
         tabLayout.addOnTabSelectedListener(new TabLayout.OnTabSelectedListener() {
             @Override
             public void onTabSelected(TabLayout.Tab tab) {
-                showOnlyMissed = tab.getPosition() == 1;
-                filterCallLogs();
+                switch (tab.getPosition()) {
+                    case 1:
+                        currentFilter = CallLogRepository.FILTER_MISSED;
+                        break;
+                    case 2:
+                        currentFilter = CallLogRepository.FILTER_INCOMING;
+                        break;
+                    case 3:
+                        currentFilter = CallLogRepository.FILTER_OUTGOING;
+                        break;
+                    default:
+                        currentFilter = CallLogRepository.FILTER_ALL;
+                        break;
+                }
+                loadCallLogs();
             }
 
             @Override
@@ -125,84 +168,164 @@ public class CallsFragment extends Fragment {
         });
     }
 
+    // ==================== PAGED HISTORY ====================
+
+    /**
+     * (Re)load the current tab: newest page, then live updates for new calls
+     */
+    @SuppressLint("NotifyDataSetChanged")
     private void loadCallLogs() {
+        stopNewCallsListener();
+        int generation = ++loadGeneration;
+        filteredCallLogs.clear();
+        logsById.clear();
+        adapter.notifyDataSetChanged();
+        hasMore = true;
+        loadingPage = true;
+
         progressBar.setVisibility(View.VISIBLE);
         layoutEmpty.setVisibility(View.GONE);
 
-        Query query = callLogsRef.orderByChild("startTime");
-
-        callLogsListener = query.addValueEventListener(new ValueEventListener() {
+        long openedAt = System.currentTimeMillis();
+        CallLogRepository.loadPage(currentUserId, currentFilter, null, new CallLogRepository.PageCallback() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                allCallLogs.clear();
-
-                for (DataSnapshot data : snapshot.getChildren()) {
-                    try {
-                        CallLog log = data.getValue(CallLog.class);
-
-                        // ✅ FIX: Check for null and validate data
-                        if (log != null && isValidCallLog(log)) {
-                            // Only show logs where current user is involved
-                            if (log.getCallerId().equals(currentUserId) ||
-                                    log.getReceiverId().equals(currentUserId)) {
-                                allCallLogs.add(log);
-                            }
-                        }
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error parsing call log", e);
-                    }
-                }
-
-                // Sort by time descending (newest first)
-                Collections.sort(allCallLogs, (a, b) ->
-                        Long.compare(b.getStartTime(), a.getStartTime()));
-
-                filterCallLogs();
+            public void onPage(List<CallLog> logs, boolean more) {
+                if (generation != loadGeneration || !isAdded()) return;
+                loadingPage = false;
+                hasMore = more;
+                appendLogs(logs);
                 progressBar.setVisibility(View.GONE);
-
-                Log.d(TAG, "✅ Loaded " + allCallLogs.size() + " call logs");
+                startNewCallsListener(openedAt - LIVE_LOOKBACK_MS);
+                Log.d(TAG, "✅ Loaded " + logs.size() + " " + currentFilter + " call logs");
             }
 
             @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                Log.e(TAG, "❌ Failed to load call logs: " + error.getMessage());
+            public void onError(String message) {
+                if (generation != loadGeneration || !isAdded()) return;
+                loadingPage = false;
+                Log.e(TAG, "❌ Failed to load call logs: " + message);
                 progressBar.setVisibility(View.GONE);
                 layoutEmpty.setVisibility(View.VISIBLE);
                 Toast.makeText(requireContext(),
-                        "Failed to load calls: " + error.getMessage(),
+                        "Failed to load calls: " + message,
                         Toast.LENGTH_SHORT).show();
             }
         });
     }
 
-    // ✅ Helper method to validate call log data
-    private boolean isValidCallLog(CallLog log) {
-        return log.getCallId() != null &&
-                log.getCallerId() != null &&
-                log.getReceiverId() != null &&
-                log.getStatus() != null &&
-                log.getCallType() != null;
+    private void loadNextPage() {
+        if (loadingPage || !hasMore || filteredCallLogs.isEmpty()) return;
+        loadingPage = true;
+        int generation = loadGeneration;
+        CallLog oldest = filteredCallLogs.get(filteredCallLogs.size() - 1);
+
+        CallLogRepository.loadPage(currentUserId, currentFilter, oldest, new CallLogRepository.PageCallback() {
+            @Override
+            public void onPage(List<CallLog> logs, boolean more) {
+                if (generation != loadGeneration || !isAdded()) return;
+                loadingPage = false;
+                hasMore = more;
+                appendLogs(logs);
+                Log.d(TAG, "📄 Loaded " + logs.size() + " older call logs");
+            }
+
+            @Override
+            public void onError(String message) {
+                if (generation != loadGeneration) return;
+                loadingPage = false;
+                Log.e(TAG, "❌ Failed to load more call logs: " + message);
+            }
+        });
     }
 
-    private void filterCallLogs() {
-        filteredCallLogs.clear();
+    private void appendLogs(List<CallLog> logs) {
+        int start = filteredCallLogs.size();
+        int added = 0;
+        for (CallLog log : logs) {
+            if (logsById.containsKey(log.getCallId())) continue;
+            logsById.put(log.getCallId(), log);
+            filteredCallLogs.add(log);
+            added++;
+        }
+        adapter.notifyItemRangeInserted(start, added);
+        updateEmptyState();
+    }
 
-        if (showOnlyMissed) {
-            // Show only missed calls where current user is receiver
-            for (CallLog log : allCallLogs) {
-                if ("missed".equals(log.getStatus()) &&
-                        !log.getCallerId().equals(currentUserId)) {
-                    filteredCallLogs.add(log);
-                }
+    /**
+     * Calls logged while the tab is open go on top (new) or replace their row (updated)
+     */
+    private void startNewCallsListener(long since) {
+        newCallsQuery = CallLogRepository.newCallsQuery(currentUserId, since);
+        newCallsListener = new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, String previousChildName) {
+                upsertLiveLog(snapshot);
             }
-        } else {
-            // Show all calls
-            filteredCallLogs.addAll(allCallLogs);
+
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, String previousChildName) {
+                upsertLiveLog(snapshot);
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                removeLog(snapshot.getKey());
+            }
+
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, String previousChildName) {
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.e(TAG, "❌ Live call log listener cancelled: " + error.getMessage());
+            }
+        };
+        newCallsQuery.addChildEventListener(newCallsListener);
+    }
+
+    private void stopNewCallsListener() {
+        if (newCallsQuery != null && newCallsListener != null) {
+            newCallsQuery.removeEventListener(newCallsListener);
         }
+        newCallsQuery = null;
+        newCallsListener = null;
+    }
 
-        adapter.notifyDataSetChanged();
+    private void upsertLiveLog(DataSnapshot snapshot) {
+        CallLog log = CallLogRepository.parse(snapshot);
+        if (log == null || !CallLogRepository.matchesFilter(log, currentFilter)) return;
+
+        CallLog existing = logsById.put(log.getCallId(), log);
+        if (existing != null) {
+            int index = filteredCallLogs.indexOf(existing);
+            filteredCallLogs.set(index, log);
+            adapter.notifyItemChanged(index);
+            return;
+        }
 
-        // Update empty state
+        // Newest first: usually lands at the top
+        int index = 0;
+        while (index < filteredCallLogs.size()
+                && filteredCallLogs.get(index).getStartTime() > log.getStartTime()) {
+            index++;
+        }
+        filteredCallLogs.add(index, log);
+        adapter.notifyItemInserted(index);
+        if (index == 0) rvCallHistory.scrollToPosition(0);
+        updateEmptyState();
+    }
+
+    private void removeLog(String callId) {
+        CallLog existing = logsById.remove(callId);
+        if (existing == null) return;
+        int index = filteredCallLogs.indexOf(existing);
+        filteredCallLogs.remove(index);
+        adapter.notifyItemRemoved(index);
+        updateEmptyState();
+    }
+
+    private void updateEmptyState() {
         if (filteredCallLogs.isEmpty()) {
             layoutEmpty.setVisibility(View.VISIBLE);
             rvCallHistory.setVisibility(View.GONE);
@@ -210,8 +333,6 @@ public class CallsFragment extends Fragment {
             layoutEmpty.setVisibility(View.GONE);
             rvCallHistory.setVisibility(View.VISIBLE);
         }
-
-        Log.d(TAG, "📊 Filtered: " + filteredCallLogs.size() + " calls");
     }
 
     private void initCallRepository() {
@@ -272,8 +393,10 @@ public class CallsFragment extends Fragment {
 
     private void deleteCallLog(CallLog callLog) {
         if (callLog.getCallId() != null) {
-            callLogsRef.child(callLog.getCallId()).removeValue()
+            // Only from my history; the other participant keeps theirs
+            CallLogRepository.delete(currentUserId, callLog.getCallId())
                     .addOnSuccessListener(aVoid -> {
+                        removeLog(callLog.getCallId());
                         Toast.makeText(requireContext(),
                                 "Call log deleted",
                                 Toast.LENGTH_SHORT).show();
@@ -290,8 +413,6 @@ public class CallsFragment extends Fragment {
     public void onDestroyView() {
         super.onDestroyView();
 
-        if (callLogsListener != null && callLogsRef != null) {
-            callLogsRef.removeEventListener(callLogsListener);
-        }
+        stopNewCallsListener();
     }
 }
\ No newline at end of file
@@ -21,6 +21,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.project_ez_talk.R;
 import com.example.project_ez_talk.adapter.ContactAdapter;
 import com.example.project_ez_talk.model.Contact;
+import com.example.project_ez_talk.repository.UserProfileCache;
 import com.example.project_ez_talk.ui.chat.detail.ChatDetailActivity;
 import com.google.android.material.tabs.TabLayout;
 import com.google.firebase.auth.FirebaseAuth;
@@ -45,6 +46,8 @@ public class ChatsFragment extends Fragment {
     private final List<Contact> allFriends = new ArrayList<>();
     private final List<Contact> onlineFriends = new ArrayList<>();
     private final List<Contact> friendRequests = new ArrayList<>();
+    // Bumped per requests snapshot so a slower profile lookup can't overwrite a newer one
+    private int requestsGeneration = 0;
     private List<Contact> currentSourceList = new ArrayList<>();
 
     private FirebaseFirestore db;
@@ -171,27 +174,29 @@ public class ChatsFragment extends Fragment {
                 .whereEqualTo("receiverId", currentUserId)
                 .whereEqualTo("status", "pending")
                 .addSnapshotListener((snapshots, error) -> {
-                    if (error != null || snapshots == null) return;
-
-                    friendRequests.clear();
+                    if (error != null || snapshots == null || !isAdded()) return;
 
+                    List<String> senderIds = new ArrayList<>();
                     for (DocumentSnapshot doc : snapshots.getDocuments()) {
                         String senderId = doc.getString("senderId");
-                        if (senderId != null) {
-                            db.collection("users").document(senderId).get()
-                                    .addOnSuccessListener(userDoc -> {
-                                        if (userDoc.exists()) {
-                                            Contact request = userDoc.toObject(Contact.class);
-                                            if (request != null) {
-                                                request.setId(senderId);
-                                                request.setPendingRequest(true);
-                                                friendRequests.add(request);
-                                                updateDisplayList();
-                                            }
-                                        }
-                                    });
-                        }
+                        if (senderId != null) senderIds.add(senderId);
                     }
+
+                    // One batched lookup through the shared cache instead of a read per request
+                    int generation = ++requestsGeneration;
+                    UserProfileCache.getInstance(requireContext()).getAll(senderIds, profiles -> {
+                        if (generation != requestsGeneration) return;
+                        friendRequests.clear();
+                        for (UserProfileCache.Profile profile : profiles.values()) {
+                            Contact request = new Contact();
+                            request.setId(profile.getUserId());
+                            request.setName(profile.getName());
+                            request.setAvatarUrl(profile.getPhotoUrl());
+                            request.setPendingRequest(true);
+                            friendRequests.add(request);
+                        }
+                        updateDisplayList();
+                    });
                 });
     }
 
@@ -1,6 +1,7 @@
 package com.example.project_ez_talk.fragment;
 
 import android.annotation.SuppressLint;
+import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
 import android.text.Editable;
@@ -22,7 +23,9 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.project_ez_talk.R;
 import com.example.project_ez_talk.adapter.ContactAdapter;
 import com.example.project_ez_talk.model.Contact;
+import com.example.project_ez_talk.repository.FriendRepository;
 import com.example.project_ez_talk.ui.chat.detail.ChatDetailActivity;
+import com.example.project_ez_talk.utils.Preferences;
 import com.google.android.material.tabs.TabLayout;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.DocumentSnapshot;
@@ -30,7 +33,9 @@ import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ContactsFragment extends Fragment {
 
@@ -44,6 +49,9 @@ public class ContactsFragment extends Fragment {
 
     private ContactAdapter contactAdapter;
     private final List<Contact> allFriends = new ArrayList<>();
+    // Friend ID -> contact, in index order (dedup by key)
+    private final Map<String, Contact> friendsById = new LinkedHashMap<>();
+    private int friendsGeneration = 0;
     private final List<Contact> onlineFriends = new ArrayList<>();
     private final List<Contact> friendRequests = new ArrayList<>();
     private List<Contact> currentDisplayList = new ArrayList<>();
@@ -146,15 +154,22 @@ public class ContactsFragment extends Fragment {
         loadPendingRequests();
     }
 
-    // ==================== NEW METHOD - Load accepted friends from friendRequests collection ====================
+    // ==================== FRIENDS - per-user index + batched profiles ====================
     private void loadAcceptedFriends() {
         if (friendsListener != null) friendsListener.remove();
 
-        Log.d(TAG, "🔍 [FRIENDS] Loading accepted friends...");
+        Log.d(TAG, "🔍 [FRIENDS] Loading friend index...");
 
-        // Query the friendRequests collection for all accepted requests
-        friendsListener = db.collection("friendRequests")
-                .whereEqualTo("status", "accepted")
+        // Older friendships were only recorded in friendRequests: index them once
+        if (!Preferences.isFriendIndexBackfilled(requireContext(), currentUserId)) {
+            Context appContext = requireContext().getApplicationContext();
+            FriendRepository.backfillFromRequests(db, currentUserId)
+                    .addOnSuccessListener(count -> Preferences.setFriendIndexBackfilled(appContext, currentUserId))
+                    .addOnFailureListener(e -> Log.e(TAG, "❌ [FRIENDS] Backfill failed: " + e.getMessage()));
+        }
+
+        // Only my own index entries: reads scale with my friend count
+        friendsListener = FriendRepository.friendsRef(db, currentUserId)
                 .addSnapshotListener((snapshots, error) -> {
                     if (error != null || snapshots == null) {
                         Log.e(TAG, "❌ [FRIENDS] Error loading friends: " + error);
@@ -162,101 +177,52 @@ public class ContactsFragment extends Fragment {
                         return;
                     }
 
-                    allFriends.clear();
-                    onlineFriends.clear();
-
-                    Log.d(TAG, "📊 [FRIENDS] Found " + snapshots.size() + " accepted friend requests");
-
-                    // Process each accepted friend request
+                    // Show index entries right away, then refresh from profiles
+                    Map<String, Contact> indexed = new LinkedHashMap<>();
                     for (DocumentSnapshot doc : snapshots.getDocuments()) {
-                        String senderId = doc.getString("senderId");
-                        String receiverId = doc.getString("receiverId");
-                        String senderName = doc.getString("senderName");
-                        String receiverName = doc.getString("receiverName");
-                        String senderProfilePicture = doc.getString("senderProfilePicture");
-
-                        // Determine who is the friend (the OTHER person in this request)
-                        String friendId;
-                        String friendName;
-                        String friendAvatar;
-
-                        if (senderId != null && senderId.equals(currentUserId)) {
-                            // I (current user) sent the request, so the friend is the RECEIVER
-                            friendId = receiverId;
-                            friendName = receiverName;
-                            friendAvatar = ""; // Will get from user document below
-                        } else {
-                            // I (current user) received the request, so the friend is the SENDER
-                            friendId = senderId;
-                            friendName = senderName;
-                            friendAvatar = senderProfilePicture;
-                        }
-
-                        if (friendId != null) {
-                            Log.d(TAG, "📝 [FRIENDS] Processing friend: " + friendName + " (ID: " + friendId + ")");
-
-                            // Get friend's current status from users collection
-                            db.collection("users").document(friendId).get()
-                                    .addOnSuccessListener(userDoc -> {
-                                        if (userDoc.exists()) {
-                                            // Get friend's current online status and avatar
-                                            boolean isOnline = userDoc.getBoolean("online") != null &&
-                                                    userDoc.getBoolean("online");
-                                            String avatar = userDoc.getString("avatarUrl");
-                                            String name = userDoc.getString("name");
-
-                                            // Create Contact object
-                                            Contact friend = new Contact();
-                                            friend.setId(friendId);
-                                            friend.setName(name != null ? name : friendName);
-                                            friend.setAvatarUrl(avatar != null ? avatar : friendAvatar);
-                                            friend.setOnline(isOnline);
-                                            friend.setStatus(isOnline ? "online" : "offline");
-                                            friend.setPendingRequest(false);
-
-                                            // Add to all friends (avoid duplicates)
-                                            boolean alreadyExists = false;
-                                            for (Contact c : allFriends) {
-                                                if (c.getId().equals(friendId)) {
-                                                    alreadyExists = true;
-                                                    break;
-                                                }
-                                            }
-
-                                            if (!alreadyExists) {
-                                                allFriends.add(friend);
-                                                Log.d(TAG, "✅ [FRIENDS] Added friend: " + name + " (online: " + isOnline + ")");
-                                            }
-
-                                            // Add to online friends if online
-                                            if (isOnline) {
-                                                boolean onlineExists = false;
-                                                for (Contact c : onlineFriends) {
-                                                    if (c.getId().equals(friendId)) {
-                                                        onlineExists = true;
-                                                        break;
-                                                    }
-                                                }
-                                                if (!onlineExists) {
-                                                    onlineFriends.add(friend);
-                                                }
-                                            }
-
-                                            updateDisplayList();
-                                        }
-                                    })
-                                    .addOnFailureListener(e -> {
-                                        Log.e(TAG, "❌ [FRIENDS] Error getting user data for " + friendId + ": " + e.getMessage());
-                                    });
-                        }
+                        Contact friend = new Contact();
+                        friend.setId(doc.getId());
+                        friend.setName(doc.getString("name"));
+                        friend.setAvatarUrl(doc.getString("avatarUrl"));
+                        friend.setStatus("offline");
+                        friend.setPendingRequest(false);
+                        indexed.put(doc.getId(), friend);
                     }
+                    Log.d(TAG, "📊 [FRIENDS] Index has " + indexed.size() + " friends");
 
-                    Log.d(TAG, "✅ [FRIENDS] Loaded " + allFriends.size() + " total friends, " +
-                            onlineFriends.size() + " online");
+                    int generation = ++friendsGeneration;
+                    friendsById.clear();
+                    friendsById.putAll(indexed);
+                    rebuildFriendLists();
                     progressBar.setVisibility(View.GONE);
+
+                    FriendRepository.hydrate(db, new ArrayList<>(indexed.keySet()), profiles -> {
+                        // A newer snapshot arrived while this one was loading
+                        if (generation != friendsGeneration || !isAdded()) return;
+                        for (Map.Entry<String, Contact> entry : profiles.entrySet()) {
+                            Contact profile = entry.getValue();
+                            Contact cached = friendsById.get(entry.getKey());
+                            if (profile.getName() == null && cached != null) profile.setName(cached.getName());
+                            if (profile.getAvatarUrl() == null && cached != null) profile.setAvatarUrl(cached.getAvatarUrl());
+                            friendsById.put(entry.getKey(), profile);
+                        }
+                        rebuildFriendLists();
+                        Log.d(TAG, "✅ [FRIENDS] Loaded " + allFriends.size() + " total friends, " +
+                                onlineFriends.size() + " online");
+                    });
                 });
     }
 
+    private void rebuildFriendLists() {
+        allFriends.clear();
+        onlineFriends.clear();
+        for (Contact friend : friendsById.values()) {
+            allFriends.add(friend);
+            if (friend.isOnline()) onlineFriends.add(friend);
+        }
+        updateDisplayList();
+    }
+
     // Load pending friend requests (only requests sent TO current user)
     private void loadPendingRequests() {
         if (requestsListener != null) requestsListener.remove();
@@ -272,7 +238,7 @@ public class ContactsFragment extends Fragment {
                         return;
                     }
 
-                    friendRequests.clear();
+                    Map<String, Contact> requestsBySender = new LinkedHashMap<>();
                     int count = snapshots.size();
                     Log.d(TAG, "📊 [REQUESTS] Found " + count + " pending requests");
 
@@ -291,21 +257,15 @@ public class ContactsFragment extends Fragment {
                             request.setPendingRequest(true);
 
                             // Avoid duplicates
-                            boolean exists = false;
-                            for (Contact c : friendRequests) {
-                                if (c.getId().equals(senderId)) {
-                                    exists = true;
-                                    break;
-                                }
-                            }
-
-                            if (!exists) {
-                                friendRequests.add(request);
+                            if (requestsBySender.putIfAbsent(senderId, request) == null) {
                                 Log.d(TAG, "✅ [REQUESTS] Added request from: " + senderName);
                             }
                         }
                     }
 
+                    friendRequests.clear();
+                    friendRequests.addAll(requestsBySender.values());
+
                     updateDisplayList();
                 });
     }
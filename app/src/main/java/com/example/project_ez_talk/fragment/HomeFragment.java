@@ -21,6 +21,7 @@ import com.bumptech.glide.Glide;
 import com.example.project_ez_talk.R;
 import com.example.project_ez_talk.adapter.GroupChannelAdapter;
 import com.example.project_ez_talk.model.GroupChannelItem;
+import com.example.project_ez_talk.repository.UserProfileCache;
 import com.example.project_ez_talk.ui.chat.group.CreateGroupActivity;
 import com.example.project_ez_talk.ui.chat.group.GroupChatActivity;
 import com.example.project_ez_talk.ui.chat.group.Grouplistactivity;
@@ -122,24 +123,25 @@ public class HomeFragment extends Fragment {
     private void loadUserAvatar() {
         if (currentUser == null || !isAdded()) return;
 
-        db = FirebaseFirestore.getInstance();
-        db.collection("users")
-                .document(currentUser.getUid())
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (!isAdded()) return;
-                    if (documentSnapshot.exists()) {
-                        String avatarUrl = documentSnapshot.getString("profilePicture");
-                        if (avatarUrl != null && !avatarUrl.isEmpty() && ivUserAvatar != null) {
-                            Glide.with(this)
-                                    .load(avatarUrl)
-                                    .circleCrop()
-                                    .placeholder(R.drawable.ic_profile)
-                                    .into(ivUserAvatar);
-                        }
-                    }
-                })
-                .addOnFailureListener(e -> Log.e(TAG, "Error loading avatar: " + e.getMessage()));
+        // Paint the cached avatar right away, then confirm it once it's fresh
+        UserProfileCache cache = UserProfileCache.getInstance(requireContext());
+        UserProfileCache.Profile cached = cache.peek(currentUser.getUid());
+        showAvatar(cached);
+        cache.get(currentUser.getUid(), profile -> {
+            if (isAdded() && profile != cached) showAvatar(profile);
+        });
+    }
+
+    private void showAvatar(UserProfileCache.Profile profile) {
+        if (profile == null || ivUserAvatar == null) return;
+        String avatarUrl = profile.getProfilePicture();
+        if (avatarUrl != null && !avatarUrl.isEmpty()) {
+            Glide.with(this)
+                    .load(avatarUrl)
+                    .circleCrop()
+                    .placeholder(R.drawable.ic_profile)
+                    .into(ivUserAvatar);
+        }
     }
 
     private void setupQuickActions() {
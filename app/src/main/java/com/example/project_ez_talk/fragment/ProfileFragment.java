@@ -17,6 +17,9 @@ import androidx.fragment.app.Fragment;
 
 import com.bumptech.glide.Glide;
 import com.example.project_ez_talk.R;
+import com.example.project_ez_talk.helper.OutboxManager;
+import com.example.project_ez_talk.repository.MessageStore;
+import com.example.project_ez_talk.repository.UserProfileCache;
 import com.example.project_ez_talk.ui.auth.login.LoginActivity;
 import com.example.project_ez_talk.ui.profile.EditProfileActivity;
 import com.example.project_ez_talk.ui.profile.SettingsActivity;
@@ -27,7 +30,6 @@ import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.FirebaseFirestore;
 
 public class ProfileFragment extends Fragment {
 
@@ -41,7 +43,6 @@ public class ProfileFragment extends Fragment {
 
     private FirebaseAuth mAuth;
     private FirebaseUser currentUser;
-    private FirebaseFirestore db;
 
     @Nullable
     @Override
@@ -55,7 +56,6 @@ public class ProfileFragment extends Fragment {
 
         mAuth = FirebaseAuth.getInstance();
         currentUser = mAuth.getCurrentUser();
-        db = FirebaseFirestore.getInstance();
 
         initViews(view);
         loadUserProfile();
@@ -78,71 +78,65 @@ public class ProfileFragment extends Fragment {
     private void loadUserProfile() {
         if (currentUser == null) return;
 
-        // Load from Firestore
-        db.collection("users")
-                .document(currentUser.getUid())
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (!isAdded()) return;
-
-                    if (documentSnapshot.exists()) {
-                        String name = documentSnapshot.getString("name");
-                        String email = documentSnapshot.getString("email");
-                        String profilePic = documentSnapshot.getString("profilePicture");
-
-                        // Set user info
-                        if (tvUserName != null) {
-                            tvUserName.setText(name != null && !name.isEmpty() ? name : "User");
-                        }
-
-                        if (tvUserEmail != null) {
-                            tvUserEmail.setText(email != null ? email : "No email");
-                        }
-
-                        // Load profile picture
-                        if (profilePic != null && !profilePic.isEmpty() && ivProfilePicture != null) {
-                            Log.d("ProfileFragment", "📸 Loading profile picture: " + profilePic);
-                            Glide.with(this)
-                                    .load(profilePic)
-                                    .circleCrop()
-                                    .placeholder(R.drawable.ic_profile)
-                                    .error(R.drawable.ic_profile)
-                                    .listener(new com.bumptech.glide.request.RequestListener<android.graphics.drawable.Drawable>() {
-                                        @Override
-                                        public boolean onLoadFailed(@androidx.annotation.Nullable com.bumptech.glide.load.engine.GlideException e, Object model, com.bumptech.glide.request.target.Target<android.graphics.drawable.Drawable> target, boolean isFirstResource) {
-                                            Log.e("ProfileFragment", "❌ Failed to load profile image", e);
-                                            if (e != null) {
-                                                Log.e("ProfileFragment", "Error: " + e.getMessage());
-                                            }
-                                            return false;
-                                        }
-
-                                        @Override
-                                        public boolean onResourceReady(android.graphics.drawable.Drawable resource, Object model, com.bumptech.glide.request.target.Target<android.graphics.drawable.Drawable> target, com.bumptech.glide.load.DataSource dataSource, boolean isFirstResource) {
-                                            Log.d("ProfileFragment", "✅ Profile image loaded successfully!");
-                                            return false;
-                                        }
-                                    })
-                                    .into(ivProfilePicture);
-                        } else {
-                            Log.w("ProfileFragment", "⚠️ No profile picture URL found");
-                        }
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    // Fallback to Firebase Auth
-                    if (currentUser != null) {
-                        String displayName = currentUser.getDisplayName();
-                        String email = currentUser.getEmail();
-
-                        if (tvUserName != null) {
-                            tvUserName.setText(displayName != null ? displayName : "User");
-                        }
-                        if (tvUserEmail != null) {
-                            tvUserEmail.setText(email != null ? email : "No email");
-                        }
-                    }
-                });
+        // Shared profile cache: re-read only when stale or after an edit invalidated it
+        UserProfileCache.getInstance(requireContext()).get(currentUser.getUid(), profile -> {
+            if (!isAdded()) return;
+
+            if (profile != null) {
+                String name = profile.getName();
+                String email = profile.getEmail();
+                String profilePic = profile.getProfilePicture();
+
+                // Set user info
+                if (tvUserName != null) {
+                    tvUserName.setText(name != null && !name.isEmpty() ? name : "User");
+                }
+
+                if (tvUserEmail != null) {
+                    tvUserEmail.setText(email != null ? email : "No email");
+                }
+
+                // Load profile picture
+                if (profilePic != null && !profilePic.isEmpty() && ivProfilePicture != null) {
+                    Log.d("ProfileFragment", "📸 Loading profile picture: " + profilePic);
+                    Glide.with(this)
+                            .load(profilePic)
+                            .circleCrop()
+                            .placeholder(R.drawable.ic_profile)
+                            .error(R.drawable.ic_profile)
+                            .listener(new com.bumptech.glide.request.RequestListener<android.graphics.drawable.Drawable>() {
+                                @Override
+                                public boolean onLoadFailed(@androidx.annotation.Nullable com.bumptech.glide.load.engine.GlideException e, Object model, com.bumptech.glide.request.target.Target<android.graphics.drawable.Drawable> target, boolean isFirstResource) {
+                                    Log.e("ProfileFragment", "❌ Failed to load profile image", e);
+                                    if (e != null) {
+                                        Log.e("ProfileFragment", "Error: " + e.getMessage());
+                                    }
+                                    return false;
+                                }
+
+                                @Override
+                                public boolean onResourceReady(android.graphics.drawable.Drawable resource, Object model, com.bumptech.glide.request.target.Target<android.graphics.drawable.Drawable> target, com.bumptech.glide.load.DataSource dataSource, boolean isFirstResource) {
+                                    Log.d("ProfileFragment", "✅ Profile image loaded successfully!");
+                                    return false;
+                                }
+                            })
+                            .into(ivProfilePicture);
+                } else {
+                    Log.w("ProfileFragment", "⚠️ No profile picture URL found");
+                }
+            } else if (currentUser != null) {
+                // Fallback to Firebase Auth
+                String displayName = currentUser.getDisplayName();
+                String email = currentUser.getEmail();
+
+                if (tvUserName != null) {
+                    tvUserName.setText(displayName != null ? displayName : "User");
+                }
+                if (tvUserEmail != null) {
+                    tvUserEmail.setText(email != null ? email : "No email");
+                }
+            }
+        });
     }
 
     private void setupClickListeners() {
@@ -206,6 +200,12 @@ public class ProfileFragment extends Fragment {
         // Clear preferences
         Preferences.clearAll(requireContext());
 
+        // Drop cached conversations, profiles and unsent attachments of the previous account
+        MessageStore messageStore = MessageStore.getInstance(requireContext());
+        messageStore.getExecutor().execute(messageStore::clearAll);
+        UserProfileCache.getInstance(requireContext()).clearAll();
+        OutboxManager.clearAll(requireContext());
+
         // Navigate to login
         Intent intent = new Intent(requireContext(), LoginActivity.class);
         intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
@@ -0,0 +1,129 @@
+package com.example.project_ez_talk.helper;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * Process-wide HTTP stack for Supabase Storage and backend calls
+ * ✅ One OkHttpClient: pooled keep-alive connections, HTTP/2 multiplexing where the server supports it
+ * ✅ One bounded upload executor: higher priority transfers jump the queue, equal priorities run FIFO
+ */
+public final class HttpClientProvider {
+
+    private static final String TAG = "HttpClientProvider";
+
+    // Lower value runs first
+    public static final int PRIORITY_INTERACTIVE = 0;  // voice notes, photos, small calls the user waits on
+    public static final int PRIORITY_NORMAL = 1;       // documents, audio files
+    public static final int PRIORITY_BULK = 2;         // videos, deletes and other housekeeping
+
+    private static final int MAX_PARALLEL_TRANSFERS = 3;
+
+    private static volatile OkHttpClient client;
+    private static volatile ThreadPoolExecutor transferExecutor;
+    private static final AtomicLong sequence = new AtomicLong();
+
+    private HttpClientProvider() {
+    }
+
+    /**
+     * Shared client. Use {@code getClient().newBuilder()} for per-call tweaks:
+     * derived clients keep the same connection pool and dispatcher.
+     */
+    public static OkHttpClient getClient() {
+        if (client == null) {
+            synchronized (HttpClientProvider.class) {
+                if (client == null) {
+                    Dispatcher dispatcher = new Dispatcher();
+                    dispatcher.setMaxRequestsPerHost(MAX_PARALLEL_TRANSFERS * 2);
+
+                    client = new OkHttpClient.Builder()
+                            .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                            .connectionPool(new ConnectionPool(5, 5, TimeUnit.MINUTES))
+                            .dispatcher(dispatcher)
+                            .connectTimeout(15, TimeUnit.SECONDS)
+                            .writeTimeout(60, TimeUnit.SECONDS)
+                            .readTimeout(30, TimeUnit.SECONDS)
+                            .retryOnConnectionFailure(true)
+                            .build();
+                    Log.d(TAG, "✅ Shared OkHttpClient created");
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Run a blocking transfer (upload, delete, backend call) on the shared bounded executor
+     */
+    public static void execute(int priority, Runnable task) {
+        getTransferExecutor().execute(new PrioritizedTask(priority, sequence.getAndIncrement(), task));
+    }
+
+    private static ThreadPoolExecutor getTransferExecutor() {
+        if (transferExecutor == null) {
+            synchronized (HttpClientProvider.class) {
+                if (transferExecutor == null) {
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                            MAX_PARALLEL_TRANSFERS, MAX_PARALLEL_TRANSFERS,
+                            30, TimeUnit.SECONDS,
+                            new PriorityBlockingQueue<>(),
+                            new TransferThreadFactory());
+                    executor.allowCoreThreadTimeOut(true);
+                    transferExecutor = executor;
+                }
+            }
+        }
+        return transferExecutor;
+    }
+
+    private static final class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+        private final int priority;
+        private final long order;
+        private final Runnable task;
+
+        PrioritizedTask(int priority, long order, Runnable task) {
+            this.priority = priority;
+            this.order = order;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            if (priority != other.priority) {
+                return Integer.compare(priority, other.priority);
+            }
+            return Long.compare(order, other.order);
+        }
+    }
+
+    private static final class TransferThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, "transfer-" + count.incrementAndGet());
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.project_ez_talk.helper;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Prepares a picked photo for upload: decodes it subsampled (the full-resolution
+ * bitmap is never allocated), applies the EXIF orientation, caps the long edge and
+ * re-encodes it, then derives a small thumbnail for chat bubbles.
+ * Camera originals of 3-12 MB typically come out at a few hundred KB.
+ * ⚠️ compress() is blocking: call it from a background thread
+ */
+public class ImageCompressor {
+
+    private static final String TAG = "ImageCompressor";
+
+    public static final int DEFAULT_MAX_LONG_EDGE = 1600;
+    public static final int DEFAULT_QUALITY = 80;
+    public static final int THUMBNAIL_LONG_EDGE = 480;
+    public static final int THUMBNAIL_QUALITY = 60;
+
+    private static final String OUTPUT_DIR = "outgoing_images";
+
+    public enum Format {
+        JPEG("image/jpeg", ".jpg"),
+        WEBP("image/webp", ".webp");
+
+        public final String mimeType;
+        public final String extension;
+
+        Format(String mimeType, String extension) {
+            this.mimeType = mimeType;
+            this.extension = extension;
+        }
+    }
+
+    /**
+     * Encoded full-size image and thumbnail, both in the app cache.
+     * Call {@link #delete()} once they are uploaded.
+     */
+    public static class Result {
+        public final File image;
+        public final File thumbnail;
+        public final Format format;
+        public final int width;
+        public final int height;
+
+        Result(File image, File thumbnail, Format format, int width, int height) {
+            this.image = image;
+            this.thumbnail = thumbnail;
+            this.format = format;
+            this.width = width;
+            this.height = height;
+        }
+
+        public void delete() {
+            if (!image.delete()) Log.w(TAG, "Could not delete " + image);
+            if (!thumbnail.delete()) Log.w(TAG, "Could not delete " + thumbnail);
+        }
+    }
+
+    /**
+     * Compress with the defaults: JPEG, {@value #DEFAULT_MAX_LONG_EDGE}px, quality {@value #DEFAULT_QUALITY}.
+     * JPEG is kept as the default because every receiving client and the Supabase
+     * image renderer read it; pass {@link Format#WEBP} for roughly 25% smaller files.
+     */
+    public static Result compress(Context context, Uri uri) throws IOException {
+        return compress(context, uri, DEFAULT_MAX_LONG_EDGE, DEFAULT_QUALITY, Format.JPEG);
+    }
+
+    public static Result compress(Context context, Uri uri, int maxLongEdge, int quality,
+                                  Format format) throws IOException {
+        ContentResolver resolver = context.getContentResolver();
+
+        // Pass 1: bounds only
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = open(resolver, uri)) {
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Not a decodable image: " + uri);
+        }
+
+        // Pass 2: decode at the smallest power-of-two reduction that still covers the cap
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSizeFor(Math.max(bounds.outWidth, bounds.outHeight), maxLongEdge);
+        Bitmap decoded;
+        try (InputStream in = open(resolver, uri)) {
+            decoded = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (decoded == null) {
+            throw new IOException("Failed to decode " + uri);
+        }
+
+        int orientation = readOrientation(resolver, uri);
+        Bitmap full = transform(decoded, orientation, maxLongEdge, true);
+        Bitmap thumb = transform(full, ExifInterface.ORIENTATION_NORMAL, THUMBNAIL_LONG_EDGE, false);
+        int width = full.getWidth();
+        int height = full.getHeight();
+
+        File dir = new File(context.getCacheDir(), OUTPUT_DIR);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        String base = "img_" + System.currentTimeMillis();
+        File imageFile = new File(dir, base + format.extension);
+        File thumbFile = new File(dir, base + "_thumb" + format.extension);
+
+        try {
+            encode(full, format, quality, imageFile);
+            encode(thumb, format, THUMBNAIL_QUALITY, thumbFile);
+        } finally {
+            if (thumb != full) thumb.recycle();
+            full.recycle();
+        }
+
+        Log.d(TAG, "✅ " + bounds.outWidth + "x" + bounds.outHeight + " -> " + imageFile.length()
+                + " bytes (thumb " + thumbFile.length() + " bytes)");
+        return new Result(imageFile, thumbFile, format, width, height);
+    }
+
+    // ==================== DECODING ====================
+
+    private static int sampleSizeFor(int longEdge, int maxLongEdge) {
+        int sampleSize = 1;
+        while (longEdge / (sampleSize * 2) >= maxLongEdge) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private static int readOrientation(ContentResolver resolver, Uri uri) {
+        try (InputStream in = open(resolver, uri)) {
+            return new ExifInterface(in).getAttributeInt(ExifInterface.TAG_ORIENTATION,
+                    ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException e) {
+            Log.w(TAG, "No EXIF orientation: " + e.getMessage());
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    /**
+     * Rotate/mirror per EXIF and scale down so the long edge is at most {@code maxLongEdge}.
+     * With {@code recycleSource}, the source is recycled when a new bitmap is produced.
+     */
+    private static Bitmap transform(Bitmap source, int orientation, int maxLongEdge, boolean recycleSource) {
+        Matrix matrix = new Matrix();
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(270);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.postRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.postRotate(270);
+                matrix.postScale(-1, 1);
+                break;
+            default:
+                break;
+        }
+
+        int longEdge = Math.max(source.getWidth(), source.getHeight());
+        if (longEdge > maxLongEdge) {
+            float scale = (float) maxLongEdge / longEdge;
+            matrix.postScale(scale, scale);
+        }
+        if (matrix.isIdentity()) {
+            return source;
+        }
+
+        Bitmap result = Bitmap.createBitmap(source, 0, 0, source.getWidth(), source.getHeight(), matrix, true);
+        if (result != source && recycleSource) {
+            source.recycle();
+        }
+        return result;
+    }
+
+    // ==================== ENCODING ====================
+
+    @SuppressWarnings("deprecation")
+    private static void encode(Bitmap bitmap, Format format, int quality, File target) throws IOException {
+        Bitmap.CompressFormat compressFormat;
+        if (format == Format.WEBP) {
+            compressFormat = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                    ? Bitmap.CompressFormat.WEBP_LOSSY
+                    : Bitmap.CompressFormat.WEBP;
+        } else {
+            compressFormat = Bitmap.CompressFormat.JPEG;
+        }
+        try (OutputStream out = new FileOutputStream(target)) {
+            if (!bitmap.compress(compressFormat, quality, out)) {
+                throw new IOException("Encoding failed for " + target);
+            }
+        }
+    }
+
+    private static InputStream open(ContentResolver resolver, Uri uri) throws IOException {
+        InputStream in = resolver.openInputStream(uri);
+        if (in == null) {
+            throw new FileNotFoundException("Cannot open " + uri);
+        }
+        return in;
+    }
+}
@@ -0,0 +1,667 @@
+package com.example.project_ez_talk.helper;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.project_ez_talk.model.Message;
+import com.example.project_ez_talk.repository.MessageStore;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Windowed, offline-first loader for a conversation's "messages" collection.
+ * The newest page is served from {@link MessageStore} straight away; Firestore
+ * is then only asked for messages newer than the last synced timestamp, and the
+ * live listener never holds more than the newest page of those.
+ * Older pages come from the store first and fall back to a Firestore cursor
+ * query once the cached history runs out.
+ * Messages still queued in the {@link OutboxManager} are shown after the live window
+ * until their documents arrive.
+ * All callbacks arrive on the main thread.
+ */
+public class MessagePageLoader {
+
+    private static final String TAG = "MessagePageLoader";
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    // Re-listen slightly before the sync point to pick up late edits and clock skew
+    private static final long SYNC_OVERLAP_MS = 5 * 60 * 1000L;
+
+    /**
+     * Callback interface for page and live window updates
+     */
+    public interface Callback {
+        /** Full list replaced (first page, or the live listener's first snapshot) */
+        void onMessagesChanged(List<Message> messages);
+
+        /**
+         * Incremental live window update. Indexes in {@code changes} are relative
+         * to the live window, which starts at adapter position {@code offset}.
+         */
+        void onLiveChanges(List<DocumentChange> changes, int offset);
+
+        /** An older page was fetched and should be prepended to the list */
+        void onOlderPageLoaded(List<Message> page, boolean hasMore);
+
+        void onError(String error);
+    }
+
+    private final Context context;
+    private final CollectionReference messagesRef;
+    private final String conversationId;
+    private final MessageStore store;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final int pageSize;
+    private final Callback callback;
+
+    // Messages older than the first page, ascending by timestamp
+    private final List<Message> history = new ArrayList<>();
+    // Messages between paged history and the live window (cached, or pushed out of it), ascending
+    private final List<Message> cached = new ArrayList<>();
+    // Messages inside the live window, ascending by timestamp
+    private final List<Message> live = new ArrayList<>();
+    // Outgoing messages not yet in Firestore, in send order
+    private final List<Message> pending = new ArrayList<>();
+
+    private final OutboxManager.Listener outboxListener = this::onSendStateChanged;
+
+    private ListenerRegistration liveListener;
+    private boolean liveSynced = false;
+    // Paging cursor: (timestamp, message ID) of the oldest loaded message, the same
+    // order Firestore and the store page in, so equal timestamps are never skipped
+    private long oldestLoadedTimestamp = Long.MAX_VALUE;
+    private String oldestLoadedId;
+    private boolean hasMore = true;
+    private boolean loadingOlder = false;
+    private boolean released = false;
+
+    // Loaded messages have no holes up to this timestamp
+    private long syncedUpTo;
+    // The live window starts past syncedUpTo: page back through the gap from Firestore
+    // and keep the store's sync point at gapFloor until the pages reach it
+    private boolean gapOpen = false;
+    private long gapFloor;
+    // Bumped when older messages are dropped, so a page still in flight is discarded
+    private int generation = 0;
+
+    // Pending loadUntil(): keep paging back until this timestamp is loaded
+    private long seekTimestamp;
+    private Runnable seekDone;
+
+    public MessagePageLoader(Context context, CollectionReference messagesRef, int pageSize, Callback callback) {
+        this.context = context.getApplicationContext();
+        this.messagesRef = messagesRef;
+        this.conversationId = messagesRef.getPath();
+        this.store = MessageStore.getInstance(context);
+        this.pageSize = pageSize > 0 ? pageSize : DEFAULT_PAGE_SIZE;
+        this.callback = callback;
+    }
+
+    /**
+     * Show the cached newest page, then listen live for everything after the
+     * last sync point. A conversation that was never opened on this device is
+     * seeded with one page from Firestore instead.
+     */
+    public void start() {
+        OutboxManager.addListener(outboxListener);
+        OutboxManager.loadPending(context, conversationId, queued -> {
+            if (released || queued.isEmpty()) return;
+            for (Message message : queued) {
+                if (indexOf(pending, message.getMessageId()) < 0) pending.add(message);
+            }
+            dropDeliveredPending();
+            callback.onMessagesChanged(getMessages());
+        });
+
+        store.getExecutor().execute(() -> {
+            List<Message> local = store.getLatest(conversationId, pageSize);
+            long lastSynced = store.getLastSyncedTimestamp(conversationId);
+            boolean historyComplete = store.isHistoryComplete(conversationId);
+
+            mainHandler.post(() -> {
+                if (released) return;
+                if (local.isEmpty()) {
+                    seedFromFirestore();
+                } else {
+                    showCachedPage(local, lastSynced, historyComplete);
+                }
+            });
+        });
+    }
+
+    private void showCachedPage(List<Message> local, long lastSynced, boolean historyComplete) {
+        long syncFrom = Math.max(0, lastSynced - SYNC_OVERLAP_MS);
+
+        for (Message message : local) {
+            if (message.getTimestamp() < syncFrom) {
+                cached.add(message);
+            } else {
+                // Provisional until the live listener's first snapshot replaces it
+                live.add(message);
+            }
+        }
+        oldestLoadedTimestamp = local.get(0).getTimestamp();
+        oldestLoadedId = local.get(0).getMessageId();
+        hasMore = local.size() >= pageSize || !historyComplete;
+        syncedUpTo = lastSynced;
+
+        Log.d(TAG, "💾 " + local.size() + " cached messages, syncing from " + syncFrom);
+        callback.onMessagesChanged(getMessages());
+        continueSeek();
+
+        attachLiveListener(syncFrom);
+    }
+
+    private void seedFromFirestore() {
+        messagesRef.orderBy("timestamp", Query.Direction.DESCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.DESCENDING)
+                .limit(pageSize)
+                .get()
+                .addOnSuccessListener(snapshots -> {
+                    if (released) return;
+
+                    List<Message> firstPage = parsePage(snapshots);
+                    Collections.reverse(firstPage);
+                    hasMore = firstPage.size() >= pageSize;
+
+                    long anchor = firstPage.isEmpty() ? 0 : firstPage.get(0).getTimestamp();
+                    oldestLoadedTimestamp = firstPage.isEmpty() ? Long.MAX_VALUE : anchor;
+                    oldestLoadedId = firstPage.isEmpty() ? null : firstPage.get(0).getMessageId();
+                    syncedUpTo = firstPage.isEmpty() ? 0 : firstPage.get(firstPage.size() - 1).getTimestamp();
+
+                    if (!snapshots.getMetadata().isFromCache()) {
+                        persistPage(firstPage, !hasMore);
+                    }
+
+                    live.clear();
+                    live.addAll(firstPage);
+                    callback.onMessagesChanged(getMessages());
+                    continueSeek();
+
+                    attachLiveListener(anchor);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "❌ Failed to load first page: " + e.getMessage());
+                    callback.onError(e.getMessage());
+                });
+    }
+
+    /**
+     * Listen to the newest page at or after {@code anchor}. Messages that drop off a
+     * full window's old end are kept as cached history; if the window doesn't reach
+     * back to what is already loaded, the messages in between are paged in instead.
+     */
+    private void attachLiveListener(long anchor) {
+        liveListener = messagesRef
+                .whereGreaterThanOrEqualTo("timestamp", anchor)
+                .orderBy("timestamp", Query.Direction.ASCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.ASCENDING)
+                .limitToLast(pageSize)
+                .addSnapshotListener((snapshots, e) -> {
+                    if (e != null) {
+                        Log.e(TAG, "❌ Live window error: " + e.getMessage());
+                        callback.onError(e.getMessage());
+                        return;
+                    }
+                    if (snapshots == null || released) return;
+
+                    // Snapshots served from Firestore's offline cache may have gaps:
+                    // never let them advance the sync point
+                    boolean fromServer = !snapshots.getMetadata().isFromCache();
+                    // Only a full window can have left out messages at its old end
+                    Message windowStart = snapshots.size() >= pageSize
+                            ? Message.fromSnapshot(snapshots.getDocuments().get(0)) : null;
+
+                    if (windowStart != null && windowStart.getTimestamp() > syncedUpTo) {
+                        openGap(parsePage(snapshots), fromServer);
+                        return;
+                    }
+
+                    if (!liveSynced) {
+                        // First snapshot repeats the window as ADDED changes: reconcile as a whole
+                        liveSynced = true;
+                        List<Message> window = parsePage(snapshots);
+                        if (windowStart != null) {
+                            // Provisional messages older than a full window are still history
+                            for (Message message : live) {
+                                if (isBefore(message, windowStart)) cached.add(message);
+                            }
+                        }
+                        live.clear();
+                        live.addAll(window);
+                        dropDeliveredPending();
+                        if (fromServer) {
+                            persistPage(live, false);
+                            noteSynced();
+                        }
+                        Log.d(TAG, "✅ Live window: " + live.size() + " messages");
+                        callback.onMessagesChanged(getMessages());
+                        return;
+                    }
+
+                    List<DocumentChange> changes = snapshots.getDocumentChanges();
+                    if (changes.isEmpty()) return;
+
+                    List<String> slidOut = new ArrayList<>();
+                    boolean reshaped = applyToLiveWindow(changes, windowStart, slidOut);
+                    if (fromServer) {
+                        persistChanges(changes, slidOut);
+                        noteSynced();
+                    }
+                    if (dropDeliveredPending() || reshaped) {
+                        // An echo turned into its real document, or messages crossed the
+                        // window's edge: diff so rows update in place
+                        callback.onMessagesChanged(getMessages());
+                    } else {
+                        callback.onLiveChanges(changes, history.size() + cached.size());
+                    }
+                });
+    }
+
+    /**
+     * Apply changes to the live window. A message that drops off the old end of a
+     * full window ({@code windowStart} non-null) was pushed out, not deleted: it moves
+     * to {@code cached} and its ID goes into {@code slidOut}.
+     * Returns whether messages moved between the window and older lists, in which
+     * case the change indexes no longer map to adapter positions.
+     */
+    private boolean applyToLiveWindow(List<DocumentChange> changes, Message windowStart, List<String> slidOut) {
+        boolean reshaped = false;
+        for (DocumentChange change : changes) {
+            switch (change.getType()) {
+                case ADDED: {
+                    Message message = Message.fromSnapshot(change.getDocument());
+                    if (message != null) {
+                        // A deletion pulled an older, already shown message back into the window
+                        if (removeById(cached, message.getMessageId()) >= 0
+                                || removeById(history, message.getMessageId()) >= 0) {
+                            reshaped = true;
+                        }
+                        live.add(Math.min(change.getNewIndex(), live.size()), message);
+                    }
+                    break;
+                }
+                case MODIFIED: {
+                    Message message = Message.fromSnapshot(change.getDocument());
+                    if (message != null && change.getOldIndex() < live.size()) {
+                        live.remove(change.getOldIndex());
+                        live.add(Math.min(change.getNewIndex(), live.size()), message);
+                    }
+                    break;
+                }
+                case REMOVED:
+                    if (change.getOldIndex() < live.size()) {
+                        Message message = live.remove(change.getOldIndex());
+                        if (windowStart != null && isBefore(message, windowStart)) {
+                            cached.add(message);
+                            slidOut.add(message.getMessageId());
+                            reshaped = true;
+                        }
+                    }
+                    break;
+            }
+        }
+        return reshaped;
+    }
+
+    /**
+     * The live window starts after the newest message known to be contiguous with it
+     * (e.g. opening a conversation that got more than a page while away). Older
+     * messages would sit right next to the window with the gap hidden, so drop them
+     * and page back through the gap from Firestore.
+     */
+    private void openGap(List<Message> window, boolean fromServer) {
+        if (!gapOpen) {
+            gapOpen = true;
+            gapFloor = syncedUpTo;
+        }
+        generation++;
+        loadingOlder = false;
+        liveSynced = true;
+
+        history.clear();
+        cached.clear();
+        live.clear();
+        live.addAll(window);
+        oldestLoadedTimestamp = window.get(0).getTimestamp();
+        oldestLoadedId = window.get(0).getMessageId();
+        hasMore = true;
+        dropDeliveredPending();
+        if (fromServer) {
+            persistPage(live, false);
+            noteSynced();
+        }
+
+        Log.d(TAG, "⚠️ Live window starts after " + gapFloor + ", paging back through the gap");
+        callback.onMessagesChanged(getMessages());
+        continueSeek();
+    }
+
+    /**
+     * Gap paged through: everything up to the live window is in the store now
+     */
+    private void closeGap() {
+        gapOpen = false;
+        long upTo = syncedUpTo;
+        store.getExecutor().execute(() -> store.markSynced(conversationId, upTo));
+        Log.d(TAG, "✅ Gap closed, synced up to " + upTo);
+    }
+
+    private void noteSynced() {
+        if (!live.isEmpty()) {
+            syncedUpTo = Math.max(syncedUpTo, live.get(live.size() - 1).getTimestamp());
+        }
+    }
+
+    /**
+     * (timestamp, message ID) order, the order Firestore and the store page in
+     */
+    private static boolean isBefore(Message a, Message b) {
+        if (a.getTimestamp() != b.getTimestamp()) return a.getTimestamp() < b.getTimestamp();
+        return a.getMessageId() != null && b.getMessageId() != null
+                && a.getMessageId().compareTo(b.getMessageId()) < 0;
+    }
+
+    /**
+     * Load the page just before the oldest loaded message, from the store when
+     * it holds a full page (or the whole history), otherwise from Firestore.
+     * While a gap is open the store can't be trusted and Firestore is always asked.
+     * No-op while a page is already in flight or history is exhausted.
+     */
+    public void loadOlder() {
+        if (loadingOlder || !hasMore || released || oldestLoadedTimestamp == Long.MAX_VALUE) {
+            return;
+        }
+        loadingOlder = true;
+        long before = oldestLoadedTimestamp;
+        String beforeId = oldestLoadedId;
+        int requested = generation;
+
+        if (gapOpen) {
+            fetchOlderFromFirestore(before, beforeId, requested);
+            return;
+        }
+
+        store.getExecutor().execute(() -> {
+            List<Message> local = store.getBefore(conversationId, before, beforeId, pageSize);
+            boolean historyComplete = store.isHistoryComplete(conversationId);
+
+            mainHandler.post(() -> {
+                if (released) {
+                    loadingOlder = false;
+                    return;
+                }
+                if (requested != generation) return;
+                if (local.size() >= pageSize || historyComplete) {
+                    deliverOlderPage(local, local.size() >= pageSize);
+                } else {
+                    fetchOlderFromFirestore(before, beforeId, requested);
+                }
+            });
+        });
+    }
+
+    private void fetchOlderFromFirestore(long before, String beforeId, int requested) {
+        messagesRef.orderBy("timestamp", Query.Direction.DESCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.DESCENDING)
+                .startAfter(before, beforeId)
+                .limit(pageSize)
+                .get()
+                .addOnSuccessListener(snapshots -> {
+                    if (released) {
+                        loadingOlder = false;
+                        return;
+                    }
+                    if (requested != generation) return;
+
+                    List<Message> page = parsePage(snapshots);
+                    Collections.reverse(page);
+                    boolean more = page.size() >= pageSize;
+
+                    if (!snapshots.getMetadata().isFromCache()) {
+                        persistPage(page, !more);
+                        if (gapOpen && (!more || page.get(0).getTimestamp() <= gapFloor)) {
+                            closeGap();
+                        }
+                    }
+                    deliverOlderPage(page, more);
+                })
+                .addOnFailureListener(e -> {
+                    if (requested != generation) return;
+                    loadingOlder = false;
+                    seekDone = null;
+                    Log.e(TAG, "❌ Failed to load older page: " + e.getMessage());
+                    callback.onError(e.getMessage());
+                });
+    }
+
+    private void deliverOlderPage(List<Message> page, boolean more) {
+        loadingOlder = false;
+        hasMore = more;
+
+        if (!page.isEmpty()) {
+            oldestLoadedTimestamp = page.get(0).getTimestamp();
+            oldestLoadedId = page.get(0).getMessageId();
+            history.addAll(0, page);
+        }
+        Log.d(TAG, "📜 Older page loaded: " + page.size() + " messages, hasMore=" + hasMore);
+        callback.onOlderPageLoaded(page, hasMore);
+        continueSeek();
+    }
+
+    /**
+     * Page back until messages at {@code timestamp} are loaded (or history runs out),
+     * then run {@code onLoaded}, e.g. to scroll to a search result.
+     * Pages come from the store where cached, so a deep jump mostly costs no reads.
+     */
+    public void loadUntil(long timestamp, Runnable onLoaded) {
+        seekTimestamp = timestamp;
+        seekDone = onLoaded;
+        continueSeek();
+    }
+
+    private void continueSeek() {
+        if (seekDone == null || released) return;
+        // First page not shown yet: start() calls back here once it is
+        if (oldestLoadedTimestamp == Long.MAX_VALUE && hasMore) return;
+
+        if (oldestLoadedTimestamp <= seekTimestamp || !hasMore) {
+            Runnable done = seekDone;
+            seekDone = null;
+            done.run();
+            return;
+        }
+        loadOlder();
+    }
+
+    /**
+     * Drop a message from paged or cached history (e.g. after the user deleted it).
+     * Live window deletions are picked up by the snapshot listener.
+     * Returns the adapter position it occupied, or -1 if it isn't outside the live window.
+     */
+    public int forget(String messageId) {
+        if (messageId == null) return -1;
+
+        int pendingIndex = indexOf(pending, messageId);
+        if (pendingIndex >= 0) {
+            pending.remove(pendingIndex);
+            OutboxManager.cancel(context, messageId);
+            return history.size() + cached.size() + live.size() + pendingIndex;
+        }
+
+        int position = removeById(history, messageId);
+        if (position < 0) {
+            position = removeById(cached, messageId);
+            if (position >= 0) position += history.size();
+        }
+        if (position >= 0) {
+            store.getExecutor().execute(() -> store.delete(conversationId, messageId));
+        }
+        return position;
+    }
+
+    // ==================== OUTBOX ====================
+
+    /**
+     * Show a message just handed to {@link OutboxManager#enqueue} at the bottom
+     */
+    public void addPending(Message message) {
+        if (released || message == null || indexOf(pending, message.getMessageId()) >= 0) return;
+        pending.add(message);
+        callback.onMessagesChanged(getMessages());
+    }
+
+    private void onSendStateChanged(String conversationPath, String messageId, Message.SendState state) {
+        if (released || !conversationId.equals(conversationPath)) return;
+        int index = indexOf(pending, messageId);
+        // SENT needs nothing here: the live listener delivers the document itself
+        if (index < 0 || state == Message.SendState.SENT) return;
+        pending.get(index).setSendState(state);
+        callback.onMessagesChanged(getMessages());
+    }
+
+    /**
+     * Remove echoes whose documents are now in the live window
+     */
+    private boolean dropDeliveredPending() {
+        boolean dropped = false;
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            if (indexOf(live, pending.get(i).getMessageId()) >= 0) {
+                pending.remove(i);
+                dropped = true;
+            }
+        }
+        return dropped;
+    }
+
+    private static int indexOf(List<Message> messages, String messageId) {
+        if (messageId == null) return -1;
+        for (int i = 0; i < messages.size(); i++) {
+            if (messageId.equals(messages.get(i).getMessageId())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int removeById(List<Message> messages, String messageId) {
+        for (int i = 0; i < messages.size(); i++) {
+            if (messageId.equals(messages.get(i).getMessageId())) {
+                messages.remove(i);
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Paged history, cached messages and the live window ascending by timestamp,
+     * followed by pending outgoing messages
+     */
+    public List<Message> getMessages() {
+        List<Message> all = new ArrayList<>(history.size() + cached.size() + live.size() + pending.size());
+        all.addAll(history);
+        all.addAll(cached);
+        all.addAll(live);
+        all.addAll(pending);
+        return all;
+    }
+
+    /**
+     * Position of a message in {@link #getMessages()}, or -1 if it isn't loaded
+     */
+    public int positionOf(String messageId) {
+        return indexOf(getMessages(), messageId);
+    }
+
+    /**
+     * The messages collection path, which is also the {@link MessageStore} conversation ID
+     */
+    public String getConversationId() {
+        return conversationId;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public boolean isLoadingOlder() {
+        return loadingOlder;
+    }
+
+    public void release() {
+        released = true;
+        seekDone = null;
+        OutboxManager.removeListener(outboxListener);
+        mainHandler.removeCallbacksAndMessages(null);
+        if (liveListener != null) {
+            liveListener.remove();
+            liveListener = null;
+        }
+    }
+
+    // ==================== STORE SYNC ====================
+
+    private void persistPage(List<Message> page, boolean reachedStart) {
+        List<Message> copy = new ArrayList<>(page);
+        boolean advance = !gapOpen;
+        store.getExecutor().execute(() -> {
+            store.upsert(conversationId, copy, advance);
+            if (reachedStart) {
+                store.setHistoryComplete(conversationId);
+            }
+        });
+    }
+
+    /**
+     * Mirror live changes into the store; messages in {@code slidOut} only left the window
+     */
+    private void persistChanges(List<DocumentChange> changes, List<String> slidOut) {
+        List<Message> upserts = new ArrayList<>();
+        List<String> removals = new ArrayList<>();
+        boolean advance = !gapOpen;
+        for (DocumentChange change : changes) {
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                if (!slidOut.contains(change.getDocument().getId())) {
+                    removals.add(change.getDocument().getId());
+                }
+            } else {
+                Message message = Message.fromSnapshot(change.getDocument());
+                if (message != null) upserts.add(message);
+            }
+        }
+        store.getExecutor().execute(() -> {
+            store.upsert(conversationId, upserts, advance);
+            for (String messageId : removals) {
+                store.delete(conversationId, messageId);
+            }
+        });
+    }
+
+    private static List<Message> parsePage(QuerySnapshot snapshots) {
+        List<Message> page = new ArrayList<>();
+        if (snapshots == null) return page;
+
+        for (DocumentSnapshot doc : snapshots.getDocuments()) {
+            Message message = Message.fromSnapshot(doc);
+            if (message != null) {
+                page.add(message);
+            } else {
+                Log.e(TAG, "Error parsing message: " + doc.getId());
+            }
+        }
+        return page;
+    }
+}
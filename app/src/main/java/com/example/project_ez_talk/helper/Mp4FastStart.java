@@ -0,0 +1,186 @@
+package com.example.project_ez_talk.helper;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rewrites an MP4 so the 'moov' index comes before 'mdat' ("faststart"), letting a
+ * player begin while the rest is still downloading. MediaMuxer always writes moov at
+ * the end. Chunk offsets (stco/co64) are shifted by the size of the moved moov box.
+ */
+final class Mp4FastStart {
+
+    private Mp4FastStart() {
+    }
+
+    private static final class Box {
+        final String type;
+        final long offset;
+        final long size;
+
+        Box(String type, long offset, long size) {
+            this.type = type;
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Write a faststart copy of {@code in} to {@code out}.
+     * Returns false (and leaves {@code out} untouched) when {@code in} already has moov
+     * first, in which case it can be used as is.
+     */
+    static boolean process(File in, File out) throws IOException {
+        List<Box> boxes = readTopLevel(in);
+
+        Box moov = null;
+        int firstMdat = -1;
+        for (int i = 0; i < boxes.size(); i++) {
+            Box box = boxes.get(i);
+            if ("moov".equals(box.type)) {
+                moov = box;
+            } else if ("mdat".equals(box.type) && firstMdat < 0) {
+                firstMdat = i;
+            }
+        }
+        if (moov == null) {
+            throw new IOException("No moov box");
+        }
+        if (firstMdat < 0 || moov.offset < boxes.get(firstMdat).offset) {
+            return false;
+        }
+        if (moov.size > Integer.MAX_VALUE) {
+            throw new IOException("moov too large");
+        }
+
+        ByteBuffer moovData = ByteBuffer.allocate((int) moov.size);
+        try (FileChannel channel = new FileInputStream(in).getChannel()) {
+            channel.read(moovData, moov.offset);
+        }
+        moovData.flip();
+        shiftChunkOffsets(moovData, 0, moovData.limit(), moov.size);
+
+        try (FileChannel src = new FileInputStream(in).getChannel();
+             FileChannel dst = new FileOutputStream(out).getChannel()) {
+            for (int i = 0; i < firstMdat; i++) {
+                if (boxes.get(i) != moov) copy(src, dst, boxes.get(i));
+            }
+            moovData.position(0);
+            while (moovData.hasRemaining()) {
+                dst.write(moovData);
+            }
+            for (int i = firstMdat; i < boxes.size(); i++) {
+                if (boxes.get(i) != moov) copy(src, dst, boxes.get(i));
+            }
+        }
+        return true;
+    }
+
+    private static List<Box> readTopLevel(File file) throws IOException {
+        List<Box> boxes = new ArrayList<>();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long length = raf.length();
+            long offset = 0;
+            while (offset + 8 <= length) {
+                raf.seek(offset);
+                long size = raf.readInt() & 0xFFFFFFFFL;
+                byte[] type = new byte[4];
+                raf.readFully(type);
+                if (size == 1) {
+                    size = raf.readLong();
+                } else if (size == 0) {
+                    size = length - offset;
+                }
+                if (size < 8 || offset + size > length) {
+                    throw new IOException("Malformed box at " + offset);
+                }
+                boxes.add(new Box(new String(type, "US-ASCII"), offset, size));
+                offset += size;
+            }
+        }
+        return boxes;
+    }
+
+    /**
+     * Walk the boxes in {@code [start, end)} and add {@code delta} to every chunk offset
+     */
+    private static void shiftChunkOffsets(ByteBuffer data, int start, int end, long delta) throws IOException {
+        int pos = start;
+        while (pos + 8 <= end) {
+            long size = data.getInt(pos) & 0xFFFFFFFFL;
+            String type = typeAt(data, pos + 4);
+            int header = 8;
+            if (size == 1) {
+                size = data.getLong(pos + 8);
+                header = 16;
+            } else if (size == 0) {
+                size = end - pos;
+            }
+            if (size < header || pos + size > end) {
+                throw new IOException("Malformed " + type + " box");
+            }
+            int boxEnd = (int) (pos + size);
+
+            switch (type) {
+                case "moov":
+                case "trak":
+                case "mdia":
+                case "minf":
+                case "stbl":
+                    shiftChunkOffsets(data, pos + header, boxEnd, delta);
+                    break;
+                case "stco": {
+                    int count = data.getInt(pos + header + 4);
+                    int entry = pos + header + 8;
+                    for (int i = 0; i < count; i++, entry += 4) {
+                        long shifted = (data.getInt(entry) & 0xFFFFFFFFL) + delta;
+                        if (shifted > 0xFFFFFFFFL) {
+                            throw new IOException("Chunk offset overflows stco");
+                        }
+                        data.putInt(entry, (int) shifted);
+                    }
+                    break;
+                }
+                case "co64": {
+                    int count = data.getInt(pos + header + 4);
+                    int entry = pos + header + 8;
+                    for (int i = 0; i < count; i++, entry += 8) {
+                        data.putLong(entry, data.getLong(entry) + delta);
+                    }
+                    break;
+                }
+                default:
+                    break;
+            }
+            pos = boxEnd;
+        }
+    }
+
+    private static String typeAt(ByteBuffer data, int pos) {
+        char[] chars = new char[4];
+        for (int i = 0; i < 4; i++) {
+            chars[i] = (char) (data.get(pos + i) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    private static void copy(FileChannel src, FileChannel dst, Box box) throws IOException {
+        long position = box.offset;
+        long remaining = box.size;
+        while (remaining > 0) {
+            long copied = src.transferTo(position, remaining, dst);
+            if (copied <= 0) {
+                throw new IOException("Copy stalled at " + position);
+            }
+            position += copied;
+            remaining -= copied;
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package com.example.project_ez_talk.helper;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import com.example.project_ez_talk.model.Message;
+import com.example.project_ez_talk.repository.OutboxStore;
+import com.example.project_ez_talk.service.OutboxWorker;
+import com.google.firebase.firestore.CollectionReference;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entry point for sending attachment messages through the durable outbox.
+ * enqueue() hands back the message immediately (PENDING, previewing the local file)
+ * so the UI can echo it with zero latency; a private copy of the attachment plus the
+ * job are persisted and an {@link OutboxWorker} uploads it and writes the Firestore
+ * document whenever the network allows, retrying with backoff across process deaths.
+ * The document ID is fixed up front, so retries never duplicate a message and the
+ * echo is replaced in place when the real document arrives.
+ */
+public class OutboxManager {
+
+    private static final String TAG = "OutboxManager";
+
+    public static final String WORK_TAG = "outbox";
+    private static final String OUTBOX_DIR = "outbox";
+    private static final long INITIAL_BACKOFF_SEC = 10;
+
+    /**
+     * Notified on the main thread when a queued send changes state
+     */
+    public interface Listener {
+        void onSendStateChanged(String conversationPath, String messageId, Message.SendState state);
+    }
+
+    /**
+     * Callback for {@link #loadPending}, on the main thread
+     */
+    public interface PendingCallback {
+        void onLoaded(List<Message> pending);
+    }
+
+    /**
+     * Description of one outgoing attachment message
+     */
+    public static final class Job {
+        final CollectionReference messagesRef;
+        final Message message;
+        Uri source;
+        OutboxStore.Kind kind = OutboxStore.Kind.FILE;
+        String bucket;
+        String objectPath;
+        String contentType = "application/octet-stream";
+        String chatId;
+        String receiverId;
+        String preview;
+        String previewType;
+        String notifyText;
+        String notifyType;
+        boolean resolveSender;
+        boolean moveSource;
+
+        public Job(CollectionReference messagesRef, Message message) {
+            this.messagesRef = messagesRef;
+            this.message = message;
+        }
+
+        /**
+         * File to upload to {@code bucket/objectPath}. For {@link OutboxStore.Kind#IMAGE}
+         * {@code objectPath} has no extension: the encoder picks it.
+         */
+        public Job attachment(Uri source, OutboxStore.Kind kind, String bucket, String objectPath,
+                              String contentType) {
+            this.source = source;
+            this.kind = kind;
+            this.bucket = bucket;
+            this.objectPath = objectPath;
+            this.contentType = contentType;
+            return this;
+        }
+
+        /**
+         * Bump both users' chat list entries once the message is written (direct chats)
+         */
+        public Job chatListPreview(String chatId, String receiverId, String preview, String previewType) {
+            this.chatId = chatId;
+            this.receiverId = receiverId;
+            this.preview = preview;
+            this.previewType = previewType;
+            return this;
+        }
+
+        /**
+         * The source is a file this app owns (e.g. a voice recording): move it into the
+         * outbox instead of copying it
+         */
+        public Job moveSource() {
+            this.moveSource = true;
+            return this;
+        }
+
+        /**
+         * Push-notify the receiver of a direct chat once the message is written
+         */
+        public Job notifyReceiver(String text, String type) {
+            this.notifyText = text;
+            this.notifyType = type;
+            return this;
+        }
+
+        /**
+         * Fill the sender's name and avatar from their profile right before writing
+         */
+        public Job resolveSenderProfile() {
+            this.resolveSender = true;
+            return this;
+        }
+    }
+
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    // Copies attachments into the outbox, one at a time
+    private static final ExecutorService copyExecutor = Executors.newSingleThreadExecutor();
+    // Message IDs whose copy is queued or running
+    private static final Set<String> preparing = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private OutboxManager() {
+    }
+
+    /**
+     * Queue {@code job} and return its message, marked PENDING with a local preview URL.
+     * The entry is persisted first; the attachment is then copied into app storage in the
+     * background (the picker's grant doesn't outlive the process) before the upload is
+     * scheduled.
+     */
+    public static Message enqueue(Context context, Job job) {
+        Context appContext = context.getApplicationContext();
+        String messageId = job.messagesRef.document().getId();
+
+        Message message = job.message;
+        message.setMessageId(messageId);
+        message.setSendState(Message.SendState.PENDING);
+        // timestamp is restamped when the worker writes the document; keep the send time for display
+        message.setComposedAt(message.getTimestamp() > 0 ? message.getTimestamp() : System.currentTimeMillis());
+
+        OutboxStore.Entry entry = new OutboxStore.Entry();
+        entry.messageId = messageId;
+        entry.conversationPath = job.messagesRef.getPath();
+        entry.message = message;
+        entry.kind = job.kind;
+        entry.bucket = job.bucket;
+        entry.objectPath = job.objectPath;
+        entry.contentType = job.contentType;
+        entry.chatId = job.chatId;
+        entry.receiverId = job.receiverId;
+        entry.preview = job.preview;
+        entry.previewType = job.previewType;
+        entry.notifyText = job.notifyText;
+        entry.notifyType = job.notifyType;
+        entry.resolveSender = job.resolveSender;
+        entry.createdAt = System.currentTimeMillis();
+
+        Uri source = job.source;
+        boolean move = job.moveSource && "file".equals(source.getScheme()) && source.getPath() != null;
+        File target = new File(outboxDir(appContext), messageId);
+        entry.localPath = target.getPath();
+        entry.sourceUri = source.toString();
+        entry.moveSource = move;
+
+        // The row goes in first, on the store's thread: a cancel() issued while the copy
+        // runs is serialized after it and finds something to delete, and a failed copy
+        // leaves a row that retry() can pick up
+        OutboxStore store = OutboxStore.getInstance(appContext);
+        store.getExecutor().execute(() -> {
+            store.insert(entry);
+            prepare(appContext, entry);
+        });
+
+        // Echo with the local file until the uploaded one replaces it
+        Message echo = copyOf(message);
+        echo.setFileUrl(move ? Uri.fromFile(target).toString() : source.toString());
+        return echo;
+    }
+
+    /**
+     * Queued messages of a conversation, as echoes previewing their local copies
+     */
+    public static void loadPending(Context context, String conversationPath, PendingCallback callback) {
+        OutboxStore store = OutboxStore.getInstance(context);
+        store.getExecutor().execute(() -> {
+            List<Message> pending = new ArrayList<>();
+            for (OutboxStore.Entry entry : store.getForConversation(conversationPath)) {
+                Message echo = entry.message;
+                File local = entry.localPath != null ? new File(entry.localPath) : null;
+                if (local != null && local.exists()) {
+                    echo.setFileUrl(Uri.fromFile(local).toString());
+                } else {
+                    echo.setFileUrl(entry.sourceUri);
+                    if (!entry.failed) {
+                        // The process died before the copy finished: nothing is scheduled yet
+                        prepare(context.getApplicationContext(), entry);
+                    }
+                }
+                pending.add(echo);
+            }
+            mainHandler.post(() -> callback.onLoaded(pending));
+        });
+    }
+
+    /**
+     * Retry a send that was marked FAILED
+     */
+    public static void retry(Context context, String messageId) {
+        Context appContext = context.getApplicationContext();
+        OutboxStore store = OutboxStore.getInstance(appContext);
+        store.getExecutor().execute(() -> {
+            OutboxStore.Entry entry = store.get(messageId);
+            if (entry == null) return;
+            store.setFailed(messageId, false);
+            // A send that failed while copying has no local file yet: copy again
+            prepare(appContext, entry);
+            notifyStateChanged(entry.conversationPath, messageId, Message.SendState.PENDING);
+        });
+    }
+
+    /**
+     * Drop a queued send (e.g. the user deleted the pending message)
+     */
+    public static void cancel(Context context, String messageId) {
+        Context appContext = context.getApplicationContext();
+        OutboxStore store = OutboxStore.getInstance(appContext);
+        // Same thread as the insert and schedule in prepare(): nothing can be scheduled after this
+        store.getExecutor().execute(() -> {
+            WorkManager.getInstance(appContext).cancelUniqueWork(uniqueName(messageId));
+            store.delete(messageId);
+            deleteLocalFiles(appContext, messageId);
+        });
+    }
+
+    /**
+     * Cancel and forget every queued send (e.g. on logout)
+     */
+    public static void clearAll(Context context) {
+        Context appContext = context.getApplicationContext();
+        WorkManager.getInstance(appContext).cancelAllWorkByTag(WORK_TAG);
+        OutboxStore store = OutboxStore.getInstance(appContext);
+        store.getExecutor().execute(() -> {
+            store.clearAll();
+            File[] files = outboxDir(appContext).listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (!file.delete()) Log.w(TAG, "Could not delete " + file);
+                }
+            }
+        });
+    }
+
+    // ==================== LISTENERS ====================
+
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Called by the worker; fans out on the main thread
+     */
+    public static void notifyStateChanged(String conversationPath, String messageId, Message.SendState state) {
+        mainHandler.post(() -> {
+            for (Listener listener : listeners) {
+                listener.onSendStateChanged(conversationPath, messageId, state);
+            }
+        });
+    }
+
+    // ==================== PREPARATION ====================
+
+    /**
+     * Make the private copy of a queued attachment, then schedule its upload.
+     * Runs the copy on {@link #copyExecutor} (videos can take a while, and the transfer
+     * pool's slots are for network work); the outcome is applied back on the store's
+     * thread so it is ordered with cancel(). Call on the store's thread.
+     */
+    private static void prepare(Context context, OutboxStore.Entry entry) {
+        String messageId = entry.messageId;
+        File target = new File(entry.localPath);
+        if (target.exists()) {
+            schedule(context, messageId);
+            return;
+        }
+        if (!preparing.add(messageId)) return;
+
+        OutboxStore store = OutboxStore.getInstance(context);
+        copyExecutor.execute(() -> {
+            IOException error = null;
+            if (store.get(messageId) != null) {
+                try {
+                    if (entry.sourceUri == null) {
+                        throw new IOException("Attachment missing");
+                    }
+                    Uri source = Uri.parse(entry.sourceUri);
+                    File local = entry.moveSource && source.getPath() != null
+                            ? moveToOutbox(context, new File(source.getPath()), target)
+                            : copyToOutbox(context, source, target);
+                    Log.d(TAG, "📮 Queued " + messageId + " (" + local.length() + " bytes)");
+                } catch (IOException e) {
+                    error = e;
+                }
+            }
+            IOException failure = error;
+            store.getExecutor().execute(() -> {
+                preparing.remove(messageId);
+                if (store.get(messageId) == null) {
+                    // Cancelled while copying
+                    deleteLocalFiles(context, messageId);
+                } else if (failure != null) {
+                    Log.e(TAG, "❌ Cannot queue " + messageId + ": " + failure.getMessage());
+                    store.setFailed(messageId, true);
+                    notifyStateChanged(entry.conversationPath, messageId, Message.SendState.FAILED);
+                } else {
+                    schedule(context, messageId);
+                }
+            });
+        });
+    }
+
+    // ==================== FILES ====================
+
+    public static File outboxDir(Context context) {
+        return new File(context.getFilesDir(), OUTBOX_DIR);
+    }
+
+    /**
+     * Remove the private copy of an attachment and anything derived from it
+     */
+    public static void deleteLocalFiles(Context context, String messageId) {
+        File[] files = outboxDir(context).listFiles((dir, name) -> name.startsWith(messageId));
+        if (files == null) return;
+        for (File file : files) {
+            if (!file.delete()) Log.w(TAG, "Could not delete " + file);
+        }
+    }
+
+    private static File moveToOutbox(Context context, File source, File target) throws IOException {
+        ensureDir(target.getParentFile());
+        if (source.renameTo(target)) {
+            return target;
+        }
+        // Different filesystem: fall back to copy + delete
+        copyToOutbox(context, Uri.fromFile(source), target);
+        if (!source.delete()) Log.w(TAG, "Could not delete " + source);
+        return target;
+    }
+
+    /**
+     * Copy through a ".part" file, so {@code target} only exists once it is complete
+     */
+    private static File copyToOutbox(Context context, Uri source, File target) throws IOException {
+        ensureDir(target.getParentFile());
+        File partial = new File(target.getPath() + ".part");
+        try (InputStream in = context.getContentResolver().openInputStream(source);
+             OutputStream out = new FileOutputStream(partial)) {
+            if (in == null) {
+                throw new IOException("Cannot open " + source);
+            }
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            if (!partial.delete()) Log.w(TAG, "Could not delete partial " + partial);
+            throw e;
+        }
+        if (!partial.renameTo(target)) {
+            throw new IOException("Cannot move " + partial + " into place");
+        }
+        return target;
+    }
+
+    private static void ensureDir(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+    }
+
+    // ==================== SCHEDULING ====================
+
+    private static void schedule(Context context, String messageId) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(OutboxWorker.class)
+                .setInputData(new Data.Builder().putString(OutboxWorker.KEY_MESSAGE_ID, messageId).build())
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, INITIAL_BACKOFF_SEC, TimeUnit.SECONDS)
+                .addTag(WORK_TAG)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(uniqueName(messageId), ExistingWorkPolicy.REPLACE, request);
+    }
+
+    private static String uniqueName(String messageId) {
+        return WORK_TAG + "_" + messageId;
+    }
+
+    private static Message copyOf(Message source) {
+        Message copy = new Message();
+        copy.setMessageId(source.getMessageId());
+        copy.setSenderId(source.getSenderId());
+        copy.setGroupId(source.getGroupId());
+        copy.setContent(source.getContent());
+        copy.setFileUrl(source.getFileUrl());
+        copy.setThumbnailUrl(source.getThumbnailUrl());
+        copy.setMessageType(source.getMessageType());
+        copy.setTimestamp(source.getTimestamp());
+        copy.setComposedAt(source.getComposedAt());
+        copy.setDuration(source.getDuration());
+        copy.setSenderName(source.getSenderName());
+        copy.setSenderAvatarUrl(source.getSenderAvatarUrl());
+        copy.setSendState(source.getSendState());
+        return copy;
+    }
+}
@@ -1,15 +1,18 @@
 package com.example.project_ez_talk.helper;
 
+import android.content.ContentResolver;
 import android.content.Context;
 import android.net.Uri;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 
-import java.io.InputStream;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.File;
+import java.io.IOException;
 
 import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
@@ -32,8 +35,11 @@ public class SupabaseStorageManager {
     private static final String BUCKET_DOCUMENTS = "chat-documents";
     private static final String BUCKET_AUDIO = "chat-audio";
 
-    private static OkHttpClient client = new OkHttpClient();
+    // Target of the blocking upload helpers; only tests change it
+    private static volatile String baseUrl = SUPABASE_URL;
+
     private static Context appContext;
+    private static TusUploader tusUploader;
     private static Handler mainHandler = new Handler(Looper.getMainLooper());
 
     /**
@@ -91,8 +97,8 @@ public class SupabaseStorageManager {
      */
     private static void uploadToSupabase(Uri fileUri, String bucket, String userId,
                                          String fileName, UploadCallback callback) {
-        // Run on background thread to avoid blocking UI
-        new Thread(() -> {
+        // Run on the shared transfer executor to avoid blocking UI
+        HttpClientProvider.execute(HttpClientProvider.PRIORITY_INTERACTIVE, () -> {
             try {
                 Log.d(TAG, "Starting upload for: " + fileName);
 
@@ -103,16 +109,6 @@ public class SupabaseStorageManager {
                     return;
                 }
 
-                // Read file bytes from Uri
-                byte[] fileBytes = readFileBytes(fileUri);
-                if (fileBytes == null) {
-                    Log.e(TAG, "Failed to read file bytes");
-                    mainHandler.post(() -> callback.onError("Failed to read file"));
-                    return;
-                }
-
-                Log.d(TAG, "File read successfully, size: " + fileBytes.length + " bytes");
-
                 // Create file path: userId/fileName
                 String filePath = userId + "/" + fileName;
 
@@ -121,8 +117,9 @@ public class SupabaseStorageManager {
 
                 Log.d(TAG, "Uploading to: " + apiUrl);
 
-                // Create request
-                RequestBody requestBody = RequestBody.create(fileBytes, MediaType.parse("application/octet-stream"));
+                // Create request: the file is streamed from the Uri, never held in memory
+                RequestBody requestBody = UriRequestBody.create(appContext.getContentResolver(), fileUri,
+                        MediaType.parse("application/octet-stream"));
 
                 Request request = new Request.Builder()
                         .url(apiUrl)
@@ -131,7 +128,7 @@ public class SupabaseStorageManager {
                         .build();
 
                 // Execute request
-                Response response = client.newCall(request).execute();
+                Response response = HttpClientProvider.getClient().newCall(request).execute();
 
                 if (response.isSuccessful()) {
                     // Generate public URL
@@ -156,55 +153,14 @@ public class SupabaseStorageManager {
                 // ✅ Call callback on main thread
                 mainHandler.post(() -> callback.onError("Upload error: " + e.getMessage()));
             }
-        }).start();
-    }
-
-    /**
-     * Read file bytes from Uri
-     * Supports both content:// URIs and file:// URIs
-     */
-    private static byte[] readFileBytes(Uri uri) {
-        try {
-            if (appContext == null) {
-                Log.e(TAG, "AppContext is null - SupabaseStorageManager not initialized!");
-                return null;
-            }
-
-            Log.d(TAG, "Reading file from URI: " + uri);
-
-            // Open input stream from content resolver
-            InputStream inputStream = appContext.getContentResolver().openInputStream(uri);
-            if (inputStream == null) {
-                Log.e(TAG, "Failed to open input stream");
-                return null;
-            }
-
-            // Read all bytes from stream
-            byte[] buffer = new byte[8192];  // 8KB buffer for better performance
-            java.io.ByteArrayOutputStream outputStream = new java.io.ByteArrayOutputStream();
-            int length;
-
-            while ((length = inputStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, length);
-            }
-
-            inputStream.close();
-            byte[] fileBytes = outputStream.toByteArray();
-
-            Log.d(TAG, "✅ Successfully read " + fileBytes.length + " bytes from file");
-            return fileBytes;
-
-        } catch (Exception e) {
-            Log.e(TAG, "Error reading file: " + e.getMessage(), e);
-            return null;
-        }
+        });
     }
 
     /**
      * Delete file from Supabase
      */
     public static void deleteFile(String bucket, String filePath, UploadCallback callback) {
-        new Thread(() -> {
+        HttpClientProvider.execute(HttpClientProvider.PRIORITY_BULK, () -> {
             try {
                 if (appContext == null) {
                     mainHandler.post(() -> callback.onError("SupabaseStorageManager not initialized"));
@@ -219,7 +175,7 @@ public class SupabaseStorageManager {
                         .delete()
                         .build();
 
-                Response response = client.newCall(request).execute();
+                Response response = HttpClientProvider.getClient().newCall(request).execute();
 
                 if (response.isSuccessful()) {
                     Log.d(TAG, "File deleted successfully");
@@ -234,13 +190,120 @@ public class SupabaseStorageManager {
                 Log.e(TAG, "Delete error: " + e.getMessage());
                 mainHandler.post(() -> callback.onError(e.getMessage()));
             }
-        }).start();
+        });
+    }
+
+    /**
+     * Upload a picked file to {@code bucket/objectPath} and return its public URL.
+     * Files of at least one TUS chunk with a known length go through the resumable
+     * endpoint, so a dropped connection only costs the chunk in flight; smaller files
+     * are a single streamed POST. Both upsert, so retrying an upload that already
+     * reached the server overwrites the object instead of failing as a duplicate.
+     * ⚠️ Blocking: call from {@link HttpClientProvider#execute}
+     */
+    public static String uploadFileBlocking(Uri fileUri, String bucket, String objectPath,
+                                            String contentType) throws IOException {
+        if (appContext == null) {
+            throw new IOException("SupabaseStorageManager not initialized");
+        }
+        ContentResolver resolver = appContext.getContentResolver();
+        long length = UriRequestBody.querySize(resolver, fileUri);
+
+        if (length >= TusUploader.CHUNK_SIZE) {
+            String uploadedPath = getTusUploader().upload(resolver, fileUri, length, bucket, objectPath,
+                    contentType, (sent, total) -> Log.d(TAG, "📤 " + objectPath + ": " + sent + "/" + total));
+            return getPublicUrl(bucket, uploadedPath);
+        }
+
+        postObject(bucket, objectPath, UriRequestBody.create(resolver, fileUri, MediaType.parse(contentType)));
+        return getPublicUrl(bucket, objectPath);
+    }
+
+    /**
+     * Public URLs of an uploaded image and its thumbnail
+     */
+    public static class ImageUpload {
+        public final String url;
+        public final String thumbnailUrl;
+
+        ImageUpload(String url, String thumbnailUrl) {
+            this.url = url;
+            this.thumbnailUrl = thumbnailUrl;
+        }
+    }
+
+    /**
+     * Downscale and re-encode a picked photo with {@link ImageCompressor}, then upload the
+     * result to {@code bucket/objectBase + ext} and its thumbnail to
+     * {@code bucket/objectBase + "_thumb" + ext}.
+     * ⚠️ Blocking: call from {@link HttpClientProvider#execute}
+     */
+    public static ImageUpload uploadImageBlocking(Uri imageUri, String bucket, String objectBase) throws IOException {
+        if (appContext == null) {
+            throw new IOException("SupabaseStorageManager not initialized");
+        }
+        ImageCompressor.Result compressed = ImageCompressor.compress(appContext, imageUri);
+        try {
+            String extension = compressed.format.extension;
+            String imagePath = objectBase + extension;
+            String thumbPath = objectBase + "_thumb" + extension;
+            uploadLocalFile(compressed.image, bucket, imagePath, compressed.format.mimeType);
+            uploadLocalFile(compressed.thumbnail, bucket, thumbPath, compressed.format.mimeType);
+            return new ImageUpload(getPublicUrl(bucket, imagePath), getPublicUrl(bucket, thumbPath));
+        } finally {
+            compressed.delete();
+        }
+    }
+
+    private static void uploadLocalFile(File file, String bucket, String objectPath,
+                                        String contentType) throws IOException {
+        postObject(bucket, objectPath, RequestBody.create(file, MediaType.parse(contentType)));
+    }
+
+    /**
+     * Single-request upload to {@code bucket/objectPath}.
+     * x-upsert makes it idempotent: a retry after a lost response (or a process death
+     * between the upload and the message write) overwrites the same object.
+     */
+    private static void postObject(String bucket, String objectPath, RequestBody body) throws IOException {
+        Request request = new Request.Builder()
+                .url(baseUrl + "/storage/v1/object/" + bucket + "/" + objectPath)
+                .header("Authorization", "Bearer " + SUPABASE_KEY)
+                .header("apikey", SUPABASE_KEY)
+                .header("x-upsert", "true")
+                .post(body)
+                .build();
+
+        try (Response response = HttpClientProvider.getClient().newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                String errorBody = response.body() != null ? response.body().string() : "Unknown error";
+                Log.e(TAG, "Upload failed: " + response.code() + " for " + objectPath + " - " + errorBody);
+                throw new IOException("Upload failed: " + response.code());
+            }
+        }
+    }
+
+    private static synchronized TusUploader getTusUploader() {
+        if (tusUploader == null) {
+            tusUploader = new TusUploader(appContext, HttpClientProvider.getClient(),
+                    baseUrl + "/storage/v1/upload/resumable", SUPABASE_KEY);
+        }
+        return tusUploader;
     }
 
     /**
      * Get public URL for a file
      */
     public static String getPublicUrl(String bucket, String filePath) {
-        return SUPABASE_URL + "/storage/v1/object/public/" + bucket + "/" + filePath;
+        return baseUrl + "/storage/v1/object/public/" + bucket + "/" + filePath;
+    }
+
+    /**
+     * Point the blocking upload helpers at another Storage server (e.g. a local stand-in)
+     */
+    @VisibleForTesting
+    public static synchronized void setBaseUrl(String url) {
+        baseUrl = url != null ? url : SUPABASE_URL;
+        tusUploader = null;
     }
 }
\ No newline at end of file
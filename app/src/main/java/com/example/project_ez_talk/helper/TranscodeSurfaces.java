@@ -0,0 +1,283 @@
+package com.example.project_ez_talk.helper;
+
+import android.graphics.SurfaceTexture;
+import android.opengl.EGL14;
+import android.opengl.EGLConfig;
+import android.opengl.EGLContext;
+import android.opengl.EGLDisplay;
+import android.opengl.EGLExt;
+import android.opengl.EGLSurface;
+import android.opengl.GLES11Ext;
+import android.opengl.GLES20;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.Surface;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * GL plumbing for {@link VideoTranscoder}: decoded frames land in a SurfaceTexture and
+ * are drawn, scaled by the GPU, onto the encoder's input surface. Frames never touch
+ * Java memory.
+ */
+final class TranscodeSurfaces {
+
+    private static final int EGL_RECORDABLE_ANDROID = 0x3142;
+    private static final long FRAME_TIMEOUT_MS = 2500;
+
+    private TranscodeSurfaces() {
+    }
+
+    // ==================== ENCODER INPUT ====================
+
+    /**
+     * EGL window surface over the encoder's input Surface.
+     * Must be made current on the thread that draws.
+     */
+    static final class EncoderInput {
+        private final Surface surface;
+        private EGLDisplay display = EGL14.EGL_NO_DISPLAY;
+        private EGLContext context = EGL14.EGL_NO_CONTEXT;
+        private EGLSurface eglSurface = EGL14.EGL_NO_SURFACE;
+
+        EncoderInput(Surface surface) throws IOException {
+            this.surface = surface;
+
+            display = EGL14.eglGetDisplay(EGL14.EGL_DEFAULT_DISPLAY);
+            int[] version = new int[2];
+            if (display == EGL14.EGL_NO_DISPLAY || !EGL14.eglInitialize(display, version, 0, version, 1)) {
+                throw new IOException("EGL unavailable");
+            }
+
+            int[] attribs = {
+                    EGL14.EGL_RED_SIZE, 8,
+                    EGL14.EGL_GREEN_SIZE, 8,
+                    EGL14.EGL_BLUE_SIZE, 8,
+                    EGL14.EGL_RENDERABLE_TYPE, EGL14.EGL_OPENGL_ES2_BIT,
+                    EGL_RECORDABLE_ANDROID, 1,
+                    EGL14.EGL_NONE
+            };
+            EGLConfig[] configs = new EGLConfig[1];
+            int[] numConfigs = new int[1];
+            if (!EGL14.eglChooseConfig(display, attribs, 0, configs, 0, 1, numConfigs, 0) || numConfigs[0] == 0) {
+                throw new IOException("No recordable EGL config");
+            }
+
+            int[] contextAttribs = {EGL14.EGL_CONTEXT_CLIENT_VERSION, 2, EGL14.EGL_NONE};
+            context = EGL14.eglCreateContext(display, configs[0], EGL14.EGL_NO_CONTEXT, contextAttribs, 0);
+            checkEgl("eglCreateContext");
+
+            int[] surfaceAttribs = {EGL14.EGL_NONE};
+            eglSurface = EGL14.eglCreateWindowSurface(display, configs[0], surface, surfaceAttribs, 0);
+            checkEgl("eglCreateWindowSurface");
+        }
+
+        void makeCurrent() throws IOException {
+            if (!EGL14.eglMakeCurrent(display, eglSurface, eglSurface, context)) {
+                throw new IOException("eglMakeCurrent failed");
+            }
+        }
+
+        void setPresentationTime(long nanos) {
+            EGLExt.eglPresentationTimeANDROID(display, eglSurface, nanos);
+        }
+
+        void swapBuffers() {
+            EGL14.eglSwapBuffers(display, eglSurface);
+        }
+
+        void release() {
+            if (display != EGL14.EGL_NO_DISPLAY) {
+                EGL14.eglMakeCurrent(display, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_CONTEXT);
+                EGL14.eglDestroySurface(display, eglSurface);
+                EGL14.eglDestroyContext(display, context);
+                EGL14.eglReleaseThread();
+                EGL14.eglTerminate(display);
+            }
+            surface.release();
+            display = EGL14.EGL_NO_DISPLAY;
+            context = EGL14.EGL_NO_CONTEXT;
+            eglSurface = EGL14.EGL_NO_SURFACE;
+        }
+
+        private static void checkEgl(String op) throws IOException {
+            int error = EGL14.eglGetError();
+            if (error != EGL14.EGL_SUCCESS) {
+                throw new IOException(op + ": EGL error 0x" + Integer.toHexString(error));
+            }
+        }
+    }
+
+    // ==================== DECODER OUTPUT ====================
+
+    /**
+     * SurfaceTexture the decoder renders into, plus the shader that draws the latest
+     * frame onto whatever EGL surface is current (the encoder input).
+     * Create it after {@link EncoderInput#makeCurrent()}.
+     */
+    static final class DecoderOutput implements SurfaceTexture.OnFrameAvailableListener {
+
+        private static final String VERTEX_SHADER =
+                "uniform mat4 uTexMatrix;\n" +
+                "attribute vec4 aPosition;\n" +
+                "attribute vec4 aTexCoord;\n" +
+                "varying vec2 vTexCoord;\n" +
+                "void main() {\n" +
+                "    gl_Position = aPosition;\n" +
+                "    vTexCoord = (uTexMatrix * aTexCoord).xy;\n" +
+                "}\n";
+
+        private static final String FRAGMENT_SHADER =
+                "#extension GL_OES_EGL_image_external : require\n" +
+                "precision mediump float;\n" +
+                "varying vec2 vTexCoord;\n" +
+                "uniform samplerExternalOES sTexture;\n" +
+                "void main() {\n" +
+                "    gl_FragColor = texture2D(sTexture, vTexCoord);\n" +
+                "}\n";
+
+        // Full-screen quad: x, y, u, v
+        private static final float[] QUAD = {
+                -1f, -1f, 0f, 0f,
+                1f, -1f, 1f, 0f,
+                -1f, 1f, 0f, 1f,
+                1f, 1f, 1f, 1f,
+        };
+
+        private final HandlerThread callbackThread = new HandlerThread("TranscodeFrames");
+        private final SurfaceTexture surfaceTexture;
+        private final Surface surface;
+        private final FloatBuffer quad;
+        private final float[] texMatrix = new float[16];
+        private final int program;
+        private final int textureId;
+        private final Object frameLock = new Object();
+        private boolean frameAvailable;
+
+        DecoderOutput() throws IOException {
+            int[] textures = new int[1];
+            GLES20.glGenTextures(1, textures, 0);
+            textureId = textures[0];
+            GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, textureId);
+            GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+            GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+            GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+            GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+
+            program = buildProgram();
+
+            quad = ByteBuffer.allocateDirect(QUAD.length * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+            quad.put(QUAD).position(0);
+
+            // The transcoding thread has no Looper: deliver frame callbacks on a dedicated one
+            callbackThread.start();
+            surfaceTexture = new SurfaceTexture(textureId);
+            surfaceTexture.setOnFrameAvailableListener(this, new Handler(callbackThread.getLooper()));
+            surface = new Surface(surfaceTexture);
+        }
+
+        Surface getSurface() {
+            return surface;
+        }
+
+        @Override
+        public void onFrameAvailable(SurfaceTexture st) {
+            synchronized (frameLock) {
+                frameAvailable = true;
+                frameLock.notifyAll();
+            }
+        }
+
+        /**
+         * Wait for the frame the decoder just released and latch it into the texture
+         */
+        void awaitNewImage() throws IOException {
+            synchronized (frameLock) {
+                long deadline = System.currentTimeMillis() + FRAME_TIMEOUT_MS;
+                while (!frameAvailable) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        throw new IOException("Timed out waiting for a decoded frame");
+                    }
+                    try {
+                        frameLock.wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while waiting for a frame", e);
+                    }
+                }
+                frameAvailable = false;
+            }
+            surfaceTexture.updateTexImage();
+        }
+
+        void drawImage(int width, int height) {
+            surfaceTexture.getTransformMatrix(texMatrix);
+
+            GLES20.glViewport(0, 0, width, height);
+            GLES20.glClearColor(0f, 0f, 0f, 1f);
+            GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+            GLES20.glUseProgram(program);
+
+            GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+            GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, textureId);
+
+            int position = GLES20.glGetAttribLocation(program, "aPosition");
+            int texCoord = GLES20.glGetAttribLocation(program, "aTexCoord");
+            quad.position(0);
+            GLES20.glVertexAttribPointer(position, 2, GLES20.GL_FLOAT, false, 16, quad);
+            GLES20.glEnableVertexAttribArray(position);
+            quad.position(2);
+            GLES20.glVertexAttribPointer(texCoord, 2, GLES20.GL_FLOAT, false, 16, quad);
+            GLES20.glEnableVertexAttribArray(texCoord);
+
+            GLES20.glUniformMatrix4fv(GLES20.glGetUniformLocation(program, "uTexMatrix"), 1, false, texMatrix, 0);
+            GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+            GLES20.glFinish();
+        }
+
+        void release() {
+            surface.release();
+            surfaceTexture.release();
+            GLES20.glDeleteProgram(program);
+            GLES20.glDeleteTextures(1, new int[]{textureId}, 0);
+            callbackThread.quitSafely();
+        }
+
+        private static int buildProgram() throws IOException {
+            int vertex = compile(GLES20.GL_VERTEX_SHADER, VERTEX_SHADER);
+            int fragment = compile(GLES20.GL_FRAGMENT_SHADER, FRAGMENT_SHADER);
+            int program = GLES20.glCreateProgram();
+            GLES20.glAttachShader(program, vertex);
+            GLES20.glAttachShader(program, fragment);
+            GLES20.glLinkProgram(program);
+            int[] status = new int[1];
+            GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, status, 0);
+            GLES20.glDeleteShader(vertex);
+            GLES20.glDeleteShader(fragment);
+            if (status[0] != GLES20.GL_TRUE) {
+                String log = GLES20.glGetProgramInfoLog(program);
+                GLES20.glDeleteProgram(program);
+                throw new IOException("Program link failed: " + log);
+            }
+            return program;
+        }
+
+        private static int compile(int type, String source) throws IOException {
+            int shader = GLES20.glCreateShader(type);
+            GLES20.glShaderSource(shader, source);
+            GLES20.glCompileShader(shader);
+            int[] status = new int[1];
+            GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, status, 0);
+            if (status[0] == 0) {
+                String log = GLES20.glGetShaderInfoLog(shader);
+                GLES20.glDeleteShader(shader);
+                throw new IOException("Shader compile failed: " + log);
+            }
+            return shader;
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.example.project_ez_talk.helper;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+
+/**
+ * Resumable uploads over the TUS 1.0.0 protocol (as exposed by Supabase Storage at
+ * /storage/v1/upload/resumable).
+ * The file is sent in fixed-size PATCH chunks; after a failure the server is asked
+ * for its offset (HEAD) and the upload continues from there. The upload URL is
+ * persisted per file, so sending the same file again after a process restart resumes
+ * the interrupted upload instead of starting over.
+ * The endpoint is a constructor argument, so any TUS server (e.g. a local stand-in)
+ * can be targeted.
+ * ⚠️ upload() is blocking: call it from a background thread
+ */
+public class TusUploader {
+
+    private static final String TAG = "TusUploader";
+
+    // Supabase only accepts 6 MB chunks (the last one may be shorter)
+    public static final long CHUNK_SIZE = 6L * 1024 * 1024;
+
+    private static final String TUS_VERSION = "1.0.0";
+    private static final MediaType OFFSET_OCTET_STREAM = MediaType.parse("application/offset+octet-stream");
+    static final int MAX_RETRIES = 5;
+    private static final long MAX_BACKOFF_MS = 16_000;
+    // Supabase keeps an unfinished upload URL for 24 hours
+    private static final long STATE_TTL_MS = 23L * 60 * 60 * 1000;
+
+    private static final String PREFS_NAME = "tus_uploads";
+    private static final String KEY_URL = "url";
+    private static final String KEY_OBJECT = "object";
+    private static final String KEY_CREATED = "created";
+
+    /**
+     * Progress callback, invoked on the uploading thread after every acknowledged chunk
+     */
+    public interface ProgressListener {
+        void onProgress(long uploadedBytes, long totalBytes);
+    }
+
+    /**
+     * Opens the file from its first byte; called again whenever the upload has to seek
+     */
+    interface SourceOpener {
+        @Nullable
+        InputStream open() throws IOException;
+    }
+
+    private final OkHttpClient client;
+    private final String endpoint;
+    private final String apiKey;
+    private final SharedPreferences state;
+    // Delay before the first retry, doubled on every further failure
+    private long backoffBaseMs = 1000;
+
+    public TusUploader(Context context, OkHttpClient client, String endpoint, String apiKey) {
+        this(context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE),
+                client, endpoint, apiKey);
+    }
+
+    TusUploader(SharedPreferences state, OkHttpClient client, String endpoint, String apiKey) {
+        this.client = client;
+        this.endpoint = endpoint;
+        this.apiKey = apiKey;
+        this.state = state;
+        pruneExpired();
+    }
+
+    @VisibleForTesting
+    void setBackoffBaseMs(long backoffBaseMs) {
+        this.backoffBaseMs = backoffBaseMs;
+    }
+
+    /**
+     * Upload {@code uri} to {@code bucket/objectPath}, resuming an earlier attempt for the
+     * same file if the server still has it.
+     * Returns the object path that was actually written: a resumed upload keeps the path
+     * chosen by the attempt that created it.
+     */
+    public String upload(ContentResolver resolver, Uri uri, long length, String bucket, String objectPath,
+                         String contentType, @Nullable ProgressListener listener) throws IOException {
+        String fingerprint = bucket + "|" + uri + "|" + length;
+        return upload(fingerprint, () -> resolver.openInputStream(uri), length, bucket, objectPath,
+                contentType, listener);
+    }
+
+    String upload(String fingerprint, SourceOpener opener, long length, String bucket, String objectPath,
+                  String contentType, @Nullable ProgressListener listener) throws IOException {
+        if (length <= 0) {
+            throw new IOException("Resumable upload needs a known file length");
+        }
+
+        String uploadUrl = null;
+        long offset = -1;
+
+        JSONObject saved = loadState(fingerprint);
+        if (saved != null) {
+            uploadUrl = saved.optString(KEY_URL, null);
+            offset = uploadUrl != null ? queryOffset(uploadUrl) : -1;
+            if (offset >= 0) {
+                objectPath = saved.optString(KEY_OBJECT, objectPath);
+                Log.d(TAG, "↩️ Resuming " + objectPath + " at " + offset + "/" + length);
+            }
+        }
+        if (offset < 0) {
+            uploadUrl = create(bucket, objectPath, contentType, length);
+            offset = 0;
+            saveState(fingerprint, uploadUrl, objectPath);
+        }
+
+        BufferedSource source = null;
+        int failures = 0;
+        boolean resync = false;
+        boolean expired = false;
+        try {
+            while (offset < length) {
+                try {
+                    if (resync) {
+                        // Trust only the server's offset after a failed chunk
+                        long serverOffset = queryOffset(uploadUrl);
+                        if (serverOffset < 0) {
+                            expired = true;
+                            break;
+                        }
+                        offset = serverOffset;
+                        resync = false;
+                        continue;
+                    }
+                    if (source == null) {
+                        source = openAt(opener, offset);
+                    }
+                    long chunk = Math.min(CHUNK_SIZE, length - offset);
+                    long acknowledged = patch(uploadUrl, offset, source, chunk);
+                    if (acknowledged <= offset) {
+                        throw new IOException("Chunk not accepted at " + offset);
+                    }
+                    if (acknowledged != offset + chunk) {
+                        // Server kept only part of the chunk: the source has read past its offset
+                        Log.w(TAG, "⚠️ Server acknowledged " + acknowledged + " of " + (offset + chunk));
+                        closeQuietly(source);
+                        source = null;
+                    }
+                    offset = acknowledged;
+                    failures = 0;
+                    if (listener != null) {
+                        listener.onProgress(offset, length);
+                    }
+                } catch (IOException e) {
+                    if (++failures > MAX_RETRIES) {
+                        Log.e(TAG, "❌ Giving up at " + offset + "/" + length + ": " + e.getMessage());
+                        throw e;
+                    }
+                    Log.w(TAG, "⚠️ Chunk failed (" + failures + "/" + MAX_RETRIES + "): " + e.getMessage());
+                    closeQuietly(source);
+                    source = null;
+                    resync = true;
+                    sleepBackoff(failures);
+                }
+            }
+        } finally {
+            closeQuietly(source);
+        }
+
+        clearState(fingerprint);
+        if (expired) {
+            // Next attempt for this file starts a fresh upload
+            throw new IOException("Upload expired on the server");
+        }
+        Log.d(TAG, "✅ Resumable upload complete: " + bucket + "/" + objectPath);
+        return objectPath;
+    }
+
+    // ==================== PROTOCOL ====================
+
+    private String create(String bucket, String objectPath, String contentType, long length) throws IOException {
+        String metadata = "bucketName " + b64(bucket)
+                + ",objectName " + b64(objectPath)
+                + ",contentType " + b64(contentType != null ? contentType : "application/octet-stream")
+                + ",cacheControl " + b64("3600");
+
+        Request request = authorized(new Request.Builder().url(endpoint))
+                .header("Upload-Length", String.valueOf(length))
+                .header("Upload-Metadata", metadata)
+                .header("x-upsert", "true")
+                .post(RequestBody.create(new byte[0], null))
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            String location = response.header("Location");
+            if (response.code() != 201 || location == null) {
+                throw new IOException("Create failed: " + response.code());
+            }
+            HttpUrl resolved = HttpUrl.get(endpoint).resolve(location);
+            if (resolved == null) {
+                throw new IOException("Bad upload location: " + location);
+            }
+            return resolved.toString();
+        }
+    }
+
+    /**
+     * Server offset of an upload, or -1 if the server no longer knows it
+     */
+    private long queryOffset(String uploadUrl) throws IOException {
+        Request request = authorized(new Request.Builder().url(uploadUrl)).head().build();
+        try (Response response = client.newCall(request).execute()) {
+            if (response.code() == 404 || response.code() == 410 || response.code() == 403) {
+                return -1;
+            }
+            String offset = response.header("Upload-Offset");
+            if (!response.isSuccessful() || offset == null) {
+                throw new IOException("Offset query failed: " + response.code());
+            }
+            return Long.parseLong(offset);
+        }
+    }
+
+    private long patch(String uploadUrl, long offset, BufferedSource source, long chunk) throws IOException {
+        Request request = authorized(new Request.Builder().url(uploadUrl))
+                .header("Upload-Offset", String.valueOf(offset))
+                .patch(new ChunkBody(source, chunk))
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            String newOffset = response.header("Upload-Offset");
+            if (response.code() != 204 || newOffset == null) {
+                throw new IOException("Chunk rejected: " + response.code());
+            }
+            return Long.parseLong(newOffset);
+        }
+    }
+
+    private Request.Builder authorized(Request.Builder builder) {
+        return builder
+                .header("Tus-Resumable", TUS_VERSION)
+                .header("Authorization", "Bearer " + apiKey)
+                .header("apikey", apiKey);
+    }
+
+    /**
+     * Writes the next {@code length} bytes of an open source; consumed once per PATCH
+     */
+    private static final class ChunkBody extends RequestBody {
+        private final BufferedSource source;
+        private final long length;
+
+        ChunkBody(BufferedSource source, long length) {
+            this.source = source;
+            this.length = length;
+        }
+
+        @Nullable
+        @Override
+        public MediaType contentType() {
+            return OFFSET_OCTET_STREAM;
+        }
+
+        @Override
+        public long contentLength() {
+            return length;
+        }
+
+        @Override
+        public boolean isOneShot() {
+            return true;
+        }
+
+        @Override
+        public void writeTo(@NonNull BufferedSink sink) throws IOException {
+            sink.write(source, length);
+        }
+    }
+
+    // ==================== HELPERS ====================
+
+    private static BufferedSource openAt(SourceOpener opener, long offset) throws IOException {
+        InputStream inputStream = opener.open();
+        if (inputStream == null) {
+            throw new FileNotFoundException("Cannot open upload source");
+        }
+        BufferedSource source = Okio.buffer(Okio.source(inputStream));
+        source.skip(offset);
+        return source;
+    }
+
+    private void sleepBackoff(int failures) throws IOException {
+        long delay = Math.min(MAX_BACKOFF_MS, backoffBaseMs << (failures - 1));
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Upload interrupted", e);
+        }
+    }
+
+    private static void closeQuietly(@Nullable BufferedSource source) {
+        if (source == null) return;
+        try {
+            source.close();
+        } catch (IOException ignored) {
+            // Nothing left to flush on a read-only source
+        }
+    }
+
+    private static String b64(String value) {
+        return ByteString.encodeUtf8(value).base64();
+    }
+
+    // ==================== PERSISTED STATE ====================
+
+    @Nullable
+    private JSONObject loadState(String fingerprint) {
+        String json = state.getString(fingerprint, null);
+        if (json == null) return null;
+        try {
+            JSONObject saved = new JSONObject(json);
+            if (System.currentTimeMillis() - saved.optLong(KEY_CREATED) > STATE_TTL_MS) {
+                clearState(fingerprint);
+                return null;
+            }
+            return saved;
+        } catch (JSONException e) {
+            clearState(fingerprint);
+            return null;
+        }
+    }
+
+    private void saveState(String fingerprint, String uploadUrl, String objectPath) {
+        try {
+            JSONObject saved = new JSONObject();
+            saved.put(KEY_URL, uploadUrl);
+            saved.put(KEY_OBJECT, objectPath);
+            saved.put(KEY_CREATED, System.currentTimeMillis());
+            state.edit().putString(fingerprint, saved.toString()).apply();
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to persist upload state: " + e.getMessage());
+        }
+    }
+
+    private void pruneExpired() {
+        for (String fingerprint : state.getAll().keySet()) {
+            loadState(fingerprint);
+        }
+    }
+
+    private void clearState(String fingerprint) {
+        state.edit().remove(fingerprint).apply();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.project_ez_talk.helper;
+
+import android.content.ContentResolver;
+import android.content.res.AssetFileDescriptor;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.OpenableColumns;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * OkHttp request body that streams a content:// or file:// Uri straight to the socket.
+ * Data moves through Okio's fixed-size segments, so memory use does not grow with
+ * the file and the whole upload is a single linear pass. The stream is reopened on
+ * every write, which lets OkHttp retry the request.
+ */
+public class UriRequestBody extends RequestBody {
+
+    private static final String TAG = "UriRequestBody";
+
+    private final ContentResolver resolver;
+    private final Uri uri;
+    private final MediaType mediaType;
+    private final long contentLength;
+
+    private UriRequestBody(ContentResolver resolver, Uri uri, MediaType mediaType, long contentLength) {
+        this.resolver = resolver;
+        this.uri = uri;
+        this.mediaType = mediaType;
+        this.contentLength = contentLength;
+    }
+
+    /**
+     * Create a streaming body for {@code uri}.
+     * The length is resolved up front when the provider reports it, otherwise
+     * the body is sent chunked.
+     */
+    public static UriRequestBody create(ContentResolver resolver, Uri uri, @Nullable MediaType mediaType) {
+        return new UriRequestBody(resolver, uri, mediaType, querySize(resolver, uri));
+    }
+
+    @Nullable
+    @Override
+    public MediaType contentType() {
+        return mediaType;
+    }
+
+    @Override
+    public long contentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public void writeTo(@NonNull BufferedSink sink) throws IOException {
+        InputStream inputStream = resolver.openInputStream(uri);
+        if (inputStream == null) {
+            throw new FileNotFoundException("Cannot open " + uri);
+        }
+        try (Source source = Okio.source(inputStream)) {
+            sink.writeAll(source);
+        }
+    }
+
+    /**
+     * Size of the content behind {@code uri} in bytes, or -1 if the provider doesn't say
+     */
+    public static long querySize(ContentResolver resolver, Uri uri) {
+        try (AssetFileDescriptor afd = resolver.openAssetFileDescriptor(uri, "r")) {
+            if (afd != null && afd.getLength() >= 0) {
+                return afd.getLength();
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "File descriptor length unavailable: " + e.getMessage());
+        }
+
+        try (Cursor cursor = resolver.query(uri, new String[]{OpenableColumns.SIZE}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) {
+                return cursor.getLong(0);
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Size column unavailable: " + e.getMessage());
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,645 @@
+package com.example.project_ez_talk.helper;
+
+import android.content.Context;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaCodecList;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.media.MediaMetadataRetriever;
+import android.media.MediaMuxer;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Re-encodes a picked video to a chat-sized H.264/AAC MP4 before upload.
+ * Video goes decoder → GPU (scaling) → encoder entirely on surfaces; audio is copied
+ * when it is already AAC and re-encoded otherwise. The result is rewritten with moov
+ * first so playback can start before the download completes.
+ * Hardware encoders are tried first, then the platform software encoder, so the
+ * pipeline also runs on emulators and devices without a usable hardware codec.
+ * ⚠️ transcode() is blocking: call it from a background thread; {@link #cancel()} from any thread
+ */
+public class VideoTranscoder {
+
+    private static final String TAG = "VideoTranscoder";
+
+    private static final String VIDEO_MIME = MediaFormat.MIMETYPE_VIDEO_AVC;
+    private static final String AUDIO_MIME = MediaFormat.MIMETYPE_AUDIO_AAC;
+    private static final long TIMEOUT_US = 10_000;
+    // Keep audio close to video so the muxer can interleave without buffering a whole track
+    private static final long MAX_AUDIO_LEAD_US = 500_000;
+
+    /**
+     * Progress callback, invoked on the transcoding thread with a value in [0, 1]
+     */
+    public interface ProgressListener {
+        void onProgress(float fraction);
+    }
+
+    /**
+     * Thrown from transcode() after {@link #cancel()}
+     */
+    public static class CancelledException extends IOException {
+        CancelledException() {
+            super("Transcoding cancelled");
+        }
+    }
+
+    /**
+     * Output targets. Defaults suit chat: 720p, ~2 Mbps, 128 kbps AAC.
+     */
+    public static class Config {
+        public int maxShortEdge = 720;
+        public int videoBitrate = 2_000_000;
+        public int frameRate = 30;
+        public int iFrameIntervalSec = 2;
+        public int audioBitrate = 128_000;
+        // Skip hardware encoders entirely (testing / known-bad devices)
+        public boolean softwareOnly = false;
+    }
+
+    private final Context context;
+    private final Config config;
+    private volatile boolean cancelled;
+
+    public VideoTranscoder(Context context, Config config) {
+        this.context = context.getApplicationContext();
+        this.config = config;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * True when the source is larger or heavier than the targets and worth re-encoding
+     */
+    public boolean shouldTranscode(Uri source) {
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        try {
+            retriever.setDataSource(context, source);
+            int width = parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_WIDTH));
+            int height = parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_HEIGHT));
+            int bitrate = parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_BITRATE));
+            return Math.min(width, height) > config.maxShortEdge
+                    || bitrate > config.videoBitrate + config.audioBitrate;
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Cannot inspect " + source + ": " + e.getMessage());
+            return false;
+        } finally {
+            try {
+                retriever.release();
+            } catch (Exception ignored) {
+                // Nothing to recover
+            }
+        }
+    }
+
+    /**
+     * Transcode {@code source} into {@code target}.
+     * On failure or cancellation {@code target} is deleted and the exception rethrown.
+     */
+    public void transcode(Uri source, File target, @Nullable ProgressListener listener) throws IOException {
+        File muxed = new File(target.getPath() + ".mux");
+        try {
+            IOException lastError = null;
+            for (String encoderName : encoderCandidates()) {
+                checkCancelled();
+                try {
+                    Log.d(TAG, "🎞️ Transcoding with " + encoderName);
+                    run(source, muxed, encoderName, listener);
+                    lastError = null;
+                    break;
+                } catch (CancelledException e) {
+                    throw e;
+                } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+                    // CodecException is an IllegalStateException: try the next encoder
+                    Log.w(TAG, "⚠️ " + encoderName + " failed: " + e.getMessage());
+                    lastError = e instanceof IOException ? (IOException) e : new IOException(e.getMessage(), e);
+                    deleteQuietly(muxed);
+                }
+            }
+            if (lastError != null) {
+                throw lastError;
+            }
+            if (!muxed.exists()) {
+                throw new IOException("No " + VIDEO_MIME + " encoder available");
+            }
+
+            checkCancelled();
+            // target only ever appears complete: the rewrite goes to a side file first
+            File fastStart = new File(target.getPath() + ".faststart");
+            File finished = Mp4FastStart.process(muxed, fastStart) ? fastStart : muxed;
+            if (!finished.renameTo(target)) {
+                deleteQuietly(fastStart);
+                throw new IOException("Cannot move output to " + target);
+            }
+            deleteQuietly(muxed);
+            if (listener != null) {
+                listener.onProgress(1f);
+            }
+            Log.d(TAG, "✅ Transcoded to " + target.length() + " bytes");
+        } catch (IOException e) {
+            deleteQuietly(muxed);
+            deleteQuietly(target);
+            throw e;
+        }
+    }
+
+    // ==================== PIPELINE ====================
+
+    private void run(Uri source, File output, String encoderName,
+                     @Nullable ProgressListener listener) throws IOException {
+        MediaExtractor videoExtractor = new MediaExtractor();
+        MediaExtractor audioExtractor = null;
+        VideoPipeline video = null;
+        AudioPipeline audio = null;
+        MediaMuxer muxer = null;
+        boolean muxerStarted = false;
+
+        try {
+            videoExtractor.setDataSource(context, source, null);
+            int videoIndex = findTrack(videoExtractor, "video/");
+            if (videoIndex < 0) {
+                throw new IOException("No video track");
+            }
+            videoExtractor.selectTrack(videoIndex);
+            MediaFormat videoInput = videoExtractor.getTrackFormat(videoIndex);
+            long durationUs = videoInput.containsKey(MediaFormat.KEY_DURATION)
+                    ? videoInput.getLong(MediaFormat.KEY_DURATION) : 0;
+            // Rotation is applied once, as the muxer's orientation hint: a decoder that
+            // is told about it rotates the frames on its output surface as well
+            int rotation = readRotation(source, videoInput);
+            videoInput.setInteger(MediaFormat.KEY_ROTATION, 0);
+
+            audioExtractor = new MediaExtractor();
+            audioExtractor.setDataSource(context, source, null);
+            int audioIndex = findTrack(audioExtractor, "audio/");
+            if (audioIndex >= 0) {
+                audioExtractor.selectTrack(audioIndex);
+                audio = new AudioPipeline(audioExtractor, audioExtractor.getTrackFormat(audioIndex), config.audioBitrate);
+            } else {
+                audioExtractor.release();
+                audioExtractor = null;
+            }
+
+            video = new VideoPipeline(videoExtractor, videoInput, encoderName, config);
+
+            muxer = new MediaMuxer(output.getPath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+            muxer.setOrientationHint(rotation);
+
+            int lastPercent = -1;
+            while (!video.done || (audio != null && !audio.done)) {
+                checkCancelled();
+
+                boolean progressed = video.step(muxerStarted ? muxer : null);
+                if (audio != null) {
+                    long audioLimitUs = video.done ? Long.MAX_VALUE : video.lastPtsUs + MAX_AUDIO_LEAD_US;
+                    progressed |= audio.step(muxerStarted ? muxer : null, audioLimitUs);
+                }
+
+                if (!muxerStarted && video.outputFormat != null && (audio == null || audio.outputFormat != null)) {
+                    video.muxerTrack = muxer.addTrack(video.outputFormat);
+                    if (audio != null) {
+                        audio.muxerTrack = muxer.addTrack(audio.outputFormat);
+                    }
+                    muxer.start();
+                    muxerStarted = true;
+                    progressed = true;
+                }
+
+                if (listener != null && durationUs > 0) {
+                    int percent = (int) Math.min(99, video.lastPtsUs * 100 / durationUs);
+                    if (percent != lastPercent) {
+                        lastPercent = percent;
+                        listener.onProgress(percent / 100f);
+                    }
+                }
+                if (!progressed) {
+                    Thread.yield();
+                }
+            }
+        } finally {
+            if (video != null) video.release();
+            if (audio != null) audio.release();
+            videoExtractor.release();
+            if (audioExtractor != null) audioExtractor.release();
+            if (muxer != null) {
+                try {
+                    if (muxerStarted) muxer.stop();
+                } catch (IllegalStateException e) {
+                    Log.w(TAG, "Muxer stop failed: " + e.getMessage());
+                }
+                muxer.release();
+            }
+        }
+    }
+
+    /**
+     * Decoder → SurfaceTexture → GL scale → encoder input surface → encoder
+     */
+    private static final class VideoPipeline {
+        final MediaExtractor extractor;
+        final MediaCodec decoder;
+        final MediaCodec encoder;
+        final TranscodeSurfaces.EncoderInput encoderInput;
+        final TranscodeSurfaces.DecoderOutput decoderOutput;
+        final int width;
+        final int height;
+        final MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+
+        MediaFormat outputFormat;
+        int muxerTrack = -1;
+        long lastPtsUs;
+        boolean extractorDone;
+        boolean decoderDone;
+        boolean done;
+
+        VideoPipeline(MediaExtractor extractor, MediaFormat input, String encoderName, Config config) throws IOException {
+            this.extractor = extractor;
+            int[] size = scaledSize(input.getInteger(MediaFormat.KEY_WIDTH),
+                    input.getInteger(MediaFormat.KEY_HEIGHT), config.maxShortEdge);
+            width = size[0];
+            height = size[1];
+
+            MediaFormat format = MediaFormat.createVideoFormat(VIDEO_MIME, width, height);
+            format.setInteger(MediaFormat.KEY_COLOR_FORMAT, MediaCodecInfo.CodecCapabilities.COLOR_FormatSurface);
+            format.setInteger(MediaFormat.KEY_BIT_RATE, config.videoBitrate);
+            format.setInteger(MediaFormat.KEY_FRAME_RATE, config.frameRate);
+            format.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, config.iFrameIntervalSec);
+
+            MediaCodec createdEncoder = null;
+            MediaCodec createdDecoder = null;
+            TranscodeSurfaces.EncoderInput createdInput = null;
+            TranscodeSurfaces.DecoderOutput createdOutput = null;
+            try {
+                createdEncoder = MediaCodec.createByCodecName(encoderName);
+                createdEncoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+                createdInput = new TranscodeSurfaces.EncoderInput(createdEncoder.createInputSurface());
+                createdInput.makeCurrent();
+                createdEncoder.start();
+
+                createdOutput = new TranscodeSurfaces.DecoderOutput();
+                createdDecoder = MediaCodec.createDecoderByType(input.getString(MediaFormat.KEY_MIME));
+                createdDecoder.configure(input, createdOutput.getSurface(), null, 0);
+                createdDecoder.start();
+            } catch (IOException | RuntimeException e) {
+                if (createdDecoder != null) createdDecoder.release();
+                if (createdOutput != null) createdOutput.release();
+                if (createdEncoder != null) createdEncoder.release();
+                if (createdInput != null) createdInput.release();
+                throw e;
+            }
+            encoder = createdEncoder;
+            decoder = createdDecoder;
+            encoderInput = createdInput;
+            decoderOutput = createdOutput;
+        }
+
+        boolean step(@Nullable MediaMuxer muxer) throws IOException {
+            boolean progressed = false;
+
+            if (!extractorDone) {
+                int index = decoder.dequeueInputBuffer(TIMEOUT_US);
+                if (index >= 0) {
+                    extractorDone = feed(extractor, decoder, index);
+                    progressed = true;
+                }
+            }
+
+            if (!decoderDone) {
+                int index = decoder.dequeueOutputBuffer(info, TIMEOUT_US);
+                if (index >= 0) {
+                    boolean render = info.size > 0;
+                    decoder.releaseOutputBuffer(index, render);
+                    if (render) {
+                        decoderOutput.awaitNewImage();
+                        decoderOutput.drawImage(width, height);
+                        encoderInput.setPresentationTime(info.presentationTimeUs * 1000);
+                        encoderInput.swapBuffers();
+                    }
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                        encoder.signalEndOfInputStream();
+                        decoderDone = true;
+                    }
+                    progressed = true;
+                }
+            }
+
+            // Hold encoded output until the muxer is running (it needs every track's format first)
+            if (!done && (muxer != null || outputFormat == null)) {
+                int index = encoder.dequeueOutputBuffer(info, TIMEOUT_US);
+                if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    outputFormat = encoder.getOutputFormat();
+                    progressed = true;
+                } else if (index >= 0) {
+                    if (muxer != null && info.size > 0 && (info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) == 0) {
+                        muxer.writeSampleData(muxerTrack, encoder.getOutputBuffer(index), info);
+                        lastPtsUs = info.presentationTimeUs;
+                    }
+                    encoder.releaseOutputBuffer(index, false);
+                    done = (info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0;
+                    progressed = true;
+                }
+            }
+            return progressed;
+        }
+
+        void release() {
+            releaseCodec(decoder);
+            releaseCodec(encoder);
+            decoderOutput.release();
+            encoderInput.release();
+        }
+    }
+
+    /**
+     * AAC is copied sample by sample; anything else is decoded to PCM and re-encoded
+     */
+    private static final class AudioPipeline {
+        final MediaExtractor extractor;
+        final boolean passthrough;
+        final MediaCodec decoder;
+        final MediaCodec encoder;
+        final int sampleRate;
+        final int channels;
+        final MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+        final MediaCodec.BufferInfo encodedInfo = new MediaCodec.BufferInfo();
+
+        MediaFormat outputFormat;
+        int muxerTrack = -1;
+        boolean extractorDone;
+        boolean decoderDone;
+        boolean done;
+
+        // Decoded PCM buffer still being copied into encoder input
+        int pendingIndex = -1;
+        int pendingOffset;
+        ByteBuffer passthroughBuffer;
+
+        AudioPipeline(MediaExtractor extractor, MediaFormat input, int bitrate) throws IOException {
+            this.extractor = extractor;
+            sampleRate = input.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+            channels = input.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+            passthrough = AUDIO_MIME.equals(input.getString(MediaFormat.KEY_MIME));
+
+            if (passthrough) {
+                outputFormat = input;
+                decoder = null;
+                encoder = null;
+                int maxInput = input.containsKey(MediaFormat.KEY_MAX_INPUT_SIZE)
+                        ? input.getInteger(MediaFormat.KEY_MAX_INPUT_SIZE) : 64 * 1024;
+                passthroughBuffer = ByteBuffer.allocateDirect(maxInput);
+                return;
+            }
+
+            MediaFormat format = MediaFormat.createAudioFormat(AUDIO_MIME, sampleRate, channels);
+            format.setInteger(MediaFormat.KEY_AAC_PROFILE, MediaCodecInfo.CodecProfileLevel.AACObjectLC);
+            format.setInteger(MediaFormat.KEY_BIT_RATE, bitrate);
+
+            MediaCodec createdDecoder = null;
+            MediaCodec createdEncoder = null;
+            try {
+                createdDecoder = MediaCodec.createDecoderByType(input.getString(MediaFormat.KEY_MIME));
+                createdDecoder.configure(input, null, null, 0);
+                createdDecoder.start();
+                createdEncoder = MediaCodec.createEncoderByType(AUDIO_MIME);
+                createdEncoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+                createdEncoder.start();
+            } catch (IOException | RuntimeException e) {
+                releaseCodec(createdDecoder);
+                releaseCodec(createdEncoder);
+                throw e;
+            }
+            decoder = createdDecoder;
+            encoder = createdEncoder;
+        }
+
+        boolean step(@Nullable MediaMuxer muxer, long limitUs) {
+            return passthrough ? copyStep(muxer, limitUs) : transcodeStep(muxer, limitUs);
+        }
+
+        private boolean copyStep(@Nullable MediaMuxer muxer, long limitUs) {
+            if (muxer == null || done || extractor.getSampleTime() > limitUs) return false;
+            passthroughBuffer.clear();
+            int size = extractor.readSampleData(passthroughBuffer, 0);
+            if (size < 0) {
+                done = true;
+                return true;
+            }
+            info.set(0, size, extractor.getSampleTime(),
+                    (extractor.getSampleFlags() & MediaExtractor.SAMPLE_FLAG_SYNC) != 0
+                            ? MediaCodec.BUFFER_FLAG_KEY_FRAME : 0);
+            muxer.writeSampleData(muxerTrack, passthroughBuffer, info);
+            extractor.advance();
+            return true;
+        }
+
+        private boolean transcodeStep(@Nullable MediaMuxer muxer, long limitUs) {
+            boolean progressed = false;
+
+            if (!extractorDone && extractor.getSampleTime() <= limitUs) {
+                int index = decoder.dequeueInputBuffer(TIMEOUT_US);
+                if (index >= 0) {
+                    extractorDone = feed(extractor, decoder, index);
+                    progressed = true;
+                }
+            }
+
+            if (!decoderDone && pendingIndex < 0) {
+                int index = decoder.dequeueOutputBuffer(info, TIMEOUT_US);
+                if (index >= 0) {
+                    pendingIndex = index;
+                    pendingOffset = 0;
+                    progressed = true;
+                }
+            }
+
+            if (pendingIndex >= 0) {
+                int index = encoder.dequeueInputBuffer(TIMEOUT_US);
+                if (index >= 0) {
+                    progressed = true;
+                    ByteBuffer pcm = decoder.getOutputBuffer(pendingIndex);
+                    ByteBuffer target = encoder.getInputBuffer(index);
+                    int remaining = info.size - pendingOffset;
+                    int chunk = Math.min(remaining, target.remaining());
+                    long ptsUs = info.presentationTimeUs + pcmDurationUs(pendingOffset);
+                    if (chunk > 0) {
+                        pcm.position(info.offset + pendingOffset);
+                        pcm.limit(info.offset + pendingOffset + chunk);
+                        target.put(pcm);
+                    }
+                    pendingOffset += chunk;
+                    boolean last = pendingOffset >= info.size;
+                    boolean eos = last && (info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0;
+                    encoder.queueInputBuffer(index, 0, chunk, ptsUs, eos ? MediaCodec.BUFFER_FLAG_END_OF_STREAM : 0);
+                    if (last) {
+                        decoder.releaseOutputBuffer(pendingIndex, false);
+                        pendingIndex = -1;
+                        decoderDone = eos;
+                    }
+                }
+            }
+
+            if (!done && (muxer != null || outputFormat == null)) {
+                int index = encoder.dequeueOutputBuffer(encodedInfo, TIMEOUT_US);
+                if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    outputFormat = encoder.getOutputFormat();
+                    progressed = true;
+                } else if (index >= 0) {
+                    if (muxer != null && encodedInfo.size > 0
+                            && (encodedInfo.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) == 0) {
+                        muxer.writeSampleData(muxerTrack, encoder.getOutputBuffer(index), encodedInfo);
+                    }
+                    encoder.releaseOutputBuffer(index, false);
+                    done = (encodedInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0;
+                    progressed = true;
+                }
+            }
+            return progressed;
+        }
+
+        // 16-bit PCM, interleaved
+        private long pcmDurationUs(int bytes) {
+            return bytes / (2L * channels) * 1_000_000L / sampleRate;
+        }
+
+        void release() {
+            releaseCodec(decoder);
+            releaseCodec(encoder);
+        }
+    }
+
+    // ==================== HELPERS ====================
+
+    /**
+     * Queue the next extracted sample (or end of stream) into a decoder input buffer.
+     * Returns true once the extractor is exhausted.
+     */
+    private static boolean feed(MediaExtractor extractor, MediaCodec decoder, int index) {
+        ByteBuffer buffer = decoder.getInputBuffer(index);
+        int size = extractor.readSampleData(buffer, 0);
+        if (size < 0) {
+            decoder.queueInputBuffer(index, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+            return true;
+        }
+        decoder.queueInputBuffer(index, 0, size, extractor.getSampleTime(), 0);
+        extractor.advance();
+        return false;
+    }
+
+    /**
+     * H.264 encoders to try in order: hardware first, then software
+     */
+    private List<String> encoderCandidates() {
+        List<String> hardware = new ArrayList<>();
+        List<String> software = new ArrayList<>();
+        for (MediaCodecInfo info : new MediaCodecList(MediaCodecList.REGULAR_CODECS).getCodecInfos()) {
+            if (!info.isEncoder()) continue;
+            for (String type : info.getSupportedTypes()) {
+                if (type.equalsIgnoreCase(VIDEO_MIME)) {
+                    (isSoftware(info) ? software : hardware).add(info.getName());
+                    break;
+                }
+            }
+        }
+        List<String> candidates = new ArrayList<>();
+        if (!config.softwareOnly) {
+            candidates.addAll(hardware);
+        }
+        candidates.addAll(software);
+        return candidates;
+    }
+
+    private static boolean isSoftware(MediaCodecInfo info) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            return info.isSoftwareOnly();
+        }
+        String name = info.getName().toLowerCase(Locale.US);
+        return name.startsWith("omx.google.") || name.startsWith("c2.android.") || name.contains(".sw.");
+    }
+
+    /**
+     * Fit the short edge to {@code maxShortEdge}, keeping aspect; dimensions are
+     * multiples of 16, which every H.264 encoder accepts
+     */
+    private static int[] scaledSize(int width, int height, int maxShortEdge) {
+        int shortEdge = Math.min(width, height);
+        float scale = shortEdge > maxShortEdge ? (float) maxShortEdge / shortEdge : 1f;
+        return new int[]{align16(width * scale), align16(height * scale)};
+    }
+
+    private static int align16(float value) {
+        return Math.max(16, Math.round(value / 16f) * 16);
+    }
+
+    private int readRotation(Uri source, MediaFormat format) {
+        if (format.containsKey(MediaFormat.KEY_ROTATION)) {
+            return format.getInteger(MediaFormat.KEY_ROTATION);
+        }
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        try {
+            retriever.setDataSource(context, source);
+            return parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_ROTATION));
+        } catch (RuntimeException e) {
+            return 0;
+        } finally {
+            try {
+                retriever.release();
+            } catch (Exception ignored) {
+                // Nothing to recover
+            }
+        }
+    }
+
+    private static int findTrack(MediaExtractor extractor, String mimePrefix) {
+        for (int i = 0; i < extractor.getTrackCount(); i++) {
+            String mime = extractor.getTrackFormat(i).getString(MediaFormat.KEY_MIME);
+            if (mime != null && mime.startsWith(mimePrefix)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void releaseCodec(@Nullable MediaCodec codec) {
+        if (codec == null) return;
+        try {
+            codec.stop();
+        } catch (IllegalStateException ignored) {
+            // Never started or already in error state
+        }
+        codec.release();
+    }
+
+    private void checkCancelled() throws CancelledException {
+        if (cancelled) {
+            throw new CancelledException();
+        }
+    }
+
+    private static int parseInt(@Nullable String value) {
+        try {
+            return value != null ? Integer.parseInt(value) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void deleteQuietly(File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Could not delete " + file);
+        }
+    }
+}
@@ -18,6 +18,8 @@ public class CallLog {
     private long startTime;             // When the call started (timestamp)
     private long duration;              // Call duration in seconds
     private long timestamp;             // When this log was created
+    private String direction;           // userCallLogs only: "incoming" or "outgoing" for that user
+    private String kindTime;            // userCallLogs only: "{missed|incoming|outgoing}_{startTime}"
 
     // ==================== CONSTRUCTORS ====================
 
@@ -84,6 +86,14 @@ public class CallLog {
         return timestamp;
     }
 
+    public String getDirection() {
+        return direction;
+    }
+
+    public String getKindTime() {
+        return kindTime;
+    }
+
     // ==================== SETTERS ====================
 
     public void setCallId(String callId) {
@@ -134,6 +144,14 @@ public class CallLog {
         this.timestamp = timestamp;
     }
 
+    public void setDirection(String direction) {
+        this.direction = direction;
+    }
+
+    public void setKindTime(String kindTime) {
+        this.kindTime = kindTime;
+    }
+
     // ==================== UTILITY ====================
 
     @Override
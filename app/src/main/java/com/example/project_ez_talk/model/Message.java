@@ -1,7 +1,6 @@
 package com.example.project_ez_talk.model;
 
-import android.annotation.SuppressLint;
-
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.Exclude;
 
 import java.text.SimpleDateFormat;
@@ -17,18 +16,28 @@ public class Message {
         TEXT, IMAGE, FILE, AUDIO, VIDEO, LOCATION, CONTACT
     }
 
+    /**
+     * Local delivery state of an outgoing message; never written to Firestore
+     */
+    public enum SendState {
+        SENT, PENDING, FAILED
+    }
+
     private String messageId;
     private String senderId;
     private String groupId;
     private String content;
     private String text;
     private String fileUrl;
+    private String thumbnailUrl; // Small preview of an IMAGE, null for older messages
     private String messageType = "TEXT";
     private long timestamp;
+    private long composedAt; // When the sender hit send, if the write was queued; 0 otherwise
     private long duration; // Duration in milliseconds for audio/video
     private String senderName;
     private String senderAvatarUrl;
     private boolean isDeleted = false;
+    private SendState sendState = SendState.SENT;
 
     // Required empty constructor for Firestore
     public Message() {
@@ -43,6 +52,22 @@ public class Message {
         this.timestamp = System.currentTimeMillis();
     }
 
+    /**
+     * Deserialize a Firestore message document and carry over its ID.
+     * Returns null if the document cannot be mapped.
+     */
+    public static Message fromSnapshot(DocumentSnapshot doc) {
+        try {
+            Message message = doc.toObject(Message.class);
+            if (message != null) {
+                message.setMessageId(doc.getId());
+            }
+            return message;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     // ==================== GETTERS ====================
 
     public String getMessageId() {
@@ -69,6 +94,10 @@ public class Message {
         return fileUrl;
     }
 
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
     public String getMessageType() {
         return messageType;
     }
@@ -77,6 +106,18 @@ public class Message {
         return timestamp;
     }
 
+    public long getComposedAt() {
+        return composedAt;
+    }
+
+    /**
+     * Time to show for this message: when it was composed, even if it was written later
+     */
+    @Exclude
+    public long getDisplayTimestamp() {
+        return composedAt > 0 ? composedAt : timestamp;
+    }
+
     public String getSenderName() {
         return senderName != null ? senderName : "Unknown";
     }
@@ -117,6 +158,10 @@ public class Message {
         this.fileUrl = fileUrl;
     }
 
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
     public void setMessageType(String messageType) {
         this.messageType = messageType;
     }
@@ -125,6 +170,10 @@ public class Message {
         this.timestamp = timestamp;
     }
 
+    public void setComposedAt(long composedAt) {
+        this.composedAt = composedAt;
+    }
+
     public void setDuration(long duration) {
         this.duration = duration;
     }
@@ -145,6 +194,16 @@ public class Message {
         isDeleted = deleted;
     }
 
+    @Exclude
+    public SendState getSendState() {
+        return sendState != null ? sendState : SendState.SENT;
+    }
+
+    @Exclude
+    public void setSendState(SendState sendState) {
+        this.sendState = sendState;
+    }
+
     // ==================== SUPPRESS FIRESTORE WARNINGS ====================
 
     public void setTextMessage(String textMessage) {}
@@ -155,7 +214,6 @@ public class Message {
     public void setFileMessage(String fileMessage) {}
     public void setType(String type) {}
     public void setReceiverId(String receiverId) {}
-    public void setThumbnailUrl(String thumbnailUrl) {}
     public void setStatus(String status) {}
 
     // ==================== UTILITY METHODS ====================
@@ -167,16 +225,27 @@ public class Message {
         return currentUserId != null && currentUserId.equals(this.senderId);
     }
 
+    // SimpleDateFormat is costly to build and not thread-safe: keep one per thread
+    private static final ThreadLocal<SimpleDateFormat> TIME_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("HH:mm", Locale.getDefault());
+        }
+    };
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
+        }
+    };
+
     /**
      * Get formatted time string
      */
-    @SuppressLint("SimpleDateFormat")
     @Exclude
     public String getFormattedTime() {
         try {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("HH:mm", Locale.getDefault());
-            Date date = new Date(timestamp);
-            return dateFormat.format(date);
+            return TIME_FORMAT.get().format(new Date(getDisplayTimestamp()));
         } catch (Exception e) {
             return "";
         }
@@ -185,13 +254,10 @@ public class Message {
     /**
      * Get formatted date string
      */
-    @SuppressLint("SimpleDateFormat")
     @Exclude
     public String getFormattedDate() {
         try {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-            Date date = new Date(timestamp);
-            return dateFormat.format(date);
+            return DATE_FORMAT.get().format(new Date(getDisplayTimestamp()));
         } catch (Exception e) {
             return "";
         }
@@ -0,0 +1,265 @@
+package com.example.project_ez_talk.repository;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.project_ez_talk.model.CallLog;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * CallLogRepository - Per-user call history in the Realtime Database
+ * <pre>
+ * call_logs/{callId}                 the call, as before (call_quality/{callId} sits beside it)
+ * userCallLogs/{uid}/{callId}        a copy for each participant, plus:
+ *     direction  "incoming" | "outgoing" (from that user's side)
+ *     kindTime   "{kind}_{startTime, 13 digits}", kind = missed | incoming | outgoing
+ * </pre>
+ * The history tab reads only the user's own node, newest first, one page at a time:
+ * "All" orders by startTime and each filter tab is a range on kindTime, so every page
+ * is a single indexed query; calls logged while the tab is open arrive through a listener
+ * on timestamp. Rules should index all three, plus the two fields the one-time
+ * {@link #backfill} filters call_logs on (unindexed, those queries download the whole node):
+ * <pre>
+ * "userCallLogs": {"$uid": {".indexOn": ["startTime", "kindTime", "timestamp"]}}
+ * "call_logs": {".indexOn": ["callerId", "receiverId"]}
+ * </pre>
+ */
+public final class CallLogRepository {
+
+    private static final String TAG = "CallLogRepository";
+    private static final String DATABASE_URL = "https://project-ez-talk-dccea-default-rtdb.europe-west1.firebasedatabase.app";
+
+    public static final int PAGE_SIZE = 25;
+
+    public static final String FILTER_ALL = "all";
+    public static final String FILTER_MISSED = "missed";
+    public static final String FILTER_INCOMING = "incoming";
+    public static final String FILTER_OUTGOING = "outgoing";
+
+    public interface PageCallback {
+        /** Newest first; {@code hasMore} is false once the oldest log has been reached */
+        void onPage(List<CallLog> logs, boolean hasMore);
+
+        void onError(String message);
+    }
+
+    private CallLogRepository() {
+    }
+
+    private static DatabaseReference root() {
+        return FirebaseDatabase.getInstance(DATABASE_URL).getReference();
+    }
+
+    public static DatabaseReference userLogsRef(String userId) {
+        return root().child("userCallLogs").child(userId);
+    }
+
+    /**
+     * Write a call to call_logs and to both participants' history in one update
+     */
+    public static Task<Void> write(String callId, Map<String, Object> callLog) {
+        String callerId = (String) callLog.get("callerId");
+        String receiverId = (String) callLog.get("receiverId");
+        String status = (String) callLog.get("status");
+        long startTime = callLog.get("startTime") instanceof Number
+                ? ((Number) callLog.get("startTime")).longValue() : System.currentTimeMillis();
+
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("call_logs/" + callId, callLog);
+        if (callerId != null) {
+            updates.put("userCallLogs/" + callerId + "/" + callId,
+                    indexEntry(callLog, FILTER_OUTGOING, status, startTime));
+        }
+        if (receiverId != null && !receiverId.equals(callerId)) {
+            updates.put("userCallLogs/" + receiverId + "/" + callId,
+                    indexEntry(callLog, FILTER_INCOMING, status, startTime));
+        }
+        return root().updateChildren(updates);
+    }
+
+    private static Map<String, Object> indexEntry(Map<String, Object> callLog, String direction,
+                                                  String status, long startTime) {
+        Map<String, Object> entry = new HashMap<>(callLog);
+        entry.put("direction", direction);
+        entry.put("kindTime", kindTime(kindOf(direction, status), startTime));
+        return entry;
+    }
+
+    static String kindOf(String direction, String status) {
+        if (FILTER_INCOMING.equals(direction) && "missed".equals(status)) return FILTER_MISSED;
+        return direction;
+    }
+
+    // Zero-padded so string order matches time order
+    static String kindTime(String kind, long startTime) {
+        return kind + "_" + String.format(Locale.US, "%013d", startTime);
+    }
+
+    /**
+     * Remove a call from this user's history only; the other participant keeps theirs
+     */
+    public static Task<Void> delete(String userId, String callId) {
+        return userLogsRef(userId).child(callId).removeValue();
+    }
+
+    // ==================== PAGING ====================
+
+    /**
+     * Query for the newest page, or the page before {@code oldest} (null = newest)
+     */
+    public static Query pageQuery(String userId, String filter, CallLog oldest) {
+        DatabaseReference ref = userLogsRef(userId);
+        if (FILTER_ALL.equals(filter)) {
+            Query query = ref.orderByChild("startTime");
+            if (oldest != null) query = query.endBefore(oldest.getStartTime(), oldest.getCallId());
+            return query.limitToLast(PAGE_SIZE);
+        }
+
+        String prefix = filter + "_";
+        Query query = ref.orderByChild("kindTime").startAt(prefix);
+        query = oldest != null
+                ? query.endBefore(kindTime(filter, oldest.getStartTime()), oldest.getCallId())
+                : query.endAt(prefix + "\uf8ff");
+        return query.limitToLast(PAGE_SIZE);
+    }
+
+    /**
+     * Calls logged after {@code since} (log timestamp), for live updates above the first page
+     */
+    public static Query newCallsQuery(String userId, long since) {
+        return userLogsRef(userId).orderByChild("timestamp").startAfter(since);
+    }
+
+    /**
+     * Whether a log from this user's history belongs in the given tab
+     */
+    public static boolean matchesFilter(CallLog log, String filter) {
+        if (FILTER_ALL.equals(filter)) return true;
+        return log.getKindTime() != null && log.getKindTime().startsWith(filter + "_");
+    }
+
+    /**
+     * One-shot load of the page before {@code oldest}
+     */
+    public static void loadPage(String userId, String filter, CallLog oldest, PageCallback callback) {
+        pageQuery(userId, filter, oldest).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                List<CallLog> logs = parsePage(snapshot);
+                callback.onPage(logs, snapshot.getChildrenCount() >= PAGE_SIZE);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                callback.onError(error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Page snapshot (ascending) -> valid logs, newest first
+     */
+    public static List<CallLog> parsePage(DataSnapshot snapshot) {
+        List<CallLog> logs = new ArrayList<>();
+        for (DataSnapshot data : snapshot.getChildren()) {
+            CallLog log = parse(data);
+            if (log != null) logs.add(log);
+        }
+        Collections.reverse(logs);
+        return logs;
+    }
+
+    /**
+     * One userCallLogs child -> log, or null if malformed
+     */
+    public static CallLog parse(DataSnapshot data) {
+        try {
+            CallLog log = data.getValue(CallLog.class);
+            if (log != null && isValid(log)) {
+                if (log.getCallId() == null) log.setCallId(data.getKey());
+                return log;
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error parsing call log", e);
+        }
+        return null;
+    }
+
+    private static boolean isValid(CallLog log) {
+        return log.getCallerId() != null &&
+                log.getReceiverId() != null &&
+                log.getStatus() != null &&
+                log.getCallType() != null;
+    }
+
+    // ==================== MIGRATION ====================
+
+    /**
+     * One-time: copy this user's calls logged before the per-user index existed
+     * Reads only call_logs rows where the user is caller or receiver (two equality queries).
+     */
+    public static void backfill(String userId, Runnable onDone) {
+        DatabaseReference callLogs = root().child("call_logs");
+        Map<String, Object> updates = new HashMap<>();
+        int[] pending = {2};
+        boolean[] failed = {false};
+
+        ValueEventListener collect = new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                for (DataSnapshot data : snapshot.getChildren()) {
+                    Object value = data.getValue();
+                    if (!(value instanceof Map)) continue;
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> callLog = (Map<String, Object>) value;
+                    boolean outgoing = userId.equals(callLog.get("callerId"));
+                    long startTime = callLog.get("startTime") instanceof Number
+                            ? ((Number) callLog.get("startTime")).longValue() : 0;
+                    updates.put(data.getKey(), indexEntry(callLog,
+                            outgoing ? FILTER_OUTGOING : FILTER_INCOMING,
+                            (String) callLog.get("status"), startTime));
+                }
+                finish();
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.e(TAG, "❌ Backfill query failed: " + error.getMessage());
+                failed[0] = true;
+                finish();
+            }
+
+            private void finish() {
+                if (--pending[0] > 0) return;
+                if (failed[0]) return;
+                if (updates.isEmpty()) {
+                    onDone.run();
+                    return;
+                }
+                userLogsRef(userId).updateChildren(updates)
+                        .addOnSuccessListener(aVoid -> {
+                            Log.d(TAG, "✅ Backfilled " + updates.size() + " call logs for " + userId);
+                            onDone.run();
+                        })
+                        .addOnFailureListener(e -> Log.e(TAG, "❌ Backfill write failed: " + e.getMessage()));
+            }
+        };
+
+        callLogs.orderByChild("callerId").equalTo(userId).addListenerForSingleValueEvent(collect);
+        callLogs.orderByChild("receiverId").equalTo(userId).addListenerForSingleValueEvent(collect);
+    }
+}
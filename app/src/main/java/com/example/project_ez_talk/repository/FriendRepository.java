@@ -0,0 +1,172 @@
+package com.example.project_ez_talk.repository;
+
+import android.util.Log;
+
+import com.example.project_ez_talk.model.Contact;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FriendRepository - Per-user friend index in Firestore
+ * users/{uid}/friends/{friendId} {userId, name, email, avatarUrl, addedAt} holds one entry
+ * per accepted friendship on each side, so listing friends reads only your own entries
+ * instead of every accepted friendRequests document. Profiles are then fetched in
+ * chunked documentId() "in" queries rather than one get() per friend.
+ */
+public final class FriendRepository {
+
+    private static final String TAG = "FriendRepository";
+
+    // Firestore "in" filters accept at most 30 values
+    static final int HYDRATE_CHUNK_SIZE = 30;
+
+    public interface HydrateCallback {
+        /** Profiles found, keyed and ordered like the requested IDs (missing users left out) */
+        void onHydrated(Map<String, Contact> contacts);
+    }
+
+    private FriendRepository() {
+    }
+
+    public static CollectionReference friendsRef(FirebaseFirestore db, String userId) {
+        return db.collection("users").document(userId).collection("friends");
+    }
+
+    /**
+     * Add both directions of a friendship to the index as part of the {@code batch} that
+     * marks {@code requestId} accepted. {@code userA} is the signed-in user; the rules only
+     * let it write into {@code userB}'s index because the entry names a request between
+     * the two that is accepted once the batch applies.
+     */
+    public static void addFriendship(FirebaseFirestore db, WriteBatch batch, String requestId,
+                                     String userA, String nameA, String avatarA,
+                                     String userB, String nameB, String avatarB) {
+        batch.set(friendsRef(db, userA).document(userB), indexEntry(userB, nameB, avatarB, requestId), SetOptions.merge());
+        batch.set(friendsRef(db, userB).document(userA), indexEntry(userA, nameA, avatarA, requestId), SetOptions.merge());
+    }
+
+    private static Map<String, Object> indexEntry(String userId, String name, String avatarUrl, String requestId) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("userId", userId);
+        entry.put("requestId", requestId);
+        if (name != null) entry.put("name", name);
+        if (avatarUrl != null) entry.put("avatarUrl", avatarUrl);
+        entry.put("addedAt", System.currentTimeMillis());
+        return entry;
+    }
+
+    /**
+     * One-time migration: index friendships accepted before the index existed
+     * Only this user's accepted requests are read (two equality queries), and only this
+     * user's own entries are written: every user migrates their side on their next visit.
+     * Succeeds only once every batch has committed.
+     */
+    public static Task<Integer> backfillFromRequests(FirebaseFirestore db, String userId) {
+        Task<QuerySnapshot> sent = db.collection("friendRequests")
+                .whereEqualTo("senderId", userId)
+                .whereEqualTo("status", "accepted")
+                .get();
+        Task<QuerySnapshot> received = db.collection("friendRequests")
+                .whereEqualTo("receiverId", userId)
+                .whereEqualTo("status", "accepted")
+                .get();
+
+        return Tasks.whenAllSuccess(sent, received).continueWithTask(task -> {
+            List<Task<Void>> commits = new ArrayList<>();
+            WriteBatch batch = db.batch();
+            int count = 0;
+            for (Object result : task.getResult()) {
+                for (DocumentSnapshot doc : ((QuerySnapshot) result).getDocuments()) {
+                    String senderId = doc.getString("senderId");
+                    String receiverId = doc.getString("receiverId");
+                    if (senderId == null || receiverId == null) continue;
+                    boolean sentByMe = userId.equals(senderId);
+                    String friendId = sentByMe ? receiverId : senderId;
+                    Map<String, Object> entry = sentByMe
+                            ? indexEntry(receiverId, doc.getString("receiverName"), null, doc.getId())
+                            : indexEntry(senderId, doc.getString("senderName"),
+                                    doc.getString("senderProfilePicture"), doc.getId());
+                    batch.set(friendsRef(db, userId).document(friendId), entry, SetOptions.merge());
+                    // A batch holds up to 500 writes
+                    if (++count % 500 == 0) {
+                        commits.add(batch.commit());
+                        batch = db.batch();
+                    }
+                }
+            }
+            commits.add(batch.commit());
+
+            int indexed = count;
+            // Fails if any batch failed, so the caller retries the whole backfill later
+            return Tasks.whenAll(commits).onSuccessTask(done -> {
+                Log.d(TAG, "✅ Backfilled " + indexed + " friendships for " + userId);
+                return Tasks.forResult(indexed);
+            });
+        });
+    }
+
+    /**
+     * Fetch users/{id} for all IDs with as few queries as possible
+     */
+    public static void hydrate(FirebaseFirestore db, List<String> userIds, HydrateCallback callback) {
+        if (userIds.isEmpty()) {
+            callback.onHydrated(new LinkedHashMap<>());
+            return;
+        }
+
+        List<Task<QuerySnapshot>> chunks = new ArrayList<>();
+        for (int i = 0; i < userIds.size(); i += HYDRATE_CHUNK_SIZE) {
+            List<String> chunk = userIds.subList(i, Math.min(i + HYDRATE_CHUNK_SIZE, userIds.size()));
+            chunks.add(db.collection("users")
+                    .whereIn(FieldPath.documentId(), new ArrayList<>(chunk))
+                    .get());
+        }
+
+        Tasks.whenAllComplete(chunks).addOnCompleteListener(done -> {
+            Map<String, Contact> found = new HashMap<>();
+            for (Task<QuerySnapshot> chunk : chunks) {
+                if (!chunk.isSuccessful() || chunk.getResult() == null) {
+                    Log.e(TAG, "❌ Profile chunk failed: " + chunk.getException());
+                    continue;
+                }
+                for (DocumentSnapshot userDoc : chunk.getResult().getDocuments()) {
+                    found.put(userDoc.getId(), toContact(userDoc));
+                }
+            }
+
+            Map<String, Contact> ordered = new LinkedHashMap<>();
+            for (String id : userIds) {
+                Contact contact = found.get(id);
+                if (contact != null) ordered.put(id, contact);
+            }
+            Log.d(TAG, "📊 Hydrated " + ordered.size() + "/" + userIds.size()
+                    + " profiles in " + chunks.size() + " queries");
+            callback.onHydrated(ordered);
+        });
+    }
+
+    private static Contact toContact(DocumentSnapshot userDoc) {
+        boolean isOnline = Boolean.TRUE.equals(userDoc.getBoolean("online"));
+        Contact contact = new Contact();
+        contact.setId(userDoc.getId());
+        contact.setName(userDoc.getString("name"));
+        contact.setAvatarUrl(userDoc.getString("avatarUrl"));
+        contact.setOnline(isOnline);
+        contact.setStatus(isOnline ? "online" : "offline");
+        contact.setPendingRequest(false);
+        return contact;
+    }
+}
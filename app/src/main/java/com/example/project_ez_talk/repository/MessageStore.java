@@ -0,0 +1,422 @@
+package com.example.project_ez_talk.repository;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import com.example.project_ez_talk.model.Message;
+import com.example.project_ez_talk.utils.SearchIndex;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * MessageStore - on-device SQLite cache of conversation messages
+ * Keyed by conversation (the Firestore messages collection path, e.g. "chats/{chatId}/messages")
+ * Tracks per-conversation sync state so Firestore only has to deliver deltas
+ * Text and file-name messages are also indexed in an FTS4 table (messages_fts, docid = messages
+ * rowid) kept in step by triggers, so {@link #search} runs over every cached conversation
+ * without touching the network.
+ * ⚠️ All query/write methods are blocking: call them on {@link #getExecutor()}
+ */
+public class MessageStore extends SQLiteOpenHelper {
+
+    private static final String TAG = "MessageStore";
+
+    private static final String DATABASE_NAME = "ez_talk_messages.db";
+    private static final int DATABASE_VERSION = 4;
+
+    private static final String TABLE_MESSAGES = "messages";
+    private static final String TABLE_SYNC_STATE = "sync_state";
+    private static final String TABLE_FTS = "messages_fts";
+
+    private static final String COL_CONVERSATION_ID = "conversation_id";
+    private static final String COL_MESSAGE_ID = "message_id";
+    private static final String COL_SENDER_ID = "sender_id";
+    private static final String COL_GROUP_ID = "group_id";
+    private static final String COL_CONTENT = "content";
+    private static final String COL_FILE_URL = "file_url";
+    private static final String COL_THUMBNAIL_URL = "thumbnail_url";
+    private static final String COL_MESSAGE_TYPE = "message_type";
+    private static final String COL_TIMESTAMP = "timestamp";
+    private static final String COL_COMPOSED_AT = "composed_at";
+    private static final String COL_DURATION = "duration";
+    private static final String COL_SENDER_NAME = "sender_name";
+    private static final String COL_SENDER_AVATAR_URL = "sender_avatar_url";
+    private static final String COL_IS_DELETED = "is_deleted";
+
+    private static final String COL_LAST_SYNCED_TIMESTAMP = "last_synced_timestamp";
+    private static final String COL_HISTORY_COMPLETE = "history_complete";
+
+    // Matches ranked in Java are drawn from the newest this many hits
+    private static final int SEARCH_CANDIDATES = 500;
+
+    // Sender name hits count for less than hits in the message itself
+    private static final double SENDER_NAME_WEIGHT = 0.5;
+
+    /**
+     * One search hit: the message and the conversation it belongs to
+     */
+    public static class SearchResult {
+        public final String conversationId;
+        public final Message message;
+        final double score;
+
+        SearchResult(String conversationId, Message message, double score) {
+            this.conversationId = conversationId;
+            this.message = message;
+            this.score = score;
+        }
+    }
+
+    private static MessageStore instance;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private MessageStore(Context context) {
+        super(context.getApplicationContext(), DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    /**
+     * Get singleton instance
+     */
+    public static synchronized MessageStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new MessageStore(context);
+            Log.d(TAG, "✅ MessageStore created");
+        }
+        return instance;
+    }
+
+    /**
+     * Single background thread that serializes all store reads and writes
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_MESSAGES + " ("
+                + COL_CONVERSATION_ID + " TEXT NOT NULL, "
+                + COL_MESSAGE_ID + " TEXT NOT NULL, "
+                + COL_SENDER_ID + " TEXT, "
+                + COL_GROUP_ID + " TEXT, "
+                + COL_CONTENT + " TEXT, "
+                + COL_FILE_URL + " TEXT, "
+                + COL_THUMBNAIL_URL + " TEXT, "
+                + COL_MESSAGE_TYPE + " TEXT, "
+                + COL_TIMESTAMP + " INTEGER NOT NULL, "
+                + COL_COMPOSED_AT + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_DURATION + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_SENDER_NAME + " TEXT, "
+                + COL_SENDER_AVATAR_URL + " TEXT, "
+                + COL_IS_DELETED + " INTEGER NOT NULL DEFAULT 0, "
+                + "PRIMARY KEY (" + COL_CONVERSATION_ID + ", " + COL_MESSAGE_ID + "))");
+
+        db.execSQL("CREATE INDEX idx_messages_conversation_time ON " + TABLE_MESSAGES
+                + " (" + COL_CONVERSATION_ID + ", " + COL_TIMESTAMP + ")");
+
+        db.execSQL("CREATE TABLE " + TABLE_SYNC_STATE + " ("
+                + COL_CONVERSATION_ID + " TEXT PRIMARY KEY, "
+                + COL_LAST_SYNCED_TIMESTAMP + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_HISTORY_COMPLETE + " INTEGER NOT NULL DEFAULT 0)");
+
+        // Prefix indexes keep "ab*" style queries from scanning the whole term list
+        db.execSQL("CREATE VIRTUAL TABLE " + TABLE_FTS + " USING fts4("
+                + COL_CONTENT + ", " + COL_SENDER_NAME + ", "
+                + "tokenize=unicode61, prefix=\"2,3\")");
+
+        // REPLACE does not fire delete triggers, so upsert() deletes the old row explicitly
+        db.execSQL("CREATE TRIGGER messages_fts_insert AFTER INSERT ON " + TABLE_MESSAGES + " "
+                + "WHEN new." + COL_IS_DELETED + " = 0 AND (new." + COL_MESSAGE_TYPE + " IS NULL OR new."
+                + COL_MESSAGE_TYPE + " IN ('TEXT', 'FILE')) BEGIN "
+                + "INSERT INTO " + TABLE_FTS + " (docid, " + COL_CONTENT + ", " + COL_SENDER_NAME + ") "
+                + "VALUES (new.rowid, new." + COL_CONTENT + ", new." + COL_SENDER_NAME + "); END");
+        db.execSQL("CREATE TRIGGER messages_fts_delete AFTER DELETE ON " + TABLE_MESSAGES + " BEGIN "
+                + "DELETE FROM " + TABLE_FTS + " WHERE docid = old.rowid; END");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Cache only: rebuild from Firestore on schema changes
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_MESSAGES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SYNC_STATE);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_FTS);
+        onCreate(db);
+    }
+
+    // ==================== QUERIES ====================
+
+    /**
+     * Newest {@code limit} messages of a conversation, ascending by timestamp
+     */
+    public List<Message> getLatest(String conversationId, int limit) {
+        return query(COL_CONVERSATION_ID + " = ?",
+                new String[]{conversationId}, limit);
+    }
+
+    /**
+     * Up to {@code limit} messages ordered before ({@code beforeTimestamp}, {@code beforeMessageId}),
+     * ascending; messages sharing the boundary timestamp are split by ID, not skipped
+     */
+    public List<Message> getBefore(String conversationId, long beforeTimestamp, String beforeMessageId,
+                                   int limit) {
+        String before = String.valueOf(beforeTimestamp);
+        return query(COL_CONVERSATION_ID + " = ? AND " + COL_TIMESTAMP + " <= ? AND ("
+                        + COL_TIMESTAMP + " < ? OR " + COL_MESSAGE_ID + " < ?)",
+                new String[]{conversationId, before, before, beforeMessageId}, limit);
+    }
+
+    private List<Message> query(String selection, String[] args, int limit) {
+        List<Message> result = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(TABLE_MESSAGES, null, selection, args,
+                null, null, COL_TIMESTAMP + " DESC, " + COL_MESSAGE_ID + " DESC", String.valueOf(limit))) {
+            while (cursor.moveToNext()) {
+                result.add(fromCursor(cursor));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Query failed: " + e.getMessage());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    // ==================== WRITES ====================
+
+    /**
+     * Insert or replace messages and advance the conversation's sync point
+     */
+    public void upsert(String conversationId, List<Message> messages) {
+        upsert(conversationId, messages, true);
+    }
+
+    /**
+     * Insert or replace messages; leave the sync point alone when they may sit above
+     * messages that aren't cached yet, so the next open re-syncs across the gap
+     */
+    public void upsert(String conversationId, List<Message> messages, boolean advanceSyncPoint) {
+        if (messages == null || messages.isEmpty()) return;
+
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            long newest = 0;
+            for (Message message : messages) {
+                if (message == null || message.getMessageId() == null) continue;
+                // Delete + insert rather than REPLACE so the FTS triggers see both halves
+                db.delete(TABLE_MESSAGES, COL_CONVERSATION_ID + " = ? AND " + COL_MESSAGE_ID + " = ?",
+                        new String[]{conversationId, message.getMessageId()});
+                db.insert(TABLE_MESSAGES, null, toValues(conversationId, message));
+                newest = Math.max(newest, message.getTimestamp());
+            }
+            if (advanceSyncPoint) {
+                advanceSyncPoint(db, conversationId, newest);
+            }
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Upsert failed: " + e.getMessage());
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public void delete(String conversationId, String messageId) {
+        if (messageId == null) return;
+        getWritableDatabase().delete(TABLE_MESSAGES,
+                COL_CONVERSATION_ID + " = ? AND " + COL_MESSAGE_ID + " = ?",
+                new String[]{conversationId, messageId});
+    }
+
+    /**
+     * Remove every cached conversation (e.g. on logout)
+     */
+    public void clearAll() {
+        SQLiteDatabase db = getWritableDatabase();
+        db.delete(TABLE_MESSAGES, null, null);
+        db.delete(TABLE_SYNC_STATE, null, null);
+        db.delete(TABLE_FTS, null, null);
+        Log.d(TAG, "🗑️ Message cache cleared");
+    }
+
+    // ==================== SEARCH ====================
+
+    /**
+     * Cached messages containing every word of {@code rawQuery} (each matched as a prefix),
+     * best match first; {@code conversationId} null searches all conversations.
+     * Ranking is tf-idf over content and sender name, ties broken by recency.
+     */
+    public List<SearchResult> search(String rawQuery, String conversationId, int limit) {
+        List<SearchResult> results = new ArrayList<>();
+        String match = toMatchExpression(rawQuery);
+        if (match.isEmpty()) return results;
+
+        String sql = "SELECT m.*, matchinfo(" + TABLE_FTS + ", 'pcnx') AS match_info"
+                + " FROM " + TABLE_FTS + " JOIN " + TABLE_MESSAGES + " m ON m.rowid = " + TABLE_FTS + ".docid"
+                + " WHERE " + TABLE_FTS + " MATCH ?"
+                + (conversationId != null ? " AND m." + COL_CONVERSATION_ID + " = ?" : "")
+                + " ORDER BY m." + COL_TIMESTAMP + " DESC LIMIT " + SEARCH_CANDIDATES;
+        String[] args = conversationId != null ? new String[]{match, conversationId} : new String[]{match};
+
+        long start = System.currentTimeMillis();
+        try (Cursor cursor = getReadableDatabase().rawQuery(sql, args)) {
+            int matchInfoColumn = cursor.getColumnIndexOrThrow("match_info");
+            while (cursor.moveToNext()) {
+                results.add(new SearchResult(
+                        cursor.getString(cursor.getColumnIndexOrThrow(COL_CONVERSATION_ID)),
+                        fromCursor(cursor),
+                        score(cursor.getBlob(matchInfoColumn))));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Search failed: " + e.getMessage());
+        }
+
+        // Candidates arrive newest first and the sort is stable: equal scores stay by recency
+        Collections.sort(results, (a, b) -> Double.compare(b.score, a.score));
+        List<SearchResult> top = results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+        Log.d(TAG, "🔍 \"" + match + "\": " + results.size() + " hits in "
+                + (System.currentTimeMillis() - start) + "ms");
+        return top;
+    }
+
+    /**
+     * User input -> FTS query: each word becomes a prefix term, all of them required.
+     * Operators and quotes typed by the user are dropped rather than interpreted.
+     */
+    static String toMatchExpression(String rawQuery) {
+        StringBuilder match = new StringBuilder();
+        for (String word : SearchIndex.normalize(rawQuery).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) continue;
+            if (match.length() > 0) match.append(' ');
+            match.append(word).append('*');
+        }
+        return match.toString();
+    }
+
+    /**
+     * tf-idf from matchinfo 'pcnx': phrase count, column count, row count, then for each
+     * phrase/column pair the hits in this row, hits in all rows and rows with a hit
+     */
+    private static double score(byte[] matchInfo) {
+        if (matchInfo == null) return 0;
+        IntBuffer info = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phrases = info.get(0);
+        int columns = info.get(1);
+        int rows = info.get(2);
+
+        double score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns; column++) {
+                int base = 3 + 3 * (phrase * columns + column);
+                int hitsInRow = info.get(base);
+                int rowsWithHit = info.get(base + 2);
+                if (hitsInRow == 0) continue;
+                double idf = Math.log(1.0 + (double) rows / Math.max(1, rowsWithHit));
+                score += (column == 0 ? 1.0 : SENDER_NAME_WEIGHT) * hitsInRow * idf;
+            }
+        }
+        return score;
+    }
+
+    // ==================== SYNC STATE ====================
+
+    /**
+     * Timestamp of the newest message received from Firestore, or 0 if never synced
+     */
+    public long getLastSyncedTimestamp(String conversationId) {
+        try (Cursor cursor = getReadableDatabase().query(TABLE_SYNC_STATE,
+                new String[]{COL_LAST_SYNCED_TIMESTAMP},
+                COL_CONVERSATION_ID + " = ?", new String[]{conversationId},
+                null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+
+    /**
+     * Whether the oldest message of the conversation has been cached
+     */
+    public boolean isHistoryComplete(String conversationId) {
+        try (Cursor cursor = getReadableDatabase().query(TABLE_SYNC_STATE,
+                new String[]{COL_HISTORY_COMPLETE},
+                COL_CONVERSATION_ID + " = ?", new String[]{conversationId},
+                null, null, null)) {
+            return cursor.moveToFirst() && cursor.getInt(0) == 1;
+        }
+    }
+
+    public void setHistoryComplete(String conversationId) {
+        SQLiteDatabase db = getWritableDatabase();
+        ensureSyncRow(db, conversationId);
+        ContentValues values = new ContentValues();
+        values.put(COL_HISTORY_COMPLETE, 1);
+        db.update(TABLE_SYNC_STATE, values, COL_CONVERSATION_ID + " = ?", new String[]{conversationId});
+    }
+
+    /**
+     * Everything up to {@code timestamp} is now cached (e.g. a gap was paged through)
+     */
+    public void markSynced(String conversationId, long timestamp) {
+        advanceSyncPoint(getWritableDatabase(), conversationId, timestamp);
+    }
+
+    private void advanceSyncPoint(SQLiteDatabase db, String conversationId, long timestamp) {
+        ensureSyncRow(db, conversationId);
+        db.execSQL("UPDATE " + TABLE_SYNC_STATE + " SET " + COL_LAST_SYNCED_TIMESTAMP
+                        + " = MAX(" + COL_LAST_SYNCED_TIMESTAMP + ", ?) WHERE " + COL_CONVERSATION_ID + " = ?",
+                new Object[]{timestamp, conversationId});
+    }
+
+    private void ensureSyncRow(SQLiteDatabase db, String conversationId) {
+        ContentValues values = new ContentValues();
+        values.put(COL_CONVERSATION_ID, conversationId);
+        db.insertWithOnConflict(TABLE_SYNC_STATE, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+    }
+
+    // ==================== MAPPING ====================
+
+    private static ContentValues toValues(String conversationId, Message message) {
+        ContentValues values = new ContentValues();
+        values.put(COL_CONVERSATION_ID, conversationId);
+        values.put(COL_MESSAGE_ID, message.getMessageId());
+        values.put(COL_SENDER_ID, message.getSenderId());
+        values.put(COL_GROUP_ID, message.getGroupId());
+        values.put(COL_CONTENT, message.getContent());
+        values.put(COL_FILE_URL, message.getFileUrl());
+        values.put(COL_THUMBNAIL_URL, message.getThumbnailUrl());
+        values.put(COL_MESSAGE_TYPE, message.getMessageType());
+        values.put(COL_TIMESTAMP, message.getTimestamp());
+        values.put(COL_COMPOSED_AT, message.getComposedAt());
+        values.put(COL_DURATION, message.getDuration());
+        values.put(COL_SENDER_NAME, message.getSenderName());
+        values.put(COL_SENDER_AVATAR_URL, message.getSenderAvatarUrl());
+        values.put(COL_IS_DELETED, message.isDeleted() ? 1 : 0);
+        return values;
+    }
+
+    private static Message fromCursor(Cursor cursor) {
+        Message message = new Message();
+        message.setMessageId(cursor.getString(cursor.getColumnIndexOrThrow(COL_MESSAGE_ID)));
+        message.setSenderId(cursor.getString(cursor.getColumnIndexOrThrow(COL_SENDER_ID)));
+        message.setGroupId(cursor.getString(cursor.getColumnIndexOrThrow(COL_GROUP_ID)));
+        message.setContent(cursor.getString(cursor.getColumnIndexOrThrow(COL_CONTENT)));
+        message.setFileUrl(cursor.getString(cursor.getColumnIndexOrThrow(COL_FILE_URL)));
+        message.setThumbnailUrl(cursor.getString(cursor.getColumnIndexOrThrow(COL_THUMBNAIL_URL)));
+        message.setMessageType(cursor.getString(cursor.getColumnIndexOrThrow(COL_MESSAGE_TYPE)));
+        message.setTimestamp(cursor.getLong(cursor.getColumnIndexOrThrow(COL_TIMESTAMP)));
+        message.setComposedAt(cursor.getLong(cursor.getColumnIndexOrThrow(COL_COMPOSED_AT)));
+        message.setDuration(cursor.getLong(cursor.getColumnIndexOrThrow(COL_DURATION)));
+        message.setSenderName(cursor.getString(cursor.getColumnIndexOrThrow(COL_SENDER_NAME)));
+        message.setSenderAvatarUrl(cursor.getString(cursor.getColumnIndexOrThrow(COL_SENDER_AVATAR_URL)));
+        message.setDeleted(cursor.getInt(cursor.getColumnIndexOrThrow(COL_IS_DELETED)) == 1);
+        return message;
+    }
+}
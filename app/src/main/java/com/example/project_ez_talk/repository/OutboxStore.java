@@ -0,0 +1,279 @@
+package com.example.project_ez_talk.repository;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.example.project_ez_talk.model.Message;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * OutboxStore - durable queue of outgoing attachment messages
+ * A row is written before the upload starts and removed once the message document
+ * exists in Firestore, so a send survives the app being backgrounded or killed.
+ * ⚠️ All query/write methods are blocking: call them on {@link #getExecutor()} or a worker thread
+ */
+public class OutboxStore extends SQLiteOpenHelper {
+
+    private static final String TAG = "OutboxStore";
+
+    private static final String DATABASE_NAME = "ez_talk_outbox.db";
+    private static final int DATABASE_VERSION = 2;
+
+    private static final String TABLE_OUTBOX = "outbox";
+
+    private static final String COL_MESSAGE_ID = "message_id";
+    private static final String COL_CONVERSATION_PATH = "conversation_path";
+    private static final String COL_MESSAGE_JSON = "message_json";
+    private static final String COL_LOCAL_PATH = "local_path";
+    private static final String COL_SOURCE_URI = "source_uri";
+    private static final String COL_MOVE_SOURCE = "move_source";
+    private static final String COL_KIND = "kind";
+    private static final String COL_BUCKET = "bucket";
+    private static final String COL_OBJECT_PATH = "object_path";
+    private static final String COL_CONTENT_TYPE = "content_type";
+    private static final String COL_CHAT_ID = "chat_id";
+    private static final String COL_RECEIVER_ID = "receiver_id";
+    private static final String COL_PREVIEW = "preview";
+    private static final String COL_PREVIEW_TYPE = "preview_type";
+    private static final String COL_NOTIFY_TEXT = "notify_text";
+    private static final String COL_NOTIFY_TYPE = "notify_type";
+    private static final String COL_RESOLVE_SENDER = "resolve_sender";
+    private static final String COL_FAILED = "failed";
+    private static final String COL_CREATED_AT = "created_at";
+
+    /**
+     * How the attachment is prepared before upload
+     */
+    public enum Kind {
+        FILE,   // uploaded as is
+        IMAGE,  // downscaled + thumbnail; objectPath has no extension
+        VIDEO   // transcoded to chat size when worthwhile
+    }
+
+    /**
+     * One queued send
+     */
+    public static class Entry {
+        public String messageId;
+        public String conversationPath; // Firestore path of the messages collection
+        public Message message;         // document to write, fileUrl filled in after upload
+        public String localPath;        // private copy of the attachment, complete once it exists
+        public String sourceUri;        // what the copy is made from, so a failed copy can be retried
+        public boolean moveSource;      // sourceUri is an app-owned file that is moved, not copied
+        public Kind kind = Kind.FILE;
+        public String bucket;
+        public String objectPath;
+        public String contentType;
+        // Direct chats: chat list entries to bump after the write (null for groups)
+        public String chatId;
+        public String receiverId;
+        public String preview;
+        public String previewType;
+        // Push notification for the receiver after the write (null for none)
+        public String notifyText;
+        public String notifyType;
+        // Fill senderName/senderAvatarUrl from users/{senderId} before writing
+        public boolean resolveSender;
+        public boolean failed;
+        public long createdAt;
+    }
+
+    private static OutboxStore instance;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Gson gson = new Gson();
+
+    private OutboxStore(Context context) {
+        super(context.getApplicationContext(), DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    /**
+     * Get singleton instance
+     */
+    public static synchronized OutboxStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new OutboxStore(context);
+            Log.d(TAG, "✅ OutboxStore created");
+        }
+        return instance;
+    }
+
+    /**
+     * Single background thread for store access from the UI side
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_OUTBOX + " ("
+                + COL_MESSAGE_ID + " TEXT PRIMARY KEY, "
+                + COL_CONVERSATION_PATH + " TEXT NOT NULL, "
+                + COL_MESSAGE_JSON + " TEXT NOT NULL, "
+                + COL_LOCAL_PATH + " TEXT, "
+                + COL_SOURCE_URI + " TEXT, "
+                + COL_MOVE_SOURCE + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_KIND + " TEXT NOT NULL, "
+                + COL_BUCKET + " TEXT, "
+                + COL_OBJECT_PATH + " TEXT, "
+                + COL_CONTENT_TYPE + " TEXT, "
+                + COL_CHAT_ID + " TEXT, "
+                + COL_RECEIVER_ID + " TEXT, "
+                + COL_PREVIEW + " TEXT, "
+                + COL_PREVIEW_TYPE + " TEXT, "
+                + COL_NOTIFY_TEXT + " TEXT, "
+                + COL_NOTIFY_TYPE + " TEXT, "
+                + COL_RESOLVE_SENDER + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_FAILED + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_CREATED_AT + " INTEGER NOT NULL)");
+
+        db.execSQL("CREATE INDEX idx_outbox_conversation ON " + TABLE_OUTBOX
+                + " (" + COL_CONVERSATION_PATH + ", " + COL_CREATED_AT + ")");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            db.execSQL("ALTER TABLE " + TABLE_OUTBOX + " ADD COLUMN " + COL_SOURCE_URI + " TEXT");
+            db.execSQL("ALTER TABLE " + TABLE_OUTBOX + " ADD COLUMN " + COL_MOVE_SOURCE
+                    + " INTEGER NOT NULL DEFAULT 0");
+        }
+    }
+
+    // ==================== QUERIES ====================
+
+    @Nullable
+    public Entry get(String messageId) {
+        try (Cursor cursor = getReadableDatabase().query(TABLE_OUTBOX, null,
+                COL_MESSAGE_ID + " = ?", new String[]{messageId}, null, null, null)) {
+            return cursor.moveToFirst() ? fromCursor(cursor) : null;
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Query failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Queued sends of one conversation, oldest first
+     */
+    public List<Entry> getForConversation(String conversationPath) {
+        return query(COL_CONVERSATION_PATH + " = ?", new String[]{conversationPath});
+    }
+
+    private List<Entry> query(String selection, String[] args) {
+        List<Entry> result = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(TABLE_OUTBOX, null, selection, args,
+                null, null, COL_CREATED_AT + " ASC")) {
+            while (cursor.moveToNext()) {
+                Entry entry = fromCursor(cursor);
+                if (entry != null) result.add(entry);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Query failed: " + e.getMessage());
+        }
+        return result;
+    }
+
+    // ==================== WRITES ====================
+
+    public void insert(Entry entry) {
+        getWritableDatabase().insertWithOnConflict(TABLE_OUTBOX, null, toValues(entry),
+                SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    public void setFailed(String messageId, boolean failed) {
+        ContentValues values = new ContentValues();
+        values.put(COL_FAILED, failed ? 1 : 0);
+        getWritableDatabase().update(TABLE_OUTBOX, values, COL_MESSAGE_ID + " = ?", new String[]{messageId});
+    }
+
+    public void delete(String messageId) {
+        getWritableDatabase().delete(TABLE_OUTBOX, COL_MESSAGE_ID + " = ?", new String[]{messageId});
+    }
+
+    /**
+     * Drop every queued send (e.g. on logout)
+     */
+    public void clearAll() {
+        getWritableDatabase().delete(TABLE_OUTBOX, null, null);
+        Log.d(TAG, "🗑️ Outbox cleared");
+    }
+
+    // ==================== MAPPING ====================
+
+    private ContentValues toValues(Entry entry) {
+        ContentValues values = new ContentValues();
+        values.put(COL_MESSAGE_ID, entry.messageId);
+        values.put(COL_CONVERSATION_PATH, entry.conversationPath);
+        values.put(COL_MESSAGE_JSON, gson.toJson(entry.message));
+        values.put(COL_LOCAL_PATH, entry.localPath);
+        values.put(COL_SOURCE_URI, entry.sourceUri);
+        values.put(COL_MOVE_SOURCE, entry.moveSource ? 1 : 0);
+        values.put(COL_KIND, entry.kind.name());
+        values.put(COL_BUCKET, entry.bucket);
+        values.put(COL_OBJECT_PATH, entry.objectPath);
+        values.put(COL_CONTENT_TYPE, entry.contentType);
+        values.put(COL_CHAT_ID, entry.chatId);
+        values.put(COL_RECEIVER_ID, entry.receiverId);
+        values.put(COL_PREVIEW, entry.preview);
+        values.put(COL_PREVIEW_TYPE, entry.previewType);
+        values.put(COL_NOTIFY_TEXT, entry.notifyText);
+        values.put(COL_NOTIFY_TYPE, entry.notifyType);
+        values.put(COL_RESOLVE_SENDER, entry.resolveSender ? 1 : 0);
+        values.put(COL_FAILED, entry.failed ? 1 : 0);
+        values.put(COL_CREATED_AT, entry.createdAt);
+        return values;
+    }
+
+    @Nullable
+    private Entry fromCursor(Cursor cursor) {
+        Entry entry = new Entry();
+        entry.messageId = cursor.getString(cursor.getColumnIndexOrThrow(COL_MESSAGE_ID));
+        try {
+            entry.message = gson.fromJson(cursor.getString(cursor.getColumnIndexOrThrow(COL_MESSAGE_JSON)),
+                    Message.class);
+        } catch (JsonParseException e) {
+            Log.e(TAG, "❌ Unreadable outbox entry " + entry.messageId + ": " + e.getMessage());
+            return null;
+        }
+        if (entry.message == null) return null;
+        entry.message.setMessageId(entry.messageId);
+
+        entry.conversationPath = cursor.getString(cursor.getColumnIndexOrThrow(COL_CONVERSATION_PATH));
+        entry.localPath = cursor.getString(cursor.getColumnIndexOrThrow(COL_LOCAL_PATH));
+        entry.sourceUri = cursor.getString(cursor.getColumnIndexOrThrow(COL_SOURCE_URI));
+        entry.moveSource = cursor.getInt(cursor.getColumnIndexOrThrow(COL_MOVE_SOURCE)) == 1;
+        try {
+            entry.kind = Kind.valueOf(cursor.getString(cursor.getColumnIndexOrThrow(COL_KIND)));
+        } catch (IllegalArgumentException e) {
+            entry.kind = Kind.FILE;
+        }
+        entry.bucket = cursor.getString(cursor.getColumnIndexOrThrow(COL_BUCKET));
+        entry.objectPath = cursor.getString(cursor.getColumnIndexOrThrow(COL_OBJECT_PATH));
+        entry.contentType = cursor.getString(cursor.getColumnIndexOrThrow(COL_CONTENT_TYPE));
+        entry.chatId = cursor.getString(cursor.getColumnIndexOrThrow(COL_CHAT_ID));
+        entry.receiverId = cursor.getString(cursor.getColumnIndexOrThrow(COL_RECEIVER_ID));
+        entry.preview = cursor.getString(cursor.getColumnIndexOrThrow(COL_PREVIEW));
+        entry.previewType = cursor.getString(cursor.getColumnIndexOrThrow(COL_PREVIEW_TYPE));
+        entry.notifyText = cursor.getString(cursor.getColumnIndexOrThrow(COL_NOTIFY_TEXT));
+        entry.notifyType = cursor.getString(cursor.getColumnIndexOrThrow(COL_NOTIFY_TYPE));
+        entry.resolveSender = cursor.getInt(cursor.getColumnIndexOrThrow(COL_RESOLVE_SENDER)) == 1;
+        entry.failed = cursor.getInt(cursor.getColumnIndexOrThrow(COL_FAILED)) == 1;
+        entry.createdAt = cursor.getLong(cursor.getColumnIndexOrThrow(COL_CREATED_AT));
+        entry.message.setSendState(entry.failed ? Message.SendState.FAILED : Message.SendState.PENDING);
+        return entry;
+    }
+}
@@ -0,0 +1,582 @@
+package com.example.project_ez_talk.repository;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * UserProfileCache - process-wide cache of users/{uid} profiles
+ * <pre>
+ * memory  LruCache of the most recently used profiles
+ * disk    SQLite table (one row per user), survives restarts
+ * </pre>
+ * {@link #get} answers from either tier while the entry is younger than MAX_STALENESS_MS and
+ * otherwise fetches once, however many screens ask at the same time. {@link #peek} returns
+ * whatever is in memory for instant rendering, and {@link #observe} opts a screen into live
+ * updates through one shared snapshot listener per user, which also refreshes the cache.
+ * ⚠️ Call from the main thread; callbacks arrive on the main thread.
+ */
+public final class UserProfileCache {
+
+    private static final String TAG = "UserProfileCache";
+
+    // Disk tier before it moved to SQLite; deleted on first use
+    private static final String LEGACY_PREFS_NAME = "user_profile_cache";
+
+    // Older entries are refetched before get() hands them out
+    public static final long MAX_STALENESS_MS = 10 * 60 * 1000L;
+
+    private static final int MEMORY_ENTRIES = 300;
+    private static final int DISK_ENTRIES = 1000;
+
+    // Firestore "in" filters accept at most 30 values
+    private static final int FETCH_CHUNK_SIZE = 30;
+
+    /**
+     * The profile fields screens render; both avatar fields are kept because
+     * older accounts only have one of them filled in
+     */
+    public static class Profile {
+        private String userId;
+        private String name;
+        private String username;
+        private String email;
+        private String avatarUrl;
+        private String profilePicture;
+        private String bio;
+        private long fetchedAt;
+
+        static Profile fromSnapshot(DocumentSnapshot doc) {
+            Profile profile = new Profile();
+            profile.userId = doc.getId();
+            profile.name = doc.getString("name");
+            profile.username = doc.getString("username");
+            profile.email = doc.getString("email");
+            profile.avatarUrl = doc.getString("avatarUrl");
+            profile.profilePicture = doc.getString("profilePicture");
+            profile.bio = doc.getString("bio");
+            profile.fetchedAt = System.currentTimeMillis();
+            return profile;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public String getAvatarUrl() {
+            return avatarUrl;
+        }
+
+        public String getProfilePicture() {
+            return profilePicture;
+        }
+
+        public String getBio() {
+            return bio;
+        }
+
+        /**
+         * profilePicture (what profile edits write) or, failing that, avatarUrl
+         */
+        public String getPhotoUrl() {
+            return profilePicture != null && !profilePicture.isEmpty() ? profilePicture : avatarUrl;
+        }
+
+        boolean isFresh() {
+            return System.currentTimeMillis() - fetchedAt < MAX_STALENESS_MS;
+        }
+    }
+
+    public interface Callback {
+        /** {@code profile} is null if the user doesn't exist or couldn't be loaded */
+        void onProfile(@Nullable Profile profile);
+    }
+
+    public interface BatchCallback {
+        /** Profiles found, keyed and ordered like the requested IDs (missing users left out) */
+        void onProfiles(Map<String, Profile> profiles);
+    }
+
+    private static UserProfileCache instance;
+
+    private final FirebaseFirestore db = FirebaseFirestore.getInstance();
+    private final DiskStore disk;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final LruCache<String, Profile> memory = new LruCache<>(MEMORY_ENTRIES);
+    // Callbacks waiting on a load already in progress, per user
+    private final Map<String, List<Callback>> inFlight = new HashMap<>();
+    // Shared live listener and its subscribers, per user
+    private final Map<String, ListenerRegistration> liveListeners = new HashMap<>();
+    private final Map<String, List<Callback>> observers = new HashMap<>();
+
+    private UserProfileCache(Context context) {
+        Context appContext = context.getApplicationContext();
+        disk = new DiskStore(appContext);
+        executor.execute(() -> {
+            appContext.deleteSharedPreferences(LEGACY_PREFS_NAME);
+            warmFromDisk();
+        });
+    }
+
+    /**
+     * Load the most recently fetched disk entries into memory so {@link #peek} works right after launch
+     */
+    private void warmFromDisk() {
+        List<Profile> profiles = disk.getRecent(MEMORY_ENTRIES);
+        // Oldest first so the newest end up most recently used
+        for (int i = profiles.size() - 1; i >= 0; i--) {
+            Profile profile = profiles.get(i);
+            if (memory.get(profile.userId) == null) memory.put(profile.userId, profile);
+        }
+        Log.d(TAG, "💾 Warmed " + profiles.size() + " profiles from disk");
+    }
+
+    /**
+     * Get singleton instance
+     */
+    public static synchronized UserProfileCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new UserProfileCache(context);
+            Log.d(TAG, "✅ UserProfileCache created");
+        }
+        return instance;
+    }
+
+    // ==================== READS ====================
+
+    /**
+     * Profile already in memory, however old; for painting a name or avatar before {@link #get} answers
+     */
+    @Nullable
+    public Profile peek(String userId) {
+        return userId != null ? memory.get(userId) : null;
+    }
+
+    /**
+     * Profile no older than MAX_STALENESS_MS, from memory, disk or one Firestore read.
+     * Concurrent calls for the same user share that read.
+     */
+    public void get(String userId, Callback callback) {
+        if (userId == null || userId.isEmpty()) {
+            callback.onProfile(null);
+            return;
+        }
+        Profile cached = memory.get(userId);
+        if (cached != null && cached.isFresh()) {
+            callback.onProfile(cached);
+            return;
+        }
+
+        List<Callback> waiting = inFlight.get(userId);
+        if (waiting != null) {
+            waiting.add(callback);
+            return;
+        }
+        waiting = new ArrayList<>();
+        waiting.add(callback);
+        inFlight.put(userId, waiting);
+
+        executor.execute(() -> {
+            Profile stored = disk.get(userId);
+            mainHandler.post(() -> {
+                if (stored != null && stored.isFresh()) {
+                    memory.put(userId, stored);
+                    deliver(userId, stored);
+                } else {
+                    fetch(Collections.singletonList(userId), stored != null
+                            ? Collections.singletonMap(userId, stored) : Collections.<String, Profile>emptyMap());
+                }
+            });
+        });
+    }
+
+    /**
+     * Profiles for many users at once: cached ones straight away, the rest in chunked
+     * documentId() "in" queries instead of one read per user
+     */
+    public void getAll(Collection<String> userIds, BatchCallback callback) {
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(userIds));
+        Map<String, Profile> found = new HashMap<>();
+        int[] remaining = {ids.size()};
+
+        Runnable finish = () -> {
+            Map<String, Profile> ordered = new LinkedHashMap<>();
+            for (String id : ids) {
+                Profile profile = found.get(id);
+                if (profile != null) ordered.put(id, profile);
+            }
+            callback.onProfiles(ordered);
+        };
+        if (ids.isEmpty()) {
+            finish.run();
+            return;
+        }
+
+        List<String> toLoad = new ArrayList<>();
+        for (String id : ids) {
+            Profile cached = memory.get(id);
+            if (cached != null && cached.isFresh()) {
+                found.put(id, cached);
+                remaining[0]--;
+                continue;
+            }
+            Callback collect = profile -> {
+                if (profile != null) found.put(id, profile);
+                if (--remaining[0] == 0) finish.run();
+            };
+            List<Callback> waiting = inFlight.get(id);
+            if (waiting != null) {
+                waiting.add(collect);
+            } else {
+                List<Callback> list = new ArrayList<>();
+                list.add(collect);
+                inFlight.put(id, list);
+                toLoad.add(id);
+            }
+        }
+        if (remaining[0] == 0) {
+            finish.run();
+            return;
+        }
+        if (toLoad.isEmpty()) return;
+
+        executor.execute(() -> {
+            Map<String, Profile> stale = new HashMap<>();
+            Map<String, Profile> fresh = new HashMap<>();
+            for (Profile stored : disk.getAll(toLoad)) {
+                (stored.isFresh() ? fresh : stale).put(stored.userId, stored);
+            }
+            mainHandler.post(() -> {
+                List<String> missing = new ArrayList<>();
+                for (String id : toLoad) {
+                    Profile stored = fresh.get(id);
+                    if (stored != null) {
+                        memory.put(id, stored);
+                        deliver(id, stored);
+                    } else {
+                        missing.add(id);
+                    }
+                }
+                if (!missing.isEmpty()) fetch(missing, stale);
+            });
+        });
+    }
+
+    private void fetch(List<String> userIds, Map<String, Profile> stale) {
+        List<Task<QuerySnapshot>> chunks = new ArrayList<>();
+        for (int i = 0; i < userIds.size(); i += FETCH_CHUNK_SIZE) {
+            List<String> chunk = userIds.subList(i, Math.min(i + FETCH_CHUNK_SIZE, userIds.size()));
+            chunks.add(db.collection("users")
+                    .whereIn(FieldPath.documentId(), new ArrayList<>(chunk))
+                    .get());
+        }
+
+        Tasks.whenAllComplete(chunks).addOnCompleteListener(done -> {
+            Map<String, Profile> fetched = new HashMap<>();
+            boolean failed = false;
+            for (Task<QuerySnapshot> chunk : chunks) {
+                if (!chunk.isSuccessful() || chunk.getResult() == null) {
+                    Log.e(TAG, "❌ Profile fetch failed: " + chunk.getException());
+                    failed = true;
+                    continue;
+                }
+                for (DocumentSnapshot doc : chunk.getResult().getDocuments()) {
+                    fetched.put(doc.getId(), Profile.fromSnapshot(doc));
+                }
+            }
+
+            store(fetched.values());
+            for (String id : userIds) {
+                Profile profile = fetched.get(id);
+                if (profile == null && failed) {
+                    // Offline or denied: an old profile still beats a blank row
+                    profile = stale.get(id);
+                    if (profile == null) profile = memory.get(id);
+                }
+                deliver(id, profile);
+            }
+            Log.d(TAG, "📊 Fetched " + fetched.size() + "/" + userIds.size()
+                    + " profiles in " + chunks.size() + " queries");
+        });
+    }
+
+    private void deliver(String userId, @Nullable Profile profile) {
+        List<Callback> waiting = inFlight.remove(userId);
+        if (waiting == null) return;
+        for (Callback callback : waiting) {
+            callback.onProfile(profile);
+        }
+    }
+
+    // ==================== LIVE UPDATES ====================
+
+    /**
+     * Opt in to live updates of one profile: {@code callback} gets the current profile and
+     * every later change until the returned registration is removed. All observers of a
+     * user share one snapshot listener, and each change refreshes the cache for everyone.
+     */
+    public ListenerRegistration observe(String userId, Callback callback) {
+        List<Callback> subscribers = observers.get(userId);
+        if (subscribers == null) {
+            subscribers = new ArrayList<>();
+            observers.put(userId, subscribers);
+            liveListeners.put(userId, db.collection("users").document(userId)
+                    .addSnapshotListener((snapshot, e) -> {
+                        if (e != null) {
+                            Log.e(TAG, "❌ Live profile error: " + e.getMessage());
+                            return;
+                        }
+                        if (snapshot == null || !snapshot.exists()) return;
+                        Profile profile = Profile.fromSnapshot(snapshot);
+                        store(Collections.singletonList(profile));
+                        List<Callback> current = observers.get(userId);
+                        if (current == null) return;
+                        for (Callback subscriber : new ArrayList<>(current)) {
+                            subscriber.onProfile(profile);
+                        }
+                    }));
+        }
+        subscribers.add(callback);
+
+        // Paint what we have now; the listener follows up with the server copy
+        Profile cached = memory.get(userId);
+        if (cached != null) callback.onProfile(cached);
+
+        return () -> {
+            List<Callback> current = observers.get(userId);
+            if (current == null || !current.remove(callback) || !current.isEmpty()) return;
+            observers.remove(userId);
+            ListenerRegistration registration = liveListeners.remove(userId);
+            if (registration != null) registration.remove();
+        };
+    }
+
+    // ==================== WRITES ====================
+
+    /**
+     * Drop a profile so the next {@link #get} reads it again (e.g. after editing it)
+     */
+    public void invalidate(String userId) {
+        if (userId == null) return;
+        memory.remove(userId);
+        executor.execute(() -> disk.delete(userId));
+    }
+
+    /**
+     * Forget every profile (e.g. on logout)
+     */
+    public void clearAll() {
+        memory.evictAll();
+        executor.execute(disk::clearAll);
+        Log.d(TAG, "🗑️ Profile cache cleared");
+    }
+
+    /**
+     * Into memory now, and onto disk in one transaction on the cache's thread
+     */
+    private void store(Collection<Profile> profiles) {
+        if (profiles.isEmpty()) return;
+        for (Profile profile : profiles) {
+            memory.put(profile.userId, profile);
+        }
+        List<Profile> batch = new ArrayList<>(profiles);
+        executor.execute(() -> {
+            disk.putAll(batch);
+            disk.trim(DISK_ENTRIES);
+        });
+    }
+
+    // ==================== DISK TIER ====================
+
+    /**
+     * One row per user, written and read only on the cache's executor
+     */
+    private static final class DiskStore extends SQLiteOpenHelper {
+
+        private static final String DATABASE_NAME = "ez_talk_profiles.db";
+        private static final int DATABASE_VERSION = 1;
+
+        private static final String TABLE_PROFILES = "profiles";
+
+        private static final String COL_USER_ID = "user_id";
+        private static final String COL_NAME = "name";
+        private static final String COL_USERNAME = "username";
+        private static final String COL_EMAIL = "email";
+        private static final String COL_AVATAR_URL = "avatar_url";
+        private static final String COL_PROFILE_PICTURE = "profile_picture";
+        private static final String COL_BIO = "bio";
+        private static final String COL_FETCHED_AT = "fetched_at";
+
+        // Stay well under SQLite's limit on bound parameters
+        private static final int MAX_QUERY_ARGS = 500;
+
+        DiskStore(Context context) {
+            super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE " + TABLE_PROFILES + " ("
+                    + COL_USER_ID + " TEXT PRIMARY KEY, "
+                    + COL_NAME + " TEXT, "
+                    + COL_USERNAME + " TEXT, "
+                    + COL_EMAIL + " TEXT, "
+                    + COL_AVATAR_URL + " TEXT, "
+                    + COL_PROFILE_PICTURE + " TEXT, "
+                    + COL_BIO + " TEXT, "
+                    + COL_FETCHED_AT + " INTEGER NOT NULL)");
+
+            db.execSQL("CREATE INDEX idx_profiles_fetched ON " + TABLE_PROFILES
+                    + " (" + COL_FETCHED_AT + ")");
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            // No migrations yet; version 1 is the only schema
+        }
+
+        @Nullable
+        Profile get(String userId) {
+            List<Profile> found = query(COL_USER_ID + " = ?", new String[]{userId}, null);
+            return found.isEmpty() ? null : found.get(0);
+        }
+
+        List<Profile> getAll(List<String> userIds) {
+            List<Profile> found = new ArrayList<>();
+            for (int i = 0; i < userIds.size(); i += MAX_QUERY_ARGS) {
+                List<String> chunk = userIds.subList(i, Math.min(i + MAX_QUERY_ARGS, userIds.size()));
+                String placeholders = TextUtils.join(",", Collections.nCopies(chunk.size(), "?"));
+                found.addAll(query(COL_USER_ID + " IN (" + placeholders + ")",
+                        chunk.toArray(new String[0]), null));
+            }
+            return found;
+        }
+
+        /**
+         * The {@code limit} most recently fetched profiles, newest first
+         */
+        List<Profile> getRecent(int limit) {
+            return query(null, null, String.valueOf(limit));
+        }
+
+        private List<Profile> query(@Nullable String selection, @Nullable String[] args, @Nullable String limit) {
+            List<Profile> result = new ArrayList<>();
+            try (Cursor cursor = getReadableDatabase().query(TABLE_PROFILES, null, selection, args,
+                    null, null, COL_FETCHED_AT + " DESC", limit)) {
+                while (cursor.moveToNext()) {
+                    result.add(fromCursor(cursor));
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "❌ Profile query failed: " + e.getMessage());
+            }
+            return result;
+        }
+
+        void putAll(List<Profile> profiles) {
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransaction();
+            try {
+                for (Profile profile : profiles) {
+                    db.insertWithOnConflict(TABLE_PROFILES, null, toValues(profile),
+                            SQLiteDatabase.CONFLICT_REPLACE);
+                }
+                db.setTransactionSuccessful();
+            } catch (Exception e) {
+                Log.e(TAG, "❌ Failed to store profiles: " + e.getMessage());
+            } finally {
+                db.endTransaction();
+            }
+        }
+
+        void delete(String userId) {
+            getWritableDatabase().delete(TABLE_PROFILES, COL_USER_ID + " = ?", new String[]{userId});
+        }
+
+        void clearAll() {
+            getWritableDatabase().delete(TABLE_PROFILES, null, null);
+        }
+
+        /**
+         * Keep the table bounded: past {@code maxEntries}, drop the least recently fetched tenth
+         */
+        void trim(int maxEntries) {
+            SQLiteDatabase db = getWritableDatabase();
+            long count = DatabaseUtils.queryNumEntries(db, TABLE_PROFILES);
+            if (count <= maxEntries) return;
+
+            long drop = count - maxEntries + maxEntries / 10;
+            int removed = db.delete(TABLE_PROFILES, COL_USER_ID + " IN (SELECT " + COL_USER_ID
+                    + " FROM " + TABLE_PROFILES + " ORDER BY " + COL_FETCHED_AT + " ASC LIMIT " + drop + ")", null);
+            Log.d(TAG, "🧹 Trimmed " + removed + " cached profiles");
+        }
+
+        private static ContentValues toValues(Profile profile) {
+            ContentValues values = new ContentValues();
+            values.put(COL_USER_ID, profile.userId);
+            values.put(COL_NAME, profile.name);
+            values.put(COL_USERNAME, profile.username);
+            values.put(COL_EMAIL, profile.email);
+            values.put(COL_AVATAR_URL, profile.avatarUrl);
+            values.put(COL_PROFILE_PICTURE, profile.profilePicture);
+            values.put(COL_BIO, profile.bio);
+            values.put(COL_FETCHED_AT, profile.fetchedAt);
+            return values;
+        }
+
+        private static Profile fromCursor(Cursor cursor) {
+            Profile profile = new Profile();
+            profile.userId = cursor.getString(cursor.getColumnIndexOrThrow(COL_USER_ID));
+            profile.name = cursor.getString(cursor.getColumnIndexOrThrow(COL_NAME));
+            profile.username = cursor.getString(cursor.getColumnIndexOrThrow(COL_USERNAME));
+            profile.email = cursor.getString(cursor.getColumnIndexOrThrow(COL_EMAIL));
+            profile.avatarUrl = cursor.getString(cursor.getColumnIndexOrThrow(COL_AVATAR_URL));
+            profile.profilePicture = cursor.getString(cursor.getColumnIndexOrThrow(COL_PROFILE_PICTURE));
+            profile.bio = cursor.getString(cursor.getColumnIndexOrThrow(COL_BIO));
+            profile.fetchedAt = cursor.getLong(cursor.getColumnIndexOrThrow(COL_FETCHED_AT));
+            return profile;
+        }
+    }
+}
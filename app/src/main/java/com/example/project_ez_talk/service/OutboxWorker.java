@@ -0,0 +1,265 @@
+package com.example.project_ez_talk.service;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.project_ez_talk.helper.OutboxManager;
+import com.example.project_ez_talk.helper.SupabaseStorageManager;
+import com.example.project_ez_talk.helper.VideoTranscoder;
+import com.example.project_ez_talk.model.Message;
+import com.example.project_ez_talk.repository.OutboxStore;
+import com.example.project_ez_talk.utils.MessageNotificationManager;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * OutboxWorker - uploads one queued attachment and writes its message document
+ * Scheduled by {@link OutboxManager} with a network constraint and exponential backoff.
+ * Every step is safe to repeat: uploads upsert to the same object path (large files
+ * resume over TUS) and the document is set under the ID chosen at enqueue time.
+ * The document's timestamp is the time of the write, not of the enqueue.
+ */
+public class OutboxWorker extends Worker {
+
+    private static final String TAG = "OutboxWorker";
+
+    public static final String KEY_MESSAGE_ID = "message_id";
+
+    // Give up (and show the message as failed) after this many attempts
+    private static final int MAX_ATTEMPTS = 8;
+    private static final long FIRESTORE_TIMEOUT_SEC = 60;
+
+    /**
+     * Writes the message document once its attachment is uploaded
+     */
+    interface MessageWriter {
+        void write(OutboxStore.Entry entry, Message message)
+                throws ExecutionException, InterruptedException, TimeoutException;
+    }
+
+    private static final MessageWriter FIRESTORE_WRITER = OutboxWorker::writeToFirestore;
+    private static volatile MessageWriter writer = FIRESTORE_WRITER;
+
+    private volatile VideoTranscoder transcoder;
+
+    public OutboxWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String messageId = getInputData().getString(KEY_MESSAGE_ID);
+        if (messageId == null) {
+            return Result.failure();
+        }
+
+        Context context = getApplicationContext();
+        OutboxStore store = OutboxStore.getInstance(context);
+        OutboxStore.Entry entry = store.get(messageId);
+        if (entry == null) {
+            Log.d(TAG, "Nothing queued for " + messageId);
+            return Result.success();
+        }
+
+        File local = entry.localPath != null ? new File(entry.localPath) : null;
+        if (local == null || !local.exists()) {
+            Log.e(TAG, "❌ Attachment missing for " + messageId);
+            return fail(store, entry);
+        }
+
+        try {
+            Log.d(TAG, "📤 Sending " + messageId + " (attempt " + (getRunAttemptCount() + 1) + ")");
+            Message message = entry.message;
+            upload(entry, local, message);
+
+            if (entry.resolveSender) {
+                resolveSender(message);
+            }
+            message.setSendState(Message.SendState.SENT);
+
+            if (store.get(messageId) == null) {
+                // Cancelled (message deleted) while uploading
+                Log.d(TAG, "Send of " + messageId + " was cancelled");
+                OutboxManager.deleteLocalFiles(context, messageId);
+                return Result.success();
+            }
+
+            // Stamp the write time: other clients only listen from their last sync point
+            // onwards, so a document carrying an hours-old enqueue time would never reach
+            // them. The enqueue time stays in composedAt for display.
+            message.setTimestamp(System.currentTimeMillis());
+            writer.write(entry, message);
+
+            store.delete(messageId);
+            OutboxManager.deleteLocalFiles(context, messageId);
+            OutboxManager.notifyStateChanged(entry.conversationPath, messageId, Message.SendState.SENT);
+            Log.d(TAG, "✅ Sent " + messageId);
+            return Result.success();
+
+        } catch (VideoTranscoder.CancelledException e) {
+            // Stopped by WorkManager (constraints lost / cancelled): it reschedules us if needed
+            return Result.retry();
+        } catch (IOException | ExecutionException | TimeoutException e) {
+            Log.w(TAG, "⚠️ Send failed for " + messageId + ": " + e.getMessage());
+            return getRunAttemptCount() + 1 >= MAX_ATTEMPTS ? fail(store, entry) : Result.retry();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        } finally {
+            transcoder = null;
+        }
+    }
+
+    @Override
+    public void onStopped() {
+        super.onStopped();
+        VideoTranscoder active = transcoder;
+        if (active != null) {
+            active.cancel();
+        }
+    }
+
+    /**
+     * Replace the Firestore write (null restores it), e.g. to run the worker without a backend
+     */
+    @VisibleForTesting
+    static void setMessageWriter(MessageWriter messageWriter) {
+        writer = messageWriter != null ? messageWriter : FIRESTORE_WRITER;
+    }
+
+    // ==================== STEPS ====================
+
+    private void upload(OutboxStore.Entry entry, File local, Message message) throws IOException {
+        switch (entry.kind) {
+            case IMAGE: {
+                SupabaseStorageManager.ImageUpload upload = SupabaseStorageManager.uploadImageBlocking(
+                        Uri.fromFile(local), entry.bucket, entry.objectPath);
+                message.setFileUrl(upload.url);
+                message.setThumbnailUrl(upload.thumbnailUrl);
+                break;
+            }
+            case VIDEO: {
+                File prepared = transcodeIfWorthwhile(local);
+                message.setFileUrl(SupabaseStorageManager.uploadFileBlocking(Uri.fromFile(prepared),
+                        entry.bucket, entry.objectPath, prepared != local ? "video/mp4" : entry.contentType));
+                break;
+            }
+            case FILE:
+            default:
+                message.setFileUrl(SupabaseStorageManager.uploadFileBlocking(Uri.fromFile(local),
+                        entry.bucket, entry.objectPath, entry.contentType));
+                break;
+        }
+    }
+
+    /**
+     * Chat-sized re-encode of {@code local}, or {@code local} itself when it is already
+     * small or no encoder works. A finished transcode from an earlier attempt is reused,
+     * which also keeps the resumable upload's fingerprint stable.
+     */
+    private File transcodeIfWorthwhile(File local) throws IOException {
+        File output = new File(local.getPath() + ".mp4");
+        if (output.exists()) {
+            return output;
+        }
+
+        VideoTranscoder videoTranscoder = new VideoTranscoder(getApplicationContext(), new VideoTranscoder.Config());
+        if (!videoTranscoder.shouldTranscode(Uri.fromFile(local))) {
+            return local;
+        }
+        transcoder = videoTranscoder;
+        if (isStopped()) {
+            videoTranscoder.cancel();
+        }
+        try {
+            videoTranscoder.transcode(Uri.fromFile(local), output, fraction ->
+                    Log.d(TAG, "🎞️ Transcoding " + Math.round(fraction * 100) + "%"));
+            return output;
+        } catch (VideoTranscoder.CancelledException e) {
+            throw e;
+        } catch (IOException e) {
+            Log.w(TAG, "⚠️ Transcoding failed, uploading original: " + e.getMessage());
+            return local;
+        }
+    }
+
+    private void resolveSender(Message message) throws ExecutionException, InterruptedException, TimeoutException {
+        DocumentSnapshot profile = Tasks.await(FirebaseFirestore.getInstance()
+                        .collection("users").document(message.getSenderId()).get(),
+                FIRESTORE_TIMEOUT_SEC, TimeUnit.SECONDS);
+        message.setSenderName(profile.exists() ? profile.getString("name") : "Unknown User");
+        message.setSenderAvatarUrl(profile.exists() ? profile.getString("avatarUrl") : "");
+    }
+
+    private static void writeToFirestore(OutboxStore.Entry entry, Message message)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        Tasks.await(db.collection(entry.conversationPath).document(entry.messageId).set(message),
+                FIRESTORE_TIMEOUT_SEC, TimeUnit.SECONDS);
+
+        if (entry.chatId != null && entry.receiverId != null) {
+            updateChatLists(db, entry, message.getSenderId());
+            if (entry.notifyText != null) {
+                MessageNotificationManager.sendMessageNotification(entry.receiverId, message.getSenderName(),
+                        entry.notifyText, entry.notifyType, entry.chatId, message.getSenderId(),
+                        message.getSenderAvatarUrl());
+            }
+        }
+    }
+
+    /**
+     * Same chat list bookkeeping as a direct send from the chat screen.
+     * Failures here don't fail the send: the message itself is already delivered.
+     */
+    private static void updateChatLists(FirebaseFirestore db, OutboxStore.Entry entry, String senderId) {
+        long timestamp = System.currentTimeMillis();
+
+        Map<String, Object> senderChat = new HashMap<>();
+        senderChat.put("lastMessage", entry.preview);
+        senderChat.put("lastMessageType", entry.previewType);
+        senderChat.put("lastMessageTimestamp", timestamp);
+        senderChat.put("unreadCount", 0);
+
+        Map<String, Object> receiverChat = new HashMap<>();
+        receiverChat.put("lastMessage", entry.preview);
+        receiverChat.put("lastMessageType", entry.previewType);
+        receiverChat.put("lastMessageTimestamp", timestamp);
+        receiverChat.put("unreadCount", FieldValue.increment(1));
+
+        try {
+            Tasks.await(db.collection("users").document(senderId)
+                    .collection("chats").document(entry.chatId)
+                    .update(senderChat), FIRESTORE_TIMEOUT_SEC, TimeUnit.SECONDS);
+            Tasks.await(db.collection("users").document(entry.receiverId)
+                    .collection("chats").document(entry.chatId)
+                    .update(receiverChat), FIRESTORE_TIMEOUT_SEC, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            Log.e(TAG, "❌ Failed to update chat lists: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Result fail(OutboxStore store, OutboxStore.Entry entry) {
+        store.setFailed(entry.messageId, true);
+        OutboxManager.notifyStateChanged(entry.conversationPath, entry.messageId, Message.SendState.FAILED);
+        return Result.failure();
+    }
+}
@@ -18,6 +18,7 @@ import com.example.project_ez_talk.ui.call.incoming.IntegratedIncomingCallActivi
 import com.example.project_ez_talk.ui.profile.AddFriendDialog;
 import com.example.project_ez_talk.utils.Preferences;
 import com.example.project_ez_talk.webrtc.FirebaseSignaling;
+import com.example.project_ez_talk.webrtc.IceServerProvider;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
@@ -100,6 +101,9 @@ public class MainActivity extends BaseActivity {
 
                 // Start listening for incoming calls
                 listenForIncomingCalls(currentUserId, currentUserName);
+
+                // Load and rank ICE servers now, so the first call doesn't wait for it
+                IceServerProvider.get(MainActivity.this).warmUp();
             }
 
             @Override
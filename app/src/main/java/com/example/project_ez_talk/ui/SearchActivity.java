@@ -3,6 +3,8 @@ package com.example.project_ez_talk.ui;
 import android.annotation.SuppressLint;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.util.Log;
@@ -21,12 +23,14 @@ import com.example.project_ez_talk.ui.channel.ChannelDetailActivity;
 import com.example.project_ez_talk.ui.chat.detail.ChatDetailActivity;
 import com.example.project_ez_talk.ui.chat.group.GroupChatActivity;
 import com.example.project_ez_talk.ui.dialog.UserProfileDialog;  // ✅ ADDED
+import com.example.project_ez_talk.utils.SearchIndex;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.chip.Chip;
 import com.google.android.material.chip.ChipGroup;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -52,6 +56,13 @@ public class SearchActivity extends BaseActivity {
     // Filter state
     private String currentFilter = "all"; // "all", "users", "groups", "channels"
 
+    // Wait for typing to pause before querying; results of superseded searches are dropped
+    private static final long SEARCH_DEBOUNCE_MS = 300;
+    private static final int RESULTS_PER_TYPE = 20;
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private Runnable pendingSearch;
+    private int searchGeneration = 0;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -143,11 +154,14 @@ public class SearchActivity extends BaseActivity {
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
                 String query = s.toString().trim();
+                if (pendingSearch != null) searchHandler.removeCallbacks(pendingSearch);
                 if (query.length() > 0) {
                     btnClear.setVisibility(View.VISIBLE);
-                    performSearch(query);
+                    pendingSearch = () -> performSearch(query);
+                    searchHandler.postDelayed(pendingSearch, SEARCH_DEBOUNCE_MS);
                 } else {
                     btnClear.setVisibility(View.GONE);
+                    searchGeneration++;
                     searchResults.clear();
                     adapter.notifyDataSetChanged();
                     showEmptyState();
@@ -165,53 +179,49 @@ public class SearchActivity extends BaseActivity {
     }
 
     private void performSearch(String query) {
-        String lowerQuery = query.toLowerCase();
-        searchResults.clear();
-        
+        int generation = ++searchGeneration;
+        List<SearchResult> results = new ArrayList<>();
+
         // Track how many search types are pending
-        final int[] pendingSearches = {0};
-        
-        // Count how many searches we need to perform
-        if ("all".equals(currentFilter)) {
-            pendingSearches[0] = 3; // users, groups, channels
-        } else if ("users".equals(currentFilter)) {
-            pendingSearches[0] = 1;
-        } else if ("groups".equals(currentFilter)) {
-            pendingSearches[0] = 1;
-        } else if ("channels".equals(currentFilter)) {
-            pendingSearches[0] = 1;
-        }
-        
-        // Create callback to update UI after all searches complete
+        final int[] pendingSearches = {"all".equals(currentFilter) ? 3 : 1};
+
+        // Publish once every type has answered, unless a newer search has started
         Runnable onSearchComplete = () -> {
+            if (generation != searchGeneration) return;
             pendingSearches[0]--;
             if (pendingSearches[0] == 0) {
+                searchResults.clear();
+                searchResults.addAll(results);
                 updateResultsUI();
             }
         };
 
         // Search based on filter
         if ("all".equals(currentFilter) || "users".equals(currentFilter)) {
-            searchUsers(lowerQuery, onSearchComplete);
+            searchUsers(query, results, onSearchComplete);
         }
         if ("all".equals(currentFilter) || "groups".equals(currentFilter)) {
-            searchGroups(lowerQuery, onSearchComplete);
+            searchGroups(query, results, onSearchComplete);
         }
         if ("all".equals(currentFilter) || "channels".equals(currentFilter)) {
-            searchChannels(lowerQuery, onSearchComplete);
+            searchChannels(query, results, onSearchComplete);
         }
     }
 
     // ==================== SEARCH USERS ====================
-    private void searchUsers(String query, Runnable onComplete) {
-        db.collection("users")
-                .get()
+    private void searchUsers(String query, List<SearchResult> results, Runnable onComplete) {
+        // One extra so hiding the current user still leaves a full page
+        Query users = query.contains("@")
+                ? SearchIndex.emailQuery(db.collection("users"), query, RESULTS_PER_TYPE + 1)
+                : SearchIndex.prefixQuery(db.collection("users"), query, RESULTS_PER_TYPE + 1);
+        users.get()
                 .addOnSuccessListener(querySnapshot -> {
+                    int found = 0;
                     for (var doc : querySnapshot.getDocuments()) {
                         String userId = doc.getId();
 
                         // Don't show current user
-                        if (userId.equals(currentUserId)) continue;
+                        if (userId.equals(currentUserId) || found == RESULTS_PER_TYPE) continue;
 
                         String name = doc.getString("name");
                         String email = doc.getString("email");
@@ -219,24 +229,19 @@ public class SearchActivity extends BaseActivity {
                         String bio = doc.getString("bio");  // ✅ ADDED
                         Boolean isOnline = doc.getBoolean("isOnline");  // ✅ ADDED
 
-                        // Search by name OR email
-                        boolean matchesName = name != null && name.toLowerCase().contains(query);
-                        boolean matchesEmail = email != null && email.toLowerCase().contains(query);
-
-                        if (matchesName || matchesEmail) {
-                            SearchResult result = new SearchResult();
-                            result.setUserId(userId);
-                            result.setTitle(name != null ? name : "Unknown");
-                            result.setSubtitle(email != null ? email : "");
-                            result.setAvatarUrl(profilePic);
-                            result.setType("user");
-                            result.setTime("");
-                            result.setBio(bio != null ? bio : "Hey there! I'm using EZ Talk");  // ✅ ADDED
-                            result.setOnline(isOnline != null && isOnline);  // ✅ ADDED
-                            searchResults.add(result);
-                        }
+                        SearchResult result = new SearchResult();
+                        result.setUserId(userId);
+                        result.setTitle(name != null ? name : "Unknown");
+                        result.setSubtitle(email != null ? email : "");
+                        result.setAvatarUrl(profilePic);
+                        result.setType("user");
+                        result.setTime("");
+                        result.setBio(bio != null ? bio : "Hey there! I'm using EZ Talk");  // ✅ ADDED
+                        result.setOnline(isOnline != null && isOnline);  // ✅ ADDED
+                        results.add(result);
+                        found++;
                     }
-                    Log.d(TAG, "✅ Found " + searchResults.size() + " users");
+                    Log.d(TAG, "✅ Found " + found + " users");
                     onComplete.run();
                 })
                 .addOnFailureListener(e -> {
@@ -246,35 +251,28 @@ public class SearchActivity extends BaseActivity {
     }
 
     // ==================== SEARCH GROUPS ====================
-    private void searchGroups(String query, Runnable onComplete) {
-        db.collection("groups")
+    private void searchGroups(String query, List<SearchResult> results, Runnable onComplete) {
+        SearchIndex.prefixQuery(db.collection("groups"), query, RESULTS_PER_TYPE)
                 .get()
                 .addOnSuccessListener(querySnapshot -> {
                     for (var doc : querySnapshot.getDocuments()) {
                         String groupId = doc.getId();
                         String name = doc.getString("name");
                         String icon = doc.getString("icon");
-                        String description = doc.getString("description");
 
                         List<String> memberIds = (List<String>) doc.get("memberIds");
                         int memberCount = memberIds != null ? memberIds.size() : 0;
 
-                        // Search by group name or description
-                        boolean matchesName = name != null && name.toLowerCase().contains(query);
-                        boolean matchesDesc = description != null && description.toLowerCase().contains(query);
-
-                        if (matchesName || matchesDesc) {
-                            SearchResult result = new SearchResult();
-                            result.setUserId(groupId);
-                            result.setTitle(name != null ? name : "Group");
-                            result.setSubtitle(memberCount + " members");
-                            result.setAvatarUrl(icon);
-                            result.setType("group");
-                            result.setTime("");
-                            searchResults.add(result);
-                        }
+                        SearchResult result = new SearchResult();
+                        result.setUserId(groupId);
+                        result.setTitle(name != null ? name : "Group");
+                        result.setSubtitle(memberCount + " members");
+                        result.setAvatarUrl(icon);
+                        result.setType("group");
+                        result.setTime("");
+                        results.add(result);
                     }
-                    Log.d(TAG, "✅ Found " + searchResults.size() + " results (with groups)");
+                    Log.d(TAG, "✅ Found " + querySnapshot.size() + " groups");
                     onComplete.run();
                 })
                 .addOnFailureListener(e -> {
@@ -284,34 +282,27 @@ public class SearchActivity extends BaseActivity {
     }
 
     // ==================== SEARCH CHANNELS ====================
-    private void searchChannels(String query, Runnable onComplete) {
-        db.collection("channels")
-                .whereEqualTo("isPublic", true)
+    private void searchChannels(String query, List<SearchResult> results, Runnable onComplete) {
+        SearchIndex.prefixQuery(db.collection("channels").whereEqualTo("isPublic", true),
+                        query, RESULTS_PER_TYPE)
                 .get()
                 .addOnSuccessListener(querySnapshot -> {
                     for (var doc : querySnapshot.getDocuments()) {
                         String channelId = doc.getId();
                         String name = doc.getString("name");
-                        String description = doc.getString("description");
                         String avatarUrl = doc.getString("avatarUrl");
                         Long subscriberCount = doc.getLong("subscriberCount");
 
-                        // Search by channel name or description
-                        boolean matchesName = name != null && name.toLowerCase().contains(query);
-                        boolean matchesDesc = description != null && description.toLowerCase().contains(query);
-
-                        if (matchesName || matchesDesc) {
-                            SearchResult result = new SearchResult();
-                            result.setUserId(channelId);
-                            result.setTitle(name != null ? name : "Channel");
-                            result.setSubtitle((subscriberCount != null ? subscriberCount : 0) + " subscribers");
-                            result.setAvatarUrl(avatarUrl);
-                            result.setType("channel");
-                            result.setTime("");
-                            searchResults.add(result);
-                        }
+                        SearchResult result = new SearchResult();
+                        result.setUserId(channelId);
+                        result.setTitle(name != null ? name : "Channel");
+                        result.setSubtitle((subscriberCount != null ? subscriberCount : 0) + " subscribers");
+                        result.setAvatarUrl(avatarUrl);
+                        result.setType("channel");
+                        result.setTime("");
+                        results.add(result);
                     }
-                    Log.d(TAG, "✅ Found " + searchResults.size() + " total results");
+                    Log.d(TAG, "✅ Found " + querySnapshot.size() + " channels");
                     onComplete.run();
                 })
                 .addOnFailureListener(e -> {
@@ -455,4 +446,11 @@ public class SearchActivity extends BaseActivity {
         layoutEmpty.setVisibility(View.GONE);
         rvSearchResults.setVisibility(View.VISIBLE);
     }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        searchHandler.removeCallbacksAndMessages(null);
+        searchGeneration++;
+    }
 }
\ No newline at end of file
@@ -13,6 +13,7 @@ import com.example.project_ez_talk.ui.auth.forgot.ForgotPasswordActivity;
 import com.example.project_ez_talk.ui.auth.signup.RegisterActivity;
 import com.example.project_ez_talk.ui.home.HomeActivity;
 import com.example.project_ez_talk.utils.Preferences;
+import com.example.project_ez_talk.utils.SearchIndex;
 import com.google.android.gms.auth.api.signin.GoogleSignIn;
 import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
 import com.google.android.gms.auth.api.signin.GoogleSignInClient;
@@ -244,6 +245,7 @@ public class LoginActivity extends BaseActivity {
         userData.put("createdAt", System.currentTimeMillis());
         userData.put("lastSeen", System.currentTimeMillis());
         userData.put("signInMethod", "google");
+        SearchIndex.putUserFields(userData, displayName != null ? displayName : "User", null, email);
 
         db.collection("users")
                 .document(userId)
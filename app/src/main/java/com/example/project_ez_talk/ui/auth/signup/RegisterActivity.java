@@ -12,6 +12,7 @@ import com.example.project_ez_talk.R;
 import com.example.project_ez_talk.ui.BaseActivity;
 import com.example.project_ez_talk.ui.auth.login.LoginActivity;
 import com.example.project_ez_talk.utils.Preferences;
+import com.example.project_ez_talk.utils.SearchIndex;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.android.material.textfield.TextInputLayout;
@@ -125,6 +126,7 @@ public class RegisterActivity extends BaseActivity {
         userData.put("bio", "");
         userData.put("createdAt", System.currentTimeMillis());
         userData.put("lastSeen", System.currentTimeMillis());
+        SearchIndex.putUserFields(userData, username, null, email);
 
         // Save to Firestore users collection
         db.collection("users")
@@ -0,0 +1,213 @@
+package com.example.project_ez_talk.ui.call.group;
+
+import android.os.Bundle;
+import android.util.Log;
+import android.view.View;
+import android.widget.GridLayout;
+import android.widget.Toast;
+
+import com.example.project_ez_talk.R;
+import com.example.project_ez_talk.databinding.ActivityGroupCallBinding;
+import com.example.project_ez_talk.ui.BaseActivity;
+import com.example.project_ez_talk.utils.PermissionHelper;
+import com.example.project_ez_talk.webrtc.FirebaseGroupSignaling;
+import com.example.project_ez_talk.webrtc.GroupCallManager;
+import com.example.project_ez_talk.webrtc.WebRtcRuntime;
+import com.google.firebase.auth.FirebaseAuth;
+
+import org.webrtc.RendererCommon;
+import org.webrtc.SurfaceViewRenderer;
+import org.webrtc.VideoTrack;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * GroupCallActivity - Mesh voice/video call with the members of a group
+ * Joins group_calls/{groupId}; everyone in the group who opens the call is connected to
+ * everyone else (up to GroupCallManager.MAX_PEERS others). Video tiles are laid out in
+ * a two-column grid.
+ */
+public class GroupCallActivity extends BaseActivity {
+    private static final String TAG = "GroupCall";
+
+    // Intent extra keys
+    public static final String EXTRA_GROUP_ID = "group_id";
+    public static final String EXTRA_GROUP_NAME = "group_name";
+    public static final String EXTRA_VIDEO = "video";
+
+    private ActivityGroupCallBinding binding;
+    private GroupCallManager callManager;
+
+    // Tile per participant, local user first
+    private final Map<String, SurfaceViewRenderer> tiles = new LinkedHashMap<>();
+
+    private String groupId;
+    private String currentUserId;
+    private boolean isVideo;
+    private boolean isMicOn = true;
+    private boolean isVideoOn = true;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        binding = ActivityGroupCallBinding.inflate(getLayoutInflater());
+        setContentView(binding.getRoot());
+
+        groupId = getIntent().getStringExtra(EXTRA_GROUP_ID);
+        isVideo = getIntent().getBooleanExtra(EXTRA_VIDEO, false);
+        String groupName = getIntent().getStringExtra(EXTRA_GROUP_NAME);
+
+        if (FirebaseAuth.getInstance().getCurrentUser() == null || groupId == null || groupId.isEmpty()) {
+            Toast.makeText(this, "Cannot start group call", Toast.LENGTH_SHORT).show();
+            Log.e(TAG, "Missing user or group");
+            finish();
+            return;
+        }
+        currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+
+        setupUI(groupName);
+
+        boolean granted = isVideo
+                ? PermissionHelper.hasCallPermissions(this)
+                : PermissionHelper.hasAudioPermission(this);
+        if (granted) {
+            startCall();
+        } else if (isVideo) {
+            PermissionHelper.requestCallPermissions(this);
+        } else {
+            PermissionHelper.requestAudioPermission(this);
+        }
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+
+        if (requestCode == PermissionHelper.PERMISSION_REQUEST_CODE_CALL
+                || requestCode == PermissionHelper.PERMISSION_REQUEST_CODE_AUDIO) {
+            if (PermissionHelper.isPermissionGranted(grantResults)) {
+                startCall();
+            } else {
+                Toast.makeText(this, "Microphone permission is required for group calls", Toast.LENGTH_LONG).show();
+                finish();
+            }
+        }
+    }
+
+    private void setupUI(String groupName) {
+        binding.tvGroupName.setText(groupName != null ? groupName : "Group Call");
+        binding.cardVideo.setVisibility(isVideo ? View.VISIBLE : View.GONE);
+        binding.cardSwitchCamera.setVisibility(isVideo ? View.VISIBLE : View.GONE);
+
+        binding.fabMic.setOnClickListener(v -> toggleMicrophone());
+        binding.fabVideo.setOnClickListener(v -> toggleVideo());
+        binding.fabSwitchCamera.setOnClickListener(v -> {
+            if (callManager != null) callManager.switchCamera();
+        });
+        binding.fabEndCall.setOnClickListener(v -> finish());
+    }
+
+    // ==================== CALL ====================
+
+    private void startCall() {
+        if (callManager != null) return;
+        SurfaceViewRenderer localView = isVideo ? addTile(currentUserId, true) : null;
+
+        callManager = new GroupCallManager(this, currentUserId, isVideo,
+                new FirebaseGroupSignaling(groupId), new GroupCallManager.Listener() {
+            @Override
+            public void onPeerConnected(String peerId) {
+                Log.d(TAG, "✅ Connected to " + peerId);
+                updateStatus();
+            }
+
+            @Override
+            public void onRemoteVideo(String peerId, VideoTrack track) {
+                SurfaceViewRenderer tile = tiles.get(peerId);
+                if (tile == null) tile = addTile(peerId, false);
+                track.addSink(tile);
+            }
+
+            @Override
+            public void onPeerLeft(String peerId) {
+                Log.d(TAG, "👋 " + peerId + " left");
+                removeTile(peerId);
+                updateStatus();
+            }
+
+            @Override
+            public void onCallFull() {
+                Toast.makeText(GroupCallActivity.this,
+                        "Call is full (" + (GroupCallManager.MAX_PEERS + 1) + " people max)",
+                        Toast.LENGTH_SHORT).show();
+                finish();
+            }
+        });
+        callManager.start(localView);
+        Log.d(TAG, "📞 Joined group call " + groupId + (isVideo ? " (video)" : " (voice)"));
+    }
+
+    private void updateStatus() {
+        int others = callManager != null ? callManager.getPeerCount() : 0;
+        binding.tvCallStatus.setText(others == 0
+                ? "Waiting for others..."
+                : (others + 1) + " people in call");
+    }
+
+    private void toggleMicrophone() {
+        isMicOn = !isMicOn;
+        if (callManager != null) callManager.setMicEnabled(isMicOn);
+        binding.fabMic.setImageResource(isMicOn ? R.drawable.ic_mic : R.drawable.ic_mic_off);
+        Log.d(TAG, "🎤 Microphone toggled: " + isMicOn);
+    }
+
+    private void toggleVideo() {
+        isVideoOn = !isVideoOn;
+        if (callManager != null) callManager.setVideoEnabled(isVideoOn);
+        binding.fabVideo.setImageResource(isVideoOn ? R.drawable.ic_video : R.drawable.ic_video_off);
+        Log.d(TAG, "📹 Video toggled: " + isVideoOn);
+    }
+
+    // ==================== VIDEO GRID ====================
+
+    private SurfaceViewRenderer addTile(String userId, boolean mirror) {
+        SurfaceViewRenderer renderer = new SurfaceViewRenderer(this);
+        renderer.init(WebRtcRuntime.get(this).getEglContext(), null);
+        renderer.setMirror(mirror);
+        renderer.setScalingType(RendererCommon.ScalingType.SCALE_ASPECT_FILL);
+
+        GridLayout.LayoutParams params = new GridLayout.LayoutParams(
+                GridLayout.spec(GridLayout.UNDEFINED, 1f),
+                GridLayout.spec(GridLayout.UNDEFINED, 1f));
+        params.width = 0;
+        params.height = 0;
+        int margin = getResources().getDimensionPixelSize(R.dimen.spacing_tiny);
+        params.setMargins(margin, margin, margin, margin);
+        binding.videoGrid.addView(renderer, params);
+        tiles.put(userId, renderer);
+        return renderer;
+    }
+
+    private void removeTile(String userId) {
+        SurfaceViewRenderer renderer = tiles.remove(userId);
+        if (renderer == null) return;
+        binding.videoGrid.removeView(renderer);
+        renderer.release();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        Log.d(TAG, "onDestroy: Leaving group call");
+
+        if (callManager != null) {
+            callManager.leave();
+            callManager = null;
+        }
+        for (SurfaceViewRenderer renderer : tiles.values()) {
+            renderer.release();
+        }
+        tiles.clear();
+    }
+}
@@ -46,6 +46,7 @@ public class IncomingCallActivity extends BaseActivity {
     private String callerAvatar;
     private String callType;
     private String currentUserId;
+    private boolean callAnswered = false;
 
     // Firebase
     private FirebaseSignaling firebaseSignaling;
@@ -205,30 +206,11 @@ public class IncomingCallActivity extends BaseActivity {
      * - User has to click accept multiple times
      */
     private void initializeWebRTCImmediately() {
-        Log.d(TAG, "🔄 Initializing WebRTC for incoming call...");
-        Log.d(TAG, "   Creating PeerConnection BEFORE OFFER arrives...");
+        Log.d(TAG, "🔄 Pre-warming WebRTC while ringing...");
 
-        MainRepository repository = MainRepository.getInstance();
-
-        // ✅ Create PeerConnection without sending OFFER
-        repository.loginForCall(currentUserId, new MainRepository.CallCallback() {
-            @Override
-            public void onSuccess() {
-                Log.d(TAG, "════════════════════════════════════════");
-                Log.d(TAG, "✅ WebRTC READY - WAITING FOR OFFER");
-                Log.d(TAG, "════════════════════════════════════════");
-                Log.d(TAG, "PeerConnection created and ready");
-                Log.d(TAG, "Can now process OFFER when it arrives");
-            }
-
-            @Override
-            public void onError() {
-                Log.e(TAG, "❌ Failed to initialize WebRTC");
-                Toast.makeText(IncomingCallActivity.this,
-                        "Failed to initialize call",
-                        Toast.LENGTH_SHORT).show();
-            }
-        });
+        // ✅ Peer connection + ICE gathering now, the caller's offer held until accept;
+        // microphone and camera stay closed until the call screen starts them
+        MainRepository.getInstance().prewarm(this, currentUserId, callerId);
     }
 
     /**
@@ -247,6 +229,9 @@ public class IncomingCallActivity extends BaseActivity {
             Log.d(TAG, "📤 ACCEPT signal sent to caller: " + callerId);
         }
 
+        // The call screen takes over the pre-warmed connection
+        callAnswered = true;
+
         // Start voice call activity
         Log.d(TAG, "🎤 Starting voice call activity");
         startVoiceCall();
@@ -306,5 +291,10 @@ public class IncomingCallActivity extends BaseActivity {
             firebaseSignaling.removeListener();
             Log.d(TAG, "🧹 Firebase Signaling listener removed");
         }
+
+        // ✅ Unanswered: drop the pre-warmed connection
+        if (!callAnswered) {
+            MainRepository.getInstance().cancelPrewarm();
+        }
     }
 }
\ No newline at end of file
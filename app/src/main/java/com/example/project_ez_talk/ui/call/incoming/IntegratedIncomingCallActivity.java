@@ -13,6 +13,7 @@ import androidx.activity.OnBackPressedCallback;
 import com.bumptech.glide.Glide;
 import com.example.project_ez_talk.R;
 import com.example.project_ez_talk.model.CallData;
+import com.example.project_ez_talk.repository.CallLogRepository;
 import com.example.project_ez_talk.ui.BaseActivity;
 import com.example.project_ez_talk.ui.call.video.IntegratedVideoCallActivity;
 import com.example.project_ez_talk.ui.call.voice.VoiceCallActivity;
@@ -54,6 +55,7 @@ public class IntegratedIncomingCallActivity extends BaseActivity {
     private String callerAvatar;
     private String callType;
     private String currentUserId;
+    private boolean callAnswered = false;
 
     private FirebaseSignaling firebaseSignaling;
 
@@ -252,30 +254,11 @@ public class IntegratedIncomingCallActivity extends BaseActivity {
      * This ensures PeerConnection is ready when OFFER arrives from caller
      */
     private void initializeWebRTCImmediately() {
-        Log.d(TAG, "🔄 Initializing WebRTC for incoming call...");
-        Log.d(TAG, "   Creating PeerConnection BEFORE OFFER arrives...");
+        Log.d(TAG, "🔄 Pre-warming WebRTC while ringing...");
 
-        MainRepository repository = MainRepository.getInstance();
-
-        // ✅ Create PeerConnection without sending OFFER
-        repository.loginForCall(currentUserId, new MainRepository.CallCallback() {
-            @Override
-            public void onSuccess() {
-                Log.d(TAG, "════════════════════════════════════════");
-                Log.d(TAG, "✅ WebRTC READY - WAITING FOR OFFER");
-                Log.d(TAG, "════════════════════════════════════════");
-                Log.d(TAG, "PeerConnection created and ready");
-                Log.d(TAG, "Can now process OFFER when it arrives");
-            }
-
-            @Override
-            public void onError() {
-                Log.e(TAG, "❌ Failed to initialize WebRTC");
-                Toast.makeText(IntegratedIncomingCallActivity.this,
-                        "Failed to initialize call",
-                        Toast.LENGTH_SHORT).show();
-            }
-        });
+        // ✅ Peer connection + ICE gathering now, the caller's offer held until accept;
+        // microphone and camera stay closed until the call screen starts them
+        MainRepository.getInstance().prewarm(this, currentUserId, callerId);
     }
 
     /**
@@ -314,6 +297,9 @@ public class IntegratedIncomingCallActivity extends BaseActivity {
             Log.d(TAG, "📤 ACCEPT signal sent to caller: " + callerId);
         }
 
+        // The call screen takes over the pre-warmed connection
+        callAnswered = true;
+
         // ✅ Start appropriate call activity
         Intent intent;
         if ("video".equals(callType)) {
@@ -408,7 +394,7 @@ public class IntegratedIncomingCallActivity extends BaseActivity {
         callLog.put("duration", 0);
         callLog.put("timestamp", System.currentTimeMillis());
 
-        callLogsRef.child(callId).setValue(callLog)
+        CallLogRepository.write(callId, callLog)
                 .addOnSuccessListener(aVoid -> Log.d(TAG, "✅ Missed call logged to database"))
                 .addOnFailureListener(e -> Log.e(TAG, "❌ Failed to log missed call: " + e.getMessage()));
     }
@@ -423,5 +409,10 @@ public class IntegratedIncomingCallActivity extends BaseActivity {
             firebaseSignaling.removeListener();
             Log.d(TAG, "🧹 Firebase Signaling listener removed");
         }
+
+        // ✅ Unanswered: drop the pre-warmed connection
+        if (!callAnswered) {
+            MainRepository.getInstance().cancelPrewarm();
+        }
     }
 }
\ No newline at end of file
@@ -8,10 +8,12 @@ import android.widget.Toast;
 import com.example.project_ez_talk.R;
 import com.example.project_ez_talk.databinding.ActivityVideoCallBinding;
 import com.example.project_ez_talk.model.CallData;
+import com.example.project_ez_talk.repository.CallLogRepository;
 import com.example.project_ez_talk.ui.BaseActivity;
 import com.example.project_ez_talk.utils.PermissionHelper;
 import com.example.project_ez_talk.webrtc.FirebaseSignaling;
 import com.example.project_ez_talk.webrtc.MainRepository;
+import com.example.project_ez_talk.webrtc.VideoQualityController;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
@@ -51,6 +53,7 @@ public class IntegratedVideoCallActivity extends BaseActivity {
     private boolean isMicOn = true;
     private boolean isVideoOn = true;
     private long callStartTime = 0;
+    private boolean videoPausedForNetwork = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -275,6 +278,38 @@ public class IntegratedVideoCallActivity extends BaseActivity {
                         }
                     };
 
+                    // Live call quality under the duration badge
+                    repository.setCallStatsListener(sample -> {
+                        binding.tvCallQuality.setVisibility(View.VISIBLE);
+                        binding.tvCallQuality.setText(sample.describe());
+                    });
+
+                    // Outgoing video degrades with the link; tell the user when it pauses
+                    repository.setVideoQualityListener(tier -> {
+                        boolean paused = tier == VideoQualityController.Tier.AUDIO_ONLY;
+                        if (paused != videoPausedForNetwork) {
+                            videoPausedForNetwork = paused;
+                            Toast.makeText(IntegratedVideoCallActivity.this,
+                                    paused ? "Weak connection - your video is paused" : "Your video resumed",
+                                    Toast.LENGTH_SHORT).show();
+                        }
+                    });
+
+                    // Network handover: keep the call, show that it is recovering
+                    repository.setReconnectListener(new MainRepository.ReconnectListener() {
+                        @Override
+                        public void onReconnecting() {
+                            binding.tvCallStatus.setText("Reconnecting...");
+                            binding.tvCallStatus.setVisibility(View.VISIBLE);
+                        }
+
+                        @Override
+                        public void onReconnected(long interruptionMs) {
+                            Log.d(TAG, "✅ Reconnected after " + interruptionMs + "ms");
+                            binding.tvCallStatus.setVisibility(View.GONE);
+                        }
+                    });
+
                     // Subscribe to WebRTC signaling events
                     repository.subscribeForLatestEvent(model -> {
                         Log.d(TAG, "WebRTC signaling event: " + model.getType());
@@ -425,9 +460,24 @@ public class IntegratedVideoCallActivity extends BaseActivity {
         callLog.put("duration", duration);
         callLog.put("timestamp", System.currentTimeMillis());
 
-        callLogsRef.child(callId).setValue(callLog)
+        CallLogRepository.write(callId, callLog)
                 .addOnSuccessListener(aVoid -> Log.d(TAG, "✅ Call logged to database"))
                 .addOnFailureListener(e -> Log.e(TAG, "❌ Failed to log call: " + e.getMessage()));
+        logCallQuality(callId);
+    }
+
+    /**
+     * ✅ Store the call's quality summary under call_quality/{callId}, beside its log
+     */
+    private void logCallQuality(String callId) {
+        Map<String, Object> quality = repository != null ? repository.getCallStatsSummary() : null;
+        if (quality == null) return;
+        quality.put("callType", "video");
+        quality.put("timestamp", System.currentTimeMillis());
+
+        FirebaseDatabase.getInstance(DATABASE_URL).getReference("call_quality")
+                .child(callId).setValue(quality)
+                .addOnFailureListener(e -> Log.e(TAG, "❌ Failed to log call quality: " + e.getMessage()));
     }
 
     @Override
@@ -444,6 +494,9 @@ public class IntegratedVideoCallActivity extends BaseActivity {
 
         // ✅ Cleanup WebRTC
         if (repository != null) {
+            repository.setCallStatsListener(null);
+            repository.setVideoQualityListener(null);
+            repository.setReconnectListener(null);
             repository.endCall();
         }
     }
@@ -20,6 +20,7 @@ import androidx.core.content.ContextCompat;
 import com.bumptech.glide.Glide;
 import com.example.project_ez_talk.R;
 import com.example.project_ez_talk.model.CallData;
+import com.example.project_ez_talk.repository.CallLogRepository;
 import com.example.project_ez_talk.ui.BaseActivity;
 import com.example.project_ez_talk.utils.PermissionHelper;
 import com.example.project_ez_talk.webrtc.DataModelType;
@@ -63,6 +64,7 @@ public class VoiceCallActivity extends BaseActivity {
 
     // UI Components
     private TextView tvCallDuration;
+    private TextView tvCallQuality;
     private TextView tvCallerName;
     private TextView tvCallStatus;
     private ImageView ivCallerAvatar;
@@ -180,6 +182,7 @@ public class VoiceCallActivity extends BaseActivity {
      */
     private void initViews() {
         tvCallDuration = findViewById(R.id.tvCallDuration);
+        tvCallQuality = findViewById(R.id.tvCallQuality);
         tvCallerName = findViewById(R.id.tvUserName);
         tvCallStatus = findViewById(R.id.tvCallStatus);
         ivCallerAvatar = findViewById(R.id.ivUserAvatar);
@@ -329,6 +332,33 @@ public class VoiceCallActivity extends BaseActivity {
                             }
                         };
 
+                        // Live call quality under the timer
+                        mainRepository.setCallStatsListener(sample -> {
+                            if (tvCallQuality != null) {
+                                tvCallQuality.setVisibility(View.VISIBLE);
+                                tvCallQuality.setText(sample.describe());
+                            }
+                        });
+
+                        // Network handover: keep the call, show that it is recovering
+                        mainRepository.setReconnectListener(new MainRepository.ReconnectListener() {
+                            @Override
+                            public void onReconnecting() {
+                                if (tvCallStatus != null) {
+                                    tvCallStatus.setText("Reconnecting...");
+                                    tvCallStatus.setVisibility(View.VISIBLE);
+                                }
+                            }
+
+                            @Override
+                            public void onReconnected(long interruptionMs) {
+                                Log.d(TAG, "✅ Reconnected after " + interruptionMs + "ms");
+                                if (tvCallStatus != null) {
+                                    tvCallStatus.setVisibility(View.GONE);
+                                }
+                            }
+                        });
+
                         // Subscribe to WebRTC signaling events
                         mainRepository.subscribeForLatestEvent(model -> {
                             Log.d(TAG, "📨 WebRTC signaling event: " + model.getType());
@@ -645,12 +675,23 @@ public class VoiceCallActivity extends BaseActivity {
             callLog.put("duration", durationSeconds);
             callLog.put("timestamp", System.currentTimeMillis());
 
-            callLogsRef.child(callId).setValue(callLog)
+            CallLogRepository.write(callId, callLog)
                     .addOnSuccessListener(aVoid ->
                             Log.d(TAG, "✅ Call logged to database (duration: " + durationSeconds + "s)"))
                     .addOnFailureListener(e ->
                             Log.e(TAG, "❌ Failed to log call: " + e.getMessage()));
 
+            // Quality summary beside the log, so call_logs stays light for the history list
+            Map<String, Object> quality = mainRepository != null ? mainRepository.getCallStatsSummary() : null;
+            if (quality != null) {
+                quality.put("callType", "voice");
+                quality.put("timestamp", System.currentTimeMillis());
+                FirebaseDatabase.getInstance(DATABASE_URL).getReference("call_quality")
+                        .child(callId).setValue(quality)
+                        .addOnFailureListener(e ->
+                                Log.e(TAG, "❌ Failed to log call quality: " + e.getMessage()));
+            }
+
         } catch (Exception e) {
             Log.e(TAG, "Database logging error: " + e.getMessage(), e);
         }
@@ -677,6 +718,8 @@ public class VoiceCallActivity extends BaseActivity {
 
         // Cleanup WebRTC
         if (mainRepository != null) {
+            mainRepository.setCallStatsListener(null);
+            mainRepository.setReconnectListener(null);
             mainRepository.endCall();
         }
 
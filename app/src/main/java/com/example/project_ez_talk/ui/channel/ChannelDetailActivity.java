@@ -19,14 +19,16 @@ import com.bumptech.glide.Glide;
 import com.example.project_ez_talk.R;
 import com.example.project_ez_talk.adapter.MessageAdapter;
 import com.example.project_ez_talk.adapter.SwipeToDeleteCallback;
+import com.example.project_ez_talk.helper.MessagePageLoader;
 import com.example.project_ez_talk.model.Message;
+import com.example.project_ez_talk.repository.UserProfileCache;
 import com.example.project_ez_talk.ui.BaseActivity;
+import com.example.project_ez_talk.ui.dialog.MessageSearchDialog;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.imageview.ShapeableImageView;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -36,6 +38,7 @@ import java.util.Map;
 public class ChannelDetailActivity extends BaseActivity {
 
     private static final String TAG = "ChannelDetailActivity";
+    private static final int LOAD_OLDER_THRESHOLD = 5;
 
     // UI Views
     private MaterialToolbar toolbar;
@@ -49,6 +52,9 @@ public class ChannelDetailActivity extends BaseActivity {
     // Adapters and Data
     private MessageAdapter messageAdapter;
     private List<Message> messageList = new ArrayList<>();
+    private MessagePageLoader pageLoader;
+    // Set after jumping to a search result so list refreshes don't snap back to the bottom
+    private boolean jumpedToMessage = false;
 
     // Firebase
     private FirebaseAuth auth;
@@ -121,6 +127,10 @@ public class ChannelDetailActivity extends BaseActivity {
 
         messageAdapter.setDeleteListener(message -> {
             Log.d(TAG, "✅ Message deleted callback: " + message.getMessageId());
+            // Live window deletions arrive as REMOVED changes; paged history has no listener
+            if (pageLoader != null && pageLoader.forget(message.getMessageId()) >= 0) {
+                messageAdapter.setMessages(pageLoader.getMessages());
+            }
         });
 
         if (channelName != null) {
@@ -130,6 +140,14 @@ public class ChannelDetailActivity extends BaseActivity {
 
     private void setupListeners() {
         toolbar.setNavigationOnClickListener(v -> finish());
+        toolbar.setOnMenuItemClickListener(item -> {
+            if (item.getItemId() == R.id.action_search_messages && pageLoader != null) {
+                MessageSearchDialog.show(this, pageLoader.getConversationId(),
+                        result -> jumpToMessage(result.message.getMessageId(), result.message.getTimestamp()));
+                return true;
+            }
+            return false;
+        });
 
         btnSend.setOnClickListener(v -> sendMessage());
 
@@ -223,28 +241,20 @@ public class ChannelDetailActivity extends BaseActivity {
     }
 
     private void fetchCurrentUserInfo() {
-        db.collection("users")
-                .document(currentUserId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        currentUserName = documentSnapshot.getString("name");
-                        currentUserAvatar = documentSnapshot.getString("avatarUrl");
-                        if (currentUserName == null) currentUserName = "Unknown User";
-                        if (currentUserAvatar == null) currentUserAvatar = "";
-                        Log.d(TAG, "✅ Current user loaded: " + currentUserName);
-                    } else {
-                        currentUserName = auth.getCurrentUser().getEmail();
-                        currentUserAvatar = "";
-                    }
-                    loadMessages();
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "❌ Error fetching user: " + e.getMessage());
-                    currentUserName = auth.getCurrentUser().getEmail();
-                    currentUserAvatar = "";
-                    loadMessages();
-                });
+        UserProfileCache.getInstance(this).get(currentUserId, profile -> {
+            if (isFinishing() || isDestroyed()) return;
+            if (profile != null) {
+                currentUserName = profile.getName();
+                currentUserAvatar = profile.getAvatarUrl();
+                if (currentUserName == null) currentUserName = "Unknown User";
+                if (currentUserAvatar == null) currentUserAvatar = "";
+                Log.d(TAG, "✅ Current user loaded: " + currentUserName);
+            } else {
+                currentUserName = auth.getCurrentUser().getEmail();
+                currentUserAvatar = "";
+            }
+            loadMessages();
+        });
     }
 
     private void loadChannelInfo() {
@@ -309,39 +319,109 @@ public class ChannelDetailActivity extends BaseActivity {
         messageAdapter.setChatType("channel");
         Log.d(TAG, "Loading messages for channel: " + channelId);
 
-        db.collection("channels")
-                .document(channelId)
-                .collection("messages")
-                .orderBy("timestamp", Query.Direction.ASCENDING)
-                .addSnapshotListener((querySnapshot, error) -> {
-                    if (error != null) {
-                        Log.e(TAG, "Failed to load messages: " + error.getMessage());
-                        Toast.makeText(this, "Failed to load messages", Toast.LENGTH_SHORT).show();
-                        return;
+        // ✅ Cached messages show first; only the newest page is live and older pages load on scroll-up
+        pageLoader = new MessagePageLoader(this,
+                db.collection("channels").document(channelId).collection("messages"),
+                MessagePageLoader.DEFAULT_PAGE_SIZE,
+                new MessagePageLoader.Callback() {
+                    @Override
+                    public void onMessagesChanged(List<Message> messages) {
+                        // ✅ Follow new messages only if the user was already reading the bottom
+                        boolean wasAtBottom = !jumpedToMessage && isScrolledToBottom();
+                        messageAdapter.setMessages(messages, () -> {
+                            if (wasAtBottom) scrollToLastMessage();
+                        });
                     }
-                    if (querySnapshot != null) {
-                        List<Message> newMessages = new ArrayList<>();
-                        for (DocumentSnapshot documentSnapshot : querySnapshot.getDocuments()) {
-                            try {
-                                Message message = documentSnapshot.toObject(Message.class);
-                                if (message != null) {
-                                    message.setMessageId(documentSnapshot.getId());
-                                    newMessages.add(message);
-                                    Log.d(TAG, "Message loaded: " + documentSnapshot.getId());
-                                }
-                            } catch (Exception e) {
-                                Log.e(TAG, "Error parsing message: " + e.getMessage());
-                            }
-                        }
 
-                        // ✅ Use setMessages() to prevent race conditions
-                        messageAdapter.setMessages(newMessages);
+                    @Override
+                    public void onLiveChanges(List<DocumentChange> changes, int offset) {
+                        boolean wasAtBottom = !jumpedToMessage && isScrolledToBottom();
 
-                        if (!newMessages.isEmpty()) {
-                            rvMessages.smoothScrollToPosition(newMessages.size() - 1);
+                        // ✅ Apply only what changed; fall back to a background diff of the full list
+                        if (messageAdapter.applyDocumentChanges(changes, offset)) {
+                            if (wasAtBottom) scrollToLastMessage();
+                            return;
                         }
+                        messageAdapter.setMessages(pageLoader.getMessages(), () -> {
+                            if (wasAtBottom) scrollToLastMessage();
+                        });
+                    }
+
+                    @Override
+                    public void onOlderPageLoaded(List<Message> page, boolean hasMore) {
+                        prependKeepingScrollPosition(page);
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        Log.e(TAG, "Failed to load messages: " + error);
+                        Toast.makeText(ChannelDetailActivity.this, "Failed to load messages", Toast.LENGTH_SHORT).show();
                     }
                 });
+        pageLoader.start();
+
+        rvMessages.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (dy >= 0 || pageLoader == null || !pageLoader.hasMore()) return;
+
+                LinearLayoutManager lm = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (lm != null && lm.findFirstVisibleItemPosition() <= LOAD_OLDER_THRESHOLD) {
+                    pageLoader.loadOlder();
+                }
+            }
+        });
+    }
+
+    private void scrollToLastMessage() {
+        if (messageAdapter.getItemCount() > 0) {
+            rvMessages.scrollToPosition(messageAdapter.getItemCount() - 1);
+        }
+    }
+
+    private boolean isScrolledToBottom() {
+        LinearLayoutManager lm = (LinearLayoutManager) rvMessages.getLayoutManager();
+        if (lm == null || messageAdapter.getItemCount() == 0) return true;
+        return lm.findLastVisibleItemPosition() >= messageAdapter.getItemCount() - 2;
+    }
+
+    /**
+     * Prepend an older page while keeping the message under the user's finger in place
+     */
+    private void prependKeepingScrollPosition(List<Message> page) {
+        if (page.isEmpty()) return;
+
+        LinearLayoutManager lm = (LinearLayoutManager) rvMessages.getLayoutManager();
+        int firstPosition = lm != null ? lm.findFirstVisibleItemPosition() : RecyclerView.NO_POSITION;
+        View firstView = lm != null ? lm.findViewByPosition(firstPosition) : null;
+        int offset = firstView != null ? firstView.getTop() - rvMessages.getPaddingTop() : 0;
+
+        if (!messageAdapter.prependMessages(page)) {
+            messageAdapter.setMessages(pageLoader.getMessages());
+            return;
+        }
+
+        if (lm != null && firstPosition != RecyclerView.NO_POSITION) {
+            lm.scrollToPositionWithOffset(firstPosition + page.size(), offset);
+        }
+    }
+
+    /**
+     * Page back to a message (from the local store where cached) and scroll to it
+     */
+    private void jumpToMessage(String messageId, long timestamp) {
+        jumpedToMessage = true;
+        pageLoader.loadUntil(timestamp, () -> {
+            int position = pageLoader.positionOf(messageId);
+            if (position < 0) {
+                Toast.makeText(this, "Message is no longer available", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            messageAdapter.setMessages(pageLoader.getMessages(), () -> {
+                LinearLayoutManager lm = (LinearLayoutManager) rvMessages.getLayoutManager();
+                if (lm != null) lm.scrollToPositionWithOffset(position, rvMessages.getHeight() / 3);
+            });
+        });
     }
 
     private void sendMessage() {
@@ -355,6 +435,7 @@ public class ChannelDetailActivity extends BaseActivity {
             Toast.makeText(this, "Only admins can send messages", Toast.LENGTH_SHORT).show();
             return;
         }
+        jumpedToMessage = false;
 
         btnSend.setEnabled(false);
 
@@ -399,5 +480,8 @@ public class ChannelDetailActivity extends BaseActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        if (pageLoader != null) {
+            pageLoader.release();
+        }
     }
 }
\ No newline at end of file
@@ -20,6 +20,7 @@ import androidx.appcompat.widget.Toolbar;
 import com.bumptech.glide.Glide;
 import com.example.project_ez_talk.R;
 import com.example.project_ez_talk.ui.BaseActivity;
+import com.example.project_ez_talk.utils.SearchIndex;
 import com.google.android.material.card.MaterialCardView;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
@@ -167,6 +168,7 @@ public class CreateChannelActivity extends BaseActivity {
         channelData.put("subscriberCount", 1);
         channelData.put("lastMessage", "");
         channelData.put("lastMessageTimestamp", System.currentTimeMillis());
+        SearchIndex.putNameFields(channelData, channelName);
 
         // Admins and subscribers
         Map<String, Boolean> admins = new HashMap<>();
@@ -2,14 +2,11 @@ package com.example.project_ez_talk.ui.chat.detail;
 
 import android.Manifest;
 import android.annotation.SuppressLint;
-import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.database.Cursor;
 import android.location.Location;
 import android.location.LocationManager;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
@@ -24,6 +21,7 @@ import android.view.MotionEvent;
 import android.view.View;
 import android.widget.EditText;
 import android.widget.ImageView;
+import android.widget.PopupMenu;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -39,12 +37,17 @@ import com.bumptech.glide.Glide;
 import com.example.project_ez_talk.R;
 import com.example.project_ez_talk.adapter.MessageAdapter;
 import com.example.project_ez_talk.adapter.SwipeToDeleteCallback;
+import com.example.project_ez_talk.helper.MessagePageLoader;
+import com.example.project_ez_talk.helper.OutboxManager;
 import com.example.project_ez_talk.model.CallData;
 import com.example.project_ez_talk.model.Message;
+import com.example.project_ez_talk.repository.OutboxStore;
+import com.example.project_ez_talk.repository.UserProfileCache;
 import com.example.project_ez_talk.ui.BaseActivity;
 import com.example.project_ez_talk.ui.call.incoming.IntegratedIncomingCallActivity;
 import com.example.project_ez_talk.ui.call.video.IntegratedVideoCallActivity;
 import com.example.project_ez_talk.ui.call.voice.VoiceCallActivity;
+import com.example.project_ez_talk.ui.dialog.MessageSearchDialog;
 import com.example.project_ez_talk.utils.AudioRecorderManager;
 import com.example.project_ez_talk.utils.MessageNotificationManager;
 import com.example.project_ez_talk.webrtc.FirebaseSignaling;
@@ -55,27 +58,18 @@ import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.firestore.CollectionReference;
-import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
-import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.SetOptions;
 
 import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
-
 /**
  * ✅ COMPLETE ChatDetailActivity with VIDEO + AUDIO UPLOAD
  */
@@ -95,6 +89,9 @@ public class ChatDetailActivity extends BaseActivity {
     private static final String BUCKET_AUDIO = "chat-audio";
     private static final String BUCKET_VIDEO = "chat-video";
 
+    // Start fetching the previous page when this close to the top
+    private static final int LOAD_OLDER_THRESHOLD = 5;
+
     // UI Views
     private Toolbar toolbar;
     private ImageView ivUserAvatar;
@@ -131,7 +128,8 @@ public class ChatDetailActivity extends BaseActivity {
     private FirebaseDatabase rtdb;
     private String chatId;
     private CollectionReference messagesRef;
-    private ListenerRegistration listener;
+    private MessagePageLoader pageLoader;
+    private ListenerRegistration receiverProfileRegistration;
 
     // Firebase Signaling for calls
     private FirebaseSignaling firebaseSignaling;
@@ -440,29 +438,19 @@ public class ChatDetailActivity extends BaseActivity {
     }
 
     private void fetchCurrentUserInfo() {
-        db.collection("users")
-                .document(currentUser.getUid())
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        String name = documentSnapshot.getString("name");
-                        String avatar = documentSnapshot.getString("avatarUrl");
-                        currentUserName = name != null ? name : "User";
-                        currentUserAvatar = avatar != null ? avatar : "";
-                    } else {
-                        currentUserName = currentUser.getEmail() != null ? currentUser.getEmail() : "User";
-                        currentUserAvatar = "";
-                    }
-                    createInitialChatDocument();
-                    loadRealTimeMessages();
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "❌ Error fetching user: " + e.getMessage());
-                    currentUserName = currentUser.getEmail() != null ? currentUser.getEmail() : "User";
-                    currentUserAvatar = "";
-                    createInitialChatDocument();
-                    loadRealTimeMessages();
-                });
+        UserProfileCache.getInstance(this).get(currentUser.getUid(), profile -> {
+            if (isFinishing() || isDestroyed()) return;
+            if (profile != null) {
+                currentUserName = profile.getName() != null ? profile.getName() : "User";
+                currentUserAvatar = profile.getAvatarUrl() != null ? profile.getAvatarUrl() : "";
+            } else {
+                Log.w(TAG, "⚠️ No profile for current user, using email");
+                currentUserName = currentUser.getEmail() != null ? currentUser.getEmail() : "User";
+                currentUserAvatar = "";
+            }
+            createInitialChatDocument();
+            loadRealTimeMessages();
+        });
     }
 
     @SuppressLint("SetTextI18n")
@@ -485,6 +473,25 @@ public class ChatDetailActivity extends BaseActivity {
         if (tvUserStatus != null) {
             tvUserStatus.setText("Online");
         }
+
+        // Keep the header in step with profile edits; shares the cache's listener for this user
+        receiverProfileRegistration = UserProfileCache.getInstance(this).observe(receiverId, profile -> {
+            if (profile == null || isFinishing() || isDestroyed()) return;
+            if (tvUserName != null && profile.getName() != null && !profile.getName().isEmpty()) {
+                receiverName = profile.getName();
+                tvUserName.setText(receiverName);
+            }
+            String photoUrl = profile.getPhotoUrl();
+            if (ivUserAvatar != null && photoUrl != null && !photoUrl.isEmpty() && !photoUrl.equals(receiverAvatar)) {
+                receiverAvatar = photoUrl;
+                Glide.with(this)
+                        .load(receiverAvatar)
+                        .circleCrop()
+                        .placeholder(R.drawable.ic_profile)
+                        .error(R.drawable.ic_profile)
+                        .into(ivUserAvatar);
+            }
+        });
     }
 
     private void setupRecyclerView() {
@@ -500,6 +507,10 @@ public class ChatDetailActivity extends BaseActivity {
 
         messageAdapter.setDeleteListener(message -> {
             Log.d(TAG, "Message deleted: " + message.getMessageId());
+            // Live window deletions arrive as REMOVED changes; paged history has no listener
+            if (pageLoader != null && pageLoader.forget(message.getMessageId()) >= 0) {
+                messageAdapter.setMessages(pageLoader.getMessages());
+            }
         });
     }
 
@@ -565,40 +576,87 @@ public class ChatDetailActivity extends BaseActivity {
                 .document(chatId)
                 .collection("messages");
 
-        listener = messagesRef
-                .orderBy("timestamp", Query.Direction.ASCENDING)
-                .addSnapshotListener((snapshots, e) -> {
-                    if (e != null) {
-                        Log.e(TAG, "❌ Firestore Error: " + e.getMessage());
-                        return;
-                    }
-
-                    if (snapshots == null) {
-                        Log.d(TAG, "No messages yet");
-                        return;
+        // ✅ Cached messages show first; only the newest page is live and older pages load on scroll-up
+        pageLoader = new MessagePageLoader(this, messagesRef, MessagePageLoader.DEFAULT_PAGE_SIZE,
+                new MessagePageLoader.Callback() {
+                    @Override
+                    public void onMessagesChanged(List<Message> messages) {
+                        boolean wasAtBottom = isScrolledToBottom();
+                        messageAdapter.setMessages(messages, () -> {
+                            if (wasAtBottom) scrollToLastMessage();
+                        });
+                        Log.d(TAG, "✅ Messages loaded: " + messages.size());
                     }
 
-                    Log.d(TAG, "✅ Messages loaded: " + snapshots.size());
-
-                    List<Message> newMessages = new ArrayList<>();
-                    for (DocumentSnapshot doc : snapshots.getDocuments()) {
-                        try {
-                            Message message = doc.toObject(Message.class);
-                            if (message != null) {
-                                message.setMessageId(doc.getId());
-                                newMessages.add(message);
-                            }
-                        } catch (Exception ex) {
-                            Log.e(TAG, "Error parsing message: " + ex.getMessage());
+                    @Override
+                    public void onLiveChanges(List<DocumentChange> changes, int offset) {
+                        boolean wasAtBottom = isScrolledToBottom();
+                        if (messageAdapter.applyDocumentChanges(changes, offset)) {
+                            if (wasAtBottom) scrollToLastMessage();
+                        } else {
+                            // Out of step with the adapter: reconcile with a background diff
+                            messageAdapter.setMessages(pageLoader.getMessages(), () -> {
+                                if (wasAtBottom) scrollToLastMessage();
+                            });
                         }
                     }
 
-                    messageAdapter.setMessages(newMessages);
+                    @Override
+                    public void onOlderPageLoaded(List<Message> page, boolean hasMore) {
+                        prependKeepingScrollPosition(page);
+                    }
 
-                    if (!newMessages.isEmpty()) {
-                        rvMessages.scrollToPosition(newMessages.size() - 1);
+                    @Override
+                    public void onError(String error) {
+                        Log.e(TAG, "❌ Firestore Error: " + error);
                     }
                 });
+        pageLoader.start();
+
+        rvMessages.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (dy >= 0 || pageLoader == null || !pageLoader.hasMore()) return;
+
+                LinearLayoutManager lm = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (lm != null && lm.findFirstVisibleItemPosition() <= LOAD_OLDER_THRESHOLD) {
+                    pageLoader.loadOlder();
+                }
+            }
+        });
+    }
+
+    private void scrollToLastMessage() {
+        if (messageAdapter.getItemCount() > 0) {
+            rvMessages.scrollToPosition(messageAdapter.getItemCount() - 1);
+        }
+    }
+
+    private boolean isScrolledToBottom() {
+        LinearLayoutManager lm = (LinearLayoutManager) rvMessages.getLayoutManager();
+        if (lm == null || messageAdapter.getItemCount() == 0) return true;
+        return lm.findLastVisibleItemPosition() >= messageAdapter.getItemCount() - 2;
+    }
+
+    /**
+     * Prepend an older page while keeping the message under the user's finger in place
+     */
+    private void prependKeepingScrollPosition(List<Message> page) {
+        if (page.isEmpty()) return;
+
+        LinearLayoutManager lm = (LinearLayoutManager) rvMessages.getLayoutManager();
+        int firstPosition = lm != null ? lm.findFirstVisibleItemPosition() : RecyclerView.NO_POSITION;
+        View firstView = lm != null ? lm.findViewByPosition(firstPosition) : null;
+        int offset = firstView != null ? firstView.getTop() - rvMessages.getPaddingTop() : 0;
+
+        if (!messageAdapter.prependMessages(page)) {
+            messageAdapter.setMessages(pageLoader.getMessages());
+            return;
+        }
+
+        if (lm != null && firstPosition != RecyclerView.NO_POSITION) {
+            lm.scrollToPositionWithOffset(firstPosition + page.size(), offset);
+        }
     }
 
     private void setupMessageInput() {
@@ -640,7 +698,39 @@ public class ChatDetailActivity extends BaseActivity {
 
         btnVoiceCall.setOnClickListener(v -> initiateVoiceCall());
         btnVideoCall.setOnClickListener(v -> initiateVideoCall());
-        btnMore.setOnClickListener(v -> Toast.makeText(this, "More options coming soon", Toast.LENGTH_SHORT).show());
+        btnMore.setOnClickListener(this::showMoreMenu);
+    }
+
+    private void showMoreMenu(View anchor) {
+        PopupMenu menu = new PopupMenu(this, anchor);
+        menu.getMenuInflater().inflate(R.menu.menu_chat_detail, menu.getMenu());
+        menu.setOnMenuItemClickListener(item -> {
+            if (item.getItemId() == R.id.action_search && pageLoader != null) {
+                MessageSearchDialog.show(this, pageLoader.getConversationId(),
+                        result -> jumpToMessage(result.message.getMessageId(), result.message.getTimestamp()));
+            } else {
+                Toast.makeText(this, "More options coming soon", Toast.LENGTH_SHORT).show();
+            }
+            return true;
+        });
+        menu.show();
+    }
+
+    /**
+     * Page back to a message (from the local store where cached) and scroll to it
+     */
+    private void jumpToMessage(String messageId, long timestamp) {
+        pageLoader.loadUntil(timestamp, () -> {
+            int position = pageLoader.positionOf(messageId);
+            if (position < 0) {
+                Toast.makeText(this, "Message is no longer available", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            messageAdapter.setMessages(pageLoader.getMessages(), () -> {
+                LinearLayoutManager lm = (LinearLayoutManager) rvMessages.getLayoutManager();
+                if (lm != null) lm.scrollToPositionWithOffset(position, rvMessages.getHeight() / 3);
+            });
+        });
     }
 
     private void initiateVoiceCall() {
@@ -723,21 +813,6 @@ public class ChatDetailActivity extends BaseActivity {
         startActivity(intent);
     }
 
-    private boolean isNetworkAvailable() {
-        try {
-            ConnectivityManager connectivityManager =
-                    (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
-            if (connectivityManager != null) {
-                NetworkInfo activeNetworkInfo = connectivityManager.getActiveNetworkInfo();
-                return activeNetworkInfo != null && activeNetworkInfo.isConnected();
-            }
-            return false;
-        } catch (Exception e) {
-            Log.e(TAG, "Network check error: " + e.getMessage());
-            return true;
-        }
-    }
-
     private void sendTextMessage() {
         String messageText = etMessage.getText().toString().trim();
         if (messageText.isEmpty()) {
@@ -917,134 +992,25 @@ public class ChatDetailActivity extends BaseActivity {
     }
 
     private void uploadVoiceMessage(String filePath, long durationMs) {
-        Log.d(TAG, "📤 uploadVoiceMessage called");
-        Log.d(TAG, "📤 File path: " + filePath);
-        Log.d(TAG, "📤 Duration: " + durationMs + "ms");
-        
+        Log.d(TAG, "📤 uploadVoiceMessage: " + filePath + " (" + durationMs + "ms)");
+
         File audioFile = new File(filePath);
         if (!audioFile.exists()) {
             Log.e(TAG, "❌ Audio file not found: " + filePath);
             Toast.makeText(this, "Audio file not found", Toast.LENGTH_SHORT).show();
             return;
         }
-        
-        Log.d(TAG, "✅ Audio file exists, size: " + audioFile.length() + " bytes");
 
-        // Show progress
-        android.app.ProgressDialog progressDialog = new android.app.ProgressDialog(this);
-        progressDialog.setMessage("Uploading voice message...");
-        progressDialog.setCancelable(false);
-        progressDialog.show();
-        
-        Log.d(TAG, "📤 Starting upload thread...");
-
-        new Thread(() -> {
-            try {
-                Log.d(TAG, "📤 Creating OkHttpClient...");
-                OkHttpClient client = new OkHttpClient();
-
-                Log.d(TAG, "📤 Reading file bytes...");
-                byte[] fileBytes = new byte[(int) audioFile.length()];
-                java.io.FileInputStream fis = new java.io.FileInputStream(audioFile);
-                fis.read(fileBytes);
-                fis.close();
-                Log.d(TAG, "✅ File read: " + fileBytes.length + " bytes");
-
-                String fileName = "voice_" + System.currentTimeMillis() + ".m4a";
-                Log.d(TAG, "📤 Uploading as: " + fileName);
-                
-                RequestBody requestBody = RequestBody.create(
-                        MediaType.parse("audio/mp4"),
-                        fileBytes
-                );
-
-                String uploadUrl = SUPABASE_URL + "/storage/v1/object/" + BUCKET_AUDIO + "/" + fileName;
-                Log.d(TAG, "📤 Upload URL: " + uploadUrl);
-                
-                Request request = new Request.Builder()
-                        .url(uploadUrl)
-                        .addHeader("Authorization", "Bearer " + SUPABASE_KEY)
-                        .addHeader("Content-Type", "audio/mp4")
-                        .post(requestBody)
-                        .build();
-
-                Log.d(TAG, "📤 Executing upload request...");
-                Response response = client.newCall(request).execute();
-                Log.d(TAG, "📤 Response code: " + response.code());
-
-                if (response.isSuccessful()) {
-                    String fileUrl = SUPABASE_URL + "/storage/v1/object/public/" + BUCKET_AUDIO + "/" + fileName;
-                    Log.d(TAG, "✅ Upload successful! URL: " + fileUrl);
-
-                    runOnUiThread(() -> {
-                        progressDialog.dismiss();
-                        sendAudioMessage(fileUrl, durationMs);
-                        audioFile.delete();
-                    });
-                } else {
-                    String errorBody = response.body() != null ? response.body().string() : "No error body";
-                    Log.e(TAG, "❌ Upload failed: " + response.code() + " - " + errorBody);
-                    throw new Exception("Upload failed: " + response.code());
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "❌ Upload exception: " + e.getMessage(), e);
-                runOnUiThread(() -> {
-                    progressDialog.dismiss();
-                    Toast.makeText(ChatDetailActivity.this, "Upload failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                    audioFile.delete();
-                });
-            }
-        }).start();
-    }
-
-    private void sendAudioMessage(String audioUrl, long durationMs) {
-        Log.d(TAG, "📤 sendAudioMessage called");
-        Log.d(TAG, "📤 Audio URL: " + audioUrl);
-        Log.d(TAG, "📤 Duration: " + durationMs + "ms");
-        
-        // 🔍 DEBUG: Log user IDs
-        Log.d(TAG, "🔍 SENDER DEBUG:");
-        Log.d(TAG, "   Current User ID (sender): " + currentUser.getUid());
-        Log.d(TAG, "   Receiver ID: " + receiverId);
-        Log.d(TAG, "   Current User Name: " + currentUserName);
-        
-        Message message = new Message(
-                currentUser.getUid(),
-                receiverId,
-                "🎤 Voice message",  // Content/text
-                Message.MessageType.AUDIO
-        );
-
-        message.setFileUrl(audioUrl);  // ✅ THIS WAS MISSING!
-        message.setSenderName(currentUserName);
-        message.setSenderAvatarUrl(currentUserAvatar);
-        message.setTimestamp(System.currentTimeMillis());
+        Message message = newOutgoingMessage("🎤 Voice message", Message.MessageType.AUDIO);
         message.setDuration(durationMs);
 
-        Log.d(TAG, "💾 Saving voice message to Firestore with URL: " + audioUrl);
-        Log.d(TAG, "💾 Message senderId: " + message.getSenderId());
-        Log.d(TAG, "💾 Message groupId (receiverId): " + message.getGroupId());
-
-        messagesRef.add(message)
-                .addOnSuccessListener(ref -> {
-                    Log.d(TAG, "✅ Voice message sent successfully!");
-                    updateChatListBothUsers("🎤 Voice message", "VOICE");
-
-                    // Send notification for voice message
-                    MessageNotificationManager.sendMessageNotification(
-                            receiverId,
-                            currentUserName,
-                            "Voice message",
-                            "AUDIO",
-                            chatId,
-                            currentUser.getUid(),
-                            currentUserAvatar
-                    );
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "❌ Failed to send voice message: " + e.getMessage());
-                    Toast.makeText(this, "Failed to send voice message", Toast.LENGTH_SHORT).show();
-                });
+        // ✅ The recording moves into the outbox; uploaded when the network allows
+        String fileName = "voice_" + System.currentTimeMillis() + ".m4a";
+        queueAttachment(new OutboxManager.Job(messagesRef, message)
+                .attachment(Uri.fromFile(audioFile), OutboxStore.Kind.FILE, BUCKET_AUDIO, fileName, "audio/mp4")
+                .moveSource()
+                .chatListPreview(chatId, receiverId, "🎤 Voice message", "VOICE")
+                .notifyReceiver("Voice message", "AUDIO"));
     }
 
     // ============================================================
@@ -1149,69 +1115,11 @@ public class ChatDetailActivity extends BaseActivity {
             return;
         }
 
-        if (!isNetworkAvailable()) {
-            Toast.makeText(this, "No internet connection", Toast.LENGTH_SHORT).show();
-            return;
-        }
-
-        Toast.makeText(this, "Uploading image...", Toast.LENGTH_SHORT).show();
-
-        new Thread(() -> {
-            try {
-                InputStream inputStream = getContentResolver().openInputStream(imageUri);
-                if (inputStream == null) {
-                    runOnUiThread(() -> Toast.makeText(this, "Failed to read image", Toast.LENGTH_SHORT).show());
-                    return;
-                }
-
-                byte[] imageData = readBytes(inputStream);
-                String fileName = "chat_" + chatId + "_" + System.currentTimeMillis() + ".jpg";
-                String filePath = "chat_images/" + fileName;
-                String uploadUrl = SUPABASE_URL + "/storage/v1/object/" + BUCKET_IMAGES + "/" + filePath;
-
-                OkHttpClient client = new OkHttpClient();
-                RequestBody body = RequestBody.create(imageData, MediaType.parse("image/jpeg"));
-
-                Request request = new Request.Builder()
-                        .url(uploadUrl)
-                        .post(body)
-                        .addHeader("Content-Type", "image/jpeg")
-                        .addHeader("Authorization", "Bearer " + SUPABASE_KEY)
-                        .addHeader("apikey", SUPABASE_KEY)
-                        .build();
-
-                Response response = client.newCall(request).execute();
-
-                if (response.isSuccessful()) {
-                    String imageUrl = SUPABASE_URL + "/storage/v1/object/public/" + BUCKET_IMAGES + "/" + filePath;
-                    runOnUiThread(() -> sendImageMessage(imageUrl));
-                } else {
-                    runOnUiThread(() -> Toast.makeText(this, "Upload failed", Toast.LENGTH_SHORT).show());
-                }
-            } catch (Exception e) {
-                runOnUiThread(() -> Toast.makeText(this, "Error: " + e.getMessage(), Toast.LENGTH_SHORT).show());
-            }
-        }).start();
-    }
-
-    private void sendImageMessage(String imageUrl) {
-        Message message = new Message(
-                currentUser.getUid(),
-                receiverId,
-                "",
-                Message.MessageType.IMAGE
-        );
-        message.setFileUrl(imageUrl);
-        message.setSenderName(currentUserName);
-        message.setSenderAvatarUrl(currentUserAvatar);
-        message.setTimestamp(System.currentTimeMillis());
-
-        messagesRef.add(message)
-                .addOnSuccessListener(ref -> {
-                    updateChatListBothUsers("[Image]", "IMAGE");
-                    Toast.makeText(this, "Image sent", Toast.LENGTH_SHORT).show();
-                })
-                .addOnFailureListener(e -> Toast.makeText(this, "Failed to send image", Toast.LENGTH_SHORT).show());
+        // ✅ Downscaled, re-encoded and uploaded with a thumbnail by the outbox
+        String objectBase = "chat_images/chat_" + chatId + "_" + System.currentTimeMillis();
+        queueAttachment(new OutboxManager.Job(messagesRef, newOutgoingMessage("", Message.MessageType.IMAGE))
+                .attachment(imageUri, OutboxStore.Kind.IMAGE, BUCKET_IMAGES, objectBase, "image/jpeg")
+                .chatListPreview(chatId, receiverId, "[Image]", "IMAGE"));
     }
 
     // ============================================================
@@ -1231,87 +1139,16 @@ public class ChatDetailActivity extends BaseActivity {
             return;
         }
 
-        if (!isNetworkAvailable()) {
-            Toast.makeText(this, "No internet connection", Toast.LENGTH_SHORT).show();
-            return;
+        String fileName = getFileName(documentUri);
+        if (fileName == null || fileName.isEmpty()) {
+            fileName = "document_" + System.currentTimeMillis();
         }
+        String filePath = "chat_documents/chat_" + chatId + "_" + System.currentTimeMillis() + "_" + fileName;
 
-        Toast.makeText(this, "Uploading document...", Toast.LENGTH_SHORT).show();
-
-        new Thread(() -> {
-            try {
-                InputStream inputStream = getContentResolver().openInputStream(documentUri);
-                if (inputStream == null) {
-                    runOnUiThread(() -> Toast.makeText(this, "Failed to read document", Toast.LENGTH_SHORT).show());
-                    return;
-                }
-
-                byte[] documentData = readBytes(inputStream);
-                String fileName = getFileName(documentUri);
-                if (fileName == null || fileName.isEmpty()) {
-                    fileName = "document_" + System.currentTimeMillis();
-                }
-
-                String filePathWithoutExtension = "chat_" + chatId + "_" + System.currentTimeMillis();
-                String filePath = "chat_documents/" + filePathWithoutExtension + "_" + fileName;
-                String uploadUrl = SUPABASE_URL + "/storage/v1/object/" + BUCKET_DOCUMENTS + "/" + filePath;
-
-                OkHttpClient client = new OkHttpClient();
-                RequestBody body = RequestBody.create(documentData, MediaType.parse("application/octet-stream"));
-
-                Request request = new Request.Builder()
-                        .url(uploadUrl)
-                        .post(body)
-                        .addHeader("Content-Type", "application/octet-stream")
-                        .addHeader("Authorization", "Bearer " + SUPABASE_KEY)
-                        .addHeader("apikey", SUPABASE_KEY)
-                        .build();
-
-                Response response = client.newCall(request).execute();
-
-                if (response.isSuccessful()) {
-                    String documentUrl = SUPABASE_URL + "/storage/v1/object/public/" + BUCKET_DOCUMENTS + "/" + filePath;
-                    String finalFileName = fileName;
-                    runOnUiThread(() -> sendDocumentMessage(documentUrl, finalFileName));
-                    Log.d(TAG, "✅ Document uploaded successfully: " + documentUrl);
-                } else {
-                    String errorBody = response.body() != null ? response.body().string() : "Unknown error";
-                    Log.e(TAG, "❌ Upload failed: " + response.code() + " - " + errorBody);
-                    runOnUiThread(() -> Toast.makeText(this, "Upload failed: " + response.code(), Toast.LENGTH_SHORT).show());
-                }
-
-                response.close();
-
-            } catch (Exception e) {
-                Log.e(TAG, "❌ Document upload error: " + e.getMessage());
-                runOnUiThread(() -> Toast.makeText(this, "Error: " + e.getMessage(), Toast.LENGTH_SHORT).show());
-            }
-        }).start();
-    }
-
-    private void sendDocumentMessage(String documentUrl, String fileName) {
-        Message message = new Message(
-                currentUser.getUid(),
-                receiverId,
-                fileName,
-                Message.MessageType.FILE
-        );
-
-        message.setFileUrl(documentUrl);
-        message.setSenderName(currentUserName);
-        message.setSenderAvatarUrl(currentUserAvatar);
-        message.setTimestamp(System.currentTimeMillis());
-
-        messagesRef.add(message)
-                .addOnSuccessListener(ref -> {
-                    Log.d(TAG, "✅ Document message saved");
-                    updateChatListBothUsers("[Document: " + fileName + "]", "FILE");
-                    Toast.makeText(this, "Document sent successfully", Toast.LENGTH_SHORT).show();
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "❌ Failed to save document message: " + e.getMessage());
-                    Toast.makeText(this, "Failed to send document", Toast.LENGTH_SHORT).show();
-                });
+        // ✅ Large documents go through the resumable endpoint
+        queueAttachment(new OutboxManager.Job(messagesRef, newOutgoingMessage(fileName, Message.MessageType.FILE))
+                .attachment(documentUri, OutboxStore.Kind.FILE, BUCKET_DOCUMENTS, filePath, "application/octet-stream")
+                .chatListPreview(chatId, receiverId, "[Document: " + fileName + "]", "FILE"));
     }
 
     // ============================================================
@@ -1323,111 +1160,22 @@ public class ChatDetailActivity extends BaseActivity {
         audioLauncher.launch(intent);
     }
 
-    /**
-     * ✅ COMPLETE: Upload Audio to Supabase
-     */
     private void uploadAudioToSupabase(Uri audioUri) {
         if (audioUri == null) {
             Toast.makeText(this, "No audio selected", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        if (!isNetworkAvailable()) {
-            Toast.makeText(this, "No internet connection", Toast.LENGTH_SHORT).show();
-            return;
+        String fileName = getFileName(audioUri);
+        if (fileName == null || fileName.isEmpty()) {
+            fileName = "audio_" + System.currentTimeMillis() + ".mp3";
         }
+        Log.d(TAG, "🎵 Audio name: " + fileName);
+        String filePath = "chat_audio/chat_" + chatId + "_" + System.currentTimeMillis() + "_" + fileName;
 
-        Toast.makeText(this, "Uploading audio...", Toast.LENGTH_SHORT).show();
-
-        new Thread(() -> {
-            try {
-                // ✅ STEP 1: Read the audio file
-                InputStream inputStream = getContentResolver().openInputStream(audioUri);
-                if (inputStream == null) {
-                    runOnUiThread(() -> Toast.makeText(this, "Failed to read audio", Toast.LENGTH_SHORT).show());
-                    return;
-                }
-
-                byte[] audioData = readBytes(inputStream);
-
-                // ✅ STEP 2: Get the file name
-                String fileName = getFileName(audioUri);
-                if (fileName == null || fileName.isEmpty()) {
-                    fileName = "audio_" + System.currentTimeMillis() + ".mp3";
-                }
-
-                Log.d(TAG, "🎵 Audio name: " + fileName);
-
-                // ✅ STEP 3: Create file path in Supabase
-                String filePath = "chat_audio/" + "chat_" + chatId + "_" + System.currentTimeMillis() + "_" + fileName;
-
-                // ✅ STEP 4: Upload to Supabase
-                String uploadUrl = SUPABASE_URL + "/storage/v1/object/" + BUCKET_AUDIO + "/" + filePath;
-
-                OkHttpClient client = new OkHttpClient();
-                RequestBody body = RequestBody.create(audioData, MediaType.parse("application/octet-stream"));
-
-                Request request = new Request.Builder()
-                        .url(uploadUrl)
-                        .post(body)
-                        .addHeader("Content-Type", "application/octet-stream")
-                        .addHeader("Authorization", "Bearer " + SUPABASE_KEY)
-                        .addHeader("apikey", SUPABASE_KEY)
-                        .build();
-
-                Log.d(TAG, "📤 Uploading audio...");
-
-                Response response = client.newCall(request).execute();
-
-                // ✅ STEP 5: Handle response
-                if (response.isSuccessful()) {
-                    String audioUrl = SUPABASE_URL + "/storage/v1/object/public/" + BUCKET_AUDIO + "/" + filePath;
-                    Log.d(TAG, "✅ Audio uploaded successfully: " + audioUrl);
-                    String finalFileName = fileName;
-                    runOnUiThread(() -> sendAudioFileMessage(audioUrl, finalFileName));
-                } else {
-                    String errorBody = response.body() != null ? response.body().string() : "Unknown error";
-                    Log.e(TAG, "❌ Upload failed: " + response.code() + " - " + errorBody);
-                    runOnUiThread(() -> Toast.makeText(this, "Upload failed: " + response.code(), Toast.LENGTH_SHORT).show());
-                }
-
-                response.close();
-
-            } catch (Exception e) {
-                Log.e(TAG, "❌ Audio upload error: " + e.getMessage());
-                runOnUiThread(() -> Toast.makeText(this, "Error: " + e.getMessage(), Toast.LENGTH_SHORT).show());
-            }
-        }).start();
-    }
-
-    /**
-     * ✅ NEW: Send Audio File Message to Firestore
-     */
-    private void sendAudioFileMessage(String audioUrl, String fileName) {
-        Message message = new Message(
-                currentUser.getUid(),
-                receiverId,
-                fileName,
-                Message.MessageType.AUDIO
-        );
-
-        message.setFileUrl(audioUrl);
-        message.setSenderName(currentUserName);
-        message.setSenderAvatarUrl(currentUserAvatar);
-        message.setTimestamp(System.currentTimeMillis());
-
-        Log.d(TAG, "💾 Saving audio message to Firestore...");
-
-        messagesRef.add(message)
-                .addOnSuccessListener(ref -> {
-                    Log.d(TAG, "✅ Audio message saved to Firebase");
-                    updateChatListBothUsers("[Audio]", "FILE");
-                    Toast.makeText(this, "Audio sent successfully", Toast.LENGTH_SHORT).show();
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "❌ Failed to save audio message: " + e.getMessage());
-                    Toast.makeText(this, "Failed to send audio", Toast.LENGTH_SHORT).show();
-                });
+        queueAttachment(new OutboxManager.Job(messagesRef, newOutgoingMessage(fileName, Message.MessageType.AUDIO))
+                .attachment(audioUri, OutboxStore.Kind.FILE, BUCKET_AUDIO, filePath, "application/octet-stream")
+                .chatListPreview(chatId, receiverId, "[Audio]", "FILE"));
     }
 
     // ============================================================
@@ -1442,111 +1190,44 @@ public class ChatDetailActivity extends BaseActivity {
         videoLauncher.launch(intent);
     }
 
-    /**
-     * ✅ COMPLETE: Upload Video to Supabase
-     */
     private void uploadVideoToSupabase(Uri videoUri) {
         if (videoUri == null) {
             Toast.makeText(this, "No video selected", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        if (!isNetworkAvailable()) {
-            Toast.makeText(this, "No internet connection", Toast.LENGTH_SHORT).show();
-            return;
+        String fileName = getFileName(videoUri);
+        if (fileName == null || fileName.isEmpty()) {
+            fileName = "video_" + System.currentTimeMillis() + ".mp4";
         }
+        Log.d(TAG, "🎬 Video name: " + fileName);
+        String filePath = "chat_video/chat_" + chatId + "_" + System.currentTimeMillis() + "_" + fileName;
 
-        Toast.makeText(this, "Uploading video...", Toast.LENGTH_SHORT).show();
-
-        new Thread(() -> {
-            try {
-                // ✅ STEP 1: Read the video file
-                InputStream inputStream = getContentResolver().openInputStream(videoUri);
-                if (inputStream == null) {
-                    runOnUiThread(() -> Toast.makeText(this, "Failed to read video", Toast.LENGTH_SHORT).show());
-                    return;
-                }
-
-                byte[] videoData = readBytes(inputStream);
-
-                // ✅ STEP 2: Get the file name
-                String fileName = getFileName(videoUri);
-                if (fileName == null || fileName.isEmpty()) {
-                    fileName = "video_" + System.currentTimeMillis() + ".mp4";
-                }
-
-                Log.d(TAG, "🎬 Video name: " + fileName);
-
-                // ✅ STEP 3: Create file path in Supabase
-                String filePath = "chat_video/" + "chat_" + chatId + "_" + System.currentTimeMillis() + "_" + fileName;
-
-                // ✅ STEP 4: Upload to Supabase
-                String uploadUrl = SUPABASE_URL + "/storage/v1/object/" + BUCKET_VIDEO + "/" + filePath;
-
-                OkHttpClient client = new OkHttpClient();
-                RequestBody body = RequestBody.create(videoData, MediaType.parse("application/octet-stream"));
-
-                Request request = new Request.Builder()
-                        .url(uploadUrl)
-                        .post(body)
-                        .addHeader("Content-Type", "application/octet-stream")
-                        .addHeader("Authorization", "Bearer " + SUPABASE_KEY)
-                        .addHeader("apikey", SUPABASE_KEY)
-                        .build();
-
-                Log.d(TAG, "📤 Uploading video...");
-
-                Response response = client.newCall(request).execute();
-
-                // ✅ STEP 5: Handle response
-                if (response.isSuccessful()) {
-                    String videoUrl = SUPABASE_URL + "/storage/v1/object/public/" + BUCKET_VIDEO + "/" + filePath;
-                    Log.d(TAG, "✅ Video uploaded successfully: " + videoUrl);
-                    String finalFileName = fileName;
-                    runOnUiThread(() -> sendVideoMessage(videoUrl, finalFileName));
-                } else {
-                    String errorBody = response.body() != null ? response.body().string() : "Unknown error";
-                    Log.e(TAG, "❌ Upload failed: " + response.code() + " - " + errorBody);
-                    runOnUiThread(() -> Toast.makeText(this, "Upload failed: " + response.code(), Toast.LENGTH_SHORT).show());
-                }
-
-                response.close();
-
-            } catch (Exception e) {
-                Log.e(TAG, "❌ Video upload error: " + e.getMessage());
-                runOnUiThread(() -> Toast.makeText(this, "Error: " + e.getMessage(), Toast.LENGTH_SHORT).show());
-            }
-        }).start();
+        // ✅ Shrunk to chat size (when worthwhile) and uploaded resumably by the outbox
+        queueAttachment(new OutboxManager.Job(messagesRef, newOutgoingMessage(fileName, Message.MessageType.VIDEO))
+                .attachment(videoUri, OutboxStore.Kind.VIDEO, BUCKET_VIDEO, filePath, "application/octet-stream")
+                .chatListPreview(chatId, receiverId, "[Video]", "FILE"));
     }
 
     /**
-     * ✅ NEW: Send Video Message to Firestore
+     * Message from the current user to the receiver, stamped now
      */
-    private void sendVideoMessage(String videoUrl, String fileName) {
-        Message message = new Message(
-                currentUser.getUid(),
-                receiverId,
-                fileName,
-                Message.MessageType.VIDEO
-        );
-
-        message.setFileUrl(videoUrl);
+    private Message newOutgoingMessage(String content, Message.MessageType type) {
+        Message message = new Message(currentUser.getUid(), receiverId, content, type);
         message.setSenderName(currentUserName);
         message.setSenderAvatarUrl(currentUserAvatar);
         message.setTimestamp(System.currentTimeMillis());
+        return message;
+    }
 
-        Log.d(TAG, "💾 Saving video message to Firestore...");
-
-        messagesRef.add(message)
-                .addOnSuccessListener(ref -> {
-                    Log.d(TAG, "✅ Video message saved to Firebase");
-                    updateChatListBothUsers("[Video]", "FILE");
-                    Toast.makeText(this, "Video sent successfully", Toast.LENGTH_SHORT).show();
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "❌ Failed to save video message: " + e.getMessage());
-                    Toast.makeText(this, "Failed to send video", Toast.LENGTH_SHORT).show();
-                });
+    /**
+     * Hand an attachment send to the outbox and echo it in the list right away
+     */
+    private void queueAttachment(OutboxManager.Job job) {
+        Message pending = OutboxManager.enqueue(this, job);
+        if (pageLoader != null) {
+            pageLoader.addPending(pending);
+        }
     }
 
     // ============================================================
@@ -1672,22 +1353,6 @@ public class ChatDetailActivity extends BaseActivity {
     // UTILITY METHODS
     // ============================================================
 
-    private byte[] readBytes(InputStream inputStream) throws IOException {
-        byte[] buffer = new byte[1024];
-        int bytesRead;
-        byte[] allBytes = new byte[0];
-
-        while ((bytesRead = inputStream.read(buffer)) != -1) {
-            byte[] newBytes = new byte[allBytes.length + bytesRead];
-            System.arraycopy(allBytes, 0, newBytes, 0, allBytes.length);
-            System.arraycopy(buffer, 0, newBytes, allBytes.length, bytesRead);
-            allBytes = newBytes;
-        }
-
-        inputStream.close();
-        return allBytes;
-    }
-
     private String getFileName(Uri uri) {
         String fileName = "file";
         try {
@@ -1708,11 +1373,16 @@ public class ChatDetailActivity extends BaseActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (listener != null) {
-            listener.remove();
+
+        if (pageLoader != null) {
+            pageLoader.release();
             Log.d(TAG, "Listener removed");
         }
 
+        if (receiverProfileRegistration != null) {
+            receiverProfileRegistration.remove();
+        }
+
         if (firebaseSignaling != null) {
             firebaseSignaling.removeListener();
             Log.d(TAG, "Firebase Signaling listener removed");
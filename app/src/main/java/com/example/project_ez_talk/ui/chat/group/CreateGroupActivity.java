@@ -23,6 +23,7 @@ import com.example.project_ez_talk.R;
 import com.example.project_ez_talk.adapter.ContactSelectionAdapter;
 import com.example.project_ez_talk.model.Contact;
 import com.example.project_ez_talk.ui.BaseActivity;
+import com.example.project_ez_talk.utils.SearchIndex;
 import com.google.android.material.card.MaterialCardView;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
@@ -323,6 +324,7 @@ public class CreateGroupActivity extends BaseActivity {
         groupData.put("memberIds", memberIds);
         groupData.put("memberRoles", memberRoles);
         groupData.put("memberCount", memberCount);
+        SearchIndex.putNameFields(groupData, groupName);
 
         db.collection("groups")
                 .document(groupId)
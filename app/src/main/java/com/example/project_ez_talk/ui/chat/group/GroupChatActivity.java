@@ -2,14 +2,11 @@ package com.example.project_ez_talk.ui.chat.group;
 
 import android.Manifest;
 import android.annotation.SuppressLint;
-import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.database.Cursor;
 import android.location.Location;
 import android.location.LocationManager;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
@@ -37,33 +34,35 @@ import com.bumptech.glide.Glide;
 import com.example.project_ez_talk.R;
 import com.example.project_ez_talk.adapter.MessageAdapter;
 import com.example.project_ez_talk.adapter.SwipeToDeleteCallback;
+import com.example.project_ez_talk.helper.MessagePageLoader;
+import com.example.project_ez_talk.helper.OutboxManager;
 import com.example.project_ez_talk.model.Message;
+import com.example.project_ez_talk.repository.OutboxStore;
+import com.example.project_ez_talk.repository.UserProfileCache;
 import com.example.project_ez_talk.ui.BaseActivity;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
 import com.google.android.material.imageview.ShapeableImageView;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
-import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
-
 @SuppressWarnings("ALL")
 public class GroupChatActivity extends BaseActivity {
 
     private static final String TAG = "GroupChatActivity";
+    private static final int LOAD_OLDER_THRESHOLD = 5;
+
+    // Intent extras: open scrolled to this message (e.g. from message search)
+    public static final String EXTRA_JUMP_MESSAGE_ID = "jumpMessageId";
+    public static final String EXTRA_JUMP_TIMESTAMP = "jumpTimestamp";
 
     // Supabase Configuration
     private static final String SUPABASE_URL = "https://ijcfvpodwmshmdecmxmk.supabase.co";
@@ -85,6 +84,9 @@ public class GroupChatActivity extends BaseActivity {
     // Adapters and Data
     private MessageAdapter messageAdapter;
     private List<Message> messageList = new ArrayList<>();
+    private MessagePageLoader pageLoader;
+    // Set after jumping to a search result so list refreshes don't snap back to the bottom
+    private boolean jumpedToMessage = false;
 
     // Firebase
     private FirebaseAuth auth;
@@ -132,7 +134,17 @@ public class GroupChatActivity extends BaseActivity {
         initViews();
         setupListeners();
         loadGroupInfo();
+        // Warm the cache so attachments queued before the first text send carry a sender name
+        withSenderProfile((senderName, senderAvatar) -> currentUserName = senderName);
         loadMessages();
+        handleJumpIntent(getIntent());
+    }
+
+    @Override
+    protected void onNewIntent(Intent intent) {
+        super.onNewIntent(intent);
+        setIntent(intent);
+        handleJumpIntent(intent);
     }
 
     // ==================== SETUP ALL ACTIVITY RESULT LAUNCHERS ====================
@@ -272,6 +284,10 @@ public class GroupChatActivity extends BaseActivity {
 
         messageAdapter.setDeleteListener(message -> {
             Log.d(TAG, "✅ Message deleted callback: " + message.getMessageId());
+            // Live window deletions arrive as REMOVED changes; paged history has no listener
+            if (pageLoader != null && pageLoader.forget(message.getMessageId()) >= 0) {
+                messageAdapter.setMessages(pageLoader.getMessages());
+            }
         });
 
         if (groupName != null) {
@@ -367,39 +383,117 @@ public class GroupChatActivity extends BaseActivity {
         messageAdapter.setChatType("group");  // ✅ Important: Set chat type to "group"
         Log.d(TAG, "Loading messages for group: " + groupId);
 
-        db.collection("groups")
-                .document(groupId)
-                .collection("messages")
-                .orderBy("timestamp", Query.Direction.ASCENDING)
-                .addSnapshotListener((querySnapshot, error) -> {
-                    if (error != null) {
-                        Log.e(TAG, "Failed to load messages: " + error.getMessage());
-                        Toast.makeText(GroupChatActivity.this, "Failed to load messages", Toast.LENGTH_SHORT).show();
-                        return;
+        // ✅ Cached messages show first; only the newest page is live and older pages load on scroll-up
+        pageLoader = new MessagePageLoader(this,
+                db.collection("groups").document(groupId).collection("messages"),
+                MessagePageLoader.DEFAULT_PAGE_SIZE,
+                new MessagePageLoader.Callback() {
+                    @Override
+                    public void onMessagesChanged(List<Message> messages) {
+                        // ✅ Follow new messages only if the user was already reading the bottom
+                        boolean wasAtBottom = !jumpedToMessage && isScrolledToBottom();
+                        messageAdapter.setMessages(messages, () -> {
+                            if (wasAtBottom) scrollToLastMessage();
+                        });
                     }
-                    if (querySnapshot != null) {
-                        List<Message> newMessages = new ArrayList<>();
-                        for (var documentSnapshot : querySnapshot.getDocuments()) {
-                            try {
-                                Message message = documentSnapshot.toObject(Message.class);
-                                if (message != null) {
-                                    message.setMessageId(documentSnapshot.getId());
-                                    newMessages.add(message);
-                                    Log.d(TAG, "Message loaded: " + documentSnapshot.getId());
-                                }
-                            } catch (Exception e) {
-                                Log.e(TAG, "Error parsing message: " + e.getMessage());
-                            }
-                        }
 
-                        // ✅ CRITICAL FIX: Use setMessages() instead of clearing and notifying
-                        messageAdapter.setMessages(newMessages);
+                    @Override
+                    public void onLiveChanges(List<DocumentChange> changes, int offset) {
+                        boolean wasAtBottom = !jumpedToMessage && isScrolledToBottom();
 
-                        if (!newMessages.isEmpty()) {
-                            rvMessages.smoothScrollToPosition(newMessages.size() - 1);
+                        // ✅ Apply only what changed; fall back to a background diff of the full list
+                        if (messageAdapter.applyDocumentChanges(changes, offset)) {
+                            if (wasAtBottom) scrollToLastMessage();
+                            return;
                         }
+                        messageAdapter.setMessages(pageLoader.getMessages(), () -> {
+                            if (wasAtBottom) scrollToLastMessage();
+                        });
+                    }
+
+                    @Override
+                    public void onOlderPageLoaded(List<Message> page, boolean hasMore) {
+                        prependKeepingScrollPosition(page);
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        Log.e(TAG, "Failed to load messages: " + error);
+                        Toast.makeText(GroupChatActivity.this, "Failed to load messages", Toast.LENGTH_SHORT).show();
                     }
                 });
+        pageLoader.start();
+
+        rvMessages.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (dy >= 0 || pageLoader == null || !pageLoader.hasMore()) return;
+
+                LinearLayoutManager lm = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (lm != null && lm.findFirstVisibleItemPosition() <= LOAD_OLDER_THRESHOLD) {
+                    pageLoader.loadOlder();
+                }
+            }
+        });
+    }
+
+    private void scrollToLastMessage() {
+        if (messageAdapter.getItemCount() > 0) {
+            rvMessages.scrollToPosition(messageAdapter.getItemCount() - 1);
+        }
+    }
+
+    private boolean isScrolledToBottom() {
+        LinearLayoutManager lm = (LinearLayoutManager) rvMessages.getLayoutManager();
+        if (lm == null || messageAdapter.getItemCount() == 0) return true;
+        return lm.findLastVisibleItemPosition() >= messageAdapter.getItemCount() - 2;
+    }
+
+    /**
+     * Prepend an older page while keeping the message under the user's finger in place
+     */
+    private void prependKeepingScrollPosition(List<Message> page) {
+        if (page.isEmpty()) return;
+
+        LinearLayoutManager lm = (LinearLayoutManager) rvMessages.getLayoutManager();
+        int firstPosition = lm != null ? lm.findFirstVisibleItemPosition() : RecyclerView.NO_POSITION;
+        View firstView = lm != null ? lm.findViewByPosition(firstPosition) : null;
+        int offset = firstView != null ? firstView.getTop() - rvMessages.getPaddingTop() : 0;
+
+        if (!messageAdapter.prependMessages(page)) {
+            messageAdapter.setMessages(pageLoader.getMessages());
+            return;
+        }
+
+        if (lm != null && firstPosition != RecyclerView.NO_POSITION) {
+            lm.scrollToPositionWithOffset(firstPosition + page.size(), offset);
+        }
+    }
+
+    // ==================== JUMP TO MESSAGE ====================
+
+    private void handleJumpIntent(Intent intent) {
+        String messageId = intent.getStringExtra(EXTRA_JUMP_MESSAGE_ID);
+        if (messageId == null || pageLoader == null) return;
+        jumpToMessage(messageId, intent.getLongExtra(EXTRA_JUMP_TIMESTAMP, 0));
+    }
+
+    /**
+     * Page back to a message (from the local store where cached) and scroll to it
+     */
+    private void jumpToMessage(String messageId, long timestamp) {
+        jumpedToMessage = true;
+        pageLoader.loadUntil(timestamp, () -> {
+            int position = pageLoader.positionOf(messageId);
+            if (position < 0) {
+                Toast.makeText(this, "Message is no longer available", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            messageAdapter.setMessages(pageLoader.getMessages(), () -> {
+                LinearLayoutManager lm = (LinearLayoutManager) rvMessages.getLayoutManager();
+                if (lm != null) lm.scrollToPositionWithOffset(position, rvMessages.getHeight() / 3);
+            });
+        });
     }
 
     private void sendMessage() {
@@ -407,75 +501,63 @@ public class GroupChatActivity extends BaseActivity {
         if (TextUtils.isEmpty(messageText)) {
             return;
         }
+        jumpedToMessage = false;
 
         btnSend.setEnabled(false);
 
-        db.collection("users")
-                .document(currentUserId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    currentUserName = documentSnapshot.exists()
-                            ? documentSnapshot.getString("name")
-                            : "Unknown User";
-                    String currentUserAvatar = documentSnapshot.exists()
-                            ? documentSnapshot.getString("avatarUrl")
-                            : "";
-
-                    // Create message with Message model
-                    Message message = new Message(
-                            currentUserId,
-                            groupId,
-                            messageText,
-                            Message.MessageType.TEXT
-                    );
-                    message.setSenderName(currentUserName);
-                    message.setSenderAvatarUrl(currentUserAvatar);
-                    message.setTimestamp(System.currentTimeMillis());
+        // Cached profile: no users/{uid} read per message
+        withSenderProfile((senderName, senderAvatar) -> {
+            currentUserName = senderName;
 
-                    db.collection("groups")
-                            .document(groupId)
-                            .collection("messages")
-                            .add(message)
-                            .addOnSuccessListener(unused -> {
-                                etMessage.setText("");
-                                btnSend.setEnabled(true);
-
-                                Map<String, Object> updates = new HashMap<>();
-                                updates.put("lastMessage", messageText);
-                                updates.put("lastMessageTime", System.currentTimeMillis());
-
-                                db.collection("groups")
-                                        .document(groupId)
-                                        .update(updates)
-                                        .addOnFailureListener(e ->
-                                                Log.e(TAG, "Failed to update group: " + e.getMessage()));
-                            })
-                            .addOnFailureListener(e -> {
-                                btnSend.setEnabled(true);
-                                Toast.makeText(GroupChatActivity.this, "Failed to send message: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                            });
-                })
-                .addOnFailureListener(e -> {
-                    btnSend.setEnabled(true);
-                    Toast.makeText(GroupChatActivity.this, "Failed to get user info", Toast.LENGTH_SHORT).show();
-                });
+            // Create message with Message model
+            Message message = new Message(
+                    currentUserId,
+                    groupId,
+                    messageText,
+                    Message.MessageType.TEXT
+            );
+            message.setSenderName(currentUserName);
+            message.setSenderAvatarUrl(senderAvatar);
+            message.setTimestamp(System.currentTimeMillis());
+
+            db.collection("groups")
+                    .document(groupId)
+                    .collection("messages")
+                    .add(message)
+                    .addOnSuccessListener(unused -> {
+                        etMessage.setText("");
+                        btnSend.setEnabled(true);
+
+                        Map<String, Object> updates = new HashMap<>();
+                        updates.put("lastMessage", messageText);
+                        updates.put("lastMessageTime", System.currentTimeMillis());
+
+                        db.collection("groups")
+                                .document(groupId)
+                                .update(updates)
+                                .addOnFailureListener(e ->
+                                        Log.e(TAG, "Failed to update group: " + e.getMessage()));
+                    })
+                    .addOnFailureListener(e -> {
+                        btnSend.setEnabled(true);
+                        Toast.makeText(GroupChatActivity.this, "Failed to send message: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                    });
+        });
     }
 
-    // ==================== NETWORK CHECK ====================
+    private interface SenderCallback {
+        void onSender(String senderName, String senderAvatar);
+    }
 
-    private boolean isNetworkAvailable() {
-        try {
-            ConnectivityManager connectivityManager =
-                    (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
-            if (connectivityManager != null) {
-                NetworkInfo activeNetworkInfo = connectivityManager.getActiveNetworkInfo();
-                return activeNetworkInfo != null && activeNetworkInfo.isConnected();
-            }
-            return false;
-        } catch (Exception e) {
-            Log.e(TAG, "Network check error: " + e.getMessage());
-            return true;
-        }
+    /**
+     * Current user's name and avatar for a message being sent, from the shared profile cache
+     */
+    private void withSenderProfile(SenderCallback callback) {
+        UserProfileCache.getInstance(this).get(currentUserId, profile -> {
+            String name = profile != null ? profile.getName() : null;
+            String avatar = profile != null ? profile.getAvatarUrl() : null;
+            callback.onSender(name != null ? name : "Unknown User", avatar != null ? avatar : "");
+        });
     }
 
     // ==================== ATTACHMENT BOTTOM SHEET ====================
@@ -561,81 +643,11 @@ public class GroupChatActivity extends BaseActivity {
             return;
         }
 
-        if (!isNetworkAvailable()) {
-            Toast.makeText(this, "No internet connection", Toast.LENGTH_SHORT).show();
-            return;
-        }
-
-        Toast.makeText(this, "Uploading image...", Toast.LENGTH_SHORT).show();
-
-        new Thread(() -> {
-            try {
-                InputStream inputStream = getContentResolver().openInputStream(imageUri);
-                if (inputStream == null) return;
-
-                byte[] imageData = readBytes(inputStream);
-                String fileName = "group_" + groupId + "_" + System.currentTimeMillis() + ".jpg";
-                String filePath = "chat_images/" + fileName;
-                String uploadUrl = SUPABASE_URL + "/storage/v1/object/" + BUCKET_IMAGES + "/" + filePath;
-
-                OkHttpClient client = new OkHttpClient();
-                RequestBody body = RequestBody.create(imageData, MediaType.parse("image/jpeg"));
-
-                Request request = new Request.Builder()
-                        .url(uploadUrl)
-                        .post(body)
-                        .addHeader("Content-Type", "image/jpeg")
-                        .addHeader("Authorization", "Bearer " + SUPABASE_KEY)
-                        .addHeader("apikey", SUPABASE_KEY)
-                        .build();
-
-                Response response = client.newCall(request).execute();
-
-                if (response.isSuccessful()) {
-                    String imageUrl = SUPABASE_URL + "/storage/v1/object/public/" + BUCKET_IMAGES + "/" + filePath;
-                    runOnUiThread(() -> sendImageMessage(imageUrl));
-                } else {
-                    runOnUiThread(() -> Toast.makeText(GroupChatActivity.this, "Upload failed", Toast.LENGTH_SHORT).show());
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Error: " + e.getMessage());
-                runOnUiThread(() -> Toast.makeText(GroupChatActivity.this, "Error: " + e.getMessage(), Toast.LENGTH_SHORT).show());
-            }
-        }).start();
-    }
-
-    private void sendImageMessage(String imageUrl) {
-        db.collection("users")
-                .document(currentUserId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    String senderName = documentSnapshot.exists()
-                            ? documentSnapshot.getString("name")
-                            : "Unknown User";
-                    String senderAvatar = documentSnapshot.exists()
-                            ? documentSnapshot.getString("avatarUrl")
-                            : "";
-
-                    Message message = new Message(
-                            currentUserId,
-                            groupId,
-                            "",
-                            Message.MessageType.IMAGE
-                    );
-                    message.setFileUrl(imageUrl);
-                    message.setSenderName(senderName);
-                    message.setSenderAvatarUrl(senderAvatar);
-                    message.setTimestamp(System.currentTimeMillis());
-
-                    db.collection("groups")
-                            .document(groupId)
-                            .collection("messages")
-                            .add(message)
-                            .addOnSuccessListener(ref -> {
-                                Log.d(TAG, "✅ Image sent");
-                                Toast.makeText(this, "Image sent", Toast.LENGTH_SHORT).show();
-                            });
-                });
+        // ✅ Downscaled, re-encoded and uploaded with a thumbnail by the outbox
+        String objectBase = "chat_images/group_" + groupId + "_" + System.currentTimeMillis();
+        queueAttachment(new OutboxManager.Job(messagesRef(), newOutgoingMessage("", Message.MessageType.IMAGE))
+                .attachment(imageUri, OutboxStore.Kind.IMAGE, BUCKET_IMAGES, objectBase, "image/jpeg")
+                .resolveSenderProfile());
     }
 
     // ==================== DOCUMENT HANDLING ====================
@@ -653,75 +665,13 @@ public class GroupChatActivity extends BaseActivity {
     }
 
     private void uploadDocumentToSupabase(Uri documentUri) {
-        if (!isNetworkAvailable()) {
-            Toast.makeText(this, "No internet connection", Toast.LENGTH_SHORT).show();
-            return;
-        }
-
-        Toast.makeText(this, "Uploading document...", Toast.LENGTH_SHORT).show();
-
-        new Thread(() -> {
-            try {
-                InputStream inputStream = getContentResolver().openInputStream(documentUri);
-                if (inputStream == null) return;
+        String fileName = getFileName(documentUri);
+        String filePath = "documents/" + groupId + "_" + System.currentTimeMillis() + "_" + fileName;
 
-                byte[] fileData = readBytes(inputStream);
-                String fileName = getFileName(documentUri);
-                String filePath = "documents/" + groupId + "_" + System.currentTimeMillis() + "_" + fileName;
-                String uploadUrl = SUPABASE_URL + "/storage/v1/object/" + BUCKET_DOCUMENTS + "/" + filePath;
-
-                OkHttpClient client = new OkHttpClient();
-                RequestBody body = RequestBody.create(fileData, MediaType.parse("application/octet-stream"));
-
-                Request request = new Request.Builder()
-                        .url(uploadUrl)
-                        .post(body)
-                        .addHeader("Content-Type", "application/octet-stream")
-                        .addHeader("Authorization", "Bearer " + SUPABASE_KEY)
-                        .addHeader("apikey", SUPABASE_KEY)
-                        .build();
-
-                Response response = client.newCall(request).execute();
-
-                if (response.isSuccessful()) {
-                    String documentUrl = SUPABASE_URL + "/storage/v1/object/public/" + BUCKET_DOCUMENTS + "/" + filePath;
-                    runOnUiThread(() -> sendDocumentMessage(documentUrl, fileName));
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Error: " + e.getMessage());
-            }
-        }).start();
-    }
-
-    private void sendDocumentMessage(String documentUrl, String fileName) {
-        db.collection("users")
-                .document(currentUserId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    String senderName = documentSnapshot.exists()
-                            ? documentSnapshot.getString("name")
-                            : "Unknown User";
-                    String senderAvatar = documentSnapshot.exists()
-                            ? documentSnapshot.getString("avatarUrl")
-                            : "";
-
-                    Message message = new Message(
-                            currentUserId,
-                            groupId,
-                            fileName,
-                            Message.MessageType.FILE
-                    );
-                    message.setFileUrl(documentUrl);
-                    message.setSenderName(senderName);
-                    message.setSenderAvatarUrl(senderAvatar);
-                    message.setTimestamp(System.currentTimeMillis());
-
-                    db.collection("groups")
-                            .document(groupId)
-                            .collection("messages")
-                            .add(message)
-                            .addOnSuccessListener(ref -> Log.d(TAG, "✅ Document sent"));
-                });
+        // ✅ Large documents go through the resumable endpoint
+        queueAttachment(new OutboxManager.Job(messagesRef(), newOutgoingMessage(fileName, Message.MessageType.FILE))
+                .attachment(documentUri, OutboxStore.Kind.FILE, BUCKET_DOCUMENTS, filePath, "application/octet-stream")
+                .resolveSenderProfile());
     }
 
     // ==================== AUDIO HANDLING ====================
@@ -732,75 +682,36 @@ public class GroupChatActivity extends BaseActivity {
     }
 
     private void uploadAudioToSupabase(Uri audioUri) {
-        if (!isNetworkAvailable()) {
-            Toast.makeText(this, "No internet connection", Toast.LENGTH_SHORT).show();
-            return;
-        }
-
-        Toast.makeText(this, "Uploading audio...", Toast.LENGTH_SHORT).show();
-
-        new Thread(() -> {
-            try {
-                InputStream inputStream = getContentResolver().openInputStream(audioUri);
-                if (inputStream == null) return;
-
-                byte[] audioData = readBytes(inputStream);
-                String fileName = "audio_" + groupId + "_" + System.currentTimeMillis() + ".m4a";
-                String filePath = "audio/" + fileName;
-                String uploadUrl = SUPABASE_URL + "/storage/v1/object/" + BUCKET_AUDIO + "/" + filePath;
-
-                OkHttpClient client = new OkHttpClient();
-                RequestBody body = RequestBody.create(audioData, MediaType.parse("audio/mp4"));
-
-                Request request = new Request.Builder()
-                        .url(uploadUrl)
-                        .post(body)
-                        .addHeader("Content-Type", "audio/mp4")
-                        .addHeader("Authorization", "Bearer " + SUPABASE_KEY)
-                        .addHeader("apikey", SUPABASE_KEY)
-                        .build();
+        String filePath = "audio/audio_" + groupId + "_" + System.currentTimeMillis() + ".m4a";
+        queueAttachment(new OutboxManager.Job(messagesRef(), newOutgoingMessage("", Message.MessageType.AUDIO))
+                .attachment(audioUri, OutboxStore.Kind.FILE, BUCKET_AUDIO, filePath, "audio/mp4")
+                .resolveSenderProfile());
+    }
 
-                Response response = client.newCall(request).execute();
+    // ==================== OUTBOX ====================
 
-                if (response.isSuccessful()) {
-                    String audioUrl = SUPABASE_URL + "/storage/v1/object/public/" + BUCKET_AUDIO + "/" + filePath;
-                    runOnUiThread(() -> sendAudioMessage(audioUrl));
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Error: " + e.getMessage());
-            }
-        }).start();
+    private CollectionReference messagesRef() {
+        return db.collection("groups").document(groupId).collection("messages");
     }
 
-    private void sendAudioMessage(String audioUrl) {
-        db.collection("users")
-                .document(currentUserId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    String senderName = documentSnapshot.exists()
-                            ? documentSnapshot.getString("name")
-                            : "Unknown User";
-                    String senderAvatar = documentSnapshot.exists()
-                            ? documentSnapshot.getString("avatarUrl")
-                            : "";
-
-                    Message message = new Message(
-                            currentUserId,
-                            groupId,
-                            "",
-                            Message.MessageType.AUDIO
-                    );
-                    message.setFileUrl(audioUrl);
-                    message.setSenderName(senderName);
-                    message.setSenderAvatarUrl(senderAvatar);
-                    message.setTimestamp(System.currentTimeMillis());
+    /**
+     * Message from the current user to this group; the sender profile is filled in at send time
+     */
+    private Message newOutgoingMessage(String content, Message.MessageType type) {
+        Message message = new Message(currentUserId, groupId, content, type);
+        message.setSenderName(currentUserName);
+        message.setTimestamp(System.currentTimeMillis());
+        return message;
+    }
 
-                    db.collection("groups")
-                            .document(groupId)
-                            .collection("messages")
-                            .add(message)
-                            .addOnSuccessListener(ref -> Log.d(TAG, "✅ Audio sent"));
-                });
+    /**
+     * Hand an attachment send to the outbox and echo it in the list right away
+     */
+    private void queueAttachment(OutboxManager.Job job) {
+        Message pending = OutboxManager.enqueue(this, job);
+        if (pageLoader != null) {
+            pageLoader.addPending(pending);
+        }
     }
 
     // ==================== LOCATION HANDLING ====================
@@ -833,33 +744,23 @@ public class GroupChatActivity extends BaseActivity {
                 final double latitude = location.getLatitude();
                 final double longitude = location.getLongitude();
 
-                db.collection("users")
-                        .document(currentUserId)
-                        .get()
-                        .addOnSuccessListener(documentSnapshot -> {
-                            String senderName = documentSnapshot.exists()
-                                    ? documentSnapshot.getString("name")
-                                    : "Unknown User";
-                            String senderAvatar = documentSnapshot.exists()
-                                    ? documentSnapshot.getString("avatarUrl")
-                                    : "";
-
-                            Message message = new Message(
-                                    currentUserId,
-                                    groupId,
-                                    latitude + "," + longitude,
-                                    Message.MessageType.LOCATION
-                            );
-                            message.setSenderName(senderName);
-                            message.setSenderAvatarUrl(senderAvatar);
-                            message.setTimestamp(System.currentTimeMillis());
-
-                            db.collection("groups")
-                                    .document(groupId)
-                                    .collection("messages")
-                                    .add(message)
-                                    .addOnSuccessListener(ref -> Log.d(TAG, "✅ Location sent"));
-                        });
+                withSenderProfile((senderName, senderAvatar) -> {
+                    Message message = new Message(
+                            currentUserId,
+                            groupId,
+                            latitude + "," + longitude,
+                            Message.MessageType.LOCATION
+                    );
+                    message.setSenderName(senderName);
+                    message.setSenderAvatarUrl(senderAvatar);
+                    message.setTimestamp(System.currentTimeMillis());
+
+                    db.collection("groups")
+                            .document(groupId)
+                            .collection("messages")
+                            .add(message)
+                            .addOnSuccessListener(ref -> Log.d(TAG, "✅ Location sent"));
+                });
             } else {
                 Toast.makeText(this, "Unable to get current location", Toast.LENGTH_SHORT).show();
             }
@@ -909,53 +810,27 @@ public class GroupChatActivity extends BaseActivity {
     }
 
     private void sendContactMessage(String contactName, String phoneNumber) {
-        db.collection("users")
-                .document(currentUserId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    String senderName = documentSnapshot.exists()
-                            ? documentSnapshot.getString("name")
-                            : "Unknown User";
-                    String senderAvatar = documentSnapshot.exists()
-                            ? documentSnapshot.getString("avatarUrl")
-                            : "";
-
-                    Message message = new Message(
-                            currentUserId,
-                            groupId,
-                            contactName + "|" + phoneNumber,
-                            Message.MessageType.FILE
-                    );
-                    message.setSenderName(senderName);
-                    message.setSenderAvatarUrl(senderAvatar);
-                    message.setTimestamp(System.currentTimeMillis());
-
-                    db.collection("groups")
-                            .document(groupId)
-                            .collection("messages")
-                            .add(message)
-                            .addOnSuccessListener(ref -> Log.d(TAG, "✅ Contact sent"));
-                });
+        withSenderProfile((senderName, senderAvatar) -> {
+            Message message = new Message(
+                    currentUserId,
+                    groupId,
+                    contactName + "|" + phoneNumber,
+                    Message.MessageType.FILE
+            );
+            message.setSenderName(senderName);
+            message.setSenderAvatarUrl(senderAvatar);
+            message.setTimestamp(System.currentTimeMillis());
+
+            db.collection("groups")
+                    .document(groupId)
+                    .collection("messages")
+                    .add(message)
+                    .addOnSuccessListener(ref -> Log.d(TAG, "✅ Contact sent"));
+        });
     }
 
     // ==================== UTILITY METHODS ====================
 
-    private byte[] readBytes(InputStream inputStream) throws IOException {
-        byte[] buffer = new byte[1024];
-        int bytesRead;
-        byte[] allBytes = new byte[0];
-
-        while ((bytesRead = inputStream.read(buffer)) != -1) {
-            byte[] newBytes = new byte[allBytes.length + bytesRead];
-            System.arraycopy(allBytes, 0, newBytes, 0, allBytes.length);
-            System.arraycopy(buffer, 0, newBytes, allBytes.length, bytesRead);
-            allBytes = newBytes;
-        }
-
-        inputStream.close();
-        return allBytes;
-    }
-
     private String getFileName(Uri uri) {
         String fileName = "file";
         try {
@@ -980,5 +855,8 @@ public class GroupChatActivity extends BaseActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        if (pageLoader != null) {
+            pageLoader.release();
+        }
     }
 }
\ No newline at end of file
@@ -34,7 +34,11 @@ import com.bumptech.glide.Glide;
 import com.example.project_ez_talk.R;
 import com.example.project_ez_talk.adapter.GroupMemberAdapter;
 import com.example.project_ez_talk.model.GroupMember;
+import com.example.project_ez_talk.repository.UserProfileCache;
 import com.example.project_ez_talk.ui.BaseActivity;
+import com.example.project_ez_talk.ui.call.group.GroupCallActivity;
+import com.example.project_ez_talk.ui.dialog.MessageSearchDialog;
+import com.example.project_ez_talk.webrtc.GroupCallManager;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.imageview.ShapeableImageView;
 import com.google.android.material.switchmaterial.SwitchMaterial;
@@ -418,43 +422,27 @@ public class GroupDetailsActivity extends BaseActivity {
                             return;
                         }
 
-                        memberList.clear();
-                        int total = members.size();
-                        final int[] loaded = {0};
-
-                        for (String userId : members.keySet()) {
-                            db.collection("users")
-                                    .document(userId)
-                                    .get()
-                                    .addOnSuccessListener(userDoc -> {
-                                        try {
-                                            if (userDoc.exists()) {
-                                                String name = userDoc.getString("name");
-                                                String avatar = userDoc.getString("profilePicture");
-                                                boolean admin = memberRoles != null && "admin".equals(memberRoles.get(userId));
-
-                                                memberList.add(new GroupMember(
-                                                        userId,
-                                                        name != null ? name : "Unknown User",
-                                                        avatar != null ? avatar : "",
-                                                        admin
-                                                ));
-                                            }
-                                        } catch (Exception e) {
-                                            Log.e(TAG, "Error parsing user: " + e.getMessage());
-                                        }
-                                        loaded[0]++;
-                                        if (loaded[0] == total && memberAdapter != null) {
-                                            memberAdapter.notifyDataSetChanged();
-                                        }
-                                    })
-                                    .addOnFailureListener(e -> {
-                                        loaded[0]++;
-                                        if (loaded[0] == total && memberAdapter != null) {
-                                            memberAdapter.notifyDataSetChanged();
-                                        }
-                                    });
-                        }
+                        // Batched through the shared profile cache: cached members cost no reads
+                        UserProfileCache.getInstance(this).getAll(members.keySet(), profiles -> {
+                            if (isFinishing() || isDestroyed()) return;
+                            memberList.clear();
+                            for (UserProfileCache.Profile profile : profiles.values()) {
+                                String userId = profile.getUserId();
+                                String name = profile.getName();
+                                String avatar = profile.getProfilePicture();
+                                boolean admin = memberRoles != null && "admin".equals(memberRoles.get(userId));
+
+                                memberList.add(new GroupMember(
+                                        userId,
+                                        name != null ? name : "Unknown User",
+                                        avatar != null ? avatar : "",
+                                        admin
+                                ));
+                            }
+                            if (memberAdapter != null) {
+                                memberAdapter.notifyDataSetChanged();
+                            }
+                        });
                     } catch (Exception e) {
                         Log.e(TAG, "Error loading members: " + e.getMessage());
                     }
@@ -752,92 +740,50 @@ public class GroupDetailsActivity extends BaseActivity {
     }
 
     /**
-     * Initiate group voice call (placeholder)
+     * Initiate group voice call
      */
     private void initiateGroupVoiceCall() {
-        Toast.makeText(this, "Starting voice call with " + memberList.size() + " members...", Toast.LENGTH_SHORT).show();
-        new MaterialAlertDialogBuilder(this)
-                .setTitle("Group Voice Call")
-                .setMessage("Group voice calls support up to " + memberList.size() + " participants. This feature will be available in the next update!")
-                .setPositiveButton("OK", null)
-                .show();
+        startGroupCall(false);
     }
 
     /**
-     * Initiate group video call (placeholder)
+     * Initiate group video call
      */
     private void initiateGroupVideoCall() {
-        Toast.makeText(this, "Starting video call with " + memberList.size() + " members...", Toast.LENGTH_SHORT).show();
-        new MaterialAlertDialogBuilder(this)
-                .setTitle("Group Video Call")
-                .setMessage("Group video calls support up to " + memberList.size() + " participants. This feature will be available in the next update!")
-                .setPositiveButton("OK", null)
-                .show();
+        startGroupCall(true);
     }
 
     /**
-     * Open search messages dialog
+     * Open the mesh call for this group; members who open it join the same call
      */
-    private void openSearchMessages() {
-        android.widget.EditText searchInput = new android.widget.EditText(this);
-        searchInput.setHint("Search messages...");
-        searchInput.setPadding(50, 30, 50, 30);
-
-        new MaterialAlertDialogBuilder(this)
-                .setTitle("Search Messages")
-                .setView(searchInput)
-                .setPositiveButton("Search", (dialog, which) -> {
-                    String query = searchInput.getText().toString().trim();
-                    if (!query.isEmpty()) {
-                        searchMessagesInGroup(query);
-                    }
-                })
-                .setNegativeButton("Cancel", null)
-                .show();
-    }
-
-    /**
-     * Search messages in group
-     */
-    private void searchMessagesInGroup(String query) {
-        db.collection("groups")
-                .document(groupId)
-                .collection("messages")
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .limit(100)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    List<String> results = new ArrayList<>();
-                    for (com.google.firebase.firestore.DocumentSnapshot doc : queryDocumentSnapshots.getDocuments()) {
-                        String messageText = doc.getString("messageText");
-                        String senderName = doc.getString("senderName");
-                        if (messageText != null && messageText.toLowerCase().contains(query.toLowerCase())) {
-                            results.add(senderName + ": " + messageText);
-                        }
-                    }
-
-                    if (results.isEmpty()) {
-                        Toast.makeText(this, "No messages found", Toast.LENGTH_SHORT).show();
-                    } else {
-                        showSearchResults(results);
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Toast.makeText(this, "Search failed", Toast.LENGTH_SHORT).show();
-                    Log.e(TAG, "Search error: " + e.getMessage());
-                });
+    private void startGroupCall(boolean video) {
+        if (memberList.size() > GroupCallManager.MAX_PEERS + 1) {
+            Toast.makeText(this, "Only the first " + (GroupCallManager.MAX_PEERS + 1)
+                    + " members to join can be in the call", Toast.LENGTH_SHORT).show();
+        }
+        Intent intent = new Intent(this, GroupCallActivity.class);
+        intent.putExtra(GroupCallActivity.EXTRA_GROUP_ID, groupId);
+        intent.putExtra(GroupCallActivity.EXTRA_GROUP_NAME,
+                tvGroupName != null ? tvGroupName.getText().toString() : null);
+        intent.putExtra(GroupCallActivity.EXTRA_VIDEO, video);
+        startActivity(intent);
     }
 
     /**
-     * Show search results
+     * Search this group's cached history on-device and jump to the picked message
      */
-    private void showSearchResults(List<String> results) {
-        String[] resultsArray = results.toArray(new String[0]);
-        new MaterialAlertDialogBuilder(this)
-                .setTitle("Search Results (" + results.size() + ")")
-                .setItems(resultsArray, null)
-                .setPositiveButton("Close", null)
-                .show();
+    private void openSearchMessages() {
+        String conversationId = db.collection("groups").document(groupId).collection("messages").getPath();
+        MessageSearchDialog.show(this, conversationId, result -> {
+            Intent intent = new Intent(this, GroupChatActivity.class);
+            intent.putExtra("groupId", groupId);
+            intent.putExtra(GroupChatActivity.EXTRA_JUMP_MESSAGE_ID, result.message.getMessageId());
+            intent.putExtra(GroupChatActivity.EXTRA_JUMP_TIMESTAMP, result.message.getTimestamp());
+            // Back to the chat this screen was opened from rather than a second copy
+            intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
+            startActivity(intent);
+            finish();
+        });
     }
 
     /**
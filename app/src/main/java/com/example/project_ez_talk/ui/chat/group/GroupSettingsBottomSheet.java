@@ -17,6 +17,7 @@ import androidx.annotation.Nullable;
 
 import com.bumptech.glide.Glide;
 import com.example.project_ez_talk.R;
+import com.example.project_ez_talk.utils.SearchIndex;
 import com.google.android.material.bottomsheet.BottomSheetDialogFragment;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;
@@ -261,6 +262,7 @@ public class GroupSettingsBottomSheet extends BottomSheetDialogFragment {
         if (imageUrl != null) {
             updates.put("icon", imageUrl);
         }
+        SearchIndex.putNameFields(updates, name);
 
         db.collection("groups")
                 .document(groupId)
@@ -0,0 +1,92 @@
+package com.example.project_ez_talk.ui.dialog;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.EditText;
+import android.widget.Toast;
+
+import com.example.project_ez_talk.model.Message;
+import com.example.project_ez_talk.repository.MessageStore;
+import com.google.android.material.dialog.MaterialAlertDialogBuilder;
+
+import java.util.List;
+
+/**
+ * MessageSearchDialog - Search box + ranked results over the on-device message index
+ * Runs entirely against {@link MessageStore}: no Firestore reads, and anything the
+ * device has synced is searchable regardless of age.
+ */
+public final class MessageSearchDialog {
+
+    private static final int MAX_RESULTS = 50;
+    private static final int SNIPPET_LENGTH = 80;
+
+    public interface OnResultPicked {
+        void onPicked(MessageStore.SearchResult result);
+    }
+
+    private MessageSearchDialog() {
+    }
+
+    /**
+     * Ask for a query, then list matches from {@code conversationId} (null = all conversations)
+     */
+    public static void show(Activity activity, String conversationId, OnResultPicked onPicked) {
+        EditText searchInput = new EditText(activity);
+        searchInput.setHint("Search messages...");
+        searchInput.setPadding(50, 30, 50, 30);
+
+        new MaterialAlertDialogBuilder(activity)
+                .setTitle("Search Messages")
+                .setView(searchInput)
+                .setPositiveButton("Search", (dialog, which) -> {
+                    String query = searchInput.getText().toString().trim();
+                    if (!query.isEmpty()) {
+                        search(activity, query, conversationId, onPicked);
+                    }
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private static void search(Activity activity, String query, String conversationId, OnResultPicked onPicked) {
+        MessageStore store = MessageStore.getInstance(activity);
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+
+        store.getExecutor().execute(() -> {
+            List<MessageStore.SearchResult> results = store.search(query, conversationId, MAX_RESULTS);
+            mainHandler.post(() -> {
+                if (activity.isFinishing() || activity.isDestroyed()) return;
+                if (results.isEmpty()) {
+                    Toast.makeText(activity, "No messages found", Toast.LENGTH_SHORT).show();
+                } else {
+                    showResults(activity, results, onPicked);
+                }
+            });
+        });
+    }
+
+    private static void showResults(Activity activity, List<MessageStore.SearchResult> results,
+                                    OnResultPicked onPicked) {
+        String[] labels = new String[results.size()];
+        for (int i = 0; i < results.size(); i++) {
+            labels[i] = label(results.get(i).message);
+        }
+
+        new MaterialAlertDialogBuilder(activity)
+                .setTitle("Search Results (" + results.size() + ")")
+                .setItems(labels, (dialog, which) -> onPicked.onPicked(results.get(which)))
+                .setPositiveButton("Close", null)
+                .show();
+    }
+
+    private static String label(Message message) {
+        String content = message.getContent() != null ? message.getContent() : "";
+        if (content.length() > SNIPPET_LENGTH) {
+            content = content.substring(0, SNIPPET_LENGTH) + "…";
+        }
+        String sender = message.getSenderName() != null ? message.getSenderName() + ": " : "";
+        return sender + content + "\n" + message.getFormattedDate() + " " + message.getFormattedTime();
+    }
+}
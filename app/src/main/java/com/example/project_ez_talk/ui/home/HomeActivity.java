@@ -19,6 +19,7 @@ import com.example.project_ez_talk.ui.BaseActivity;
 import com.example.project_ez_talk.ui.auth.welcome.WelcomeActivity;
 import com.example.project_ez_talk.ui.profile.AddFriendDialog;
 import com.example.project_ez_talk.utils.Preferences;
+import com.example.project_ez_talk.utils.SearchIndex;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
@@ -67,6 +68,7 @@ public class HomeActivity extends BaseActivity {
         setupToolbar();
         setupDraggableFab();
         setupUnreadCounter();
+        backfillSearchIndex();
         
         // ✅ Start notification listener service
         startNotificationListener();
@@ -208,6 +210,17 @@ public class HomeActivity extends BaseActivity {
         android.util.Log.d("HomeActivity", "✅ NotificationListenerService started");
     }
     
+    /**
+     * ✅ Make accounts created before the search index findable (once per account)
+     */
+    private void backfillSearchIndex() {
+        String currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+        if (Preferences.isSearchIndexBackfilled(this, currentUserId)) return;
+        android.content.Context appContext = getApplicationContext();
+        SearchIndex.backfillOwned(FirebaseFirestore.getInstance(), currentUserId,
+                () -> Preferences.setSearchIndexBackfilled(appContext, currentUserId));
+    }
+
     /**
      * Setup real-time unread message counter
      */
@@ -15,7 +15,9 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.DialogFragment;
 import com.example.project_ez_talk.R;  // ✅ This is the correct R
 import com.example.project_ez_talk.model.FriendRequest;
+import com.example.project_ez_talk.utils.SearchIndex;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 public class AddFriendDialog extends DialogFragment {
     private static final String TAG = "AddFriendDialog";
@@ -132,26 +134,24 @@ public class AddFriendDialog extends DialogFragment {
     private void searchByName(String currentUserId, String nameQuery) {
         Log.d(TAG, "searchByName: Searching for " + nameQuery);
 
-        db.collection("users")
+        // Prefix match on the search index; two results so skipping yourself still finds one
+        SearchIndex.prefixQuery(db.collection("users"), nameQuery, 2)
                 .get()
                 .addOnSuccessListener(querySnapshot -> {
                     Log.d(TAG, "searchByName: Retrieved " + querySnapshot.size() + " users");
 
-                    // Manual client-side filtering for case-insensitive search
                     for (var doc : querySnapshot.getDocuments()) {
-                        String docName = doc.getString("name");
-                        if (docName != null && docName.toLowerCase().contains(nameQuery)) {
-                                String recipientId = doc.getId();
-                            String recipientName = docName;
-                            String recipientEmail = doc.getString("email");
-
-                            Log.d(TAG, "searchByName: Found user: " + recipientName + " with email: " + recipientEmail);
-                            sendFriendRequest(currentUserId, recipientId, recipientName, recipientEmail);
-                            return;
-                        }
+                        if (doc.getId().equals(currentUserId)) continue;
+                        String recipientId = doc.getId();
+                        String recipientName = doc.getString("name");
+                        String recipientEmail = doc.getString("email");
+
+                        Log.d(TAG, "searchByName: Found user: " + recipientName + " with email: " + recipientEmail);
+                        sendFriendRequest(currentUserId, recipientId, recipientName, recipientEmail);
+                        return;
                     }
 
-                    Log.d(TAG, "searchByName: No user found with name containing " + nameQuery);
+                    Log.d(TAG, "searchByName: No user found with name starting with " + nameQuery);
                     resetButton();
                     showToast("User not found");
                 })
@@ -169,44 +169,34 @@ public class AddFriendDialog extends DialogFragment {
         String emailLower = email.toLowerCase().trim();
 
         db.collection("users")
+                .whereEqualTo(SearchIndex.FIELD_EMAIL, SearchIndex.normalize(emailLower))
+                .limit(1)
                 .get()
                 .addOnSuccessListener(querySnapshot -> {
-                    Log.d(TAG, "searchByEmail: Retrieved " + querySnapshot.size() + " users total");
-
-                    boolean found = false;
-                    int count = 0;
-
-                    // Manual client-side search for case-insensitive matching
-                    for (var doc : querySnapshot.getDocuments()) {
-                        count++;
-                        String docId = doc.getId();
-                        String docEmail = doc.getString("email");
-                        String docName = doc.getString("name");
-
-                        Log.d(TAG, "searchByEmail: User #" + count + " - ID: " + docId + ", Name: " + docName + ", Email: " + docEmail);
-
-                        if (docEmail != null) {
-                            String docEmailLower = docEmail.toLowerCase().trim();
-                            Log.d(TAG, "searchByEmail: Comparing '" + emailLower + "' (length: " + emailLower.length() + ") with '" + docEmailLower + "' (length: " + docEmailLower.length() + ")");
-
-                            if (docEmailLower.equals(emailLower)) {
-                                Log.d(TAG, "searchByEmail: ✓ MATCH FOUND! User: " + docName);
-                                sendFriendRequest(currentUserId, docId, docName, docEmail);
-                                found = true;
-                                break;
-                            } else {
-                                Log.d(TAG, "searchByEmail: ✗ No match");
-                            }
-                        } else {
-                            Log.d(TAG, "searchByEmail: Email field is NULL for user: " + docName);
-                        }
+                    if (!querySnapshot.isEmpty()) {
+                        onEmailMatch(currentUserId, querySnapshot.getDocuments().get(0));
+                        return;
                     }
 
-                    if (!found) {
-                        Log.d(TAG, "searchByEmail: No match found after checking " + count + " users for email: " + emailLower);
-                        resetButton();
-                        showToast("User not found");
-                    }
+                    // Profiles not yet indexed: exact match on the stored email
+                    db.collection("users")
+                            .whereEqualTo("email", emailLower)
+                            .limit(1)
+                            .get()
+                            .addOnSuccessListener(legacySnapshot -> {
+                                if (!legacySnapshot.isEmpty()) {
+                                    onEmailMatch(currentUserId, legacySnapshot.getDocuments().get(0));
+                                } else {
+                                    Log.d(TAG, "searchByEmail: No match found for email: " + emailLower);
+                                    resetButton();
+                                    showToast("User not found");
+                                }
+                            })
+                            .addOnFailureListener(e -> {
+                                Log.e(TAG, "searchByEmail: Failed", e);
+                                resetButton();
+                                showToast("Error searching by email: " + e.getMessage());
+                            });
                 })
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "searchByEmail: Failed", e);
@@ -215,6 +205,12 @@ public class AddFriendDialog extends DialogFragment {
                 });
     }
 
+    private void onEmailMatch(String currentUserId, DocumentSnapshot doc) {
+        String docName = doc.getString("name");
+        Log.d(TAG, "searchByEmail: ✓ MATCH FOUND! User: " + docName);
+        sendFriendRequest(currentUserId, doc.getId(), docName, doc.getString("email"));
+    }
+
     private void sendFriendRequest(String senderId, String recipientId, String recipientName, String recipientEmail) {
         Log.d(TAG, "sendFriendRequest: Started");
 
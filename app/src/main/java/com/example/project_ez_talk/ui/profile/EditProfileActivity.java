@@ -18,8 +18,10 @@ import androidx.cardview.widget.CardView;
 import com.bumptech.glide.Glide;
 import com.example.project_ez_talk.R;
 import com.example.project_ez_talk.helper.SupabaseStorageManager;
+import com.example.project_ez_talk.repository.UserProfileCache;
 import com.example.project_ez_talk.ui.BaseActivity;
 import com.example.project_ez_talk.utils.Preferences;
+import com.example.project_ez_talk.utils.SearchIndex;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
@@ -286,6 +288,7 @@ public class EditProfileActivity extends BaseActivity {
             userData.put("profilePicture", imageUrl);
         }
         userData.put("updatedAt", System.currentTimeMillis());
+        SearchIndex.putUserFields(userData, fullName, username, email);
 
         Log.d(TAG, "💾 Saving profile to Firestore...");
         Log.d(TAG, "📝 Username: " + username);  // ✅ ADDED: Debug log
@@ -296,6 +299,8 @@ public class EditProfileActivity extends BaseActivity {
                 .update(userData)
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "✅ Profile saved to Firestore!");
+                    // Screens reading the shared cache pick up the new name/photo on their next load
+                    UserProfileCache.getInstance(this).invalidate(userId);
 
                     // Also update Firebase Auth display name
                     UserProfileChangeRequest.Builder profileBuilder = new UserProfileChangeRequest.Builder()
@@ -17,7 +17,10 @@ import androidx.cardview.widget.CardView;
 
 import com.bumptech.glide.Glide;
 import com.example.project_ez_talk.R;
+import com.example.project_ez_talk.helper.OutboxManager;
 import com.example.project_ez_talk.helper.SupabaseStorageManager;
+import com.example.project_ez_talk.repository.MessageStore;
+import com.example.project_ez_talk.repository.UserProfileCache;
 import com.example.project_ez_talk.ui.BaseActivity;
 import com.example.project_ez_talk.ui.auth.login.LoginActivity;
 import com.example.project_ez_talk.utils.Preferences;
@@ -338,6 +341,12 @@ public class ProfileActivity extends BaseActivity {
         // Clear preferences
         Preferences.clearAll(this);
 
+        // Drop cached conversations, profiles and unsent attachments of the previous account
+        MessageStore messageStore = MessageStore.getInstance(this);
+        messageStore.getExecutor().execute(messageStore::clearAll);
+        UserProfileCache.getInstance(this).clearAll();
+        OutboxManager.clearAll(this);
+
         Toast.makeText(this, "Logged out successfully", Toast.LENGTH_SHORT).show();
 
         // Navigate to login
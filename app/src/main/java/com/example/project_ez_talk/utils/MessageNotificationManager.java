@@ -2,13 +2,15 @@ package com.example.project_ez_talk.utils;
 
 import android.util.Log;
 
+import com.example.project_ez_talk.helper.HttpClientProvider;
 import com.google.firebase.firestore.FirebaseFirestore;
 
 import org.json.JSONObject;
 
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
 
 /**
  * Send notifications to other users via Cloud Functions
@@ -27,6 +29,7 @@ public class MessageNotificationManager {
     
     // For future backend implementation:
     private static final String BACKEND_URL = "https://your-project-name-production.up.railway.app";
+    private static final MediaType JSON = MediaType.parse("application/json");
 
     /**
      * Send notification when message is sent to a user
@@ -215,21 +218,13 @@ public class MessageNotificationManager {
             String senderId,
             String senderAvatar) {
 
-        // Run in background thread
-        new Thread(() -> {
+        // Run on the shared transfer executor, over the shared connection pool
+        HttpClientProvider.execute(HttpClientProvider.PRIORITY_NORMAL, () -> {
             try {
                 String endpoint = BACKEND_URL + "/send-notification";
 
                 Log.d(TAG, "🔗 Calling: " + endpoint);
 
-                URL url = new URL(endpoint);
-                HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod("POST");
-                conn.setRequestProperty("Content-Type", "application/json");
-                conn.setDoOutput(true);
-                conn.setConnectTimeout(10000);
-                conn.setReadTimeout(10000);
-
                 // Truncate body if too long
                 String truncatedBody = body.length() > 100
                         ? body.substring(0, 100) + "..."
@@ -248,27 +243,26 @@ public class MessageNotificationManager {
 
                 Log.d(TAG, "📤 Sending payload...");
 
+                Request request = new Request.Builder()
+                        .url(endpoint)
+                        .post(RequestBody.create(payload.toString(), JSON))
+                        .build();
+
                 // Send request
-                OutputStream os = conn.getOutputStream();
-                os.write(payload.toString().getBytes("UTF-8"));
-                os.close();
-
-                // Get response
-                int responseCode = conn.getResponseCode();
-                Log.d(TAG, "📡 Response code: " + responseCode);
-
-                if (responseCode == HttpURLConnection.HTTP_OK || responseCode == 200) {
-                    Log.d(TAG, "✅ Notification sent successfully!");
-                } else {
-                    Log.e(TAG, "❌ Server error: " + responseCode);
-                }
+                try (Response response = HttpClientProvider.getClient().newCall(request).execute()) {
+                    Log.d(TAG, "📡 Response code: " + response.code());
 
-                conn.disconnect();
+                    if (response.isSuccessful()) {
+                        Log.d(TAG, "✅ Notification sent successfully!");
+                    } else {
+                        Log.e(TAG, "❌ Server error: " + response.code());
+                    }
+                }
 
             } catch (Exception e) {
                 Log.e(TAG, "❌ Error: " + e.getMessage());
                 e.printStackTrace();
             }
-        }).start();
+        });
     }
 }
\ No newline at end of file
@@ -17,6 +17,9 @@ public class Preferences {
     private static final String KEY_USER_PASSWORD = "user_password";
     private static final String KEY_TEMP_PASSWORD = "temp_password"; // For email verification flow
     private static final String KEY_DARK_MODE = "dark_mode"; // Theme preference
+    private static final String KEY_FRIEND_INDEX_BACKFILLED = "friend_index_backfilled_"; // + user ID
+    private static final String KEY_CALL_LOG_INDEX_BACKFILLED = "call_log_index_backfilled_"; // + user ID
+    private static final String KEY_SEARCH_INDEX_BACKFILLED = "search_index_backfilled_"; // + user ID
 
     private static SharedPreferences getPrefs(Context context) {
         return context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
@@ -126,4 +129,31 @@ public class Preferences {
     public static void setDarkMode(Context context, boolean isDarkMode) {
         getPrefs(context).edit().putBoolean(KEY_DARK_MODE, isDarkMode).apply();
     }
-}
\ No newline at end of file
+
+    // Friend index migrated from accepted friendRequests (per account)
+    public static boolean isFriendIndexBackfilled(Context context, String userId) {
+        return getPrefs(context).getBoolean(KEY_FRIEND_INDEX_BACKFILLED + userId, false);
+    }
+
+    public static void setFriendIndexBackfilled(Context context, String userId) {
+        getPrefs(context).edit().putBoolean(KEY_FRIEND_INDEX_BACKFILLED + userId, true).apply();
+    }
+
+    // Call history migrated from call_logs into userCallLogs (per account)
+    public static boolean isCallLogIndexBackfilled(Context context, String userId) {
+        return getPrefs(context).getBoolean(KEY_CALL_LOG_INDEX_BACKFILLED + userId, false);
+    }
+
+    public static void setCallLogIndexBackfilled(Context context, String userId) {
+        getPrefs(context).edit().putBoolean(KEY_CALL_LOG_INDEX_BACKFILLED + userId, true).apply();
+    }
+
+    // Own profile, groups and channels given search fields (per account)
+    public static boolean isSearchIndexBackfilled(Context context, String userId) {
+        return getPrefs(context).getBoolean(KEY_SEARCH_INDEX_BACKFILLED + userId, false);
+    }
+
+    public static void setSearchIndexBackfilled(Context context, String userId) {
+        getPrefs(context).edit().putBoolean(KEY_SEARCH_INDEX_BACKFILLED + userId, true).apply();
+    }
+}
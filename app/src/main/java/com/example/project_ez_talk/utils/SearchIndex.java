@@ -0,0 +1,154 @@
+package com.example.project_ez_talk.utils;
+
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SearchIndex - Prefix search fields stored on users, groups and channels
+ * Written next to the name whenever one of those documents is created or renamed:
+ * <pre>
+ * searchName      normalized full name ("jose garcia" for "José García")
+ * searchKeywords  every prefix (1..MAX_PREFIX_LENGTH chars) of the full name and of each word,
+ *                 username and email local part
+ * searchEmail     normalized email, users only
+ * </pre>
+ * A search is then one indexed query capped at a page of results: array-contains on
+ * searchKeywords, a startAt/endAt range on searchName for longer input, or a range on
+ * searchEmail when the input looks like an email address.
+ */
+public final class SearchIndex {
+
+    private static final String TAG = "SearchIndex";
+
+    public static final String FIELD_NAME = "searchName";
+    public static final String FIELD_KEYWORDS = "searchKeywords";
+    public static final String FIELD_EMAIL = "searchEmail";
+
+    // Longer queries use the searchName range scan instead
+    static final int MAX_PREFIX_LENGTH = 15;
+
+    private SearchIndex() {
+    }
+
+    /**
+     * Lowercase, accents stripped, whitespace collapsed
+     */
+    public static String normalize(String value) {
+        if (value == null) return "";
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "");
+        return decomposed.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Put the index fields for a user profile into {@code data}
+     */
+    public static void putUserFields(Map<String, Object> data, String name, String username, String email) {
+        String emailLocal = email != null && email.contains("@") ? email.substring(0, email.indexOf('@')) : email;
+        data.put(FIELD_NAME, normalize(name));
+        data.put(FIELD_KEYWORDS, keywords(name, username, emailLocal));
+        if (email != null) data.put(FIELD_EMAIL, normalize(email));
+    }
+
+    /**
+     * Put the index fields for a group or channel into {@code data}
+     */
+    public static void putNameFields(Map<String, Object> data, String name) {
+        data.put(FIELD_NAME, normalize(name));
+        data.put(FIELD_KEYWORDS, keywords(name));
+    }
+
+    static List<String> keywords(String... values) {
+        Set<String> keywords = new LinkedHashSet<>();
+        for (String value : values) {
+            String normalized = normalize(value);
+            if (normalized.isEmpty()) continue;
+            addPrefixes(keywords, normalized);
+            for (String word : normalized.split("[^\\p{L}\\p{N}]+")) {
+                addPrefixes(keywords, word);
+            }
+        }
+        return new ArrayList<>(keywords);
+    }
+
+    private static void addPrefixes(Set<String> keywords, String token) {
+        int max = Math.min(token.length(), MAX_PREFIX_LENGTH);
+        for (int i = 1; i <= max; i++) {
+            keywords.add(token.substring(0, i));
+        }
+    }
+
+    /**
+     * One-time migration for documents written before the index existed: the user's own
+     * profile plus the groups and channels they own (others are indexed by their owners)
+     */
+    public static void backfillOwned(FirebaseFirestore db, String userId, Runnable onDone) {
+        Task<DocumentSnapshot> profile = db.collection("users").document(userId).get();
+        Task<QuerySnapshot> groups = db.collection("groups").whereEqualTo("ownerId", userId).get();
+        Task<QuerySnapshot> channels = db.collection("channels").whereEqualTo("ownerId", userId).get();
+
+        Tasks.whenAllSuccess(profile, groups, channels).addOnSuccessListener(results -> {
+            WriteBatch batch = db.batch();
+            DocumentSnapshot user = profile.getResult();
+            if (user.exists()) {
+                Map<String, Object> fields = new HashMap<>();
+                putUserFields(fields, user.getString("name"), user.getString("username"), user.getString("email"));
+                batch.update(user.getReference(), fields);
+            }
+            List<DocumentSnapshot> owned = new ArrayList<>(groups.getResult().getDocuments());
+            owned.addAll(channels.getResult().getDocuments());
+            for (DocumentSnapshot doc : owned) {
+                Map<String, Object> fields = new HashMap<>();
+                putNameFields(fields, doc.getString("name"));
+                batch.update(doc.getReference(), fields);
+            }
+            batch.commit()
+                    .addOnSuccessListener(aVoid -> {
+                        Log.d(TAG, "✅ Indexed profile and " + owned.size() + " owned groups/channels");
+                        onDone.run();
+                    })
+                    .addOnFailureListener(e -> Log.e(TAG, "❌ Search index backfill failed: " + e.getMessage()));
+        }).addOnFailureListener(e -> Log.e(TAG, "❌ Search index backfill failed: " + e.getMessage()));
+    }
+
+    /**
+     * Documents whose name, or a word in it, starts with {@code rawQuery}; at most {@code limit}
+     */
+    public static Query prefixQuery(Query base, String rawQuery, int limit) {
+        String query = normalize(rawQuery);
+        if (query.length() <= MAX_PREFIX_LENGTH) {
+            return base.whereArrayContains(FIELD_KEYWORDS, query).limit(limit);
+        }
+        return base.orderBy(FIELD_NAME)
+                .startAt(query)
+                .endAt(query + "\uf8ff")
+                .limit(limit);
+    }
+
+    /**
+     * Users whose email starts with {@code rawQuery} (input containing '@'); at most {@code limit}
+     */
+    public static Query emailQuery(Query base, String rawQuery, int limit) {
+        String query = normalize(rawQuery);
+        return base.orderBy(FIELD_EMAIL)
+                .startAt(query)
+                .endAt(query + "\uf8ff")
+                .limit(limit);
+    }
+}
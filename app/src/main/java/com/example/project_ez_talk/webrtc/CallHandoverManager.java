@@ -0,0 +1,192 @@
+package com.example.project_ez_talk.webrtc;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import org.webrtc.PeerConnection;
+
+/**
+ * ✅ Keeps a connected call alive across network changes
+ * Watches the default network while a call is up. When it changes (Wi-Fi → cellular) the
+ * ICE session is restarted right away through the normal offer/answer signaling; when the
+ * peer connection drops for any other reason it is restarted after a short grace period,
+ * and retried, instead of ending the call. Media tracks and the peer connection stay as
+ * they are, so the call resumes on the new path as soon as ICE reconnects.
+ *
+ * Only one side restarts on a plain disconnect ({@link Host#isRestartInitiator()}), so both
+ * peers don't send crossing offers; the side whose own network changed always does.
+ * Each interruption is timed and reported; one that lasts {@link #RECOVERY_TIMEOUT_MS}
+ * ends the call. All state changes run on the main thread.
+ */
+public class CallHandoverManager {
+
+    private static final String TAG = "CallHandoverManager";
+
+    // A blip this short often recovers without a restart
+    static final long DISCONNECT_GRACE_MS = 2000;
+    static final long RESTART_RETRY_MS = 5000;
+    static final long RECOVERY_TIMEOUT_MS = 20_000;
+
+    public interface Host {
+        /** Whether this side restarts ICE when the connection drops on its own */
+        boolean isRestartInitiator();
+
+        void restartIce();
+
+        void onInterruptionStarted();
+
+        void onInterruptionEnded(long durationMs);
+
+        /** Not reconnected within {@link #RECOVERY_TIMEOUT_MS}: give up on the call */
+        void onHandoverFailed();
+    }
+
+    private final Host host;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private ConnectivityManager connectivityManager;
+    private ConnectivityManager.NetworkCallback networkCallback;
+    private Network currentNetwork;
+    private boolean active = false;
+    private long interruptedAt = 0;  // elapsedRealtime, 0 = connected
+    private PeerConnection.PeerConnectionState lastState = PeerConnection.PeerConnectionState.CONNECTED;
+
+    private final Runnable restartRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (!active || interruptedAt == 0) return;
+            Log.d(TAG, "🔄 Restarting ICE");
+            host.restartIce();
+            handler.postDelayed(this, RESTART_RETRY_MS);
+        }
+    };
+
+    private final Runnable timeoutRunnable = () -> {
+        if (!active || interruptedAt == 0) return;
+        Log.e(TAG, "❌ No path back after " + RECOVERY_TIMEOUT_MS + "ms, ending call");
+        stop();
+        host.onHandoverFailed();
+    };
+
+    public CallHandoverManager(Host host) {
+        this.host = host;
+    }
+
+    /**
+     * Start watching the network (call connected)
+     */
+    public void start(Context context) {
+        handler.post(() -> {
+            if (active) return;
+            active = true;
+            connectivityManager = (ConnectivityManager) context.getApplicationContext()
+                    .getSystemService(Context.CONNECTIVITY_SERVICE);
+            if (connectivityManager == null) return;
+
+            currentNetwork = connectivityManager.getActiveNetwork();
+            networkCallback = new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(@NonNull Network network) {
+                    handler.post(() -> onDefaultNetwork(network));
+                }
+            };
+            try {
+                connectivityManager.registerDefaultNetworkCallback(networkCallback);
+            } catch (RuntimeException e) {
+                // Too many callbacks registered: ICE-state driven restarts still work
+                Log.w(TAG, "⚠️ Cannot watch network changes: " + e.getMessage());
+                networkCallback = null;
+            }
+        });
+    }
+
+    public void stop() {
+        handler.post(() -> {
+            active = false;
+            interruptedAt = 0;
+            lastState = PeerConnection.PeerConnectionState.CONNECTED;
+            handler.removeCallbacks(restartRunnable);
+            handler.removeCallbacks(timeoutRunnable);
+            if (connectivityManager != null && networkCallback != null) {
+                try {
+                    connectivityManager.unregisterNetworkCallback(networkCallback);
+                } catch (IllegalArgumentException ignored) {
+                    // Already unregistered
+                }
+            }
+            networkCallback = null;
+            currentNetwork = null;
+        });
+    }
+
+    /**
+     * Feed peer connection state changes (any thread)
+     */
+    public void onConnectionStateChanged(PeerConnection.PeerConnectionState state) {
+        handler.post(() -> {
+            if (!active) return;
+            lastState = state;
+            switch (state) {
+                case CONNECTED:
+                    endInterruption();
+                    break;
+                case DISCONNECTED:
+                case FAILED:
+                    if (interruptedAt == 0) {
+                        beginInterruption();
+                        // FAILED never recovers by itself; DISCONNECTED might
+                        long delay = state == PeerConnection.PeerConnectionState.FAILED ? 0 : DISCONNECT_GRACE_MS;
+                        // The other side restarts first; step in only if it doesn't
+                        if (!host.isRestartInitiator()) delay += RESTART_RETRY_MS;
+                        handler.postDelayed(restartRunnable, delay);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        });
+    }
+
+    private void onDefaultNetwork(Network network) {
+        if (!active) return;
+        if (network.equals(currentNetwork)) return;
+        Network previous = currentNetwork;
+        currentNetwork = network;
+        if (previous == null && interruptedAt == 0) return;  // first report, nothing changed
+
+        Log.d(TAG, "📶 Default network changed mid-call");
+        handler.removeCallbacks(restartRunnable);
+        if (lastState == PeerConnection.PeerConnectionState.CONNECTED && interruptedAt == 0) {
+            // Old path still up (e.g. back on Wi-Fi): move over without an interruption
+            host.restartIce();
+            return;
+        }
+        // Our address changed: our side has to restart, right away
+        beginInterruption();
+        handler.post(restartRunnable);
+    }
+
+    private void beginInterruption() {
+        if (interruptedAt != 0) return;
+        interruptedAt = SystemClock.elapsedRealtime();
+        handler.postDelayed(timeoutRunnable, RECOVERY_TIMEOUT_MS);
+        host.onInterruptionStarted();
+    }
+
+    private void endInterruption() {
+        if (interruptedAt == 0) return;
+        long duration = SystemClock.elapsedRealtime() - interruptedAt;
+        interruptedAt = 0;
+        handler.removeCallbacks(restartRunnable);
+        handler.removeCallbacks(timeoutRunnable);
+        Log.d(TAG, "✅ Call recovered after " + duration + "ms");
+        host.onInterruptionEnded(duration);
+    }
+}
@@ -0,0 +1,336 @@
+package com.example.project_ez_talk.webrtc;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import org.webrtc.PeerConnection;
+import org.webrtc.RTCStats;
+import org.webrtc.RTCStatsReport;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * ✅ Periodic call quality sampler
+ * Polls {@link PeerConnection#getStats} every {@link #INTERVAL_MS} while a call is up and
+ * reduces each RTCStats report to one compact {@link Sample}: RTT, jitter, loss, in/out
+ * bitrate, frame rate and the route of the selected ICE candidate pair. Samples feed
+ * live listeners (call screens) and a bounded time series, which {@link #summarize()}
+ * condenses into the per-call record stored next to the call log.
+ * All callbacks arrive on the main thread.
+ */
+public class CallStatsCollector {
+
+    private static final String TAG = "CallStatsCollector";
+
+    static final long INTERVAL_MS = 2000;
+    // 30 minutes of samples; older ones are folded into the running totals only
+    private static final int MAX_SAMPLES = 900;
+
+    /**
+     * One polling interval
+     */
+    public static class Sample {
+        public long timestamp;
+        public double rttMs = -1;
+        public double jitterMs = -1;
+        public double lossPercent;      // inbound, over this interval
+        public double outLossPercent = -1; // outbound video, as reported back by the peer
+        public double inKbps;
+        public double outKbps;
+        public double availableOutKbps = -1;
+        public double fps = -1;         // inbound video, -1 for audio-only calls
+        public String route;            // "host", "srflx", "prflx" or "relay" (local side)
+        public String protocol;         // "udp" / "tcp"
+
+        /**
+         * Short label for the call screen, e.g. "82 ms · 1.2% loss · 640 kbps"
+         */
+        public String describe() {
+            StringBuilder sb = new StringBuilder();
+            if (rttMs >= 0) sb.append(Math.round(rttMs)).append(" ms · ");
+            sb.append(String.format(Locale.US, "%.1f%% loss · ", lossPercent));
+            sb.append(Math.round(inKbps)).append(" kbps");
+            if ("relay".equals(route)) sb.append(" · relayed");
+            return sb.toString();
+        }
+    }
+
+    public interface Listener {
+        void onSample(Sample sample);
+    }
+
+    private final PeerConnection peerConnection;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ArrayDeque<Sample> samples = new ArrayDeque<>();
+
+    // Previous cumulative counters, for per-interval deltas
+    private long lastTimestampUs;
+    private double lastBytesReceived = -1;
+    private double lastBytesSent = -1;
+    private double lastPacketsReceived = -1;
+    private double lastPacketsLost = -1;
+
+    // Running totals over the whole call
+    private int sampleCount;
+    private double rttSum;
+    private int rttCount;
+    private double rttMax;
+    private double jitterSum;
+    private int jitterCount;
+    private double inKbpsSum;
+    private double outKbpsSum;
+    private double fpsSum;
+    private int fpsCount;
+    private double totalPacketsReceived;
+    private double totalPacketsLost;
+    private boolean everRelayed;
+    private String lastRoute;
+    private long startedAt;
+    private int interruptions;
+    private long interruptedMs;
+    private long maxInterruptionMs;
+
+    private volatile boolean running = false;
+
+    private final Runnable poll = new Runnable() {
+        @Override
+        public void run() {
+            if (!running) return;
+            try {
+                peerConnection.getStats(report -> handler.post(() -> onReport(report)));
+            } catch (IllegalStateException e) {
+                // Peer connection disposed under us
+                stop();
+                return;
+            }
+            handler.postDelayed(this, INTERVAL_MS);
+        }
+    };
+
+    public CallStatsCollector(PeerConnection peerConnection) {
+        this.peerConnection = peerConnection;
+    }
+
+    public void start() {
+        if (running) return;
+        running = true;
+        startedAt = System.currentTimeMillis();
+        handler.post(poll);
+        Log.d(TAG, "📊 Collecting call stats");
+    }
+
+    public void stop() {
+        running = false;
+        handler.removeCallbacks(poll);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Recent samples, oldest first
+     */
+    public List<Sample> getSamples() {
+        return new ArrayList<>(samples);
+    }
+
+    /**
+     * A network interruption that the call survived (see CallHandoverManager)
+     */
+    public synchronized void recordInterruption(long durationMs) {
+        interruptions++;
+        interruptedMs += durationMs;
+        maxInterruptionMs = Math.max(maxInterruptionMs, durationMs);
+    }
+
+    // ==================== PARSING ====================
+
+    private void onReport(RTCStatsReport report) {
+        if (!running) return;
+        Map<String, RTCStats> stats = report.getStatsMap();
+
+        Sample sample = new Sample();
+        sample.timestamp = System.currentTimeMillis();
+
+        double bytesReceived = 0;
+        double bytesSent = 0;
+        double packetsReceived = 0;
+        double packetsLost = 0;
+        String selectedPairId = null;
+
+        for (RTCStats stat : stats.values()) {
+            Map<String, Object> m = stat.getMembers();
+            switch (stat.getType()) {
+                case "transport":
+                    if (m.get("selectedCandidatePairId") instanceof String) {
+                        selectedPairId = (String) m.get("selectedCandidatePairId");
+                    }
+                    break;
+                case "inbound-rtp": {
+                    bytesReceived += number(m.get("bytesReceived"), 0);
+                    packetsReceived += number(m.get("packetsReceived"), 0);
+                    packetsLost += number(m.get("packetsLost"), 0);
+                    String kind = kindOf(m);
+                    double jitter = number(m.get("jitter"), -1);
+                    if ("audio".equals(kind) && jitter >= 0) {
+                        sample.jitterMs = jitter * 1000;
+                    }
+                    if ("video".equals(kind)) {
+                        sample.fps = number(m.get("framesPerSecond"), sample.fps);
+                    }
+                    break;
+                }
+                case "outbound-rtp":
+                    bytesSent += number(m.get("bytesSent"), 0);
+                    break;
+                case "remote-inbound-rtp":
+                    if ("video".equals(kindOf(m))) {
+                        double fractionLost = number(m.get("fractionLost"), -1);
+                        if (fractionLost >= 0) sample.outLossPercent = fractionLost * 100;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        // The selected pair: via the transport, else the nominated succeeded pair
+        RTCStats pair = selectedPairId != null ? stats.get(selectedPairId) : null;
+        if (pair == null) {
+            for (RTCStats stat : stats.values()) {
+                if ("candidate-pair".equals(stat.getType())
+                        && Boolean.TRUE.equals(stat.getMembers().get("nominated"))
+                        && "succeeded".equals(stat.getMembers().get("state"))) {
+                    pair = stat;
+                    break;
+                }
+            }
+        }
+        if (pair != null) {
+            Map<String, Object> m = pair.getMembers();
+            double rtt = number(m.get("currentRoundTripTime"), -1);
+            if (rtt >= 0) sample.rttMs = rtt * 1000;
+            double available = number(m.get("availableOutgoingBitrate"), -1);
+            if (available >= 0) sample.availableOutKbps = available / 1000;
+            RTCStats local = stats.get(String.valueOf(m.get("localCandidateId")));
+            if (local != null) {
+                Object type = local.getMembers().get("candidateType");
+                Object protocol = local.getMembers().get("protocol");
+                sample.route = type != null ? type.toString() : null;
+                sample.protocol = protocol != null ? protocol.toString() : null;
+            }
+        }
+
+        long timestampUs = (long) report.getTimestampUs();
+        if (lastTimestampUs > 0 && timestampUs > lastTimestampUs) {
+            double seconds = (timestampUs - lastTimestampUs) / 1_000_000.0;
+            sample.inKbps = Math.max(0, bytesReceived - lastBytesReceived) * 8 / 1000 / seconds;
+            sample.outKbps = Math.max(0, bytesSent - lastBytesSent) * 8 / 1000 / seconds;
+            double received = Math.max(0, packetsReceived - lastPacketsReceived);
+            double lost = Math.max(0, packetsLost - lastPacketsLost);
+            sample.lossPercent = received + lost > 0 ? lost * 100 / (received + lost) : 0;
+        }
+        boolean first = lastTimestampUs == 0;
+        lastTimestampUs = timestampUs;
+        lastBytesReceived = bytesReceived;
+        lastBytesSent = bytesSent;
+        lastPacketsReceived = packetsReceived;
+        lastPacketsLost = packetsLost;
+        totalPacketsReceived = packetsReceived;
+        totalPacketsLost = packetsLost;
+
+        // The first report only seeds the counters
+        if (first) return;
+
+        record(sample);
+        for (Listener listener : listeners) {
+            listener.onSample(sample);
+        }
+    }
+
+    private void record(Sample sample) {
+        samples.addLast(sample);
+        if (samples.size() > MAX_SAMPLES) samples.removeFirst();
+
+        sampleCount++;
+        if (sample.rttMs >= 0) {
+            rttSum += sample.rttMs;
+            rttCount++;
+            rttMax = Math.max(rttMax, sample.rttMs);
+        }
+        if (sample.jitterMs >= 0) {
+            jitterSum += sample.jitterMs;
+            jitterCount++;
+        }
+        if (sample.fps >= 0) {
+            fpsSum += sample.fps;
+            fpsCount++;
+        }
+        inKbpsSum += sample.inKbps;
+        outKbpsSum += sample.outKbps;
+        if ("relay".equals(sample.route)) everRelayed = true;
+        if (sample.route != null) lastRoute = sample.route;
+    }
+
+    private static String kindOf(Map<String, Object> members) {
+        Object kind = members.get("kind");
+        if (kind == null) kind = members.get("mediaType");
+        return kind != null ? kind.toString() : null;
+    }
+
+    private static double number(Object value, double fallback) {
+        return value instanceof Number ? ((Number) value).doubleValue() : fallback;
+    }
+
+    // ==================== SUMMARY ====================
+
+    /**
+     * Whole-call aggregates, shaped for the Realtime Database (rounded, no nulls)
+     */
+    public Map<String, Object> summarize() {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("samples", sampleCount);
+        summary.put("collectedSeconds", startedAt > 0 ? (System.currentTimeMillis() - startedAt) / 1000 : 0);
+        if (rttCount > 0) {
+            summary.put("avgRttMs", Math.round(rttSum / rttCount));
+            summary.put("maxRttMs", Math.round(rttMax));
+        }
+        if (jitterCount > 0) {
+            summary.put("avgJitterMs", Math.round(jitterSum / jitterCount));
+        }
+        double packets = totalPacketsReceived + totalPacketsLost;
+        summary.put("lossPercent", packets > 0 ? Math.round(totalPacketsLost * 1000 / packets) / 10.0 : 0);
+        if (sampleCount > 0) {
+            summary.put("avgInKbps", Math.round(inKbpsSum / sampleCount));
+            summary.put("avgOutKbps", Math.round(outKbpsSum / sampleCount));
+        }
+        if (fpsCount > 0) {
+            summary.put("avgFps", Math.round(fpsSum / fpsCount));
+        }
+        if (lastRoute != null) summary.put("route", lastRoute);
+        summary.put("relayed", everRelayed);
+        synchronized (this) {
+            summary.put("interruptions", interruptions);
+            summary.put("interruptedMs", interruptedMs);
+            summary.put("maxInterruptionMs", maxInterruptionMs);
+        }
+        return summary;
+    }
+}
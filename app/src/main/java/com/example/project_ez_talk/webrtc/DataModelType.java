@@ -1,5 +1,5 @@
 package com.example.project_ez_talk.webrtc;
 
 public enum DataModelType {
-    Offer, Answer, IceCandidate, StartCall
+    Offer, Answer, IceCandidate, IceCandidates, StartCall
 }
@@ -12,22 +12,56 @@ import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 import com.google.gson.Gson;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 public class FirebaseClient {
 
     private final Gson gson = new Gson();
     private final DatabaseReference dbRef;
+    private final SignalingQueue queue;
     private String currentUsername;
-    private static final String LATEST_EVENT_FIELD_NAME = "latest_event";
+    // Marks the user as reachable; the user node also holds their signaling queue
+    private static final String REGISTERED_FIELD_NAME = "registered";
     private static final String DATABASE_URL = "https://project-ez-talk-dccea-default-rtdb.europe-west1.firebasedatabase.app";
 
+    // Recipients confirmed registered during the current call, and sends waiting on a lookup
+    private final Object lookupLock = new Object();
+    private final Set<String> reachableUsers = new HashSet<>();
+    private final Map<String, List<PendingSend>> pendingLookups = new HashMap<>();
+
+    private static class PendingSend {
+        final String sender;
+        final String json;
+        final ErrorCallBack errorCallBack;
+
+        PendingSend(String sender, String json, ErrorCallBack errorCallBack) {
+            this.sender = sender;
+            this.json = json;
+            this.errorCallBack = errorCallBack;
+        }
+    }
+
     public FirebaseClient() {
-        dbRef = FirebaseDatabase.getInstance(DATABASE_URL).getReference();
+        this(FirebaseDatabase.getInstance(DATABASE_URL));
+    }
+
+    /**
+     * Client over {@code database}, e.g. one pointed at the local emulator
+     */
+    public FirebaseClient(FirebaseDatabase database) {
+        dbRef = database.getReference();
+        queue = new SignalingQueue(dbRef);
     }
 
     public void login(String username, SuccessCallBack callBack){
-        dbRef.child(username).setValue("").addOnCompleteListener(task -> {
+        // ✅ Don't overwrite the user node: events queued while offline live under it
+        dbRef.child(username).child(REGISTERED_FIELD_NAME).setValue(true).addOnCompleteListener(task -> {
             currentUsername = username;
             callBack.onSuccess();
         });
@@ -40,67 +74,89 @@ public class FirebaseClient {
             errorCallBack.onError();
             return;
         }
-        
-        // ✅ Store target in a final variable to avoid null issues in callback
+
         final String targetUser = dataModel.getTarget();
-        
-        dbRef.addListenerForSingleValueEvent(new ValueEventListener() {
+        final String json = gson.toJson(dataModel);
+
+        synchronized (lookupLock) {
+            if (reachableUsers.contains(targetUser)) {
+                // ✅ Appended to the other user's queue: bursts of ICE candidates all arrive
+                queue.send(targetUser, dataModel.getSender(), json, errorCallBack::onError);
+                return;
+            }
+
+            // Park behind the lookup already in flight, if any, to keep send order
+            List<PendingSend> waiting = pendingLookups.get(targetUser);
+            boolean lookupInFlight = waiting != null;
+            if (!lookupInFlight) {
+                waiting = new ArrayList<>();
+                pendingLookups.put(targetUser, waiting);
+            }
+            waiting.add(new PendingSend(dataModel.getSender(), json, errorCallBack));
+            if (lookupInFlight) return;
+        }
+
+        // ✅ Reads one leaf, not the whole database: cost doesn't grow with the user count
+        dbRef.child(targetUser).child(REGISTERED_FIELD_NAME).addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot snapshot) {
-                // ✅ Double-check target is still valid when callback executes
-                if (targetUser == null || targetUser.isEmpty()) {
-                    android.util.Log.e("FirebaseClient", "❌ Target became null in callback");
-                    errorCallBack.onError();
-                    return;
-                }
-                
-                if (snapshot.child(targetUser).exists()){
-                    //send the signal to other user
-                    dbRef.child(targetUser).child(LATEST_EVENT_FIELD_NAME)
-                            .setValue(gson.toJson(dataModel));
-
-                }else {
+                boolean registered = snapshot.exists();
+                if (!registered) {
                     android.util.Log.w("FirebaseClient", "⚠️ Target user does not exist: " + targetUser);
-                    errorCallBack.onError();
                 }
+                completeLookup(targetUser, registered);
             }
 
             @Override
             public void onCancelled(@NonNull DatabaseError error) {
                 android.util.Log.e("FirebaseClient", "❌ Firebase sendMessage cancelled: " + error.getMessage());
-                errorCallBack.onError();
+                completeLookup(targetUser, false);
             }
         });
     }
 
+    private void completeLookup(String targetUser, boolean registered) {
+        synchronized (lookupLock) {
+            List<PendingSend> waiting = pendingLookups.remove(targetUser);
+            if (waiting == null) return;
+            if (registered) {
+                reachableUsers.add(targetUser);
+            }
+            for (PendingSend send : waiting) {
+                if (registered) {
+                    queue.send(targetUser, send.sender, send.json, send.errorCallBack::onError);
+                } else {
+                    send.errorCallBack.onError();
+                }
+            }
+        }
+    }
+
+    /**
+     * Forget which users were found reachable; call when a call ends so the next
+     * call re-checks its peer once
+     */
+    public void clearRecipientCache() {
+        synchronized (lookupLock) {
+            reachableUsers.clear();
+        }
+    }
+
     public void observeIncomingLatestEvent(NewEventCallBack callBack){
-        dbRef.child(currentUsername).child(LATEST_EVENT_FIELD_NAME).addValueEventListener(
-                new ValueEventListener() {
-                    @Override
-                    public void onDataChange(@NonNull DataSnapshot snapshot) {
-                        try{
-                            // ✅ Add null check to prevent NullPointerException
-                            Object value = snapshot.getValue();
-                            if (value == null || value.toString().isEmpty()) {
-                                android.util.Log.d("FirebaseClient", "Empty or null data received, ignoring");
-                                return;
-                            }
-                            String data = value.toString();
-                            DataModel dataModel = gson.fromJson(data,DataModel.class);
-                            if (dataModel != null) {
-                                callBack.onNewEventReceived(dataModel);
-                            }
-                        }catch (Exception e){
-                            android.util.Log.e("FirebaseClient", "Error processing incoming event", e);
-                            e.printStackTrace();
-                        }
-                    }
-
-                    @Override
-                    public void onCancelled(@NonNull DatabaseError error) {
-                        android.util.Log.e("FirebaseClient", "Firebase listener cancelled: " + error.getMessage());
-                    }
+        // ✅ Each queued event is delivered once, in send order, then removed
+        queue.subscribe(currentUsername, data -> {
+            try{
+                DataModel dataModel = gson.fromJson(data,DataModel.class);
+                if (dataModel != null) {
+                    callBack.onNewEventReceived(dataModel);
                 }
-        );
+            }catch (Exception e){
+                android.util.Log.e("FirebaseClient", "Error processing incoming event", e);
+            }
+        });
+    }
+
+    public void stopObservingEvents(){
+        queue.unsubscribe();
     }
 }
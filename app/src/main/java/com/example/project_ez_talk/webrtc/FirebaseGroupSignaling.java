@@ -0,0 +1,175 @@
+package com.example.project_ez_talk.webrtc;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.Transaction;
+import com.google.gson.Gson;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Group call signaling in the Realtime Database:
+ * <pre>
+ * group_calls/{groupId}/participants/{userId}   {video, joinedAt}, removed on disconnect
+ * group_calls/{groupId}/inbox/{userId}/queue    per-participant SignalingQueue
+ * </pre>
+ * Each pair talks through the receiver's inbox, so one participant's offer/answer and
+ * candidates never contend with another pair's.
+ */
+public class FirebaseGroupSignaling implements GroupSignaling {
+
+    private static final String TAG = "FirebaseGroupSignaling";
+    private static final String DATABASE_URL = "https://project-ez-talk-dccea-default-rtdb.europe-west1.firebasedatabase.app";
+
+    private final Gson gson = new Gson();
+    private final DatabaseReference participantsRef;
+    private final SignalingQueue queue;
+
+    private String selfId;
+    private ChildEventListener participantsListener;
+    private boolean left = false;
+
+    public FirebaseGroupSignaling(String groupId) {
+        this(FirebaseDatabase.getInstance(DATABASE_URL), groupId);
+    }
+
+    public FirebaseGroupSignaling(FirebaseDatabase database, String groupId) {
+        DatabaseReference root = database.getReference("group_calls").child(groupId);
+        participantsRef = root.child("participants");
+        queue = new SignalingQueue(root.child("inbox"));
+    }
+
+    /**
+     * Root of the call's participant list, e.g. to show "call in progress"
+     */
+    public static DatabaseReference participantsRef(String groupId) {
+        return FirebaseDatabase.getInstance(DATABASE_URL)
+                .getReference("group_calls").child(groupId).child("participants");
+    }
+
+    @Override
+    public void join(String selfId, boolean video, int maxParticipants, Listener listener) {
+        this.selfId = selfId;
+
+        // Inbox first, so offers from people already in the call are not missed
+        queue.subscribe(selfId, payload -> {
+            try {
+                Signal signal = gson.fromJson(payload, Signal.class);
+                if (signal != null && signal.from != null) {
+                    listener.onSignal(signal.from, signal);
+                }
+            } catch (RuntimeException e) {
+                Log.e(TAG, "❌ Bad group signal", e);
+            }
+        });
+
+        DatabaseReference self = participantsRef.child(selfId);
+        self.onDisconnect().removeValue();
+
+        // Count and claim in one transaction: a full call is never written to
+        participantsRef.runTransaction(new Transaction.Handler() {
+            @NonNull
+            @Override
+            public Transaction.Result doTransaction(@NonNull MutableData current) {
+                if (!current.hasChild(selfId) && current.getChildrenCount() >= maxParticipants) {
+                    return Transaction.abort();
+                }
+                current.child(selfId).setValue(presence(video));
+                return Transaction.success(current);
+            }
+
+            @Override
+            public void onComplete(DatabaseError error, boolean committed, DataSnapshot snapshot) {
+                if (left) {
+                    // leave() ran while the seat was being claimed
+                    if (committed) self.removeValue();
+                    return;
+                }
+                if (error != null) {
+                    // Could not count: join anyway, members still refuse beyond their mesh limit
+                    Log.e(TAG, "❌ Join transaction failed: " + error.getMessage());
+                    self.setValue(presence(video));
+                } else if (!committed) {
+                    Log.w(TAG, "⚠️ Group call full (" + maxParticipants + "), not joining");
+                    self.onDisconnect().cancel();
+                    queue.unsubscribe();
+                    listener.onCallFull();
+                    return;
+                }
+                listenForParticipants(listener);
+                Log.d(TAG, "👥 Joined group call as " + selfId);
+            }
+        });
+    }
+
+    private static Map<String, Object> presence(boolean video) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("video", video);
+        entry.put("joinedAt", ServerValue.TIMESTAMP);
+        return entry;
+    }
+
+    private void listenForParticipants(Listener listener) {
+        participantsListener = new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, String previousChildName) {
+                if (!selfId.equals(snapshot.getKey())) {
+                    listener.onParticipantJoined(snapshot.getKey());
+                }
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                if (!selfId.equals(snapshot.getKey())) {
+                    listener.onParticipantLeft(snapshot.getKey());
+                }
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, String previousChildName) {
+            }
+
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, String previousChildName) {
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.e(TAG, "❌ Participants listener cancelled: " + error.getMessage());
+            }
+        };
+        participantsRef.addChildEventListener(participantsListener);
+    }
+
+    @Override
+    public void send(String to, Signal signal) {
+        signal.from = selfId;
+        queue.send(to, selfId, gson.toJson(signal),
+                () -> Log.e(TAG, "❌ Failed to signal " + to));
+    }
+
+    @Override
+    public void leave() {
+        left = true;
+        if (participantsListener != null) {
+            participantsRef.removeEventListener(participantsListener);
+            participantsListener = null;
+        }
+        queue.unsubscribe();
+        if (selfId != null) {
+            DatabaseReference self = participantsRef.child(selfId);
+            self.removeValue();
+            self.onDisconnect().cancel();
+        }
+    }
+}
@@ -16,15 +16,16 @@
         private static final String TAG = "FirebaseSignaling";
         private static final String DATABASE_URL = "https://project-ez-talk-dccea-default-rtdb.europe-west1.firebasedatabase.app";
         private static final String SIGNALING_NODE = "signaling";
-        private static final String LATEST_EVENT_FIELD = "latest_event";
+        // Single-slot inbox used before the queue; cleared on init
+        private static final String LEGACY_LATEST_EVENT_FIELD = "latest_event";
 
         // ✅ SINGLETON INSTANCE
         private static FirebaseSignaling instance;
 
         private final DatabaseReference dbRef;
+        private final SignalingQueue queue;
         private final Gson gson = new Gson();
         private String currentUserId;
-        private ValueEventListener callListener;
         private boolean isListening = false;
 
         // ============================================================
@@ -47,7 +48,15 @@
          * ✅ Private constructor - use getInstance() instead
          */
         public FirebaseSignaling() {
-            dbRef = FirebaseDatabase.getInstance(DATABASE_URL).getReference();
+            this(FirebaseDatabase.getInstance(DATABASE_URL));
+        }
+
+        /**
+         * Signaling over {@code database}, e.g. one pointed at the local emulator
+         */
+        public FirebaseSignaling(FirebaseDatabase database) {
+            dbRef = database.getReference();
+            queue = new SignalingQueue(dbRef.child(SIGNALING_NODE));
             Log.d(TAG, "✅ FirebaseSignaling initialized with correct database URL");
         }
 
@@ -100,11 +109,11 @@
 
             currentUserId = userId;
 
-            // Create user node in Firebase
+            // Drop the old single-slot inbox; queued events are kept for the listener
             dbRef.child(SIGNALING_NODE)
                     .child(currentUserId)
-                    .child(LATEST_EVENT_FIELD)
-                    .setValue("")
+                    .child(LEGACY_LATEST_EVENT_FIELD)
+                    .removeValue()
                     .addOnCompleteListener(task -> {
                         if (task.isSuccessful()) {
                             Log.d(TAG, "✅ User node initialized: " + userId);
@@ -140,21 +149,9 @@
                 callData.setTimestamp(System.currentTimeMillis());
             }
 
-            String json = gson.toJson(callData);
-
-            dbRef.child(SIGNALING_NODE)
-                    .child(callData.getTargetId())
-                    .child(LATEST_EVENT_FIELD)
-                    .setValue(json)
-                    .addOnSuccessListener(aVoid -> {
-                        Log.d(TAG, "✅ Call data sent successfully");
-                        Log.d(TAG, "   Type: " + callData.getType());
-                        Log.d(TAG, "   To: " + callData.getTargetId());
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "❌ Failed to send call data: " + e.getMessage());
-                        if (onError != null) onError.run();
-                    });
+            // ✅ Appended to the target's queue: back-to-back events never overwrite each other
+            queue.send(callData.getTargetId(), callData.getSenderId(), gson.toJson(callData), onError);
+            Log.d(TAG, "📤 Queued " + callData.getType() + " for " + callData.getTargetId());
         }
 
         // ============================================================
@@ -180,75 +177,34 @@
 
             isListening = true;
 
-            DatabaseReference ref = dbRef.child(SIGNALING_NODE)
-                    .child(currentUserId)
-                    .child(LATEST_EVENT_FIELD);
-
-            callListener = new ValueEventListener() {
-                private long lastTimestamp = 0;
-
-                @Override
-                public void onDataChange(DataSnapshot snapshot) {
-                    if (!snapshot.exists()) {
-                        Log.d(TAG, "⚠️ No data at user node (yet)");
-                        return;
-                    }
+            // ✅ Every queued event is delivered once, in send order
+            queue.subscribe(currentUserId, data -> {
+                try {
+                    CallData callData = gson.fromJson(data, CallData.class);
 
-                    String data = snapshot.getValue(String.class);
-                    if (data == null || data.isEmpty()) {
-                        Log.d(TAG, "⚠️ Empty data received");
+                    // Validate call data
+                    if (callData == null || !callData.isValid()) {
+                        Log.w(TAG, "⚠️ Invalid CallData received");
                         return;
                     }
 
-                    try {
-                        CallData callData = gson.fromJson(data, CallData.class);
+                    // Log received call
+                    Log.d(TAG, "════════════════════════════════════════");
+                    Log.d(TAG, "📨 Received: " + callData.getType() + " from " + callData.getSenderId());
+                    Log.d(TAG, "   Call Type: " + callData.getCallType());
+                    Log.d(TAG, "   Data: " + callData.getData());
+                    Log.d(TAG, "════════════════════════════════════════");
 
-                        // Validate call data
-                        if (callData == null || !callData.isValid()) {
-                            Log.w(TAG, "⚠️ Invalid CallData received");
-                            return;
-                        }
-
-                        // Check if this is a new event (avoid processing same event twice)
-                        long timestamp = callData.getTimestamp();
-                        if (timestamp <= lastTimestamp) {
-                            Log.d(TAG, "⚠️ Ignoring old event (timestamp: " + timestamp + ")");
-                            return;
-                        }
-
-                        lastTimestamp = timestamp;
-
-                        // Log received call
-                        Log.d(TAG, "════════════════════════════════════════");
-                        Log.d(TAG, "📨 Received: " + callData.getType() + " from " + callData.getSenderId());
-                        Log.d(TAG, "   Call Type: " + callData.getCallType());
-                        Log.d(TAG, "   Data: " + callData.getData());
-                        Log.d(TAG, "════════════════════════════════════════");
-
-                        // Notify listener
-                        if (listener != null) {
-                            listener.onCallDataReceived(callData);
-                        }
-
-                        // Clear after processing to avoid duplicates
-                        snapshot.getRef().setValue("");
-
-                    } catch (Exception e) {
-                        Log.e(TAG, "❌ Error parsing call data: " + e.getMessage(), e);
-                        if (listener != null) listener.onError();
+                    // Notify listener
+                    if (listener != null) {
+                        listener.onCallDataReceived(callData);
                     }
-                }
 
-                @Override
-                public void onCancelled(DatabaseError error) {
-                    Log.e(TAG, "❌ Listener cancelled: " + error.getMessage());
-                    isListening = false;
+                } catch (Exception e) {
+                    Log.e(TAG, "❌ Error parsing call data: " + e.getMessage(), e);
                     if (listener != null) listener.onError();
                 }
-            };
-
-            // Start listening
-            ref.addValueEventListener(callListener);
+            });
             Log.d(TAG, "👂 Listening started for user: " + currentUserId);
         }
 
@@ -309,12 +265,8 @@
          * ✅ Remove listener without destroying singleton
          */
         public void removeListener() {
-            if (callListener != null && currentUserId != null) {
-                dbRef.child(SIGNALING_NODE)
-                        .child(currentUserId)
-                        .child(LATEST_EVENT_FIELD)
-                        .removeEventListener(callListener);
-                callListener = null;
+            if (isListening) {
+                queue.unsubscribe();
                 isListening = false;
                 Log.d(TAG, "👂 Listener removed");
             }
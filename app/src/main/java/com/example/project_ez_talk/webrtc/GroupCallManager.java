@@ -0,0 +1,458 @@
+package com.example.project_ez_talk.webrtc;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import org.webrtc.AudioSource;
+import org.webrtc.AudioTrack;
+import org.webrtc.Camera2Enumerator;
+import org.webrtc.CameraVideoCapturer;
+import org.webrtc.IceCandidate;
+import org.webrtc.MediaConstraints;
+import org.webrtc.MediaStream;
+import org.webrtc.MediaStreamTrack;
+import org.webrtc.PeerConnection;
+import org.webrtc.PeerConnectionFactory;
+import org.webrtc.RtpParameters;
+import org.webrtc.RtpReceiver;
+import org.webrtc.RtpSender;
+import org.webrtc.SessionDescription;
+import org.webrtc.SurfaceTextureHelper;
+import org.webrtc.SurfaceViewRenderer;
+import org.webrtc.VideoSource;
+import org.webrtc.VideoTrack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ✅ Mesh group call: one PeerConnection per other participant
+ * All connections send the same local audio/video tracks, captured once. Each pair
+ * negotiates over its own signaling channel (the lower user ID offers), so joins and
+ * leaves only touch the connections involved.
+ *
+ * The uplink is shared out per peer: with n peers every video sender gets 1/n of
+ * {@link #VIDEO_UPLINK_BUDGET_KBPS} and encodes at 1/sqrt(n) of the capture size, so
+ * the total encoded pixel rate and bitrate stay about what a 1:1 call costs instead of
+ * growing with each participant. {@link #MAX_PEERS} caps the mesh.
+ *
+ * Everything runs on the main thread; WebRTC callbacks are posted to it.
+ */
+public class GroupCallManager implements GroupSignaling.Listener {
+
+    private static final String TAG = "GroupCallManager";
+
+    // Full mesh beyond 5 people costs more uplink than phones reliably have
+    public static final int MAX_PEERS = 4;
+    static final int VIDEO_UPLINK_BUDGET_KBPS = 1200;
+    private static final int MIN_PEER_VIDEO_KBPS = 150;
+    private static final int MAX_PEER_VIDEO_KBPS = 800;
+    private static final int AUDIO_KBPS = 32;
+
+    private static final int CAPTURE_WIDTH = 640;
+    private static final int CAPTURE_HEIGHT = 480;
+    private static final int CAPTURE_FPS = 15;
+
+    public interface Listener {
+        void onPeerConnected(String peerId);
+
+        void onRemoteVideo(String peerId, VideoTrack track);
+
+        void onPeerLeft(String peerId);
+
+        /**
+         * The call already had {@link #MAX_PEERS} + 1 participants: nothing was connected
+         * and this manager has left
+         */
+        void onCallFull();
+    }
+
+    /**
+     * One participant's connection
+     */
+    private final class Peer {
+        final String id;
+        final PeerConnection connection;
+        final IceCandidateBatcher batcher;
+        final List<IceCandidate> pendingCandidates = new ArrayList<>();
+        boolean remoteDescriptionSet = false;
+        boolean connected = false;
+
+        Peer(String id, PeerConnection connection) {
+            this.id = id;
+            this.connection = connection;
+            this.batcher = new IceCandidateBatcher((target, batch) ->
+                    signaling.send(target, GroupSignaling.Signal.candidates(batch)));
+        }
+
+        boolean isOfferer() {
+            return selfId.compareTo(id) < 0;
+        }
+    }
+
+    private final Context context;
+    private final PeerConnectionFactory factory;
+    private final String selfId;
+    private final boolean video;
+    private final GroupSignaling signaling;
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<String, Peer> peers = new LinkedHashMap<>();
+    private final String streamId;
+
+    private AudioSource audioSource;
+    private AudioTrack localAudio;
+    private VideoSource videoSource;
+    private VideoTrack localVideo;
+    private CameraVideoCapturer capturer;
+    private SurfaceTextureHelper surfaceTextureHelper;
+    private boolean left = false;
+
+    public GroupCallManager(Context context, String selfId, boolean video,
+                            GroupSignaling signaling, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.factory = WebRtcRuntime.get(context).getFactory();
+        this.selfId = selfId;
+        this.video = video;
+        this.signaling = signaling;
+        this.listener = listener;
+        this.streamId = "group_" + selfId;
+    }
+
+    /**
+     * Open the microphone (and camera, previewed in {@code localView} if given), then join
+     */
+    public void start(SurfaceViewRenderer localView) {
+        audioSource = factory.createAudioSource(new MediaConstraints());
+        localAudio = factory.createAudioTrack(streamId + "_audio", audioSource);
+
+        if (video) {
+            videoSource = factory.createVideoSource(false);
+            surfaceTextureHelper = SurfaceTextureHelper.create("GroupCapture",
+                    WebRtcRuntime.get(context).getEglContext());
+            capturer = createCapturer();
+            if (capturer != null) {
+                capturer.initialize(surfaceTextureHelper, context, videoSource.getCapturerObserver());
+                capturer.startCapture(CAPTURE_WIDTH, CAPTURE_HEIGHT, CAPTURE_FPS);
+            }
+            localVideo = factory.createVideoTrack(streamId + "_video", videoSource);
+            if (localView != null) {
+                localVideo.addSink(localView);
+            }
+        }
+
+        signaling.join(selfId, video, MAX_PEERS + 1, this);
+    }
+
+    public void setMicEnabled(boolean enabled) {
+        if (localAudio != null) localAudio.setEnabled(enabled);
+    }
+
+    public void setVideoEnabled(boolean enabled) {
+        if (localVideo != null) localVideo.setEnabled(enabled);
+    }
+
+    public void switchCamera() {
+        if (capturer != null) capturer.switchCamera(null);
+    }
+
+    public int getPeerCount() {
+        return peers.size();
+    }
+
+    public String getSelfId() {
+        return selfId;
+    }
+
+    /**
+     * Hang up on everyone and release the camera and microphone
+     */
+    public void leave() {
+        if (left) return;
+        left = true;
+        signaling.leave();
+        for (Peer peer : new ArrayList<>(peers.values())) {
+            closePeer(peer);
+        }
+        peers.clear();
+
+        if (capturer != null) {
+            try {
+                capturer.stopCapture();
+            } catch (InterruptedException e) {
+                Log.e(TAG, "Error stopping capturer", e);
+            }
+            capturer.dispose();
+            capturer = null;
+        }
+        if (surfaceTextureHelper != null) {
+            surfaceTextureHelper.dispose();
+            surfaceTextureHelper = null;
+        }
+        if (localVideo != null) {
+            localVideo.dispose();
+            localVideo = null;
+        }
+        if (videoSource != null) {
+            videoSource.dispose();
+            videoSource = null;
+        }
+        if (localAudio != null) {
+            localAudio.dispose();
+            localAudio = null;
+        }
+        if (audioSource != null) {
+            audioSource.dispose();
+            audioSource = null;
+        }
+        Log.d(TAG, "👋 Left group call");
+    }
+
+    // ==================== MEMBERSHIP ====================
+
+    @Override
+    public void onParticipantJoined(String userId) {
+        if (left || peers.containsKey(userId)) return;
+        Peer peer = createPeer(userId);
+        if (peer == null) return;
+        if (peer.isOfferer()) {
+            sendOffer(peer);
+        }
+    }
+
+    @Override
+    public void onCallFull() {
+        if (left) return;
+        Log.w(TAG, "⚠️ Call already has " + (MAX_PEERS + 1) + " people, not joining");
+        leave();
+        listener.onCallFull();
+    }
+
+    @Override
+    public void onParticipantLeft(String userId) {
+        Peer peer = peers.remove(userId);
+        if (peer == null) return;
+        closePeer(peer);
+        allocateBandwidth();
+        listener.onPeerLeft(userId);
+    }
+
+    // ==================== NEGOTIATION ====================
+
+    @Override
+    public void onSignal(String from, GroupSignaling.Signal signal) {
+        if (left) return;
+        Peer peer = peers.get(from);
+        switch (signal.type) {
+            case GroupSignaling.Signal.OFFER:
+                if (peer == null) peer = createPeer(from);
+                if (peer == null) return;
+                applyRemote(peer, SessionDescription.Type.OFFER, signal.sdp, true);
+                break;
+            case GroupSignaling.Signal.ANSWER:
+                if (peer != null) applyRemote(peer, SessionDescription.Type.ANSWER, signal.sdp, false);
+                break;
+            case GroupSignaling.Signal.CANDIDATES:
+                if (peer == null || signal.candidates == null) return;
+                for (IceCandidate candidate : signal.candidates.toIceCandidates()) {
+                    if (peer.remoteDescriptionSet) {
+                        peer.connection.addIceCandidate(candidate);
+                    } else {
+                        peer.pendingCandidates.add(candidate);
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void sendOffer(Peer peer) {
+        peer.connection.createOffer(new MySdpObserver() {
+            @Override
+            public void onCreateSuccess(SessionDescription description) {
+                peer.connection.setLocalDescription(new MySdpObserver() {
+                    @Override
+                    public void onSetSuccess() {
+                        signaling.send(peer.id, GroupSignaling.Signal.sdp(
+                                GroupSignaling.Signal.OFFER, description.description));
+                    }
+                }, description);
+            }
+
+            @Override
+            public void onCreateFailure(String error) {
+                Log.e(TAG, "❌ Offer to " + peer.id + " failed: " + error);
+            }
+        }, new MediaConstraints());
+    }
+
+    private void applyRemote(Peer peer, SessionDescription.Type type, String sdp, boolean answer) {
+        peer.connection.setRemoteDescription(new MySdpObserver() {
+            @Override
+            public void onSetSuccess() {
+                handler.post(() -> {
+                    peer.remoteDescriptionSet = true;
+                    for (IceCandidate candidate : peer.pendingCandidates) {
+                        peer.connection.addIceCandidate(candidate);
+                    }
+                    peer.pendingCandidates.clear();
+                    if (answer) sendAnswer(peer);
+                });
+            }
+
+            @Override
+            public void onSetFailure(String error) {
+                Log.e(TAG, "❌ Remote " + type + " from " + peer.id + " rejected: " + error);
+            }
+        }, new SessionDescription(type, sdp));
+    }
+
+    private void sendAnswer(Peer peer) {
+        peer.connection.createAnswer(new MySdpObserver() {
+            @Override
+            public void onCreateSuccess(SessionDescription description) {
+                peer.connection.setLocalDescription(new MySdpObserver() {
+                    @Override
+                    public void onSetSuccess() {
+                        signaling.send(peer.id, GroupSignaling.Signal.sdp(
+                                GroupSignaling.Signal.ANSWER, description.description));
+                    }
+                }, description);
+            }
+        }, new MediaConstraints());
+    }
+
+    // ==================== PEERS ====================
+
+    private Peer createPeer(String peerId) {
+        if (peers.size() >= MAX_PEERS) {
+            // join() keeps the call at MAX_PEERS + 1, so this only guards against a stale roster
+            Log.w(TAG, "⚠️ Mesh full, not connecting to " + peerId);
+            return null;
+        }
+
+        PeerConnection.RTCConfiguration config = new PeerConnection.RTCConfiguration(
+                IceServerProvider.get(context).getIceServers());
+        config.sdpSemantics = PeerConnection.SdpSemantics.UNIFIED_PLAN;
+        config.continualGatheringPolicy = PeerConnection.ContinualGatheringPolicy.GATHER_CONTINUALLY;
+
+        Peer[] holder = new Peer[1];
+        PeerConnection connection = factory.createPeerConnection(config, new MyPeerConnectionObserver() {
+            @Override
+            public void onIceCandidate(IceCandidate candidate) {
+                holder[0].batcher.add(candidate, peerId);
+            }
+
+            @Override
+            public void onConnectionChange(PeerConnection.PeerConnectionState state) {
+                handler.post(() -> onPeerState(holder[0], state));
+            }
+
+            @Override
+            public void onAddTrack(RtpReceiver receiver, MediaStream[] streams) {
+                MediaStreamTrack track = receiver.track();
+                if (track instanceof VideoTrack) {
+                    handler.post(() -> {
+                        if (peers.get(peerId) == holder[0]) {
+                            listener.onRemoteVideo(peerId, (VideoTrack) track);
+                        }
+                    });
+                }
+            }
+        });
+        if (connection == null) {
+            Log.e(TAG, "❌ Could not create connection to " + peerId);
+            return null;
+        }
+
+        Peer peer = new Peer(peerId, connection);
+        holder[0] = peer;
+        List<String> streamIds = Collections.singletonList(streamId);
+        connection.addTrack(localAudio, streamIds);
+        if (localVideo != null) {
+            connection.addTrack(localVideo, streamIds);
+        }
+        peers.put(peerId, peer);
+        allocateBandwidth();
+        Log.d(TAG, "🔗 Peer " + peerId + " added (" + peers.size() + "/" + MAX_PEERS + ")");
+        return peer;
+    }
+
+    private void onPeerState(Peer peer, PeerConnection.PeerConnectionState state) {
+        if (peer == null || peers.get(peer.id) != peer) return;
+        switch (state) {
+            case CONNECTED:
+                if (!peer.connected) {
+                    peer.connected = true;
+                    listener.onPeerConnected(peer.id);
+                }
+                break;
+            case FAILED:
+                // The offering side of the pair looks for a new path
+                if (peer.isOfferer()) {
+                    Log.d(TAG, "🔄 Restarting ICE with " + peer.id);
+                    peer.connection.restartIce();
+                    sendOffer(peer);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void closePeer(Peer peer) {
+        peer.batcher.reset();
+        peer.connection.close();
+        peer.connection.dispose();
+    }
+
+    // ==================== BANDWIDTH ====================
+
+    /**
+     * Split the uplink between peers and shrink each encoding so the total stays flat
+     */
+    private void allocateBandwidth() {
+        int count = peers.size();
+        if (count == 0) return;
+        int videoKbps = Math.max(MIN_PEER_VIDEO_KBPS,
+                Math.min(MAX_PEER_VIDEO_KBPS, VIDEO_UPLINK_BUDGET_KBPS / count));
+        double scale = Math.sqrt(count);
+
+        for (Peer peer : peers.values()) {
+            for (RtpSender sender : peer.connection.getSenders()) {
+                MediaStreamTrack track = sender.track();
+                if (track == null) continue;
+                boolean isVideo = MediaStreamTrack.VIDEO_TRACK_KIND.equals(track.kind());
+                RtpParameters parameters = sender.getParameters();
+                for (RtpParameters.Encoding encoding : parameters.encodings) {
+                    if (isVideo) {
+                        encoding.maxBitrateBps = videoKbps * 1000;
+                        encoding.scaleResolutionDownBy = scale;
+                    } else {
+                        encoding.maxBitrateBps = AUDIO_KBPS * 1000;
+                    }
+                }
+                sender.setParameters(parameters);
+            }
+        }
+        Log.d(TAG, "📊 " + count + " peer(s): " + videoKbps + " kbps video each, 1/"
+                + String.format(java.util.Locale.US, "%.2f", scale) + " scale");
+    }
+
+    private CameraVideoCapturer createCapturer() {
+        Camera2Enumerator enumerator = new Camera2Enumerator(context);
+        for (String device : enumerator.getDeviceNames()) {
+            if (enumerator.isFrontFacing(device)) {
+                return enumerator.createCapturer(device, null);
+            }
+        }
+        String[] devices = enumerator.getDeviceNames();
+        return devices.length > 0 ? enumerator.createCapturer(devices[0], null) : null;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.project_ez_talk.webrtc;
+
+/**
+ * Signaling transport for a mesh group call: who is in the call, plus a private
+ * channel to each participant for that pair's offer/answer and ICE candidates.
+ * {@link FirebaseGroupSignaling} is the real one; a loopback implementation
+ * in the instrumentation tests connects simulated participants inside one process.
+ * Listener callbacks arrive on the main thread.
+ */
+public interface GroupSignaling {
+
+    /**
+     * One message on a pair's channel
+     */
+    class Signal {
+        public static final String OFFER = "offer";
+        public static final String ANSWER = "answer";
+        public static final String CANDIDATES = "candidates";
+
+        public String type;
+        public String from;
+        public String sdp;
+        public IceCandidateBatcher.Batch candidates;
+
+        public static Signal sdp(String type, String sdp) {
+            Signal signal = new Signal();
+            signal.type = type;
+            signal.sdp = sdp;
+            return signal;
+        }
+
+        public static Signal candidates(IceCandidateBatcher.Batch batch) {
+            Signal signal = new Signal();
+            signal.type = CANDIDATES;
+            signal.candidates = batch;
+            return signal;
+        }
+    }
+
+    interface Listener {
+        void onParticipantJoined(String userId);
+
+        void onParticipantLeft(String userId);
+
+        void onSignal(String from, Signal signal);
+
+        /** join() was refused: the call already had its maximum number of participants */
+        void onCallFull();
+    }
+
+    /**
+     * Announce {@code selfId} in the call unless it already has {@code maxParticipants};
+     * everyone already in it is reported as joined. The seat is claimed atomically, so
+     * two people joining at once cannot both take the last one.
+     */
+    void join(String selfId, boolean video, int maxParticipants, Listener listener);
+
+    void send(String to, Signal signal);
+
+    void leave();
+}
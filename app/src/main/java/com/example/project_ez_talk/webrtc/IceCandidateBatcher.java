@@ -0,0 +1,146 @@
+package com.example.project_ez_talk.webrtc;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import org.webrtc.IceCandidate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * ✅ Coalesces trickled ICE candidates into batched signaling messages
+ * Candidates arriving within {@link #WINDOW_MS} of the first one in a batch are sent
+ * together as one {@link Batch}; a batch is flushed early once it holds
+ * {@link #MAX_BATCH} candidates.
+ * Gathering runs continually, so there is no end-of-candidates to signal: new
+ * candidates keep trickling in after network changes.
+ * Repeats of a candidate already sent (continual gathering re-reports them) are dropped.
+ * Thread-safe: WebRTC reports candidates on its signaling thread.
+ */
+public class IceCandidateBatcher {
+
+    private static final String TAG = "IceCandidateBatcher";
+
+    // Long enough to catch a gathering burst, short enough not to delay connectivity checks
+    static final long WINDOW_MS = 80;
+    static final int MAX_BATCH = 16;
+
+    /**
+     * Wire format of one batch: the candidates in gathering order
+     */
+    public static class Batch {
+        public List<IceCandidateModel> candidates = new ArrayList<>();
+
+        public List<IceCandidate> toIceCandidates() {
+            List<IceCandidate> result = new ArrayList<>();
+            if (candidates != null) {
+                for (IceCandidateModel model : candidates) {
+                    result.add(model.toIceCandidate());
+                }
+            }
+            return result;
+        }
+    }
+
+    public interface Sink {
+        void onBatch(String target, Batch batch);
+    }
+
+    /**
+     * Runs the end-of-window flush; the main thread's Handler outside tests
+     */
+    interface Timer {
+        void schedule(Runnable task, long delayMs);
+
+        void cancel(Runnable task);
+    }
+
+    private final Sink sink;
+    private final Timer timer;
+    private final Runnable flushRunnable = this::flush;
+
+    private final List<IceCandidateModel> pending = new ArrayList<>();
+    private final Set<String> sent = new HashSet<>();
+    private String target;
+    private boolean flushScheduled = false;
+
+    public IceCandidateBatcher(Sink sink) {
+        this(sink, mainThreadTimer());
+    }
+
+    IceCandidateBatcher(Sink sink, Timer timer) {
+        this.sink = sink;
+        this.timer = timer;
+    }
+
+    /**
+     * Queue a locally gathered candidate for {@code target}
+     */
+    public synchronized void add(IceCandidate candidate, String target) {
+        if (target == null) return;
+        if (this.target != null && !this.target.equals(target)) {
+            // New peer: whatever was buffered belongs to the previous one
+            flushLocked();
+            sent.clear();
+        }
+        this.target = target;
+
+        String key = candidate.sdpMid + "|" + candidate.sdpMLineIndex + "|" + candidate.sdp;
+        if (!sent.add(key)) return;
+
+        pending.add(new IceCandidateModel(candidate));
+        if (pending.size() >= MAX_BATCH) {
+            flushLocked();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            timer.schedule(flushRunnable, WINDOW_MS);
+        }
+    }
+
+    public synchronized void flush() {
+        flushLocked();
+    }
+
+    /**
+     * Drop buffered candidates and forget the peer (call ended)
+     */
+    public synchronized void reset() {
+        timer.cancel(flushRunnable);
+        flushScheduled = false;
+        pending.clear();
+        sent.clear();
+        target = null;
+    }
+
+    private void flushLocked() {
+        timer.cancel(flushRunnable);
+        flushScheduled = false;
+        if (target == null || pending.isEmpty()) return;
+
+        Batch batch = new Batch();
+        batch.candidates.addAll(pending);
+        pending.clear();
+
+        Log.d(TAG, "📦 Sending " + batch.candidates.size() + " ICE candidate(s) to " + target);
+        sink.onBatch(target, batch);
+    }
+
+    private static Timer mainThreadTimer() {
+        Handler handler = new Handler(Looper.getMainLooper());
+        return new Timer() {
+            @Override
+            public void schedule(Runnable task, long delayMs) {
+                handler.postDelayed(task, delayMs);
+            }
+
+            @Override
+            public void cancel(Runnable task) {
+                handler.removeCallbacks(task);
+            }
+        };
+    }
+}
@@ -0,0 +1,430 @@
+package com.example.project_ez_talk.webrtc;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.project_ez_talk.helper.HttpClientProvider;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+
+import org.webrtc.PeerConnection;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * ✅ Single source of ICE servers for every call (WebRTCClient and WebRtcAudioEngine)
+ *
+ * Servers come from {@code config/ice} in the Realtime Database:
+ * <pre>
+ * config/ice/servers/N      {urls, username?, credential?}   static STUN/TURN entries
+ * config/ice/credentialsUrl                                  optional TURN REST endpoint
+ * </pre>
+ * The endpoint returns {@code [{urls, username, credential}]} or
+ * {@code {iceServers: [...], ttl}}; those short-lived TURN credentials are cached (in memory
+ * and in preferences, so a cold start can call right away) and refreshed before they expire.
+ *
+ * Every endpoint is then probed — a STUN Binding request over UDP, a TCP connect for
+ * {@code ?transport=tcp} / {@code turns:} — and calls only get the fastest STUN servers and
+ * relays. Fewer, closer servers means fewer TURN allocations and a shorter gathering phase,
+ * and audio and video calls relay through the same server.
+ *
+ * {@link #getIceServers()} never blocks: until the first load finishes it returns the last
+ * cached list, or the built-in defaults.
+ */
+public final class IceServerProvider {
+
+    private static final String TAG = "IceServerProvider";
+    private static final String DATABASE_URL = "https://project-ez-talk-dccea-default-rtdb.europe-west1.firebasedatabase.app";
+    private static final String CONFIG_PATH = "config/ice";
+    private static final String PREFS = "ice_servers";
+    private static final String KEY_SERVERS = "servers";
+    private static final String KEY_EXPIRES_AT = "expires_at";
+
+    // Credentials without a TTL are re-fetched this often anyway
+    private static final long DEFAULT_TTL_MS = 60 * 60_000;
+    // Refresh once this fraction of the TTL has passed
+    private static final double REFRESH_AT = 0.8;
+    // Rankings go stale as the device moves between networks
+    private static final long PROBE_MAX_AGE_MS = 10 * 60_000;
+    private static final int PROBE_TIMEOUT_MS = 1500;
+    private static final int MAX_STUN = 2;
+    private static final int MAX_TURN = 2;
+
+    /**
+     * One ICE server as configured, plus its measured latency
+     */
+    static final class Entry {
+        List<String> urls = new ArrayList<>();
+        String username;
+        String credential;
+        transient long latencyMs = -1;
+
+        boolean isTurn() {
+            return !urls.isEmpty() && urls.get(0).startsWith("turn");
+        }
+
+        PeerConnection.IceServer toIceServer() {
+            PeerConnection.IceServer.Builder builder = PeerConnection.IceServer.builder(urls);
+            if (username != null) builder.setUsername(username);
+            if (credential != null) builder.setPassword(credential);
+            return builder.createIceServer();
+        }
+    }
+
+    private static volatile IceServerProvider instance;
+
+    private final SharedPreferences prefs;
+    private final Gson gson = new Gson();
+
+    private List<Entry> configured;     // static entries + current TURN credentials
+    private List<Entry> ranked;         // fastest subset, null until probed
+    private long credentialsExpireAt;   // 0 = no expiring credentials
+    private long credentialsRefreshAt;
+    private long probedAt;
+    private boolean loading = false;
+
+    private IceServerProvider(Context context) {
+        prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        configured = restore();
+        if (configured == null) {
+            configured = defaults();
+        }
+    }
+
+    public static IceServerProvider get(Context context) {
+        IceServerProvider provider = instance;
+        if (provider == null) {
+            synchronized (IceServerProvider.class) {
+                provider = instance;
+                if (provider == null) {
+                    provider = new IceServerProvider(context.getApplicationContext());
+                    instance = provider;
+                }
+            }
+        }
+        return provider;
+    }
+
+    /**
+     * Servers for a new peer connection: the ranked subset once available. Also kicks off
+     * a background refresh when credentials are about to expire or the ranking is old.
+     */
+    public synchronized List<PeerConnection.IceServer> getIceServers() {
+        refreshIfNeeded();
+        List<Entry> source = ranked != null ? ranked : configured;
+        List<PeerConnection.IceServer> servers = new ArrayList<>();
+        for (Entry entry : source) {
+            servers.add(entry.toIceServer());
+        }
+        return servers;
+    }
+
+    /**
+     * Load and rank ahead of the first call (e.g. once the user is signed in)
+     */
+    public void warmUp() {
+        synchronized (this) {
+            refreshIfNeeded();
+        }
+    }
+
+    // ==================== LOADING ====================
+
+    private void refreshIfNeeded() {
+        if (loading) return;
+        long now = System.currentTimeMillis();
+        boolean credentialsDue = credentialsExpireAt > 0 && now >= credentialsRefreshAt;
+        boolean rankingDue = ranked == null || SystemClock.elapsedRealtime() - probedAt > PROBE_MAX_AGE_MS;
+        if (!credentialsDue && !rankingDue && probedAt > 0) return;
+
+        loading = true;
+        FirebaseDatabase.getInstance(DATABASE_URL).getReference(CONFIG_PATH)
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot snapshot) {
+                        List<Entry> entries = new ArrayList<>();
+                        for (DataSnapshot child : snapshot.child("servers").getChildren()) {
+                            Entry entry = fromSnapshot(child);
+                            if (entry != null) entries.add(entry);
+                        }
+                        String credentialsUrl = snapshot.child("credentialsUrl").getValue(String.class);
+                        HttpClientProvider.execute(HttpClientProvider.PRIORITY_BULK,
+                                () -> load(entries, credentialsUrl));
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError error) {
+                        Log.w(TAG, "⚠️ ICE config unavailable: " + error.getMessage());
+                        HttpClientProvider.execute(HttpClientProvider.PRIORITY_BULK,
+                                () -> load(new ArrayList<>(), null));
+                    }
+                });
+    }
+
+    /**
+     * Background: fetch credentials, probe, publish
+     */
+    private void load(List<Entry> entries, String credentialsUrl) {
+        long expiresAt = 0;
+        long refreshAt = 0;
+        if (credentialsUrl != null && !credentialsUrl.isEmpty()) {
+            try {
+                long[] ttl = new long[1];
+                entries.addAll(fetchCredentials(credentialsUrl, ttl));
+                long lifetime = ttl[0] > 0 ? ttl[0] : DEFAULT_TTL_MS;
+                long now = System.currentTimeMillis();
+                expiresAt = now + lifetime;
+                refreshAt = now + (long) (lifetime * REFRESH_AT);
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "⚠️ TURN credentials fetch failed: " + e.getMessage());
+            }
+        }
+
+        List<Entry> all;
+        synchronized (this) {
+            if (entries.isEmpty()) {
+                // Nothing configured remotely: keep what we have (cached or built-in)
+                all = new ArrayList<>(configured);
+                expiresAt = credentialsExpireAt;
+                refreshAt = credentialsRefreshAt;
+            } else {
+                all = entries;
+            }
+        }
+
+        List<Entry> best = rank(all);
+
+        synchronized (this) {
+            configured = all;
+            ranked = best;
+            credentialsExpireAt = expiresAt;
+            credentialsRefreshAt = refreshAt;
+            probedAt = SystemClock.elapsedRealtime();
+            loading = false;
+        }
+        persist(all, expiresAt);
+        Log.d(TAG, "✅ " + best.size() + " of " + all.size() + " ICE servers selected");
+    }
+
+    private List<Entry> fetchCredentials(String url, long[] ttlOut) throws IOException {
+        Request request = new Request.Builder().url(url).get().build();
+        try (Response response = HttpClientProvider.getClient().newCall(request).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("HTTP " + response.code());
+            }
+            JsonElement json = JsonParser.parseString(body.string());
+            JsonArray servers;
+            if (json.isJsonArray()) {
+                servers = json.getAsJsonArray();
+            } else {
+                JsonObject object = json.getAsJsonObject();
+                servers = object.getAsJsonArray("iceServers");
+                if (object.has("ttl")) ttlOut[0] = object.get("ttl").getAsLong() * 1000;
+            }
+            List<Entry> entries = new ArrayList<>();
+            if (servers != null) {
+                for (JsonElement element : servers) {
+                    Entry entry = fromJson(element.getAsJsonObject());
+                    if (entry != null) entries.add(entry);
+                }
+            }
+            return entries;
+        }
+    }
+
+    // ==================== RANKING ====================
+
+    /**
+     * Probe every entry and keep the fastest STUN servers and relays.
+     * Falls back to everything when nothing answers (offline, or probes blocked), and
+     * keeps the first configured relay when no relay answers: a probe can fail where
+     * a TURN allocation would still succeed, and without a relay restrictive NATs can't connect.
+     */
+    private List<Entry> rank(List<Entry> entries) {
+        List<Entry> stun = new ArrayList<>();
+        List<Entry> turn = new ArrayList<>();
+        Entry firstTurn = null;
+        for (Entry entry : entries) {
+            if (firstTurn == null && entry.isTurn()) firstTurn = entry;
+            entry.latencyMs = probe(entry.urls.get(0));
+            if (entry.latencyMs < 0) continue;
+            (entry.isTurn() ? turn : stun).add(entry);
+        }
+        if (stun.isEmpty() && turn.isEmpty()) {
+            return entries;
+        }
+        Collections.sort(stun, (a, b) -> Long.compare(a.latencyMs, b.latencyMs));
+        Collections.sort(turn, (a, b) -> Long.compare(a.latencyMs, b.latencyMs));
+
+        List<Entry> best = new ArrayList<>(stun.subList(0, Math.min(MAX_STUN, stun.size())));
+        best.addAll(turn.subList(0, Math.min(MAX_TURN, turn.size())));
+        if (turn.isEmpty() && firstTurn != null) {
+            Log.w(TAG, "⚠️ No relay answered its probe, keeping " + firstTurn.urls.get(0));
+            best.add(firstTurn);
+        }
+        for (Entry entry : best) {
+            Log.d(TAG, "🏁 " + entry.urls.get(0) + " " + entry.latencyMs + "ms");
+        }
+        return best;
+    }
+
+    /**
+     * Round-trip time to the server behind {@code url} in ms, or -1 if unreachable
+     */
+    private static long probe(String url) {
+        try {
+            // stun:host:port / turn:host:port?transport=tcp / turns:host:port
+            String scheme = url.substring(0, url.indexOf(':'));
+            String rest = url.substring(scheme.length() + 1);
+            boolean tcp = "turns".equals(scheme) || rest.contains("transport=tcp");
+            int query = rest.indexOf('?');
+            if (query >= 0) rest = rest.substring(0, query);
+            int colon = rest.lastIndexOf(':');
+            String host = colon > 0 ? rest.substring(0, colon) : rest;
+            int port = colon > 0 ? Integer.parseInt(rest.substring(colon + 1))
+                    : ("turns".equals(scheme) ? 5349 : 3478);
+
+            InetAddress address = InetAddress.getByName(host);
+            return tcp ? probeTcp(address, port) : probeUdp(address, port);
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static long probeUdp(InetAddress address, int port) throws IOException {
+        // STUN Binding request: type 0x0001, length 0, magic cookie, 96-bit transaction ID
+        byte[] request = new byte[20];
+        request[1] = 0x01;
+        request[4] = 0x21;
+        request[5] = 0x12;
+        request[6] = (byte) 0xA4;
+        request[7] = 0x42;
+        byte[] transactionId = new byte[12];
+        new Random().nextBytes(transactionId);
+        System.arraycopy(transactionId, 0, request, 8, 12);
+
+        try (DatagramSocket socket = new DatagramSocket()) {
+            socket.setSoTimeout(PROBE_TIMEOUT_MS);
+            long start = SystemClock.elapsedRealtime();
+            socket.send(new DatagramPacket(request, request.length, address, port));
+            byte[] buffer = new byte[512];
+            DatagramPacket response = new DatagramPacket(buffer, buffer.length);
+            socket.receive(response);
+            if (response.getLength() < 20
+                    || !Arrays.equals(transactionId, Arrays.copyOfRange(buffer, 8, 20))) {
+                return -1;
+            }
+            return SystemClock.elapsedRealtime() - start;
+        }
+    }
+
+    private static long probeTcp(InetAddress address, int port) throws IOException {
+        try (Socket socket = new Socket()) {
+            long start = SystemClock.elapsedRealtime();
+            socket.connect(new InetSocketAddress(address, port), PROBE_TIMEOUT_MS);
+            return SystemClock.elapsedRealtime() - start;
+        }
+    }
+
+    // ==================== PARSING & CACHE ====================
+
+    private static Entry fromSnapshot(DataSnapshot snapshot) {
+        Entry entry = new Entry();
+        DataSnapshot urls = snapshot.child("urls");
+        if (urls.hasChildren()) {
+            for (DataSnapshot url : urls.getChildren()) {
+                String value = url.getValue(String.class);
+                if (value != null) entry.urls.add(value);
+            }
+        } else if (urls.getValue() instanceof String) {
+            entry.urls.add((String) urls.getValue());
+        }
+        entry.username = snapshot.child("username").getValue(String.class);
+        entry.credential = snapshot.child("credential").getValue(String.class);
+        return entry.urls.isEmpty() ? null : entry;
+    }
+
+    private static Entry fromJson(JsonObject object) {
+        Entry entry = new Entry();
+        JsonElement urls = object.has("urls") ? object.get("urls") : object.get("url");
+        if (urls == null) return null;
+        if (urls.isJsonArray()) {
+            for (JsonElement url : urls.getAsJsonArray()) entry.urls.add(url.getAsString());
+        } else {
+            entry.urls.add(urls.getAsString());
+        }
+        if (object.has("username")) entry.username = object.get("username").getAsString();
+        if (object.has("credential")) entry.credential = object.get("credential").getAsString();
+        return entry.urls.isEmpty() ? null : entry;
+    }
+
+    private void persist(List<Entry> entries, long expiresAt) {
+        prefs.edit()
+                .putString(KEY_SERVERS, gson.toJson(entries))
+                .putLong(KEY_EXPIRES_AT, expiresAt)
+                .apply();
+    }
+
+    private List<Entry> restore() {
+        String json = prefs.getString(KEY_SERVERS, null);
+        long expiresAt = prefs.getLong(KEY_EXPIRES_AT, 0);
+        // Expired credentials would only produce failed TURN allocations
+        if (json == null || (expiresAt > 0 && System.currentTimeMillis() >= expiresAt)) {
+            return null;
+        }
+        try {
+            List<Entry> entries = gson.fromJson(json, new TypeToken<List<Entry>>() {}.getType());
+            credentialsExpireAt = expiresAt;
+            return entries != null && !entries.isEmpty() ? entries : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Used until config/ice has been read once. STUN only: relay credentials come from
+     * config/ice or the credentials endpoint, never from the APK.
+     */
+    private static List<Entry> defaults() {
+        List<Entry> entries = new ArrayList<>();
+        entries.add(entry("stun:stun.l.google.com:19302", null, null));
+        entries.add(entry("stun:stun1.l.google.com:19302", null, null));
+        entries.add(entry("stun:stun2.l.google.com:19302", null, null));
+        return entries;
+    }
+
+    private static Entry entry(String url, String username, String credential) {
+        Entry entry = new Entry();
+        entry.urls.add(url);
+        entry.username = username;
+        entry.credential = credential;
+        return entry;
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.project_ez_talk.webrtc;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import com.example.project_ez_talk.utils.ErrorCallBack;
@@ -16,6 +18,11 @@ import org.webrtc.SessionDescription;
 import org.webrtc.SurfaceViewRenderer;
 import org.webrtc.VideoTrack;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 public class MainRepository implements WebRTCClient.Listener {
 
     public ConnectionListener listener;
@@ -29,8 +36,30 @@ public class MainRepository implements WebRTCClient.Listener {
 
     private SurfaceViewRenderer remoteView;
 
+    private Context appContext;
+    // Set once the first connection is up; later drops are handovers, not hang-ups
+    private volatile boolean callConnected = false;
+    private final HandoverHost handoverHost = new HandoverHost();
+    private final CallHandoverManager handover = new CallHandoverManager(handoverHost);
+    private ReconnectListener reconnectListener;
+
     private String target;
 
+    // An unanswered pre-warmed call is dropped once its signaling would be stale anyway
+    private static final long PREWARM_TIMEOUT_MS = SignalingQueue.STALE_MS;
+    private final Handler prewarmHandler = new Handler(Looper.getMainLooper());
+    private final Runnable prewarmTimeout = this::cancelPrewarm;
+    private boolean prewarmed = false;
+    private Object prewarmToken;
+    // Signaling from the caller received while ringing, replayed on accept
+    private final List<DataModel> bufferedEvents = new ArrayList<>();
+
+    // Quality stats of the current call, and the summary of the last one once it ended
+    private CallStatsCollector statsCollector;
+    private Map<String, Object> lastCallStats;
+    private CallStatsCollector.Listener callStatsListener;
+    private VideoQualityController.Listener videoQualityListener;
+
     private void updateCurrentUsername(String username){
         this.currentUsername = username;
     }
@@ -56,107 +85,125 @@ public class MainRepository implements WebRTCClient.Listener {
     }
 
     public void login(String username, String displayName, Context context, SuccessCallBack callBack){
+        // An explicit login supersedes a pre-warm that has not finished yet
+        prewarmToken = null;
         firebaseClient.login(username,()->{
             updateCurrentUsername(username);
-            this.webRTCClient = new WebRTCClient(context,new MyPeerConnectionObserver(){
-                @Override
-                public void onAddStream(MediaStream mediaStream) {
-                    super.onAddStream(mediaStream);
-                    Log.d("MainRepository", "📺 onAddStream - Adding remote video to view");
-                    try{
-                        if (mediaStream.videoTracks.size() > 0) {
-                            VideoTrack remoteVideoTrack = mediaStream.videoTracks.get(0);
-                            remoteVideoTrack.setEnabled(true);
-                            remoteVideoTrack.addSink(remoteView);
-                            Log.d("MainRepository", "✅ Video track added to remoteView");
-                        }
-                        if (mediaStream.audioTracks.size() > 0) {
-                            mediaStream.audioTracks.get(0).setEnabled(true);
-                            Log.d("MainRepository", "✅ Audio track enabled");
-                        }
-                    }catch (Exception e){
-                        Log.e("MainRepository", "❌ Error adding remote video", e);
-                        e.printStackTrace();
+            if (!claimPrewarmedCall(username)) {
+                createWebRTCClient(context, username);
+            }
+            callBack.onSuccess();
+        });
+    }
+
+    private void createWebRTCClient(Context context, String username){
+        this.appContext = context.getApplicationContext();
+        this.callConnected = false;
+        this.webRTCClient = new WebRTCClient(context,new MyPeerConnectionObserver(){
+            @Override
+            public void onAddStream(MediaStream mediaStream) {
+                super.onAddStream(mediaStream);
+                Log.d("MainRepository", "📺 onAddStream - Adding remote video to view");
+                try{
+                    if (mediaStream.videoTracks.size() > 0) {
+                        VideoTrack remoteVideoTrack = mediaStream.videoTracks.get(0);
+                        remoteVideoTrack.setEnabled(true);
+                        remoteVideoTrack.addSink(remoteView);
+                        Log.d("MainRepository", "✅ Video track added to remoteView");
                     }
-                    if (repositoryListener!=null){
-                        repositoryListener.onRemoteStreamAdded(mediaStream);
+                    if (mediaStream.audioTracks.size() > 0) {
+                        mediaStream.audioTracks.get(0).setEnabled(true);
+                        Log.d("MainRepository", "✅ Audio track enabled");
                     }
+                }catch (Exception e){
+                    Log.e("MainRepository", "❌ Error adding remote video", e);
+                    e.printStackTrace();
                 }
+                if (repositoryListener!=null){
+                    repositoryListener.onRemoteStreamAdded(mediaStream);
+                }
+            }
 
-                // ✅ Handle onAddTrack for modern WebRTC API
-                @Override
-                public void onAddTrack(RtpReceiver rtpReceiver, MediaStream[] mediaStreams) {
-                    super.onAddTrack(rtpReceiver, mediaStreams);
-                    Log.d("MainRepository", "🔥 onAddTrack called!");
-                    
-                    if (rtpReceiver == null || rtpReceiver.track() == null) {
-                        Log.e("MainRepository", "❌ RtpReceiver or track is null");
-                        return;
-                    }
+            // ✅ Handle onAddTrack for modern WebRTC API
+            @Override
+            public void onAddTrack(RtpReceiver rtpReceiver, MediaStream[] mediaStreams) {
+                super.onAddTrack(rtpReceiver, mediaStreams);
+                Log.d("MainRepository", "🔥 onAddTrack called!");
+                
+                if (rtpReceiver == null || rtpReceiver.track() == null) {
+                    Log.e("MainRepository", "❌ RtpReceiver or track is null");
+                    return;
+                }
+                
+                try {
+                    String trackKind = rtpReceiver.track().kind();
+                    Log.d("MainRepository", "   Track kind: " + trackKind);
                     
-                    try {
-                        String trackKind = rtpReceiver.track().kind();
-                        Log.d("MainRepository", "   Track kind: " + trackKind);
-                        
-                        if ("video".equals(trackKind)) {
-                            VideoTrack remoteVideoTrack = (VideoTrack) rtpReceiver.track();
-                            remoteVideoTrack.setEnabled(true);
-                            
-                            if (remoteView != null) {
-                                remoteVideoTrack.addSink(remoteView);
-                                Log.d("MainRepository", "✅ Remote video track added to view");
-                            } else {
-                                Log.e("MainRepository", "❌ remoteView is null!");
-                            }
-                        } else if ("audio".equals(trackKind)) {
-                            rtpReceiver.track().setEnabled(true);
-                            Log.d("MainRepository", "✅ Remote audio track enabled");
-                        }
+                    if ("video".equals(trackKind)) {
+                        VideoTrack remoteVideoTrack = (VideoTrack) rtpReceiver.track();
+                        remoteVideoTrack.setEnabled(true);
                         
-                        // Also call repository listener if available
-                        if (repositoryListener != null && mediaStreams.length > 0) {
-                            repositoryListener.onRemoteStreamAdded(mediaStreams[0]);
+                        if (remoteView != null) {
+                            remoteVideoTrack.addSink(remoteView);
+                            Log.d("MainRepository", "✅ Remote video track added to view");
+                        } else {
+                            Log.e("MainRepository", "❌ remoteView is null!");
                         }
-                        
-                    } catch (Exception e) {
-                        Log.e("MainRepository", "❌ Error handling remote track", e);
-                        e.printStackTrace();
+                    } else if ("audio".equals(trackKind)) {
+                        rtpReceiver.track().setEnabled(true);
+                        Log.d("MainRepository", "✅ Remote audio track enabled");
                     }
+                    
+                    // Also call repository listener if available
+                    if (repositoryListener != null && mediaStreams.length > 0) {
+                        repositoryListener.onRemoteStreamAdded(mediaStreams[0]);
+                    }
+                    
+                } catch (Exception e) {
+                    Log.e("MainRepository", "❌ Error handling remote track", e);
+                    e.printStackTrace();
                 }
+            }
 
-                @Override
-                public void onConnectionChange(PeerConnection.PeerConnectionState newState) {
-                    Log.d("TAG", "onConnectionChange: "+newState);
-                    super.onConnectionChange(newState);
-                    if (newState == PeerConnection.PeerConnectionState.CONNECTED){
-                        if (listener!=null){
-                            listener.webrtcConnected();
-                        }
-                        if (repositoryListener!=null){
-                            repositoryListener.onCallConnected();
-                        }
+            @Override
+            public void onConnectionChange(PeerConnection.PeerConnectionState newState) {
+                Log.d("TAG", "onConnectionChange: "+newState);
+                super.onConnectionChange(newState);
+                if (newState == PeerConnection.PeerConnectionState.CONNECTED){
+                    handover.onConnectionStateChanged(newState);
+                    // Back on a new path after a handover: already reported as connected
+                    if (callConnected) return;
+                    callConnected = true;
+                    startCallStats();
+                    handover.start(appContext);
+                    if (listener!=null){
+                        listener.webrtcConnected();
                     }
-
-                    if (newState == PeerConnection.PeerConnectionState.CLOSED ||
-                            newState == PeerConnection.PeerConnectionState.DISCONNECTED ){
-                        if (listener!=null){
-                            listener.webrtcClosed();
-                        }
-                        if (repositoryListener!=null){
-                            repositoryListener.onCallEnded();
-                        }
+                    if (repositoryListener!=null){
+                        repositoryListener.onCallConnected();
                     }
                 }
 
-                @Override
-                public void onIceCandidate(IceCandidate iceCandidate) {
-                    super.onIceCandidate(iceCandidate);
-                    webRTCClient.sendIceCandidate(iceCandidate,target);
+                // ✅ A connected call that drops is restarted on the new path, not ended
+                if (callConnected && (newState == PeerConnection.PeerConnectionState.DISCONNECTED ||
+                        newState == PeerConnection.PeerConnectionState.FAILED)){
+                    handover.onConnectionStateChanged(newState);
+                    return;
                 }
-            },username);
-            webRTCClient.listener = this;
-            callBack.onSuccess();
-        });
+
+                if (newState == PeerConnection.PeerConnectionState.CLOSED ||
+                        newState == PeerConnection.PeerConnectionState.DISCONNECTED ){
+                    notifyCallEnded();
+                }
+            }
+
+            @Override
+            public void onIceCandidate(IceCandidate iceCandidate) {
+                super.onIceCandidate(iceCandidate);
+                webRTCClient.sendIceCandidate(iceCandidate,target);
+            }
+        },username);
+        webRTCClient.listener = this;
     }
 
     public void initLocalView(SurfaceViewRenderer view){
@@ -191,41 +238,247 @@ public class MainRepository implements WebRTCClient.Listener {
     }
 
     public void endCall(){
+        handover.stop();
+        callConnected = false;
+        stopCallStats();
         webRTCClient.closeConnection();
+        firebaseClient.clearRecipientCache();
     }
 
     public void subscribeForLatestEvent(NewEventCallBack callBack){
-        firebaseClient.observeIncomingLatestEvent(model -> {
-            switch (model.getType()){
-
-                case Offer:
-                    this.target = model.getSender();
-                    webRTCClient.onRemoteSessionReceived(new SessionDescription(
-                            SessionDescription.Type.OFFER,model.getData()
-                    ));
-                    webRTCClient.answer(model.getSender());
-                    break;
-                case Answer:
-                    this.target = model.getSender();
-                    webRTCClient.onRemoteSessionReceived(new SessionDescription(
-                            SessionDescription.Type.ANSWER,model.getData()
-                    ));
-                    break;
-                case IceCandidate:
-                    try{
-                        IceCandidate candidate = gson.fromJson(model.getData(),IceCandidate.class);
-                        webRTCClient.addIceCandidate(candidate);
-                    }catch (Exception e){
-                        e.printStackTrace();
+        // Whatever arrived while the call was ringing goes first, in arrival order
+        List<DataModel> buffered = new ArrayList<>(bufferedEvents);
+        bufferedEvents.clear();
+        for (DataModel model : buffered) {
+            onSignalingEvent(model, callBack);
+        }
+        firebaseClient.observeIncomingLatestEvent(model -> onSignalingEvent(model, callBack));
+    }
+
+    private void onSignalingEvent(DataModel model, NewEventCallBack callBack){
+        switch (model.getType()){
+
+            case Offer:
+                this.target = model.getSender();
+                // Both sides restarted ICE at once: the initiator's offer wins
+                if (webRTCClient.hasPendingLocalOffer()) {
+                    if (handoverHost.isRestartInitiator()) {
+                        Log.d("MainRepository", "⚔️ Ignoring crossing offer from " + model.getSender());
+                        break;
                     }
-                    break;
-                case StartCall:
-                    this.target = model.getSender();
-                    callBack.onNewEventReceived(model);
-                    break;
+                    webRTCClient.rollbackLocalOffer();
+                }
+                webRTCClient.onRemoteSessionReceived(new SessionDescription(
+                        SessionDescription.Type.OFFER,model.getData()
+                ));
+                webRTCClient.answer(model.getSender());
+                break;
+            case Answer:
+                this.target = model.getSender();
+                webRTCClient.onRemoteSessionReceived(new SessionDescription(
+                        SessionDescription.Type.ANSWER,model.getData()
+                ));
+                break;
+            case IceCandidate:
+                // Single candidate from a peer that doesn't batch yet
+                try{
+                    IceCandidate candidate = gson.fromJson(model.getData(),IceCandidate.class);
+                    webRTCClient.addIceCandidate(candidate);
+                }catch (Exception e){
+                    e.printStackTrace();
+                }
+                break;
+            case IceCandidates:
+                try{
+                    IceCandidateBatcher.Batch batch = gson.fromJson(model.getData(),IceCandidateBatcher.Batch.class);
+                    webRTCClient.addIceCandidates(batch.toIceCandidates());
+                }catch (Exception e){
+                    Log.e("MainRepository", "❌ Bad ICE candidate batch", e);
+                }
+                break;
+            case StartCall:
+                this.target = model.getSender();
+                callBack.onNewEventReceived(model);
+                break;
+        }
+    }
+
+    // ==================== PRE-WARM ====================
+
+    /**
+     * Get an incoming call ready while it rings: initialize WebRTC, create the peer connection
+     * (its ICE candidate pool starts gathering against the configured servers right away) and
+     * hold on to the caller's offer and candidates, without opening the microphone or camera.
+     * The call screen's {@link #login} then picks up the warm connection and
+     * {@link #subscribeForLatestEvent} answers the held offer at once. A call that is not
+     * answered is torn down by {@link #cancelPrewarm()}, or after {@link #PREWARM_TIMEOUT_MS}.
+     */
+    public void prewarm(Context context, String username, String caller){
+        if (prewarmed && caller.equals(target) && username.equals(currentUsername)) return;
+        cancelPrewarm();
+
+        Object token = new Object();
+        prewarmToken = token;
+        Context appContext = context.getApplicationContext();
+        firebaseClient.login(username,()->{
+            if (prewarmToken != token) return;  // cancelled or superseded meanwhile
+            prewarmToken = null;
+            updateCurrentUsername(username);
+            createWebRTCClient(appContext, username);
+            target = caller;
+            prewarmed = true;
+            prewarmHandler.postDelayed(prewarmTimeout, PREWARM_TIMEOUT_MS);
+            firebaseClient.observeIncomingLatestEvent(this::bufferSignalingEvent);
+            Log.d("MainRepository", "🔥 Call from " + caller + " pre-warmed");
+        });
+    }
+
+    /**
+     * Tear down a pre-warmed call that was not answered (declined, missed, cancelled)
+     */
+    public void cancelPrewarm(){
+        prewarmToken = null;
+        prewarmHandler.removeCallbacks(prewarmTimeout);
+        bufferedEvents.clear();
+        if (!prewarmed) return;
+        prewarmed = false;
+        firebaseClient.stopObservingEvents();
+        if (webRTCClient != null) {
+            webRTCClient.closeConnection();
+        }
+        firebaseClient.clearRecipientCache();
+        Log.d("MainRepository", "🧹 Pre-warmed call torn down");
+    }
+
+    private boolean claimPrewarmedCall(String username){
+        if (!prewarmed) return false;
+        prewarmed = false;
+        prewarmHandler.removeCallbacks(prewarmTimeout);
+        if (webRTCClient == null || webRTCClient.isClosed() || !username.equals(currentUsername)) {
+            bufferedEvents.clear();
+            return false;
+        }
+        Log.d("MainRepository", "⚡ Using pre-warmed connection for " + target);
+        return true;
+    }
+
+    private void bufferSignalingEvent(DataModel model){
+        switch (model.getType()){
+            case Offer:
+            case IceCandidate:
+            case IceCandidates:
+                if (target != null && target.equals(model.getSender())) {
+                    bufferedEvents.add(model);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    // ==================== HANDOVER ====================
+
+    /**
+     * "Reconnecting…" feedback while a call moves to a new network, on the main thread
+     */
+    public void setReconnectListener(ReconnectListener listener){
+        this.reconnectListener = listener;
+    }
+
+    private void notifyCallEnded(){
+        if (listener!=null){
+            listener.webrtcClosed();
+        }
+        if (repositoryListener!=null){
+            repositoryListener.onCallEnded();
+        }
+    }
+
+    private class HandoverHost implements CallHandoverManager.Host {
+        @Override
+        public boolean isRestartInitiator() {
+            // Deterministic, so exactly one side restarts on a plain disconnect
+            return currentUsername != null && target != null && currentUsername.compareTo(target) < 0;
+        }
+
+        @Override
+        public void restartIce() {
+            webRTCClient.restartIce(target);
+        }
+
+        @Override
+        public void onInterruptionStarted() {
+            Log.d("MainRepository", "📶 Call interrupted, renegotiating path");
+            if (reconnectListener != null) reconnectListener.onReconnecting();
+        }
+
+        @Override
+        public void onInterruptionEnded(long durationMs) {
+            synchronized (MainRepository.this) {
+                if (statsCollector != null) statsCollector.recordInterruption(durationMs);
             }
+            if (reconnectListener != null) reconnectListener.onReconnected(durationMs);
+        }
+
+        @Override
+        public void onHandoverFailed() {
+            notifyCallEnded();
+        }
+    }
+
+    // ==================== CALL STATS ====================
 
+    /**
+     * Live quality samples of the current call, on the main thread (null to stop)
+     */
+    public void setCallStatsListener(CallStatsCollector.Listener listener){
+        this.callStatsListener = listener;
+    }
+
+    /**
+     * Video tier changes of the current call (e.g. paused to audio-only), on the main thread
+     */
+    public void setVideoQualityListener(VideoQualityController.Listener listener){
+        this.videoQualityListener = listener;
+    }
+
+    /**
+     * Quality summary of the current call, or of the last one if it has ended
+     */
+    public synchronized Map<String, Object> getCallStatsSummary(){
+        if (statsCollector != null) return statsCollector.summarize();
+        return lastCallStats != null ? new HashMap<>(lastCallStats) : null;
+    }
+
+    private synchronized void startCallStats(){
+        PeerConnection peerConnection = webRTCClient.getPeerConnection();
+        if (peerConnection == null || (statsCollector != null && statsCollector.isRunning())) return;
+        lastCallStats = null;
+        statsCollector = new CallStatsCollector(peerConnection);
+        statsCollector.addListener(sample -> {
+            CallStatsCollector.Listener l = callStatsListener;
+            if (l != null) l.onSample(sample);
         });
+
+        // Video calls adapt their outgoing quality to the same samples
+        VideoQualityController videoQuality = webRTCClient.newVideoQualityController();
+        if (videoQuality != null) {
+            videoQuality.setListener(tier -> {
+                VideoQualityController.Listener l = videoQualityListener;
+                if (l != null) l.onTierChanged(tier);
+            });
+            videoQuality.start();
+            statsCollector.addListener(videoQuality);
+        }
+        statsCollector.start();
+    }
+
+    private synchronized void stopCallStats(){
+        if (statsCollector == null) return;
+        statsCollector.stop();
+        lastCallStats = statsCollector.summarize();
+        statsCollector = null;
+        Log.d("MainRepository", "📊 Call stats: " + lastCallStats);
     }
 
     @Override
@@ -243,6 +496,11 @@ public class MainRepository implements WebRTCClient.Listener {
         void onError();
     }
 
+    public interface ReconnectListener{
+        void onReconnecting();
+        void onReconnected(long interruptionMs);
+    }
+
     public interface RepositoryListener{
         void onCallConnected();
         void onCallEnded();
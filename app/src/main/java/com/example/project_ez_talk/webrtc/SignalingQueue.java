@@ -0,0 +1,182 @@
+package com.example.project_ez_talk.webrtc;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only signaling inbox in the Realtime Database.
+ * Every event is pushed as its own child of {@code <root>/<userId>/queue}, so a burst
+ * of ICE candidates can no longer overwrite each other the way a single "latest event"
+ * slot did. The receiver reads the queue in push-ID order with a ChildEventListener
+ * and acknowledges each event by removing it once dispatched.
+ *
+ * Each event carries the sender's session and a sequence number: an event that shows
+ * up again (its removal failed, or the listener was re-attached before the removal
+ * landed) is acknowledged without being dispatched twice. Events older than
+ * {@link #STALE_MS} by server time are from calls that are long over and are
+ * garbage-collected unseen.
+ *
+ * The root reference is passed in, so the queue can run against the local Realtime
+ * Database emulator ({@code FirebaseDatabase#useEmulator}) as well as production.
+ */
+public class SignalingQueue {
+
+    private static final String TAG = "SignalingQueue";
+
+    private static final String QUEUE_NODE = "queue";
+    private static final String FIELD_PAYLOAD = "payload";
+    private static final String FIELD_SENDER = "sender";
+    private static final String FIELD_SESSION = "session";
+    private static final String FIELD_SEQ = "seq";
+    private static final String FIELD_SENT_AT = "sentAt";
+
+    // Signaling older than this belongs to a call that has already timed out
+    static final long STALE_MS = 60_000;
+
+    /**
+     * Receives events in the order they were sent, on the main thread
+     */
+    public interface Consumer {
+        void onEvent(String payload);
+    }
+
+    private final DatabaseReference root;
+    // Identifies this process as a sender, so receivers can tell restarts apart
+    private final String session = UUID.randomUUID().toString();
+    private final AtomicLong nextSeq = new AtomicLong();
+    // Highest sequence dispatched per sender session
+    private final Map<String, Long> lastSeen = new HashMap<>();
+
+    private DatabaseReference subscribedRef;
+    private ChildEventListener childListener;
+    private ValueEventListener offsetListener;
+    private long serverTimeOffset = 0;
+
+    public SignalingQueue(DatabaseReference root) {
+        this.root = root;
+    }
+
+    // ==================== SENDING ====================
+
+    /**
+     * Append {@code payload} to {@code targetId}'s queue
+     */
+    public void send(String targetId, String senderId, String payload, Runnable onError) {
+        Map<String, Object> event = new HashMap<>();
+        event.put(FIELD_PAYLOAD, payload);
+        event.put(FIELD_SENDER, senderId);
+        event.put(FIELD_SESSION, session);
+        event.put(FIELD_SEQ, nextSeq.incrementAndGet());
+        event.put(FIELD_SENT_AT, ServerValue.TIMESTAMP);
+
+        root.child(targetId).child(QUEUE_NODE).push()
+                .setValue(event)
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "❌ Failed to queue event for " + targetId + ": " + e.getMessage());
+                    if (onError != null) onError.run();
+                });
+    }
+
+    // ==================== RECEIVING ====================
+
+    /**
+     * Start consuming {@code userId}'s queue, replacing any previous subscription.
+     * Events already waiting are delivered first, oldest first.
+     */
+    public void subscribe(String userId, Consumer consumer) {
+        unsubscribe();
+
+        offsetListener = new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                Long offset = snapshot.getValue(Long.class);
+                serverTimeOffset = offset != null ? offset : 0;
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+            }
+        };
+        root.getRoot().child(".info/serverTimeOffset").addValueEventListener(offsetListener);
+
+        subscribedRef = root.child(userId).child(QUEUE_NODE);
+        childListener = new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, String previousChildName) {
+                consume(snapshot, consumer);
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, String previousChildName) {
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+            }
+
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, String previousChildName) {
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.e(TAG, "❌ Queue listener cancelled: " + error.getMessage());
+            }
+        };
+        subscribedRef.orderByKey().addChildEventListener(childListener);
+        Log.d(TAG, "👂 Consuming signaling queue of " + userId);
+    }
+
+    public void unsubscribe() {
+        if (subscribedRef != null && childListener != null) {
+            subscribedRef.orderByKey().removeEventListener(childListener);
+        }
+        if (offsetListener != null) {
+            root.getRoot().child(".info/serverTimeOffset").removeEventListener(offsetListener);
+        }
+        subscribedRef = null;
+        childListener = null;
+        offsetListener = null;
+    }
+
+    private void consume(DataSnapshot snapshot, Consumer consumer) {
+        String payload = snapshot.child(FIELD_PAYLOAD).getValue(String.class);
+        String session = snapshot.child(FIELD_SESSION).getValue(String.class);
+        Long seq = snapshot.child(FIELD_SEQ).getValue(Long.class);
+        Long sentAt = snapshot.child(FIELD_SENT_AT).getValue(Long.class);
+
+        // Ack first: whatever happens below, this event is done with
+        snapshot.getRef().removeValue();
+
+        if (payload == null || payload.isEmpty()) {
+            return;
+        }
+        if (sentAt != null && System.currentTimeMillis() + serverTimeOffset - sentAt > STALE_MS) {
+            Log.d(TAG, "🗑️ Dropping stale event " + snapshot.getKey());
+            return;
+        }
+        if (session != null && seq != null) {
+            Long last = lastSeen.get(session);
+            if (last != null && seq <= last) {
+                Log.d(TAG, "⚠️ Duplicate event " + snapshot.getKey() + " (seq " + seq + ")");
+                return;
+            }
+            lastSeen.put(session, seq);
+        }
+
+        consumer.onEvent(payload);
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.project_ez_talk.webrtc;
+
+import android.util.Log;
+
+import org.webrtc.CameraVideoCapturer;
+import org.webrtc.MediaStreamTrack;
+import org.webrtc.PeerConnection;
+import org.webrtc.RtpParameters;
+import org.webrtc.RtpSender;
+
+/**
+ * ✅ Adapts the outgoing video to the network during a call
+ * Fed by {@link CallStatsCollector} samples, it walks a fixed ladder of {@link Tier}s using
+ * the sender-side bandwidth estimate and the loss the peer reports for our video. Each tier
+ * sets the video RtpSender's max bitrate, scale-down factor and max frame rate, and the
+ * camera capture format when it differs. Below the lowest tier video is paused and the
+ * call carries on audio-only until the link recovers.
+ *
+ * While video is paused only audio is sent, so the bandwidth estimate never climbs high
+ * enough to show room for video again. Instead video is resumed at the lowest tier on a
+ * timer, as a trial: for the first few seconds only loss can end it (the estimate is still
+ * ramping up), and a trial that falls back soon after doubles the wait before the next.
+ *
+ * Hysteresis keeps it from oscillating: stepping down needs {@link #DOWN_SAMPLES} bad
+ * samples in a row, stepping up needs {@link #UP_SAMPLES} good ones with headroom above
+ * the next tier, and an upgrade that has to be undone right away doubles the wait before
+ * the next attempt.
+ */
+public class VideoQualityController implements CallStatsCollector.Listener {
+
+    private static final String TAG = "VideoQualityController";
+
+    // 2 samples = 4 s of congestion before degrading
+    static final int DOWN_SAMPLES = 2;
+    // 5 samples = 10 s of headroom before probing a higher tier
+    static final int UP_SAMPLES = 5;
+    private static final int MAX_UP_SAMPLES = 30;
+    private static final long FAILED_UPGRADE_MS = 10_000;
+
+    // Audio-only this long before trying video again; doubled after each failed trial
+    static final long RESUME_DELAY_MS = 15_000;
+    static final long MAX_RESUME_DELAY_MS = 120_000;
+    // After resuming, only loss counts as congestion while the estimate ramps up
+    static final long RESUME_GRACE_MS = 6_000;
+    // Falling back to audio-only within this long of resuming means the trial failed
+    static final long RESUME_HOLD_MS = 30_000;
+
+    private static final double LOSS_DOWN_PERCENT = 10;
+    private static final double LOSS_UP_PERCENT = 2;
+    // Estimate needed above a tier's bitrate before moving up to it
+    private static final double UP_HEADROOM = 1.3;
+    // Below this fraction of the current tier's bitrate the link is congested
+    private static final double DOWN_THRESHOLD = 0.7;
+
+    /**
+     * Quality ladder, best first. {@link #AUDIO_ONLY} disables the video encoding.
+     */
+    public enum Tier {
+        HIGH(640, 480, 24, 1.0, 24, 800),
+        MEDIUM(480, 360, 15, 1.0, 15, 450),
+        LOW(480, 360, 15, 1.5, 12, 200),
+        MINIMAL(320, 240, 10, 2.0, 8, 80),
+        AUDIO_ONLY(320, 240, 10, 2.0, 8, 0);
+
+        final int captureWidth;
+        final int captureHeight;
+        final int captureFps;
+        final double scaleDownBy;
+        final int maxFramerate;
+        final int maxKbps;
+
+        Tier(int captureWidth, int captureHeight, int captureFps, double scaleDownBy,
+             int maxFramerate, int maxKbps) {
+            this.captureWidth = captureWidth;
+            this.captureHeight = captureHeight;
+            this.captureFps = captureFps;
+            this.scaleDownBy = scaleDownBy;
+            this.maxFramerate = maxFramerate;
+            this.maxKbps = maxKbps;
+        }
+
+        boolean sameCapture(Tier other) {
+            return captureWidth == other.captureWidth && captureHeight == other.captureHeight
+                    && captureFps == other.captureFps;
+        }
+    }
+
+    public interface Listener {
+        void onTierChanged(Tier tier);
+    }
+
+    /**
+     * The tier {@link WebRTCClient} starts capturing at
+     */
+    static final Tier INITIAL_TIER = Tier.MEDIUM;
+
+    private final PeerConnection peerConnection;
+    private final CameraVideoCapturer capturer;
+    private Listener listener;
+
+    private Tier tier = INITIAL_TIER;
+    private int badSamples;
+    private int goodSamples;
+    private int upSamplesNeeded = UP_SAMPLES;
+    private long lastUpgradeAt;
+    private long audioOnlySince;
+    private long resumeDelayMs = RESUME_DELAY_MS;
+    private long resumedAt;
+
+    public VideoQualityController(PeerConnection peerConnection, CameraVideoCapturer capturer) {
+        this.peerConnection = peerConnection;
+        this.capturer = capturer;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public Tier getTier() {
+        return tier;
+    }
+
+    /**
+     * Push the initial tier's encoding limits to the sender
+     */
+    public void start() {
+        applyEncoding(tier);
+    }
+
+    // ==================== DECISIONS ====================
+
+    @Override
+    public void onSample(CallStatsCollector.Sample sample) {
+        long now = sample.timestamp;
+        if (tier == Tier.AUDIO_ONLY) {
+            if (now - audioOnlySince >= resumeDelayMs) {
+                Log.d(TAG, "🔁 Trying video again after " + resumeDelayMs + " ms audio-only");
+                resumedAt = now;
+                switchTo(Tier.MINIMAL);
+            }
+            return;
+        }
+        if (resumedAt > 0 && now - resumedAt >= RESUME_HOLD_MS) {
+            // The trial held: the next fallback starts from the base delay again
+            resumedAt = 0;
+            resumeDelayMs = RESUME_DELAY_MS;
+        }
+
+        double available = sample.availableOutKbps;
+        double loss = sample.outLossPercent;
+        boolean ramping = resumedAt > 0 && now - resumedAt < RESUME_GRACE_MS;
+
+        boolean congested = (loss >= LOSS_DOWN_PERCENT)
+                || (!ramping && available >= 0 && available < tier.maxKbps * DOWN_THRESHOLD);
+        Tier up = higher(tier);
+        boolean headroom = !ramping && up != null
+                && (loss < 0 || loss < LOSS_UP_PERCENT)
+                && available >= up.maxKbps * UP_HEADROOM;
+
+        if (congested) {
+            goodSamples = 0;
+            if (++badSamples >= DOWN_SAMPLES) {
+                badSamples = 0;
+                stepDown(available, now);
+            }
+        } else if (headroom) {
+            badSamples = 0;
+            if (++goodSamples >= upSamplesNeeded) {
+                goodSamples = 0;
+                switchTo(up);
+                lastUpgradeAt = now;
+            }
+        } else {
+            badSamples = 0;
+            goodSamples = 0;
+        }
+    }
+
+    private void stepDown(double available, long now) {
+        if (tier == Tier.AUDIO_ONLY) return;
+
+        // An upgrade that did not hold: wait longer before the next one
+        if (lastUpgradeAt > 0 && now - lastUpgradeAt < FAILED_UPGRADE_MS) {
+            upSamplesNeeded = Math.min(upSamplesNeeded * 2, MAX_UP_SAMPLES);
+        }
+        lastUpgradeAt = 0;
+
+        // Jump straight to the tier the estimate can carry instead of one step at a time
+        Tier next = lower(tier);
+        while (available >= 0 && next != Tier.AUDIO_ONLY && available < next.maxKbps * DOWN_THRESHOLD) {
+            next = lower(next);
+        }
+        if (next == Tier.AUDIO_ONLY) {
+            boolean failedTrial = resumedAt > 0 && now - resumedAt < RESUME_HOLD_MS;
+            resumeDelayMs = failedTrial ? Math.min(resumeDelayMs * 2, MAX_RESUME_DELAY_MS) : RESUME_DELAY_MS;
+            audioOnlySince = now;
+            resumedAt = 0;
+        }
+        switchTo(next);
+    }
+
+    private static Tier higher(Tier tier) {
+        return tier.ordinal() > 0 ? Tier.values()[tier.ordinal() - 1] : null;
+    }
+
+    private static Tier lower(Tier tier) {
+        Tier[] tiers = Tier.values();
+        return tier.ordinal() < tiers.length - 1 ? tiers[tier.ordinal() + 1] : tier;
+    }
+
+    // ==================== APPLYING ====================
+
+    private void switchTo(Tier next) {
+        if (next == tier) return;
+        Tier previous = tier;
+        tier = next;
+        Log.d(TAG, (next.ordinal() > previous.ordinal() ? "📉 " : "📈 ") + "Video " + previous + " → " + next);
+
+        if (!next.sameCapture(previous) && capturer != null) {
+            capturer.changeCaptureFormat(next.captureWidth, next.captureHeight, next.captureFps);
+        }
+        applyEncoding(next);
+
+        if (listener != null) {
+            listener.onTierChanged(next);
+        }
+    }
+
+    private void applyEncoding(Tier tier) {
+        RtpSender sender = videoSender();
+        if (sender == null) return;
+
+        RtpParameters parameters = sender.getParameters();
+        // Under pressure keep the picture moving and let resolution give way
+        parameters.degradationPreference = RtpParameters.DegradationPreference.MAINTAIN_FRAMERATE;
+        for (RtpParameters.Encoding encoding : parameters.encodings) {
+            encoding.active = tier != Tier.AUDIO_ONLY;
+            encoding.maxBitrateBps = Math.max(tier.maxKbps, 1) * 1000;
+            encoding.maxFramerate = tier.maxFramerate;
+            encoding.scaleResolutionDownBy = tier.scaleDownBy;
+        }
+        if (!sender.setParameters(parameters)) {
+            Log.w(TAG, "⚠️ Video sender rejected parameters for " + tier);
+        }
+    }
+
+    private RtpSender videoSender() {
+        if (peerConnection == null) return null;
+        try {
+            for (RtpSender sender : peerConnection.getSenders()) {
+                MediaStreamTrack track = sender.track();
+                if (track != null && MediaStreamTrack.VIDEO_TRACK_KIND.equals(track.kind())) {
+                    return sender;
+                }
+            }
+        } catch (IllegalStateException e) {
+            // Peer connection already disposed
+        }
+        return null;
+    }
+}
@@ -10,8 +10,6 @@ import org.webrtc.AudioSource;
 import org.webrtc.AudioTrack;
 import org.webrtc.Camera2Enumerator;
 import org.webrtc.CameraVideoCapturer;
-import org.webrtc.DefaultVideoDecoderFactory;
-import org.webrtc.DefaultVideoEncoderFactory;
 import org.webrtc.EglBase;
 import org.webrtc.IceCandidate;
 import org.webrtc.MediaConstraints;
@@ -32,11 +30,13 @@ public class WebRTCClient {
     private final Gson gson = new Gson();
     private final Context context;
     private final String username;
-    private EglBase.Context eglBaseContext= EglBase.create().getEglBaseContext();
-    private PeerConnectionFactory peerConnectionFactory;
+    // ✅ Shared with every other call: see WebRtcRuntime
+    private final EglBase.Context eglBaseContext;
+    private final PeerConnectionFactory peerConnectionFactory;
     private PeerConnection peerConnection;
     private List<PeerConnection.IceServer> iceServer = new ArrayList<>();
     private CameraVideoCapturer videoCapturer;
+    private SurfaceTextureHelper surfaceTextureHelper;
     private VideoSource localVideoSource;
     private AudioSource localAudioSource;
     private String localTrackId = "local_track";
@@ -46,6 +46,8 @@ public class WebRTCClient {
     private MediaStream localStream;
     private MediaConstraints mediaConstraints = new MediaConstraints();
     private boolean isDisposed = false; // ✅ Track disposal state
+    // ✅ Trickled candidates go out in small batches instead of one write each
+    private final IceCandidateBatcher iceBatcher = new IceCandidateBatcher(this::sendIceCandidateBatch);
 
     public Listener listener;
 
@@ -55,32 +57,13 @@ public class WebRTCClient {
         
         Log.d("WebRTCClient", "🔧 Initializing WebRTCClient for user: " + username);
         
-        initPeerConnectionFactory();
-        peerConnectionFactory = createPeerConnectionFactory();
+        WebRtcRuntime runtime = WebRtcRuntime.get(context);
+        eglBaseContext = runtime.getEglContext();
+        peerConnectionFactory = runtime.getFactory();
         
-        // ✅ Add STUN servers for NAT discovery
-        iceServer.add(PeerConnection.IceServer.builder("stun:stun1.l.google.com:19302").createIceServer());
-        iceServer.add(PeerConnection.IceServer.builder("stun:stun2.l.google.com:19302").createIceServer());
-        
-        // ✅ Add TURN servers for emulator-to-emulator calls (relay traffic)
-        // Free TURN server from Metered.ca
-        iceServer.add(PeerConnection.IceServer.builder("turn:a.relay.metered.ca:80")
-                .setUsername("85d4fa7c0d83e2130e1cd9e0")
-                .setPassword("4pxET4c0oa/730YK")
-                .createIceServer());
-        
-        iceServer.add(PeerConnection.IceServer.builder("turn:a.relay.metered.ca:443")
-                .setUsername("85d4fa7c0d83e2130e1cd9e0")
-                .setPassword("4pxET4c0oa/730YK")
-                .createIceServer());
-        
-        // Backup TURN server
-        iceServer.add(PeerConnection.IceServer.builder("turn:openrelay.metered.ca:80")
-                .setUsername("openrelayproject")
-                .setPassword("openrelayproject")
-                .createIceServer());
-        
-        Log.d("WebRTCClient", "✅ ICE servers configured: " + iceServer.size() + " servers (2 STUN + 3 TURN)");
+        // ✅ Ranked STUN/TURN servers, shared with audio calls: see IceServerProvider
+        iceServer = IceServerProvider.get(context).getIceServers();
+        Log.d("WebRTCClient", "✅ ICE servers configured: " + iceServer.size() + " servers");
         
         // ✅ Create PeerConnection with RTCConfiguration optimized for emulators
         PeerConnection.RTCConfiguration rtcConfig = new PeerConnection.RTCConfiguration(iceServer);
@@ -92,6 +75,10 @@ public class WebRTCClient {
         
         // ✅ Continuous gathering for better connectivity
         rtcConfig.continualGatheringPolicy = PeerConnection.ContinualGatheringPolicy.GATHER_CONTINUALLY;
+
+        // ✅ Gather (and allocate TURN) as soon as the connection exists, not at the first
+        // setLocalDescription: a pre-warmed incoming call has its candidates ready on accept
+        rtcConfig.iceCandidatePoolSize = 1;
         
         Log.d("WebRTCClient", "🔧 Creating PeerConnection...");
         Log.d("WebRTCClient", "   Config: " + rtcConfig.iceServers.size() + " servers, SDP: " + rtcConfig.sdpSemantics);
@@ -128,32 +115,6 @@ public class WebRTCClient {
         Log.d("WebRTCClient", "✅ WebRTCClient initialization complete");
     }
 
-    //initializing peer connection section
-    private void initPeerConnectionFactory() {
-        PeerConnectionFactory.InitializationOptions options = PeerConnectionFactory.InitializationOptions
-                .builder(context)
-                .setFieldTrials("WebRTC-H264HighProfile/Enabled/")
-                .setEnableInternalTracer(true)
-                .createInitializationOptions();
-        PeerConnectionFactory.initialize(options);
-    }
-
-    private PeerConnectionFactory createPeerConnectionFactory() {
-        PeerConnectionFactory.Options options = new PeerConnectionFactory.Options();
-        options.disableEncryption = false;
-        options.disableNetworkMonitor = false;
-        
-        // ✅ Build the factory with audio and video support
-        PeerConnectionFactory factory = PeerConnectionFactory.builder()
-                .setVideoEncoderFactory(new DefaultVideoEncoderFactory(eglBaseContext,true,true))
-                .setVideoDecoderFactory(new DefaultVideoDecoderFactory(eglBaseContext))
-                .setOptions(options)
-                .createPeerConnectionFactory();
-        
-        Log.d("WebRTCClient", "PeerConnectionFactory created: " + (factory != null ? "SUCCESS" : "FAILED"));
-        return factory;
-    }
-
     private PeerConnection createPeerConnection(PeerConnection.Observer observer){
         // ✅ Create with RTCConfiguration for better control
         PeerConnection.RTCConfiguration rtcConfig = new PeerConnection.RTCConfiguration(iceServer);
@@ -188,13 +149,14 @@ public class WebRTCClient {
             return;
         }
         
-        SurfaceTextureHelper helper= SurfaceTextureHelper.create(
+        surfaceTextureHelper = SurfaceTextureHelper.create(
                 Thread.currentThread().getName(), eglBaseContext
         );
 
         videoCapturer = getVideoCapturer();
-        videoCapturer.initialize(helper,context,localVideoSource.getCapturerObserver());
-        videoCapturer.startCapture(480,360,15);
+        videoCapturer.initialize(surfaceTextureHelper,context,localVideoSource.getCapturerObserver());
+        VideoQualityController.Tier tier = VideoQualityController.INITIAL_TIER;
+        videoCapturer.startCapture(tier.captureWidth,tier.captureHeight,tier.captureFps);
         localVideoTrack = peerConnectionFactory.createVideoTrack(
                 localTrackId+"_video",localVideoSource
         );
@@ -281,19 +243,74 @@ public class WebRTCClient {
         peerConnection.setRemoteDescription(new MySdpObserver(),sessionDescription);
     }
 
+    /**
+     * Re-offer with fresh ICE credentials to find a new path; tracks and media stay as they are
+     */
+    public void restartIce(String target){
+        if (peerConnection == null || target == null) return;
+        peerConnection.restartIce();
+        call(target);
+    }
+
+    public boolean hasPendingLocalOffer(){
+        return peerConnection != null
+                && peerConnection.signalingState() == PeerConnection.SignalingState.HAVE_LOCAL_OFFER;
+    }
+
+    /**
+     * Withdraw our unanswered offer so the peer's crossing one can be applied
+     */
+    public void rollbackLocalOffer(){
+        peerConnection.setLocalDescription(new MySdpObserver(),
+                new SessionDescription(SessionDescription.Type.ROLLBACK, ""));
+    }
+
     public void addIceCandidate(IceCandidate iceCandidate){
         peerConnection.addIceCandidate(iceCandidate);
     }
 
+    /**
+     * Apply a whole batch of remote candidates in one pass
+     */
+    public void addIceCandidates(List<IceCandidate> iceCandidates){
+        if (peerConnection == null) return;
+        for (IceCandidate candidate : iceCandidates) {
+            peerConnection.addIceCandidate(candidate);
+        }
+        Log.d("WebRTCClient", "🧊 Applied " + iceCandidates.size() + " remote ICE candidate(s)");
+    }
+
     public void sendIceCandidate(IceCandidate iceCandidate, String target){
-        addIceCandidate(iceCandidate);
+        iceBatcher.add(iceCandidate, target);
+    }
+
+    private void sendIceCandidateBatch(String target, IceCandidateBatcher.Batch batch){
         if (listener!=null){
             listener.onTransferDataToOtherPeer(new DataModel(
-                    target,username,gson.toJson(iceCandidate),DataModelType.IceCandidate
+                    target,username,gson.toJson(batch),DataModelType.IceCandidates
             ));
         }
     }
 
+    public boolean isClosed(){
+        return isDisposed;
+    }
+
+    /**
+     * The live peer connection, for stats polling (null once closed)
+     */
+    public PeerConnection getPeerConnection(){
+        return peerConnection;
+    }
+
+    /**
+     * Bitrate/resolution adaptation for this call's outgoing video, or null without a camera
+     */
+    public VideoQualityController newVideoQualityController(){
+        if (peerConnection == null || localVideoTrack == null) return null;
+        return new VideoQualityController(peerConnection, videoCapturer);
+    }
+
     public void switchCamera() {
         videoCapturer.switchCamera(null);
     }
@@ -314,6 +331,7 @@ public class WebRTCClient {
         
         try{
             Log.d("WebRTCClient", "🧹 Starting cleanup...");
+            iceBatcher.reset();
             
             // ✅ IMPORTANT: Remove tracks from stream BEFORE disposing them
             if (localStream != null) {
@@ -354,6 +372,12 @@ public class WebRTCClient {
                 }
             }
             
+            // ✅ Release the capture texture (its GL resources live on the shared context)
+            if (surfaceTextureHelper != null) {
+                surfaceTextureHelper.dispose();
+                surfaceTextureHelper = null;
+            }
+
             // ✅ NOW dispose local stream (after tracks are removed)
             if (localStream != null) {
                 localStream.dispose();
@@ -8,9 +8,6 @@ import org.webrtc.AudioTrack;
 import org.webrtc.Camera2Enumerator;
 import org.webrtc.CameraEnumerator;
 import org.webrtc.CameraVideoCapturer;
-import org.webrtc.DefaultVideoDecoderFactory;
-import org.webrtc.DefaultVideoEncoderFactory;
-import org.webrtc.EglBase;
 import org.webrtc.IceCandidate;
 import org.webrtc.MediaConstraints;
 import org.webrtc.MediaStream;
@@ -24,8 +21,6 @@ import org.webrtc.SurfaceTextureHelper;
 import org.webrtc.VideoSource;
 import org.webrtc.VideoTrack;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -57,37 +52,8 @@ public class WebRtcAudioEngine {
     private WebRtcListener listener;
     private MyPeerConnectionObserver peerConnectionObserver;
 
-    // STUN/TURN servers for NAT traversal
-    private static final List<PeerConnection.IceServer> ICE_SERVERS = new ArrayList<>();
-
-    static {
-        // Public STUN servers (free, no auth needed)
-        ICE_SERVERS.add(PeerConnection.IceServer.builder("stun:stun.l.google.com:19302").createIceServer());
-        ICE_SERVERS.add(PeerConnection.IceServer.builder("stun:stun1.l.google.com:19302").createIceServer());
-        ICE_SERVERS.add(PeerConnection.IceServer.builder("stun:stun2.l.google.com:19302").createIceServer());
-        ICE_SERVERS.add(PeerConnection.IceServer.builder("stun:stun3.l.google.com:19302").createIceServer());
-        ICE_SERVERS.add(PeerConnection.IceServer.builder("stun:stun4.l.google.com:19302").createIceServer());
-
-        // Public TURN server (coturn)
-        ICE_SERVERS.add(
-                PeerConnection.IceServer.builder("turn:openrelay.metered.ca:80")
-                        .setUsername("openrelayproject")
-                        .setPassword("openrelayproject")
-                        .createIceServer()
-        );
-        ICE_SERVERS.add(
-                PeerConnection.IceServer.builder("turn:openrelay.metered.ca:443")
-                        .setUsername("openrelayproject")
-                        .setPassword("openrelayproject")
-                        .createIceServer()
-        );
-        ICE_SERVERS.add(
-                PeerConnection.IceServer.builder("turn:openrelay.metered.ca:443?transport=tcp")
-                        .setUsername("openrelayproject")
-                        .setPassword("openrelayproject")
-                        .createIceServer()
-        );
-    }
+    // STUN/TURN servers for NAT traversal (see IceServerProvider)
+    private IceServerProvider iceServerProvider;
 
     private ExecutorService executor = Executors.newSingleThreadExecutor();
     private boolean isAudioEnabled = true;
@@ -108,33 +74,11 @@ public class WebRtcAudioEngine {
         this.listener = listener;
 
         try {
-            // Initialize PeerConnectionFactory
-            PeerConnectionFactory.InitializationOptions initializationOptions =
-                    PeerConnectionFactory.InitializationOptions.builder(context)
-                            .setEnableInternalTracer(true)
-                            .setFieldTrials("WebRTC-Audio-Processing/Enabled/")
-                            .createInitializationOptions();
-
-            PeerConnectionFactory.initialize(initializationOptions);
-
-            // Create encoder/decoder factories
-            DefaultVideoEncoderFactory encoderFactory = new DefaultVideoEncoderFactory(
-                    EglBase.create().getEglBaseContext(),
-                    true,
-                    true
-            );
-
-            DefaultVideoDecoderFactory decoderFactory = new DefaultVideoDecoderFactory(
-                    EglBase.create().getEglBaseContext()
-            );
-
-            // Create PeerConnectionFactory
-            peerConnectionFactory = PeerConnectionFactory.builder()
-                    .setVideoEncoderFactory(encoderFactory)
-                    .setVideoDecoderFactory(decoderFactory)
-                    .createPeerConnectionFactory();
+            // ✅ Shared process-wide factory (initialized on first use)
+            peerConnectionFactory = WebRtcRuntime.get(context).getFactory();
+            iceServerProvider = IceServerProvider.get(context);
 
-            Log.d(TAG, "✅ PeerConnectionFactory created");
+            Log.d(TAG, "✅ PeerConnectionFactory ready");
 
             // Create audio source with echo cancellation
             MediaConstraints audioConstraints = new MediaConstraints();
@@ -203,7 +147,8 @@ public class WebRtcAudioEngine {
             );
 
             // Create peer connection with ICE servers
-            PeerConnection.RTCConfiguration rtcConfig = new PeerConnection.RTCConfiguration(ICE_SERVERS);
+            PeerConnection.RTCConfiguration rtcConfig = new PeerConnection.RTCConfiguration(
+                    iceServerProvider.getIceServers());
             rtcConfig.enableDscp = true;
             rtcConfig.sdpSemantics = PeerConnection.SdpSemantics.UNIFIED_PLAN;
 
@@ -425,9 +370,11 @@ public class WebRtcAudioEngine {
 
         if (peerConnection != null) {
             peerConnection.close();
+            peerConnection.dispose();
             peerConnection = null;
         }
 
+        // The factory is shared (WebRtcRuntime): never disposed here
         if (peerConnectionFactory != null) {
             peerConnectionFactory.stopAecDump();
         }
@@ -0,0 +1,84 @@
+package com.example.project_ez_talk.webrtc;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.project_ez_talk.BuildConfig;
+
+import org.webrtc.DefaultVideoDecoderFactory;
+import org.webrtc.DefaultVideoEncoderFactory;
+import org.webrtc.EglBase;
+import org.webrtc.PeerConnectionFactory;
+
+/**
+ * ✅ Process-wide WebRTC runtime, created on first use
+ * Owns the one PeerConnectionFactory, EGL context and video codec factories that every
+ * call shares. Nothing here runs at app start: the native library is loaded and the
+ * factory built the first time a call needs it, then reused for the life of the process
+ * (calls only create and dispose their own peer connections, tracks and capturers).
+ */
+public final class WebRtcRuntime {
+
+    private static final String TAG = "WebRtcRuntime";
+
+    private static final String FIELD_TRIALS =
+            "WebRTC-H264HighProfile/Enabled/WebRTC-Audio-Processing/Enabled/";
+
+    private static volatile WebRtcRuntime instance;
+
+    private final EglBase eglBase;
+    private final PeerConnectionFactory factory;
+
+    private WebRtcRuntime(Context context) {
+        long start = System.currentTimeMillis();
+
+        PeerConnectionFactory.initialize(
+                PeerConnectionFactory.InitializationOptions.builder(context)
+                        .setFieldTrials(FIELD_TRIALS)
+                        // The internal tracer costs CPU on every call: debug builds only
+                        .setEnableInternalTracer(BuildConfig.DEBUG)
+                        .createInitializationOptions());
+
+        eglBase = EglBase.create();
+
+        PeerConnectionFactory.Options options = new PeerConnectionFactory.Options();
+        options.disableEncryption = false;
+        options.disableNetworkMonitor = false;
+
+        factory = PeerConnectionFactory.builder()
+                .setVideoEncoderFactory(new DefaultVideoEncoderFactory(eglBase.getEglBaseContext(), true, true))
+                .setVideoDecoderFactory(new DefaultVideoDecoderFactory(eglBase.getEglBaseContext()))
+                .setOptions(options)
+                .createPeerConnectionFactory();
+
+        Log.d(TAG, "✅ WebRTC runtime ready in " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * Get the shared runtime, initializing WebRTC on the first call
+     */
+    public static WebRtcRuntime get(Context context) {
+        WebRtcRuntime runtime = instance;
+        if (runtime == null) {
+            synchronized (WebRtcRuntime.class) {
+                runtime = instance;
+                if (runtime == null) {
+                    runtime = new WebRtcRuntime(context.getApplicationContext());
+                    instance = runtime;
+                }
+            }
+        }
+        return runtime;
+    }
+
+    public PeerConnectionFactory getFactory() {
+        return factory;
+    }
+
+    /**
+     * Shared EGL context for renderers, capturers and the hardware codecs
+     */
+    public EglBase.Context getEglContext() {
+        return eglBase.getEglBaseContext();
+    }
+}
@@ -0,0 +1,334 @@
+package com.example.project_ez_talk.helper;
+
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * TusUploader against a local TUS stand-in
+ */
+public class TusUploaderTest {
+
+    private static final String FINGERPRINT = "test|file|1000";
+
+    private final byte[] file = new byte[1000];
+    private final MemoryPreferences state = new MemoryPreferences();
+
+    private MockWebServer server;
+    private TusUploader uploader;
+
+    @Before
+    public void setUp() throws Exception {
+        for (int i = 0; i < file.length; i++) {
+            file[i] = (byte) (i * 31);
+        }
+        server = new MockWebServer();
+        server.start();
+        uploader = new TusUploader(state, new OkHttpClient(),
+                server.url("/upload/resumable").toString(), "test-key");
+        uploader.setBackoffBaseMs(1);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void shortAcknowledgementResendsFromServerOffset() throws Exception {
+        int kept = 400;
+
+        server.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", "/upload/resumable/abc"));
+        server.enqueue(new MockResponse().setResponseCode(204).setHeader("Upload-Offset", kept));
+        server.enqueue(new MockResponse().setResponseCode(204).setHeader("Upload-Offset", file.length));
+
+        assertEquals("dir/file.bin", upload());
+
+        RecordedRequest create = server.takeRequest();
+        assertEquals("POST", create.getMethod());
+        assertEquals(String.valueOf(file.length), create.getHeader("Upload-Length"));
+
+        // The server stores only what it acknowledged from each PATCH
+        ByteArrayOutputStream stored = new ByteArrayOutputStream();
+        RecordedRequest first = server.takeRequest();
+        assertEquals("0", first.getHeader("Upload-Offset"));
+        stored.write(first.getBody().readByteArray(), 0, kept);
+
+        RecordedRequest second = server.takeRequest();
+        assertEquals(String.valueOf(kept), second.getHeader("Upload-Offset"));
+        stored.write(second.getBody().readByteArray());
+
+        assertArrayEquals(file, stored.toByteArray());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void persistedUploadResumesFromServerOffset() throws Exception {
+        int kept = 400;
+        saveState("/upload/resumable/abc", "dir/first-attempt.bin");
+
+        server.enqueue(new MockResponse().setResponseCode(200).setHeader("Upload-Offset", kept));
+        server.enqueue(new MockResponse().setResponseCode(204).setHeader("Upload-Offset", file.length));
+
+        // The object path chosen by the interrupted attempt wins
+        assertEquals("dir/first-attempt.bin", upload());
+
+        RecordedRequest head = server.takeRequest();
+        assertEquals("HEAD", head.getMethod());
+        assertEquals("/upload/resumable/abc", head.getPath());
+
+        RecordedRequest patch = server.takeRequest();
+        assertEquals("PATCH", patch.getMethod());
+        assertEquals("/upload/resumable/abc", patch.getPath());
+        assertEquals(String.valueOf(kept), patch.getHeader("Upload-Offset"));
+        assertArrayEquals(Arrays.copyOfRange(file, kept, file.length), patch.getBody().readByteArray());
+
+        assertEquals(2, server.getRequestCount());
+        assertFalse(state.contains(FINGERPRINT));
+    }
+
+    @Test
+    public void expiredUploadUrlStartsOver() throws Exception {
+        saveState("/upload/resumable/gone", "dir/first-attempt.bin");
+
+        server.enqueue(new MockResponse().setResponseCode(404));
+        server.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", "/upload/resumable/fresh"));
+        server.enqueue(new MockResponse().setResponseCode(204).setHeader("Upload-Offset", file.length));
+
+        assertEquals("dir/file.bin", upload());
+
+        assertEquals("HEAD", server.takeRequest().getMethod());
+        RecordedRequest create = server.takeRequest();
+        assertEquals("POST", create.getMethod());
+        assertEquals(String.valueOf(file.length), create.getHeader("Upload-Length"));
+
+        RecordedRequest patch = server.takeRequest();
+        assertEquals("/upload/resumable/fresh", patch.getPath());
+        assertEquals("0", patch.getHeader("Upload-Offset"));
+        assertArrayEquals(file, patch.getBody().readByteArray());
+        assertFalse(state.contains(FINGERPRINT));
+    }
+
+    @Test
+    public void uploadExpiringMidwayStartsOverOnNextAttempt() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", "/upload/resumable/abc"));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setResponseCode(404));
+        try {
+            upload();
+            fail("Upload should have failed");
+        } catch (IOException expected) {
+            // The server dropped the upload while a chunk was being retried
+        }
+        assertFalse(state.contains(FINGERPRINT));
+
+        server.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", "/upload/resumable/fresh"));
+        server.enqueue(new MockResponse().setResponseCode(204).setHeader("Upload-Offset", file.length));
+        assertEquals("dir/file.bin", upload());
+
+        for (int i = 0; i < 3; i++) {
+            server.takeRequest();
+        }
+        // No HEAD for the dead URL: the next attempt creates a new upload straight away
+        assertEquals("POST", server.takeRequest().getMethod());
+        RecordedRequest patch = server.takeRequest();
+        assertEquals("/upload/resumable/fresh", patch.getPath());
+        assertEquals("0", patch.getHeader("Upload-Offset"));
+    }
+
+    @Test
+    public void givesUpAfterMaxRetriesAndKeepsStateForLater() throws Exception {
+        FailingChunks dispatcher = new FailingChunks();
+        server.setDispatcher(dispatcher);
+
+        try {
+            upload();
+            fail("Upload should have given up");
+        } catch (IOException expected) {
+            // Every chunk was rejected
+        }
+
+        assertEquals(TusUploader.MAX_RETRIES + 1, dispatcher.patches);
+        assertEquals(TusUploader.MAX_RETRIES, dispatcher.heads);
+        // The upload URL is kept so a later attempt can resume it
+        assertTrue(state.contains(FINGERPRINT));
+    }
+
+    // ==================== HELPERS ====================
+
+    private String upload() throws IOException {
+        return uploader.upload(FINGERPRINT, () -> new ByteArrayInputStream(file),
+                file.length, "bucket", "dir/file.bin", "application/octet-stream", null);
+    }
+
+    private void saveState(String uploadPath, String objectPath) throws Exception {
+        JSONObject saved = new JSONObject();
+        saved.put("url", server.url(uploadPath).toString());
+        saved.put("object", objectPath);
+        saved.put("created", System.currentTimeMillis());
+        state.edit().putString(FINGERPRINT, saved.toString()).apply();
+    }
+
+    /**
+     * Creates uploads and reports offset 0, but rejects every chunk
+     */
+    private static final class FailingChunks extends Dispatcher {
+        int patches;
+        int heads;
+
+        @NonNull
+        @Override
+        public synchronized MockResponse dispatch(@NonNull RecordedRequest request) {
+            switch (request.getMethod()) {
+                case "POST":
+                    return new MockResponse().setResponseCode(201).setHeader("Location", "/upload/resumable/abc");
+                case "HEAD":
+                    heads++;
+                    return new MockResponse().setResponseCode(200).setHeader("Upload-Offset", 0);
+                case "PATCH":
+                    patches++;
+                    return new MockResponse().setResponseCode(500);
+                default:
+                    return new MockResponse().setResponseCode(405);
+            }
+        }
+    }
+
+    /**
+     * Just enough SharedPreferences for the upload state TusUploader persists
+     */
+    private static final class MemoryPreferences implements SharedPreferences {
+        private final Map<String, Object> values = new HashMap<>();
+
+        @Override
+        public Map<String, ?> getAll() {
+            return new HashMap<>(values);
+        }
+
+        @Override
+        public String getString(String key, String defValue) {
+            Object value = values.get(key);
+            return value != null ? (String) value : defValue;
+        }
+
+        @Override
+        public Set<String> getStringSet(String key, Set<String> defValues) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int getInt(String key, int defValue) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long getLong(String key, long defValue) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public float getFloat(String key, float defValue) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean getBoolean(String key, boolean defValue) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean contains(String key) {
+            return values.containsKey(key);
+        }
+
+        @Override
+        public Editor edit() {
+            return new Editor() {
+                @Override
+                public Editor putString(String key, String value) {
+                    values.put(key, value);
+                    return this;
+                }
+
+                @Override
+                public Editor putStringSet(String key, Set<String> value) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public Editor putInt(String key, int value) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public Editor putLong(String key, long value) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public Editor putFloat(String key, float value) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public Editor putBoolean(String key, boolean value) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public Editor remove(String key) {
+                    values.remove(key);
+                    return this;
+                }
+
+                @Override
+                public Editor clear() {
+                    values.clear();
+                    return this;
+                }
+
+                @Override
+                public boolean commit() {
+                    return true;
+                }
+
+                @Override
+                public void apply() {
+                }
+            };
+        }
+
+        @Override
+        public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        }
+
+        @Override
+        public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        }
+    }
+}
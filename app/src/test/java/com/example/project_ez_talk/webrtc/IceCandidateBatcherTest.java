@@ -0,0 +1,143 @@
+package com.example.project_ez_talk.webrtc;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.webrtc.IceCandidate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * IceCandidateBatcher's window, size cap, dedup and peer switch, with a manual timer
+ */
+public class IceCandidateBatcherTest {
+
+    private final List<String> targets = new ArrayList<>();
+    private final List<IceCandidateBatcher.Batch> batches = new ArrayList<>();
+    private final ManualTimer timer = new ManualTimer();
+
+    private IceCandidateBatcher batcher;
+
+    @Before
+    public void setUp() {
+        batcher = new IceCandidateBatcher((target, batch) -> {
+            targets.add(target);
+            batches.add(batch);
+        }, timer);
+    }
+
+    @Test
+    public void candidatesWithinTheWindowGoOutTogether() {
+        batcher.add(candidate(1), "alice");
+        batcher.add(candidate(2), "alice");
+        batcher.add(candidate(3), "alice");
+        assertTrue(batches.isEmpty());
+        assertEquals(IceCandidateBatcher.WINDOW_MS, timer.delayMs);
+
+        timer.fire();
+        assertEquals(1, batches.size());
+        assertEquals("alice", targets.get(0));
+        assertSdps(batches.get(0), 1, 2, 3);
+    }
+
+    @Test
+    public void fullBatchIsSentWithoutWaiting() {
+        for (int i = 0; i < IceCandidateBatcher.MAX_BATCH; i++) {
+            batcher.add(candidate(i), "alice");
+        }
+        assertEquals(1, batches.size());
+        assertEquals(IceCandidateBatcher.MAX_BATCH, batches.get(0).candidates.size());
+        assertNull(timer.task);
+
+        // The next candidate opens a new window
+        batcher.add(candidate(IceCandidateBatcher.MAX_BATCH), "alice");
+        assertEquals(1, batches.size());
+        timer.fire();
+        assertEquals(2, batches.size());
+        assertSdps(batches.get(1), IceCandidateBatcher.MAX_BATCH);
+    }
+
+    @Test
+    public void repeatedCandidatesAreSentOnce() {
+        batcher.add(candidate(1), "alice");
+        batcher.add(candidate(1), "alice");
+        timer.fire();
+
+        // Continual gathering reports it again later
+        batcher.add(candidate(1), "alice");
+        batcher.add(candidate(2), "alice");
+        timer.fire();
+
+        assertEquals(2, batches.size());
+        assertSdps(batches.get(0), 1);
+        assertSdps(batches.get(1), 2);
+    }
+
+    @Test
+    public void newPeerFlushesThePreviousOneAndStartsClean() {
+        batcher.add(candidate(1), "alice");
+        batcher.add(candidate(1), "bob");
+
+        assertEquals(1, batches.size());
+        assertEquals("alice", targets.get(0));
+        assertSdps(batches.get(0), 1);
+
+        // Already sent to alice, but new to bob
+        timer.fire();
+        assertEquals(2, batches.size());
+        assertEquals("bob", targets.get(1));
+        assertSdps(batches.get(1), 1);
+    }
+
+    @Test
+    public void resetDropsBufferedCandidates() {
+        batcher.add(candidate(1), "alice");
+        batcher.reset();
+        assertNull(timer.task);
+
+        batcher.flush();
+        assertTrue(batches.isEmpty());
+    }
+
+    // ==================== HELPERS ====================
+
+    private static IceCandidate candidate(int n) {
+        return new IceCandidate("0", 0, "candidate:" + n);
+    }
+
+    private static void assertSdps(IceCandidateBatcher.Batch batch, int... expected) {
+        assertEquals(expected.length, batch.candidates.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("candidate:" + expected[i], batch.candidates.get(i).sdp);
+        }
+    }
+
+    /**
+     * Holds the one pending flush until the test fires it
+     */
+    private static final class ManualTimer implements IceCandidateBatcher.Timer {
+        Runnable task;
+        long delayMs;
+
+        @Override
+        public void schedule(Runnable task, long delayMs) {
+            this.task = task;
+            this.delayMs = delayMs;
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            if (this.task == task) this.task = null;
+        }
+
+        void fire() {
+            Runnable pending = task;
+            task = null;
+            if (pending != null) pending.run();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.project_ez_talk.webrtc;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * VideoQualityController's tier state machine fed with synthetic stats samples
+ */
+public class VideoQualityControllerTest {
+
+    private static final long INTERVAL_MS = CallStatsCollector.INTERVAL_MS;
+    // What the estimate settles at while only audio is sent
+    private static final double AUDIO_ONLY_KBPS = 40;
+
+    private VideoQualityController controller;
+    private long now;
+
+    @Before
+    public void setUp() {
+        controller = new VideoQualityController(null, null);
+        now = 1_000_000;
+    }
+
+    @Test
+    public void congestionStepsDownToTheTierTheEstimateCarries() {
+        feed(1, 100, 0);
+        assertEquals(VideoQualityController.INITIAL_TIER, controller.getTier());
+
+        feed(1, 100, 0);
+        assertEquals(VideoQualityController.Tier.MINIMAL, controller.getTier());
+    }
+
+    @Test
+    public void headroomStepsUpAfterEnoughGoodSamples() {
+        feed(VideoQualityController.UP_SAMPLES - 1, 2000, 0);
+        assertEquals(VideoQualityController.Tier.MEDIUM, controller.getTier());
+
+        feed(1, 2000, 0);
+        assertEquals(VideoQualityController.Tier.HIGH, controller.getTier());
+    }
+
+    @Test
+    public void audioOnlyResumesVideoAfterDelay() {
+        goAudioOnly();
+        long since = now;
+
+        // The estimate only reflects the audio stream: no headroom will ever show up
+        while (now + INTERVAL_MS < since + VideoQualityController.RESUME_DELAY_MS) {
+            feed(1, AUDIO_ONLY_KBPS, -1);
+        }
+        assertEquals(VideoQualityController.Tier.AUDIO_ONLY, controller.getTier());
+
+        feed(1, AUDIO_ONLY_KBPS, -1);
+        assertEquals(VideoQualityController.Tier.MINIMAL, controller.getTier());
+    }
+
+    @Test
+    public void lowEstimateWhileRampingDoesNotEndTheTrial() {
+        goAudioOnly();
+        resumeVideo(VideoQualityController.RESUME_DELAY_MS);
+
+        feedFor(VideoQualityController.RESUME_GRACE_MS - INTERVAL_MS, AUDIO_ONLY_KBPS, 0);
+        assertEquals(VideoQualityController.Tier.MINIMAL, controller.getTier());
+
+        // Recovered link: the estimate catches up and video stays on
+        feedFor(VideoQualityController.RESUME_HOLD_MS, 200, 0);
+        assertEquals(VideoQualityController.Tier.MINIMAL, controller.getTier());
+    }
+
+    @Test
+    public void failedTrialDoublesTheWaitAndHeldTrialResetsIt() {
+        goAudioOnly();
+        resumeVideo(VideoQualityController.RESUME_DELAY_MS);
+
+        // Still lossy: back to audio-only, next trial waits twice as long
+        feed(VideoQualityController.DOWN_SAMPLES, 100, 30);
+        assertEquals(VideoQualityController.Tier.AUDIO_ONLY, controller.getTier());
+        feedFor(VideoQualityController.RESUME_DELAY_MS + INTERVAL_MS, AUDIO_ONLY_KBPS, -1);
+        assertEquals(VideoQualityController.Tier.AUDIO_ONLY, controller.getTier());
+        resumeVideo(VideoQualityController.RESUME_DELAY_MS);
+
+        // This one holds past the hold window
+        feedFor(VideoQualityController.RESUME_HOLD_MS, 100, 0);
+        assertEquals(VideoQualityController.Tier.MINIMAL, controller.getTier());
+
+        // A later fallback starts from the base delay again
+        feed(VideoQualityController.DOWN_SAMPLES, 10, 30);
+        assertEquals(VideoQualityController.Tier.AUDIO_ONLY, controller.getTier());
+        resumeVideo(VideoQualityController.RESUME_DELAY_MS);
+    }
+
+    @Test
+    public void resumeDelayIsCapped() {
+        goAudioOnly();
+        for (int i = 0; i < 10; i++) {
+            resumeVideo(VideoQualityController.MAX_RESUME_DELAY_MS);
+            feed(VideoQualityController.DOWN_SAMPLES, 10, 30);
+            assertEquals(VideoQualityController.Tier.AUDIO_ONLY, controller.getTier());
+        }
+    }
+
+    // ==================== HELPERS ====================
+
+    private void goAudioOnly() {
+        feed(VideoQualityController.DOWN_SAMPLES, 10, 30);
+        assertEquals(VideoQualityController.Tier.AUDIO_ONLY, controller.getTier());
+    }
+
+    /**
+     * Stay audio-only until video comes back, at most {@code maxDelayMs} later
+     */
+    private void resumeVideo(long maxDelayMs) {
+        long deadline = now + maxDelayMs;
+        while (controller.getTier() == VideoQualityController.Tier.AUDIO_ONLY && now <= deadline) {
+            feed(1, AUDIO_ONLY_KBPS, -1);
+        }
+        assertEquals(VideoQualityController.Tier.MINIMAL, controller.getTier());
+    }
+
+    private void feedFor(long durationMs, double availableKbps, double lossPercent) {
+        feed((int) (durationMs / INTERVAL_MS), availableKbps, lossPercent);
+    }
+
+    private void feed(int count, double availableKbps, double lossPercent) {
+        for (int i = 0; i < count; i++) {
+            now += INTERVAL_MS;
+            CallStatsCollector.Sample sample = new CallStatsCollector.Sample();
+            sample.timestamp = now;
+            sample.availableOutKbps = availableKbps;
+            sample.outLossPercent = lossPercent;
+            controller.onSample(sample);
+        }
+    }
+}